@@ -4,7 +4,6 @@ import org.moorecoinlab.client.api.render.errorrender;
 import org.moorecoinlab.client.handler.*;
 import org.moorecoinlab.core.exception.moorecoinexception;
 import io.netty.buffer.unpooled;
-import io.netty.channel.channel;
 import io.netty.channel.channelfuturelistener;
 import io.netty.channel.channelhandlercontext;
 import io.netty.channel.channelinboundhandleradapter;
@@ -13,23 +12,25 @@ import io.netty.handler.codec.http.multipart.attribute;
 import io.netty.handler.codec.http.multipart.defaulthttpdatafactory;
 import io.netty.handler.codec.http.multipart.httppostrequestdecoder;
 import io.netty.handler.codec.http.multipart.interfacehttpdata;
-import io.netty.handler.stream.chunkedfile;
 import io.netty.handler.timeout.readtimeoutexception;
 import io.netty.handler.timeout.writetimeoutexception;
 import io.netty.util.charsetutil;
+import com.google.gson.gson;
 import org.apache.commons.lang3.stringutils;
 import org.apache.commons.lang3.math.numberutils;
 import org.apache.log4j.logger;
 
 import java.io.ioexception;
-import java.io.randomaccessfile;
 import java.io.unsupportedencodingexception;
 import java.net.inetaddress;
 import java.net.inetsocketaddress;
 import java.net.unknownhostexception;
+import java.util.collections;
 import java.util.hashmap;
 import java.util.list;
 import java.util.map;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.completionexception;
 import java.util.concurrent.concurrenthashmap;
 import java.util.concurrent.concurrentmap;
 import java.util.concurrent.atomic.atomicinteger;
@@ -46,16 +47,18 @@ public class clienthandler extends channelinboundhandleradapter {
     private static final concurrentmap<string, ratelimitstatus> limitmap = new concurrenthashmap<>();
 
     static {
+        responsecache cache = responsecache.instance;
         processors.put("ledger", ledgerlist.instance);
-        processors.put("ledgerdata", ledgerdata.instance);
+        processors.put("ledgerdata", cache.byledger(ledgerdata.instance, "index"));
         processors.put("serverstate", serverstate.instance);
-        processors.put("accountinfo", commonhandler.instance);
-        processors.put("ledgerinfo", commonhandler.instance);
-        processors.put("accounttxs", commonhandler.instance);
-        processors.put("accountlines", commonhandler.instance);
-        processors.put("accountoffers", commonhandler.instance);
+        processors.put("accountinfo", cache.byaccount(commonhandler.instance, "address"));
+        processors.put("ledgerinfo", cache.byledger(commonhandler.instance, "address"));
+        processors.put("accounttxs", cache.byaccount(commonhandler.instance, "address"));
+        processors.put("accountlines", cache.byaccount(commonhandler.instance, "address"));
+        processors.put("accountoffers", cache.byaccount(commonhandler.instance, "address"));
         processors.put("overview", overview.instance);
-        processors.put("tx", commonhandler.instance);
+        processors.put("tx", cache.bytx(commonhandler.instance, "address"));
+        processors.put("cachestats", params -> completablefuture.completedfuture(new gson().tojson(cache.metrics())));
     }
 
     public static string getclientip(channelhandlercontext ctx, httprequest request) {
@@ -86,7 +89,7 @@ public class clienthandler extends channelinboundhandleradapter {
         return s;
     }
 
-    private string processresponse(string requesttype, map<string, string> params) throws moorecoinexception {
+    private completablefuture<string> processresponse(string requesttype, map<string, string> params) throws moorecoinexception {
         if (processors.get(requesttype) == null) {
             throw new moorecoinexception("no processor found.");
         }
@@ -174,182 +177,24 @@ public class clienthandler extends channelinboundhandleradapter {
             }else if(req.geturi().endswith("/")){
                 sendredirect(ctx, req.geturi() + "index.html");
                 return;
+            }else if (req.geturi().endswith("/ledgers/events")) {
+                ledgerevents.instance.open(ctx);
+                return;
             }else if (req.geturi().contains("/ledger/")) {
-
-                long start = system.currenttimemillis();
                 string uri = req.geturi();
                 string ledgerindex = uri.substring(uri.indexof("/ledger/") + 8, uri.length());
-                randomaccessfile raf = null;
-                try {
-                    string classpath = this.getclass().getprotectiondomain().getcodesource().getlocation().getpath();
-
-                    string filepath = classpath.substring(0, (classpath.contains("lib") ? classpath.lastindexof("lib") : classpath.lastindexof("target"))) + "src/webapp/ledger.html";
-                    raf = new randomaccessfile(filepath, "r");
-                    long filelength = raf.length();
-                    byte[] bytes = new byte[(int) filelength];
-                    raf.read(bytes);
-                    string html = new string(bytes, "utf-8");
-                    html = html.replaceall("\\$index", ledgerindex);
-                    html = html.replaceall("\\$platform", org.moorecoinlab.client.util.config.getinstance().getproperty("client.name"));
-                    fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok, unpooled.wrappedbuffer(html.getbytes("utf-8")));
-                    response.headers().set(httpheaders.names.content_length,
-                            string.valueof(filelength));
-                    channel ch = ctx.channel();
-                    if (!req.getmethod().equals(httpmethod.head)) {
-                        ch.write(new chunkedfile(raf, 0, filelength, 8192));
-                    }
-
-                    if (!keepalive) {
-                        ctx.write(response).addlistener(channelfuturelistener.close);
-                    } else {
-                        response.headers().set(connection, httpheaders.values.keep_alive);
-                        ctx.write(response);
-                    }
-                } catch (exception e) {
-                    e.printstacktrace();
-                } finally {
-                    ctx.flush();
-//                    ctx.close();
-                    if (raf != null) {
-                        try {
-                            raf.close();
-                        } catch (ioexception e) {
-                            e.printstacktrace();
-                        }
-                    }
-                }
-                logger.info("cost:" + (system.currenttimemillis() - start));
+                staticcontent.instance.render(ctx, "ledger", collections.singletonmap("index", ledgerindex), keepalive);
                 return;
             }else if(req.geturi().contains("/search/")){
                 string data = req.geturi().substring(req.geturi().indexof("/search/") + 8, req.geturi().length());
-                randomaccessfile raf = null;
-                try {
-                    string classpath = this.getclass().getprotectiondomain().getcodesource().getlocation().getpath();
-
-                    string filepath = classpath.substring(0, (classpath.contains("lib") ? classpath.lastindexof("lib") : classpath.lastindexof("target"))) + "src/webapp/index.html";
-                    raf = new randomaccessfile(filepath, "r");
-                    long filelength = raf.length();
-                    byte[] bytes = new byte[(int) filelength];
-                    raf.read(bytes);
-                    string html = new string(bytes, "utf-8");
-                    if(numberutils.isnumber(data))
-                        html = html.replaceall("\\$sendreq", "sendreq('ledgerinfo', "+data+", 'ledger', 'ledger_detail', 'ledger info');");
-                    else if(data.length()>36){
-                        html = html.replaceall("\\$sendreq", "sendreq('tx', '"+data+"', 'tx', 'txinfo', 'transaction info');");
-                    }else{
-                        string replace = "sendreq('accountinfo', '"+data+"', 'account', 'account_info', \"account info\");\n" +
-                                "                sendreq('accounttxs', '"+data+"', 'account', 'account_txs', \"account transactions\");\n" +
-                                "                sendreq('accountlines', '"+data+"', 'account', 'account_lines', 'account lines');\n" +
-                                "                sendreq('accountoffers', '"+data+"', 'account', 'account_offers', 'account offers');";
-                        html = html.replaceall("\\$sendreq",replace);
-                    }
-                    html = html.replaceall("\\$platform", org.moorecoinlab.client.util.config.getinstance().getproperty("client.name"));
-                    html = html.replaceall("\\./", "../");
-                    fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok, unpooled.wrappedbuffer(html.getbytes("utf-8")));
-                    response.headers().set(httpheaders.names.content_length,
-                            string.valueof(filelength));
-                    channel ch = ctx.channel();
-                    if (!req.getmethod().equals(httpmethod.head)) {
-                        ch.write(new chunkedfile(raf, 0, filelength, 8192));
-                    }
-                    if (!keepalive) {
-                        ctx.write(response).addlistener(channelfuturelistener.close);
-                    } else {
-                        response.headers().set(connection, httpheaders.values.keep_alive);
-                        ctx.write(response);
-                    }
-                    return;
-                } catch (exception e2) {
-                    e2.printstacktrace();
-                } finally {
-                    ctx.flush();
-                    ctx.close();
-                    if (raf != null) {
-                        try {
-                            raf.close();
-                        } catch (ioexception e) {
-                            e.printstacktrace();
-                        }
-                    }
-                }
-            }
-
-            else if (req.geturi().contains(".html")) {
+                staticcontent.instance.render(ctx, "search", collections.singletonmap("sendreq", searchrequests(data)), keepalive);
+                return;
+            } else if (req.geturi().contains(".html")) {
                 string name = req.geturi().substring(req.geturi().lastindexof("/") + 1, req.geturi().lastindexof(".html"));
-                //index page
-                randomaccessfile raf = null;
-                try {
-                    string classpath = this.getclass().getprotectiondomain().getcodesource().getlocation().getpath();
-
-                    string filepath = classpath.substring(0, (classpath.contains("lib") ? classpath.lastindexof("lib") : classpath.lastindexof("target"))) + "src/webapp/" + name + ".html";
-                    raf = new randomaccessfile(filepath, "r");
-                    long filelength = raf.length();
-                    byte[] bytes = new byte[(int) filelength];
-                    raf.read(bytes);
-                    string html = new string(bytes, "utf-8");
-                    html = html.replaceall("\\$platform", org.moorecoinlab.client.util.config.getinstance().getproperty("client.name"));
-                    fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok, unpooled.wrappedbuffer(html.getbytes("utf-8")));
-                    response.headers().set(httpheaders.names.content_length,
-                            string.valueof(filelength));
-                    channel ch = ctx.channel();
-                    if (!req.getmethod().equals(httpmethod.head)) {
-                        ch.write(new chunkedfile(raf, 0, filelength, 8192));
-                    }
-                    if (!keepalive) {
-                        ctx.write(response).addlistener(channelfuturelistener.close);
-                    } else {
-                        response.headers().set(connection, httpheaders.values.keep_alive);
-                        ctx.write(response);
-                    }
-                    return;
-                } catch (exception e2) {
-                    e2.printstacktrace();
-                } finally {
-                    ctx.flush();
-                    ctx.close();
-                    if (raf != null) {
-                        try {
-                            raf.close();
-                        } catch (ioexception e) {
-                            e.printstacktrace();
-                        }
-                    }
-                }
+                staticcontent.instance.serve(ctx, req, name + ".html", keepalive);
+                return;
             } else if (req.geturi().contains("static")) {
-                string classpath = this.getclass().getprotectiondomain().getcodesource().getlocation().getpath();
-                string filepath = classpath.substring(0, (classpath.contains("lib") ? classpath.lastindexof("lib") : classpath.lastindexof("target")))
-                        + "src/webapp/" + req.geturi().substring(req.geturi().lastindexof("static"), req.geturi().length());
-                randomaccessfile raf = null;
-                try {
-                    raf = new randomaccessfile(filepath, "r");
-                    long filelength = raf.length();
-                    byte[] bytes = new byte[(int) filelength];
-                    raf.read(bytes);
-                    fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok, unpooled.wrappedbuffer(bytes));
-                    response.headers().set(httpheaders.names.content_length,
-                            string.valueof(filelength));
-                    channel ch = ctx.channel();
-                    if (!req.getmethod().equals(httpmethod.head)) {
-                        ch.write(new chunkedfile(raf, 0, filelength, 8192));
-                    }
-                    if (!keepalive) {
-                        ctx.write(response).addlistener(channelfuturelistener.close);
-                    } else {
-                        response.headers().set(connection, httpheaders.values.keep_alive);
-                        ctx.write(response);
-                    }
-                } catch (exception e) {
-                    e.printstacktrace();
-                } finally {
-                    ctx.flush();
-                    ctx.close();
-                    if (raf != null)
-                        try {
-                            raf.close();
-                        } catch (ioexception e) {
-                            e.printstacktrace();
-                        }
-                }
+                staticcontent.instance.serve(ctx, req, req.geturi().substring(req.geturi().lastindexof("static")), keepalive);
                 return;
             } else {
                 throw new moorecoinexception(405, "method not allowed.");
@@ -358,24 +203,44 @@ public class clienthandler extends channelinboundhandleradapter {
             if (stringutils.isblank(type)) {
                 throw new moorecoinexception(400, "can not find request type.");
             }
-            byte[] bytes = new byte[0];
-            try {
-                bytes = this.processresponse(type, params).getbytes("utf-8");
-            } catch (unsupportedencodingexception e) {
-                e.printstacktrace();
-            }
-            fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok, unpooled.wrappedbuffer(bytes));
-            response.headers().set(content_type, "application/json");
-            response.headers().set(content_length, response.content().readablebytes());
+            // the response is written from the callback, the event loop moves on to other channels meanwhile
+            this.processresponse(type, params).whencomplete((result, cause) -> {
+                if (cause != null) {
+                    exceptioncaught(ctx, cause instanceof completionexception && cause.getcause() != null ? cause.getcause() : cause);
+                } else {
+                    writejson(ctx, result, keepalive);
+                }
+            });
+        }
+    }
+
+    private static void writejson(channelhandlercontext ctx, string json, boolean keepalive) {
+        byte[] bytes = json.getbytes(charsetutil.utf_8);
+        fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok, unpooled.wrappedbuffer(bytes));
+        response.headers().set(content_type, "application/json");
+        response.headers().set(content_length, response.content().readablebytes());
 
+        if (!keepalive) {
+            ctx.writeandflush(response).addlistener(channelfuturelistener.close);
+        } else {
+            response.headers().set(connection, httpheaders.values.keep_alive);
+            ctx.writeandflush(response);
+        }
+    }
 
-            if (!keepalive) {
-                ctx.write(response).addlistener(channelfuturelistener.close);
-            } else {
-                response.headers().set(connection, httpheaders.values.keep_alive);
-                ctx.write(response);
-            }
-            ctx.flush();
+    /**
+     * the requests the search page sends on load for data, a ledger index, a transaction hash or an account.
+     */
+    private static string searchrequests(string data) {
+        if(numberutils.isnumber(data))
+            return "sendreq('ledgerinfo', "+data+", 'ledger', 'ledger_detail', 'ledger info');";
+        else if(data.length()>36){
+            return "sendreq('tx', '"+data+"', 'tx', 'txinfo', 'transaction info');";
+        }else{
+            return "sendreq('accountinfo', '"+data+"', 'account', 'account_info', \"account info\");\n" +
+                    "                sendreq('accounttxs', '"+data+"', 'account', 'account_txs', \"account transactions\");\n" +
+                    "                sendreq('accountlines', '"+data+"', 'account', 'account_lines', 'account lines');\n" +
+                    "                sendreq('accountoffers', '"+data+"', 'account', 'account_offers', 'account offers');";
         }
     }
 
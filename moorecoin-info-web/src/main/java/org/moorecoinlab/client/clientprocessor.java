@@ -3,6 +3,7 @@ package org.moorecoinlab.client;
 import org.moorecoinlab.core.exception.moorecoinexception;
 
 import java.util.map;
+import java.util.concurrent.completablefuture;
 
 public interface clientprocessor {
 
@@ -10,5 +11,8 @@ public interface clientprocessor {
     static final string admin_uri = "http://"+ org.moorecoinlab.client.util.config.getinstance().getproperty("client.server.admin.host") + ":"+ org.moorecoinlab.client.util.config.getinstance().getproperty("client.server.port");
     static final string model_server = org.moorecoinlab.client.util.config.getinstance().getproperty("model.api.server");
 
-    public string processresponse(map<string, string> params) throws moorecoinexception;
+    /**
+     * @return the json to send back, completed off the server event loop when the upstream calls are answered
+     */
+    public completablefuture<string> processresponse(map<string, string> params) throws moorecoinexception;
 }
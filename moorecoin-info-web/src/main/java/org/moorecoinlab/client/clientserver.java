@@ -6,7 +6,9 @@ import io.netty.channel.nio.nioeventloopgroup;
 import io.netty.channel.socket.socketchannel;
 import io.netty.channel.socket.nio.nioserversocketchannel;
 import io.netty.handler.codec.http.httpcontentcompressor;
+import io.netty.handler.codec.http.httpheaders;
 import io.netty.handler.codec.http.httpobjectaggregator;
+import io.netty.handler.codec.http.httpresponse;
 import io.netty.handler.codec.http.httpservercodec;
 import io.netty.handler.logging.loglevel;
 import io.netty.handler.logging.logginghandler;
@@ -22,6 +24,7 @@ public class clientserver {
 
     public static void main(string args[]){
         try {
+            staticcontent.preload();
             serverbootstrap b = new serverbootstrap();
             b.option(channeloption.so_backlog, 1024);
             b.group(bossgroup, workergroup);
@@ -35,7 +38,16 @@ public class clientserver {
                     p.addlast(new writetimeouthandler(5));
                     p.addlast(new httpservercodec());
                     p.addlast(new httpobjectaggregator(1048576));
-                    p.addlast("deflater", new httpcontentcompressor(1));
+                    p.addlast("deflater", new httpcontentcompressor(1) {
+                        @override
+                        protected result beginencode(httpresponse headers, string acceptencoding) throws exception {
+                            // static content comes gzipped already, or as a file region the encoder can't wrap
+                            if (headers.headers().contains(httpheaders.names.etag)) {
+                                return null;
+                            }
+                            return super.beginencode(headers, acceptencoding);
+                        }
+                    });
                     p.addlast(new clienthandler());
                 }
             });
@@ -2,6 +2,7 @@ package org.moorecoinlab.client.handler;
 
 import com.google.gson.gson;
 import org.moorecoinlab.client.clientprocessor;
+import org.moorecoinlab.client.util.asynchttpclient;
 import org.moorecoinlab.client.util.httpclient;
 import org.moorecoinlab.core.exception.moorecoinexception;
 import org.apache.commons.lang3.math.numberutils;
@@ -9,12 +10,13 @@ import org.apache.commons.lang3.math.numberutils;
 import java.util.collections;
 import java.util.hashmap;
 import java.util.map;
+import java.util.concurrent.completablefuture;
 
 public class commonhandler implements clientprocessor {
 
     public static final commonhandler instance = new commonhandler();
     @override
-    public string processresponse(map<string, string> params) throws moorecoinexception {
+    public completablefuture<string> processresponse(map<string, string> params) throws moorecoinexception {
         string type = params.get("type");
         map<string, object> postdata = new hashmap<>();
         map<string, object> para = new hashmap<>();
@@ -57,8 +59,6 @@ public class commonhandler implements clientprocessor {
         postdata.put("params", collections.singletonlist(para));
         string data = new gson().tojson(postdata);
         system.out.println(data);
-        string result = httpclient.post(uri, data).getresponsestring();
-//        system.out.println(result);
-        return result;
+        return asynchttpclient.instance.post(uri, data).thenapply(httpclient.response::getresponsestring);
     }
 }
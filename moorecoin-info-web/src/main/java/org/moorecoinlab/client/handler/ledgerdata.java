@@ -2,6 +2,7 @@ package org.moorecoinlab.client.handler;
 
 import com.google.gson.gson;
 import org.moorecoinlab.client.clientprocessor;
+import org.moorecoinlab.client.util.asynchttpclient;
 import org.moorecoinlab.client.util.httpclient;
 import org.moorecoinlab.core.exception.moorecoinexception;
 import org.apache.commons.lang3.math.numberutils;
@@ -10,12 +11,13 @@ import org.json.jsonobject;
 import java.util.collections;
 import java.util.hashmap;
 import java.util.map;
+import java.util.concurrent.completablefuture;
 
 public class ledgerdata implements clientprocessor {
     public static final ledgerdata instance = new ledgerdata();
 
     @override
-    public string processresponse(map<string, string> params) throws moorecoinexception {
+    public completablefuture<string> processresponse(map<string, string> params) throws moorecoinexception {
         integer index = numberutils.createinteger(params.get("index"));
         gson gson = new gson();
         map<string, object> postdata = new hashmap<>();
@@ -25,9 +27,7 @@ public class ledgerdata implements clientprocessor {
         para.put("binary", false);
         para.put("limit", 256);
         postdata.put("params", collections.singletonlist(para));
-        string data = gson.tojson(postdata);
-        httpclient.response response = httpclient.post(uri, data);
-        jsonobject json = new jsonobject(response.getresponsestring());
+        completablefuture<httpclient.response> datacall = asynchttpclient.instance.post(uri, gson.tojson(postdata));
         postdata = new hashmap<>();
         para = new hashmap<>();
         postdata.put("method", "ledger");
@@ -38,9 +38,12 @@ public class ledgerdata implements clientprocessor {
         para.put("transactions", true);
         para.put("dividend", true);
         postdata.put("params", collections.singletonlist(para));
-        data = gson.tojson(postdata);
-        response = httpclient.post(uri, data);
-        jsonobject tmp = new jsonobject(response.getresponsestring());
+        // both calls are in flight at once
+        return datacall.thencombine(asynchttpclient.instance.post(uri, gson.tojson(postdata)),
+                (state, ledger) -> merge(state.getjson(), ledger.getjson()));
+    }
+
+    private string merge(jsonobject json, jsonobject tmp) {
         jsonobject ledger = tmp.getjsonobject("result").getjsonobject("ledger");
 
         json.getjsonobject("result").put("transactions", ledger.getjsonarray("transactions"));
@@ -1,65 +1,193 @@
 package org.moorecoinlab.client.handler;
 
 import com.google.gson.gson;
+import io.netty.util.concurrent.defaultthreadfactory;
 import org.moorecoinlab.client.clientprocessor;
+import org.moorecoinlab.client.ledgerstream;
 import org.moorecoinlab.client.util.convert;
-import org.moorecoinlab.client.util.httpclient;
+import org.moorecoinlab.client.util.asynchttpclient;
 import org.moorecoinlab.core.exception.moorecoinexception;
 import org.moorecoinlab.core.hash.b58;
 import org.apache.log4j.logger;
 import org.json.jsonobject;
 
 import java.util.*;
-import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.copyonwritearraylist;
+import java.util.concurrent.executors;
+import java.util.concurrent.scheduledexecutorservice;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomicboolean;
+import java.util.function.consumer;
 
+/**
+ * the latest closed ledgers, kept up to date in the background and served from memory.
+ *
+ * the ledger stream, shared with the response cache, reports every closed ledger, its header is fetched once and
+ * put into a ring of the last capacity ledgers, ledgers skipped by the stream are fetched too. while the stream is
+ * silent the last closed ledger is polled instead. ledgers which fail to be fetched are retried on the next check.
+ * requests only read the list, rendered once per change.
+ */
 public class ledgerlist implements clientprocessor {
 
-    public static final ledgerlist instance = new ledgerlist();
+    public static final ledgerlist instance = new ledgerlist(50);
     private static final logger logger = logger.getlogger(ledgerlist.class);
+    private static final long poll_seconds = 5;
 
-    private static final map<integer, map<string, object>> ledgers = new concurrenthashmap<>();
+    private final int capacity;
+    // ledger n is at n % capacity, while it is one of the last capacity ledgers
+    private final map<string, object>[] ring;
+    private long newest;
+    private long requested;
+    // ledgers asked for which could not be fetched, asked for again on the next check
+    private final set<long> failed = new treeset<>();
+    private volatile string snapshot = "[]";
 
-    private static volatile integer maxindex = 0;
+    private final list<consumer<string>> listeners = new copyonwritearraylist<>();
+    private final atomicboolean started = new atomicboolean(false);
+    private volatile long laststreamed;
+    private final scheduledexecutorservice scheduler =
+            executors.newsinglethreadscheduledexecutor(new defaultthreadfactory("ledger-feed", true));
+
+    @suppresswarnings("unchecked")
+    ledgerlist(int capacity) {
+        this.capacity = capacity;
+        this.ring = new map[capacity];
+    }
 
     @override
-    public string processresponse(map<string, string> params) throws moorecoinexception {
-        string data = "{\"method\": \"ledger_closed\",\"params\": [{}]}";
-        httpclient.response response = httpclient.post(uri, data);
-        jsonobject obj = new jsonobject(response.getresponsestring());
-        int index = obj.getjsonobject("result").getint("ledger_index");
-        int curindex = getledger(index);
-        if(maxindex>0 && curindex - maxindex > 50){
-            maxindex = curindex - 50;
+    public completablefuture<string> processresponse(map<string, string> params) throws moorecoinexception {
+        return completablefuture.completedfuture(snapshot());
+    }
+
+    /**
+     * @return the json array of the latest ledgers, newest first
+     */
+    public string snapshot() {
+        start();
+        return snapshot;
+    }
+
+    /**
+     * @param listener gets the json of every ledger put into the list, not necessarily in ledger order
+     */
+    public void addlistener(consumer<string> listener) {
+        start();
+        listeners.add(listener);
+    }
+
+    private void start() {
+        if (!started.compareandset(false, true)) {
+            return;
         }
-        if(curindex - maxindex >1 && maxindex > 0){
-            for(int i=maxindex +1;i<curindex;i++){
-                getledger(i);
+        ledgerstream.instance.addlistener(sequence -> {
+            if (sequence > 0) {
+                laststreamed = system.currenttimemillis();
+                closed(sequence);
             }
+        });
+        scheduler.schedulewithfixeddelay(this::check, 0, poll_seconds, timeunit.seconds);
+    }
+
+    /**
+     * (re)subscribe the ledger stream, and poll the last closed ledger while the stream is silent.
+     */
+    private void check() {
+        try {
+            ledgerstream.instance.listen();
+            retry();
+            if (system.currenttimemillis() - laststreamed > poll_seconds * 2 * 1000) {
+                string data = "{\"method\": \"ledger_closed\",\"params\": [{}]}";
+                asynchttpclient.instance.post(uri, data).thenaccept(response ->
+                        closed(response.getjson().getjsonobject("result").getlong("ledger_index")));
+            }
+        } catch (exception ex) {
+            logger.warn("error when checking ledger feed: " + ex.getmessage());
         }
-        if(curindex > maxindex){
-            maxindex = curindex;
+    }
+
+    /**
+     * fetch the ledgers up to sequence which were not asked for yet, at most capacity.
+     */
+    private void closed(long sequence) {
+        long from;
+        synchronized (this) {
+            if (sequence <= requested) {
+                return;
+            }
+            from = math.max(requested + 1, sequence - capacity + 1);
+            requested = sequence;
+        }
+        for (long i = from; i <= sequence; i++) {
+            fetch(i);
         }
+    }
 
-        integer[] ks = new integer[ledgers.keyset().size()];
-        ledgers.keyset().toarray(ks);
-        list<integer> keys = arrays.aslist(ks);
-        collections.sort(keys, (o1, o2) -> o2 - o1);
-        if (keys.size() > 50) {
-            ledgers.keyset().foreach(key -> {
-                if (keys.indexof(key) > 49) {
-                    ledgers.remove(key);
+    /**
+     * fetch again the ledgers which failed, as long as they are still among the last capacity ledgers.
+     */
+    private void retry() {
+        list<long> indexes;
+        synchronized (this) {
+            failed.removeif(index -> index <= requested - capacity);
+            indexes = new arraylist<>(failed);
+            failed.clear();
+        }
+        for (long index : indexes) {
+            fetch(index);
+        }
+    }
+
+    private void fetch(long index) {
+        try {
+            getledger(index).whencomplete((ledger, cause) -> {
+                if (cause != null) {
+                    failed(index, cause.getmessage());
+                } else if (ledger == null) {
+                    failed(index, "no ledger in the response");
+                } else {
+                    add(ledger);
                 }
             });
+        } catch (exception ex) {
+            failed(index, ex.getmessage());
+        }
+    }
+
+    private synchronized void failed(long index, string reason) {
+        logger.warn("can not get ledger " + index + ", retrying on the next check: " + reason);
+        failed.add(index);
+    }
+
+    private void add(map<string, object> ledger) {
+        long index = ((number) ledger.get("ledger_index")).longvalue();
+        synchronized (this) {
+            if (index <= newest - capacity) {
+                return;
+            }
+            ring[(int) (index % capacity)] = ledger;
+            newest = math.max(newest, index);
+
+            list<map<string, object>> list = new arraylist<>(capacity);
+            for (long i = newest; i > newest - capacity && i > 0; i--) {
+                map<string, object> entry = ring[(int) (i % capacity)];
+                if (entry != null && ((number) entry.get("ledger_index")).longvalue() == i) {
+                    list.add(entry);
+                }
+            }
+            snapshot = new gson().tojson(list);
+        }
+        string json = new gson().tojson(ledger);
+        for (consumer<string> listener : listeners) {
+            try {
+                listener.accept(json);
+            } catch (exception ex) {
+                logger.warn("ledger listener failed: " + ex.getmessage());
+            }
         }
-        list<map<string, object>> list = new arraylist<>();
-        keys.foreach(key->{
-            if(list.size() <=50 &&ledgers.get(key) != null)
-                list.add(ledgers.get(key));
-        });
-        return new gson().tojson(list);
     }
 
-    private int getledger(int index) throws moorecoinexception {
+    private completablefuture<map<string, object>> getledger(long index) throws moorecoinexception {
         gson gson = new gson();
         map<string, object> postdata = new hashmap<>();
         map<string, object> para = new hashmap<>();
@@ -71,35 +199,32 @@ public class ledgerlist implements clientprocessor {
         para.put("transactions", false);
         postdata.put("params", collections.singletonlist(para));
         string data = gson.tojson(postdata);
-        httpclient.response response = httpclient.post(uri, data);
-//        logger.info("method=ledger, response=" + response.getresponsestring());
-        jsonobject json = new jsonobject(response.getresponsestring());
+        return asynchttpclient.instance.post(uri, data)
+                .thenapply(response -> toledger(response.getjson()));
+    }
+
+    private map<string, object> toledger(jsonobject json) {
         try {
             if (json.has("result") && json.getjsonobject("result").has("ledger")) {
                 json = json.getjsonobject("result").getjsonobject("ledger");
 
                 if (json.has("ledger_index")) {
-                    int currentindex = json.getint("ledger_index");
-                    if (!ledgers.containskey(currentindex)) {
-                        map ledger = new hashmap<>();
-                        ledger.put("ledger_index", json.getint("ledger_index"));
-                        ledger.put("ledger_hash", json.getstring("ledger_hash"));
-                        ledger.put("close_time_human", json.getstring("close_time_human"));
-                        ledger.put("creator_address", b58.getinstance().encodetostring(convert.hextobytes(json.getstring("account_hash"))));
-                        ledger.put("closed", json.getboolean("closed"));
-                        ledger.put("total_coins", json.getstring("total_coins"));
-                        if (json.has("total_coinsvbc"))
-                            ledger.put("total_coinsvbc", json.getstring("total_coinsvbc"));
-                        system.out.println(json.getstring("transaction_hash"));
-                        ledger.put("transaction_hash", json.getstring("transaction_hash"));
-                        ledgers.put(currentindex, ledger);
-                    }
-                    return currentindex;
+                    map<string, object> ledger = new hashmap<>();
+                    ledger.put("ledger_index", json.getint("ledger_index"));
+                    ledger.put("ledger_hash", json.getstring("ledger_hash"));
+                    ledger.put("close_time_human", json.getstring("close_time_human"));
+                    ledger.put("creator_address", b58.getinstance().encodetostring(convert.hextobytes(json.getstring("account_hash"))));
+                    ledger.put("closed", json.getboolean("closed"));
+                    ledger.put("total_coins", json.getstring("total_coins"));
+                    if (json.has("total_coinsvbc"))
+                        ledger.put("total_coinsvbc", json.getstring("total_coinsvbc"));
+                    ledger.put("transaction_hash", json.getstring("transaction_hash"));
+                    return ledger;
                 }
             }
         }catch (exception ex){
             ex.printstacktrace();
         }
-        return 0;
+        return null;
     }
 }
@@ -2,7 +2,7 @@ package org.moorecoinlab.client.handler;
 
 import com.google.gson.gson;
 import org.moorecoinlab.client.clientprocessor;
-import org.moorecoinlab.client.util.httpclient;
+import org.moorecoinlab.client.util.asynchttpclient;
 import org.moorecoinlab.core.exception.moorecoinexception;
 import org.json.jsonobject;
 
@@ -10,14 +10,18 @@ import java.text.simpledateformat;
 import java.util.date;
 import java.util.hashmap;
 import java.util.map;
+import java.util.concurrent.completablefuture;
 
 public class overview implements clientprocessor{
 
     public static final overview instance = new overview();
     @override
-    public string processresponse(map<string, string> params) throws moorecoinexception {
-        string resp = httpclient.get(model_server).getresponsestring();
-        jsonobject json = new jsonobject(resp);
+    public completablefuture<string> processresponse(map<string, string> params) throws moorecoinexception {
+        return asynchttpclient.instance.get(model_server)
+                .thenapply(response -> render(response.getjson()));
+    }
+
+    private string render(jsonobject json) {
         simpledateformat format = new simpledateformat("yyyy-mm-dd hh:mm:ss");
         map<string, object> result = new hashmap<>();
         result.put("ledger_index", json.getlong("ledger_index"));
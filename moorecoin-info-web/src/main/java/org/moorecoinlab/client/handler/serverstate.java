@@ -2,7 +2,7 @@ package org.moorecoinlab.client.handler;
 
 import com.google.gson.gson;
 import org.moorecoinlab.client.clientprocessor;
-import org.moorecoinlab.client.util.httpclient;
+import org.moorecoinlab.client.util.asynchttpclient;
 import org.moorecoinlab.core.exception.moorecoinexception;
 import org.apache.log4j.logger;
 import org.json.jsonobject;
@@ -10,6 +10,7 @@ import org.json.jsonobject;
 import java.util.collections;
 import java.util.hashmap;
 import java.util.map;
+import java.util.concurrent.completablefuture;
 
 public class serverstate implements clientprocessor {
 
@@ -17,7 +18,7 @@ public class serverstate implements clientprocessor {
     private static final logger logger = logger.getlogger(serverstate.class);
 
     @override
-    public string processresponse(map<string, string> params) throws moorecoinexception {
+    public completablefuture<string> processresponse(map<string, string> params) throws moorecoinexception {
         logger.info("get server state");
 
         map<string, object> postdata = new hashmap<>();
@@ -25,27 +26,28 @@ public class serverstate implements clientprocessor {
         postdata.put("method", "server_state");
         postdata.put("params", collections.singletonlist(para));
         string data = new gson().tojson(postdata);
-        httpclient.response response = httpclient.post(uri, data);
-        jsonobject json = new jsonobject(response.getresponsestring());
-        json.getjsonobject("result").getjsonobject("state").put("address", uri);
-        if(!admin_uri.startswith("http://-")) {
-            try {
-                postdata.clear();
-                postdata.put("method", "peers");
-                postdata.put("params", collections.singletonlist(para));
-                data = new gson().tojson(postdata);
-                logger.info("get data from:" + admin_uri + ", data=" + data);
-                response = httpclient.post(admin_uri, data);
-                logger.info("get peers from : " + admin_uri + ", result=" + response.getresponsestring());
-                jsonobject peers = new jsonobject(response.getresponsestring());
-                if (peers.getjsonobject("result").has("peers")) {
-                    json.getjsonobject("result").put("peers", peers.getjsonobject("result").getjsonarray("peers"));
-                }
-            } catch (exception e) {
+        return asynchttpclient.instance.post(uri, data).thencompose(response -> {
+            jsonobject json = response.getjson();
+            json.getjsonobject("result").getjsonobject("state").put("address", uri);
+            if (admin_uri.startswith("http://-")) {
+                return completablefuture.completedfuture(json.tostring());
             }
-        }
-        return json.tostring();
+            postdata.clear();
+            postdata.put("method", "peers");
+            postdata.put("params", collections.singletonlist(para));
+            string peersdata = new gson().tojson(postdata);
+            logger.info("get data from:" + admin_uri + ", data=" + peersdata);
+            return asynchttpclient.instance.post(admin_uri, peersdata)
+                    .thenapply(peersresponse -> {
+                        logger.info("get peers from : " + admin_uri + ", " + peersresponse.getresponselength() + " bytes in " + peersresponse.getlatency() + "ms");
+                        jsonobject peers = peersresponse.getjson();
+                        if (peers.getjsonobject("result").has("peers")) {
+                            json.getjsonobject("result").put("peers", peers.getjsonobject("result").getjsonarray("peers"));
+                        }
+                        return json.tostring();
+                    })
+                    // the state is still sent without the peers
+                    .exceptionally(e -> json.tostring());
+        });
     }
 }
-
-
@@ -0,0 +1,74 @@
+package org.moorecoinlab.client;
+
+import io.netty.buffer.unpooled;
+import io.netty.channel.channelhandlercontext;
+import io.netty.channel.channelpipeline;
+import io.netty.channel.group.channelgroup;
+import io.netty.channel.group.defaultchannelgroup;
+import io.netty.handler.codec.http.defaulthttpcontent;
+import io.netty.handler.codec.http.defaulthttpresponse;
+import io.netty.handler.codec.http.httpcontent;
+import io.netty.handler.codec.http.httpheaders;
+import io.netty.handler.codec.http.httpresponse;
+import io.netty.handler.timeout.readtimeouthandler;
+import io.netty.util.charsetutil;
+import io.netty.util.concurrent.globaleventexecutor;
+import org.moorecoinlab.client.handler.ledgerlist;
+
+import java.util.concurrent.timeunit;
+
+import static io.netty.handler.codec.http.httpheaders.names.*;
+import static io.netty.handler.codec.http.httpresponsestatus.ok;
+import static io.netty.handler.codec.http.httpversion.http_1_1;
+
+/**
+ * server-sent events of the ledger list, for ledger_list.html.
+ *
+ * a new stream gets the whole list as a "ledgers" event, then every ledger put into the list as a "ledger" event.
+ * the streams are kept open, with a comment every heartbeat_seconds so that proxies keep them too.
+ */
+public class ledgerevents {
+
+    public static final ledgerevents instance = new ledgerevents();
+    private static final int heartbeat_seconds = 15;
+
+    private final channelgroup channels = new defaultchannelgroup("ledger-events", globaleventexecutor.instance);
+
+    private ledgerevents() {
+        ledgerlist.instance.addlistener(ledger -> channels.writeandflush(event("ledger", ledger)));
+        globaleventexecutor.instance.scheduleatfixedrate(() -> channels.writeandflush(chunk(": ping\n\n")),
+                heartbeat_seconds, heartbeat_seconds, timeunit.seconds);
+    }
+
+    /**
+     * answer the request on ctx with the event stream, must be called on the event loop of the channel.
+     */
+    public void open(channelhandlercontext ctx) {
+        channelpipeline pipeline = ctx.pipeline();
+        // the stream is idle on the read side, and every event must go out as it is written
+        if (pipeline.get(readtimeouthandler.class) != null) {
+            pipeline.remove(readtimeouthandler.class);
+        }
+        if (pipeline.get("deflater") != null) {
+            pipeline.remove("deflater");
+        }
+        httpresponse response = new defaulthttpresponse(http_1_1, ok);
+        response.headers().set(content_type, "text/event-stream; charset=utf-8");
+        response.headers().set(cache_control, httpheaders.values.no_cache);
+        response.headers().set(connection, httpheaders.values.keep_alive);
+        httpheaders.settransferencodingchunked(response);
+
+        // added first, the events published meanwhile are written after the list below, the page drops duplicates
+        channels.add(ctx.channel());
+        ctx.write(response);
+        ctx.writeandflush(event("ledgers", ledgerlist.instance.snapshot()));
+    }
+
+    private static httpcontent event(string name, string json) {
+        return chunk("event: " + name + "\ndata: " + json + "\n\n");
+    }
+
+    private static httpcontent chunk(string text) {
+        return new defaulthttpcontent(unpooled.copiedbuffer(text, charsetutil.utf_8));
+    }
+}
@@ -0,0 +1,96 @@
+package org.moorecoinlab.client;
+
+import org.moorecoinlab.client.ws.flow;
+import org.moorecoinlab.client.ws.moorecoinwebsocketclient;
+import org.moorecoinlab.client.ws.overflowpolicy;
+import org.moorecoinlab.core.types.ledger.ledgerheader;
+import org.apache.commons.lang3.stringutils;
+import org.apache.log4j.logger;
+
+import java.util.list;
+import java.util.concurrent.copyonwritearraylist;
+import java.util.concurrent.atomic.atomicboolean;
+import java.util.function.longconsumer;
+
+/**
+ * the ledger stream of the websocket servers, one subscription shared by the response cache and the ledger list.
+ *
+ * listeners get the sequence of every closed ledger, and 0 after the stream failed, when ledgers may have been
+ * missed. without websocket servers configured there is no stream and the listeners are never called.
+ */
+public class ledgerstream {
+
+    private static final logger logger = logger.getlogger(ledgerstream.class);
+    public static final ledgerstream instance = new ledgerstream(
+            stringutils.isnotblank(config.getinstance().getproperty("websocket.servers")));
+    private static final int buffer = 16;
+
+    private final boolean configured;
+    private final list<longconsumer> listeners = new copyonwritearraylist<>();
+    private final atomicboolean listening = new atomicboolean(false);
+
+    ledgerstream(boolean configured) {
+        this.configured = configured;
+        if (!configured) {
+            logger.warn("no websocket servers configured, no ledger stream");
+        }
+    }
+
+    public void addlistener(longconsumer listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return whether there are websocket servers to stream ledgers from
+     */
+    public boolean configured() {
+        return configured;
+    }
+
+    /**
+     * subscribe to the ledger stream once, again after it failed. cheap once subscribed.
+     */
+    public void listen() {
+        if (!configured || !listening.compareandset(false, true)) {
+            return;
+        }
+        try {
+            moorecoinwebsocketclient.subscribeledgers(buffer, overflowpolicy.drop_oldest).subscribe(new flow.subscriber<ledgerheader>() {
+                @override
+                public void onsubscribe(flow.subscription subscription) {
+                    subscription.request(long.max_value);
+                }
+
+                @override
+                public void onnext(ledgerheader ledger) {
+                    publish(ledger.sequence.longvalue());
+                }
+
+                @override
+                public void onerror(throwable throwable) {
+                    logger.warn("ledger stream failed: " + throwable.getmessage());
+                    listening.set(false);
+                    publish(0);
+                }
+
+                @override
+                public void oncomplete() {
+                    listening.set(false);
+                }
+            });
+        } catch (exception ex) {
+            logger.warn("can not subscribe ledger stream: " + ex.getmessage());
+            listening.set(false);
+        }
+    }
+
+    private void publish(long sequence) {
+        for (longconsumer listener : listeners) {
+            try {
+                listener.accept(sequence);
+            } catch (exception ex) {
+                logger.warn("ledger stream listener failed: " + ex.getmessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.moorecoinlab.client;
+
+import com.google.common.cache.cache;
+import com.google.common.cache.cachebuilder;
+import org.moorecoinlab.client.util.config;
+import org.moorecoinlab.core.exception.moorecoinexception;
+import org.apache.commons.lang3.stringutils;
+import org.apache.commons.lang3.math.numberutils;
+import org.apache.log4j.logger;
+import org.json.jsonobject;
+
+import java.util.linkedhashmap;
+import java.util.map;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomiclong;
+import java.util.function.predicate;
+
+/**
+ * responses of the processors, kept in front of them.
+ *
+ * closed ledgers and validated transactions never change, they are kept keyed by ledger index or tx hash until
+ * the least recently used are evicted. account views only change when a ledger closes, they are dropped when the
+ * ledger stream reports the next closed ledger, the ttl only bounds staleness while the stream is down, or when no
+ * websocket servers are configured and no ledger is ever known to be closed.
+ * identical requests which miss at the same time share one upstream call.
+ */
+public class responsecache {
+    private static final logger logger = logger.getlogger(responsecache.class);
+
+    public static final responsecache instance = new responsecache(
+            intproperty("cache.immutable.size", 10000),
+            intproperty("cache.account.size", 10000),
+            intproperty("cache.account.ttl.millis", 10000));
+
+    private final cache<string, string> immutable;
+    private final cache<string, string> accounts;
+    private final concurrenthashmap<string, completablefuture<string>> inflight = new concurrenthashmap<>();
+    private final atomiclong epoch = new atomiclong();
+    private volatile long lastclosed;
+
+    private final atomiclong hits = new atomiclong();
+    private final atomiclong misses = new atomiclong();
+    private final atomiclong shared = new atomiclong();
+    private final atomiclong invalidations = new atomiclong();
+
+    responsecache(long immutablesize, long accountsize, long accountttlmillis) {
+        this.immutable = cachebuilder.newbuilder()
+                .maximumsize(immutablesize)
+                .build();
+        this.accounts = cachebuilder.newbuilder()
+                .maximumsize(accountsize)
+                .expireafterwrite(accountttlmillis, timeunit.milliseconds)
+                .build();
+        ledgerstream.instance.addlistener(this::ledgerclosed);
+    }
+
+    /**
+     * responses about one ledger, e.g. ledgerinfo, keyed by the ledger index in param.
+     * only a ledger which has been reported closed is kept.
+     */
+    public clientprocessor byledger(clientprocessor processor, string param) {
+        return new cached(processor, param, immutable, false, responsecache::success) {
+            @override
+            boolean cacheable(string value) {
+                return numberutils.isdigits(value) && long.parselong(value) <= lastclosed;
+            }
+        };
+    }
+
+    /**
+     * responses about one transaction, keyed by the hash in param. only a validated transaction is kept.
+     */
+    public clientprocessor bytx(clientprocessor processor, string param) {
+        return new cached(processor, param, immutable, false, result -> result.optboolean("validated", false));
+    }
+
+    /**
+     * responses about one account, keyed by the address in param, until the next ledger closes.
+     */
+    public clientprocessor byaccount(clientprocessor processor, string param) {
+        return new cached(processor, param, accounts, true, responsecache::success);
+    }
+
+    /**
+     * hit and miss counts, for the cachestats request.
+     */
+    public map<string, object> metrics() {
+        map<string, object> metrics = new linkedhashmap<>();
+        long hit = hits.get();
+        long miss = misses.get();
+        metrics.put("hits", hit);
+        metrics.put("misses", miss);
+        metrics.put("shared", shared.get());
+        metrics.put("hit_rate", hit + miss == 0 ? 0 : (double) hit / (hit + miss));
+        metrics.put("immutable_size", immutable.size());
+        metrics.put("account_size", accounts.size());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("last_closed_ledger", lastclosed);
+        return metrics;
+    }
+
+    private static boolean success(jsonobject result) {
+        return "success".equals(result.optstring("status"));
+    }
+
+    private class cached implements clientprocessor {
+        private final clientprocessor processor;
+        private final string param;
+        private final cache<string, string> cache;
+        private final boolean perledger;
+        private final predicate<jsonobject> keep;
+
+        /**
+         * @param perledger the entries are dropped when a ledger closes
+         * @param keep whether the "result" of a response may be kept
+         */
+        cached(clientprocessor processor, string param, cache<string, string> cache, boolean perledger,
+               predicate<jsonobject> keep) {
+            this.processor = processor;
+            this.param = param;
+            this.cache = cache;
+            this.perledger = perledger;
+            this.keep = keep;
+        }
+
+        /**
+         * whether the value of param may be cached at all, before asking upstream.
+         */
+        boolean cacheable(string value) {
+            return stringutils.isnotblank(value);
+        }
+
+        @override
+        public completablefuture<string> processresponse(map<string, string> params) throws moorecoinexception {
+            ledgerstream.instance.listen();
+            string value = params.get(param);
+            if (!cacheable(value)) {
+                misses.incrementandget();
+                return processor.processresponse(params);
+            }
+            final string key = params.get("type") + ":" + value;
+            string cached = cache.getifpresent(key);
+            if (cached != null) {
+                hits.incrementandget();
+                return completablefuture.completedfuture(cached);
+            }
+            completablefuture<string> created = new completablefuture<>();
+            completablefuture<string> existing = inflight.putifabsent(key, created);
+            if (existing != null) {
+                shared.incrementandget();
+                return existing;
+            }
+            misses.incrementandget();
+            final long started = epoch.get();
+            try {
+                processor.processresponse(params).whencomplete((response, cause) -> {
+                    inflight.remove(key, created);
+                    // a response requested before the last ledger close may already be stale
+                    if (cause == null && (!perledger || started == epoch.get()) && keep(response)) {
+                        cache.put(key, response);
+                    }
+                    if (cause != null) {
+                        created.completeexceptionally(cause);
+                    } else {
+                        created.complete(response);
+                    }
+                });
+            } catch (runtimeexception ex) {
+                inflight.remove(key, created);
+                throw ex;
+            }
+            return created;
+        }
+
+        private boolean keep(string response) {
+            try {
+                jsonobject result = new jsonobject(response).optjsonobject("result");
+                return result != null && keep.test(result);
+            } catch (exception ex) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * drop the per ledger entries, requests still in flight are not shared with later callers.
+     * a sequence of 0 tells the stream failed, no ledger is known to be closed by it.
+     */
+    private void ledgerclosed(long sequence) {
+        if (sequence > lastclosed) {
+            lastclosed = sequence;
+        }
+        epoch.incrementandget();
+        inflight.clear();
+        accounts.invalidateall();
+        invalidations.incrementandget();
+    }
+
+    private static int intproperty(string key, int defaultvalue) {
+        string value = config.getinstance().getproperty(key);
+        return stringutils.isblank(value) ? defaultvalue : integer.parseint(value.trim());
+    }
+}
@@ -0,0 +1,396 @@
+package org.moorecoinlab.client;
+
+import io.netty.buffer.bytebuf;
+import io.netty.buffer.unpooled;
+import io.netty.channel.channelfuture;
+import io.netty.channel.channelfuturelistener;
+import io.netty.channel.channelhandlercontext;
+import io.netty.channel.defaultfileregion;
+import io.netty.handler.codec.http.*;
+import io.netty.util.charsetutil;
+import org.moorecoinlab.client.util.config;
+import org.apache.commons.lang3.stringutils;
+import org.apache.log4j.logger;
+
+import java.io.bytearrayoutputstream;
+import java.io.file;
+import java.io.ioexception;
+import java.io.randomaccessfile;
+import java.nio.file.*;
+import java.util.arraylist;
+import java.util.date;
+import java.util.list;
+import java.util.map;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.concurrentmap;
+import java.util.zip.crc32;
+import java.util.zip.deflater;
+import java.util.zip.gzipoutputstream;
+
+import static io.netty.handler.codec.http.httpheaders.names.*;
+import static io.netty.handler.codec.http.httpresponsestatus.*;
+import static io.netty.handler.codec.http.httpversion.http_1_1;
+
+/**
+ * the pages and static/ files of src/webapp, loaded and gzipped once at startup.
+ *
+ * files are served from memory with etag, last-modified and cache-control, and answered with 304 when the browser
+ * has them already. a large file is sent from disk with a file region when the browser takes no gzip. the pages
+ * are split into byte segments around their $placeholders, $platform is filled in when loading, the others by
+ * splicing the segments and the values of a request. with static.watch=true, changed files are loaded again.
+ */
+public class staticcontent {
+    private static final logger logger = logger.getlogger(staticcontent.class);
+
+    private static final int file_region_threshold = 64 * 1024;
+    private static final int min_gzip_length = 512;
+    private static final string[] placeholders = {"sendreq", "index"};
+
+    public static final staticcontent instance = new staticcontent(webroot());
+
+    private final file root;
+    private final string platform;
+    private final concurrentmap<string, asset> assets = new concurrenthashmap<>();
+    private final concurrentmap<string, template> templates = new concurrenthashmap<>();
+
+    staticcontent(file root) {
+        this.root = root;
+        this.platform = stringutils.defaultstring(config.getinstance().getproperty("client.name"));
+        load();
+        if ("true".equalsignorecase(config.getinstance().getproperty("static.watch"))) {
+            watch();
+        }
+    }
+
+    /**
+     * load the content now, instead of on the first request.
+     */
+    public static void preload() {
+        logger.info("static content: " + instance.assets.size() + " files, " + instance.templates.size()
+                + " templates from " + instance.root);
+    }
+
+    private static file webroot() {
+        string classpath = staticcontent.class.getprotectiondomain().getcodesource().getlocation().getpath();
+        return new file(classpath.substring(0, (classpath.contains("lib") ? classpath.lastindexof("lib") : classpath.lastindexof("target"))) + "src/webapp/");
+    }
+
+    private void load() {
+        file[] pages = root.listfiles();
+        if (pages == null) {
+            logger.error("no static content in " + root);
+            return;
+        }
+        for (file page : pages) {
+            if (page.isfile()) {
+                load(page);
+            }
+        }
+        file[] statics = new file(root, "static").listfiles();
+        if (statics != null) {
+            for (file file : statics) {
+                if (file.isfile()) {
+                    load(file);
+                }
+            }
+        }
+    }
+
+    private void load(file file) {
+        string path = root.topath().relativize(file.topath()).tostring().replace(file.separatorchar, '/');
+        try {
+            byte[] bytes = files.readallbytes(file.topath());
+            if (path.endswith(".html")) {
+                string html = new string(bytes, charsetutil.utf_8).replace("$platform", platform);
+                bytes = html.getbytes(charsetutil.utf_8);
+                string name = path.substring(0, path.length() - ".html".length());
+                templates.put(name, template.parse(html));
+                if (name.equals("index")) {
+                    // the search pages are one level deeper
+                    templates.put("search", template.parse(html.replace("./", "../")));
+                }
+            }
+            assets.put(path, new asset(path, file, bytes));
+        } catch (ioexception e) {
+            logger.error("can not load " + file + ": " + e.getmessage());
+        }
+    }
+
+    private void watch() {
+        thread watcher = new thread(() -> {
+            try (watchservice service = filesystems.getdefault().newwatchservice()) {
+                list<path> dirs = new arraylist<>();
+                dirs.add(root.topath());
+                dirs.add(new file(root, "static").topath());
+                for (path dir : dirs) {
+                    if (files.isdirectory(dir)) {
+                        dir.register(service, standardwatcheventkinds.entry_create, standardwatcheventkinds.entry_modify);
+                    }
+                }
+                while (!thread.currentthread().isinterrupted()) {
+                    watchkey key = service.take();
+                    path dir = (path) key.watchable();
+                    for (watchevent<?> event : key.pollevents()) {
+                        if (event.context() instanceof path) {
+                            file file = dir.resolve((path) event.context()).tofile();
+                            if (file.isfile()) {
+                                logger.info("reload " + file);
+                                load(file);
+                            }
+                        }
+                    }
+                    key.reset();
+                }
+            } catch (interruptedexception e) {
+                thread.currentthread().interrupt();
+            } catch (exception e) {
+                logger.error("static content watcher stopped: " + e.getmessage(), e);
+            }
+        }, "static-content-watcher");
+        watcher.setdaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * write the file at path, relative to src/webapp, or a 404.
+     */
+    public void serve(channelhandlercontext ctx, httprequest req, string path, boolean keepalive) {
+        int query = path.indexof('?');
+        asset asset = assets.get(query < 0 ? path : path.substring(0, query));
+        if (asset == null) {
+            finish(ctx, new defaultfullhttpresponse(http_1_1, not_found), false);
+            return;
+        }
+        if (notmodified(req, asset)) {
+            fullhttpresponse response = new defaultfullhttpresponse(http_1_1, not_modified);
+            cacheheaders(response, asset);
+            finish(ctx, response, keepalive);
+            return;
+        }
+        boolean head = req.getmethod().equals(httpmethod.head);
+        boolean gzip = asset.gzip != null && acceptsgzip(req);
+        if (gzip || asset.bytes != null) {
+            byte[] body = gzip ? asset.gzip : asset.bytes;
+            fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok,
+                    head ? unpooled.empty_buffer : unpooled.wrappedbuffer(body));
+            cacheheaders(response, asset);
+            response.headers().set(content_length, body.length);
+            if (gzip) {
+                response.headers().set(content_encoding, httpheaders.values.gzip);
+            }
+            finish(ctx, response, keepalive);
+            return;
+        }
+
+        httpresponse response = new defaulthttpresponse(http_1_1, ok);
+        cacheheaders(response, asset);
+        response.headers().set(content_length, asset.length);
+        if (keepalive) {
+            response.headers().set(connection, httpheaders.values.keep_alive);
+        }
+        ctx.write(response);
+        if (!head) {
+            try {
+                // the region closes the file when it has been sent
+                ctx.write(new defaultfileregion(new randomaccessfile(asset.file, "r").getchannel(), 0, asset.length));
+            } catch (ioexception e) {
+                logger.error("can not send " + asset.file + ": " + e.getmessage());
+                ctx.close();
+                return;
+            }
+        }
+        channelfuture future = ctx.writeandflush(lasthttpcontent.empty_last_content);
+        if (!keepalive) {
+            future.addlistener(channelfuturelistener.close);
+        }
+    }
+
+    /**
+     * write the page name with its placeholders filled from values, e.g. "index" to the ledger index.
+     */
+    public void render(channelhandlercontext ctx, string name, map<string, string> values, boolean keepalive) {
+        template template = templates.get(name);
+        if (template == null) {
+            finish(ctx, new defaultfullhttpresponse(http_1_1, not_found), false);
+            return;
+        }
+        fullhttpresponse response = new defaultfullhttpresponse(http_1_1, ok, template.render(values));
+        response.headers().set(content_type, "text/html; charset=utf-8");
+        response.headers().set(cache_control, httpheaders.values.no_cache);
+        response.headers().set(content_length, response.content().readablebytes());
+        finish(ctx, response, keepalive);
+    }
+
+    private static void finish(channelhandlercontext ctx, fullhttpresponse response, boolean keepalive) {
+        if (!keepalive) {
+            ctx.writeandflush(response).addlistener(channelfuturelistener.close);
+        } else {
+            response.headers().set(connection, httpheaders.values.keep_alive);
+            ctx.writeandflush(response);
+        }
+    }
+
+    private static void cacheheaders(httpresponse response, asset asset) {
+        response.headers().set(content_type, asset.contenttype);
+        response.headers().set(etag, asset.etag);
+        httpheaders.setdateheader(response, last_modified, new date(asset.lastmodified));
+        // pages ask again every time, with the etag that is cheap
+        response.headers().set(cache_control, asset.path.startswith("static/") ? "public, max-age=3600" : httpheaders.values.no_cache);
+        if (asset.gzip != null) {
+            response.headers().set(vary, accept_encoding);
+        }
+    }
+
+    private static boolean notmodified(httprequest req, asset asset) {
+        string etags = req.headers().get(if_none_match);
+        if (etags != null) {
+            return etags.contains(asset.etag) || etags.trim().equals("*");
+        }
+        if (req.headers().contains(if_modified_since)) {
+            try {
+                date since = httpheaders.getdateheader(req, if_modified_since);
+                return asset.lastmodified / 1000 <= since.gettime() / 1000;
+            } catch (exception e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsgzip(httprequest req) {
+        string accept = req.headers().get(accept_encoding);
+        return accept != null && accept.tolowercase().contains("gzip");
+    }
+
+    private static string contenttype(string path) {
+        string extension = path.substring(path.lastindexof('.') + 1).tolowercase();
+        switch (extension) {
+            case "html":
+                return "text/html; charset=utf-8";
+            case "js":
+                return "application/javascript; charset=utf-8";
+            case "css":
+                return "text/css; charset=utf-8";
+            case "json":
+                return "application/json";
+            case "gif":
+                return "image/gif";
+            case "png":
+                return "image/png";
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "ico":
+                return "image/x-icon";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static boolean compressible(string contenttype) {
+        return contenttype.startswith("text/") || contenttype.startswith("application/javascript")
+                || contenttype.startswith("application/json");
+    }
+
+    private static byte[] gzip(byte[] bytes) throws ioexception {
+        bytearrayoutputstream out = new bytearrayoutputstream(bytes.length / 3);
+        try (gzipoutputstream gzip = new gzipoutputstream(out) {
+            {
+                def.setlevel(deflater.best_compression);
+            }
+        }) {
+            gzip.write(bytes);
+        }
+        return out.tobytearray();
+    }
+
+    /**
+     * one file, the plain bytes are only kept when it is small, a large one is sent from disk.
+     */
+    private static class asset {
+        final string path;
+        final file file;
+        final string contenttype;
+        final byte[] bytes;
+        final byte[] gzip;
+        final long length;
+        final long lastmodified;
+        final string etag;
+
+        asset(string path, file file, byte[] bytes) throws ioexception {
+            this.path = path;
+            this.file = file;
+            this.contenttype = contenttype(path);
+            this.length = bytes.length;
+            this.lastmodified = file.lastmodified();
+            // the pages differ from the file, $platform is filled in
+            this.bytes = bytes.length < file_region_threshold || bytes.length != file.length() ? bytes : null;
+
+            byte[] zipped = null;
+            if (compressible(contenttype) && bytes.length >= min_gzip_length) {
+                zipped = gzip(bytes);
+                if (zipped.length >= bytes.length) {
+                    zipped = null;
+                }
+            }
+            this.gzip = zipped;
+
+            crc32 crc = new crc32();
+            crc.update(bytes);
+            this.etag = "\"" + long.tohexstring(crc.getvalue()) + "-" + long.tohexstring(bytes.length) + "\"";
+        }
+    }
+
+    /**
+     * a page as its constant byte segments, with a placeholder between each two of them.
+     */
+    private static class template {
+        final byte[][] segments;
+        final string[] names;
+
+        template(byte[][] segments, string[] names) {
+            this.segments = segments;
+            this.names = names;
+        }
+
+        static template parse(string html) {
+            list<byte[]> segments = new arraylist<>();
+            list<string> names = new arraylist<>();
+            int from = 0;
+            while (true) {
+                int at = -1;
+                string name = null;
+                for (string placeholder : placeholders) {
+                    int i = html.indexof("$" + placeholder, from);
+                    if (i >= 0 && (at < 0 || i < at)) {
+                        at = i;
+                        name = placeholder;
+                    }
+                }
+                if (at < 0) {
+                    break;
+                }
+                segments.add(html.substring(from, at).getbytes(charsetutil.utf_8));
+                names.add(name);
+                from = at + 1 + name.length();
+            }
+            segments.add(html.substring(from).getbytes(charsetutil.utf_8));
+            return new template(segments.toarray(new byte[segments.size()][]), names.toarray(new string[names.size()]));
+        }
+
+        /**
+         * @return the segments and the values, wrapped without copying them
+         */
+        bytebuf render(map<string, string> values) {
+            byte[][] parts = new byte[segments.length + names.length][];
+            for (int i = 0; i < names.length; i++) {
+                parts[2 * i] = segments[i];
+                string value = values.get(names[i]);
+                // an unknown placeholder stays as it was
+                parts[2 * i + 1] = (value == null ? "$" + names[i] : value).getbytes(charsetutil.utf_8);
+            }
+            parts[parts.length - 1] = segments[segments.length - 1];
+            return unpooled.wrappedbuffer(parts);
+        }
+    }
+}
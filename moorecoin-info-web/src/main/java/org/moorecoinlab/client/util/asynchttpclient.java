@@ -0,0 +1,458 @@
+package org.moorecoinlab.client.util;
+
+import io.netty.bootstrap.bootstrap;
+import io.netty.buffer.bytebufinputstream;
+import io.netty.buffer.compositebytebuf;
+import io.netty.buffer.unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.nioeventloopgroup;
+import io.netty.channel.socket.socketchannel;
+import io.netty.channel.socket.nio.niosocketchannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.charsetutil;
+import io.netty.util.referencecountutil;
+import io.netty.util.concurrent.defaultthreadfactory;
+import org.moorecoinlab.core.exception.moorecoinexception;
+import org.apache.log4j.logger;
+import org.json.jsonobject;
+import org.json.jsontokener;
+
+import java.io.inputstreamreader;
+import java.net.uri;
+import java.util.arraydeque;
+import java.util.arrays;
+import java.util.hashset;
+import java.util.set;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.concurrentlinkedqueue;
+import java.util.concurrent.concurrentmap;
+import java.util.concurrent.copyonwritearraylist;
+import java.util.concurrent.scheduledfuture;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomicinteger;
+
+/**
+ * non blocking json-rpc client for the handlers.
+ *
+ * every host:port gets up to maxconnections keep-alive connections. a call goes to an idle connection, or a new
+ * one while there are fewer than maxconnections. otherwise it waits for a connection to become idle, or, with
+ * pipelining on, it is pipelined behind the calls of the least busy connection. the body is gunzipped chunk by
+ * chunk as it arrives and parsed from the chunks, without gathering it into a string first. the returned futures
+ * are completed on the client event loop, so the server event loops never wait for the moorecoin server.
+ *
+ * a keep-alive connection may be closed by the server just as a call is written to it. such a call is sent once
+ * more on a new connection if it is idempotent, a get or a json-rpc method other than a submit.
+ */
+public class asynchttpclient {
+    private static final logger logger = logger.getlogger(asynchttpclient.class);
+    // the json-rpc methods which must not be sent twice
+    private static final set<string> unsafe_methods = new hashset<>(arrays.aslist("submit", "submit_multisigned"));
+
+    public static final asynchttpclient instance = new asynchttpclient(0, 8, 6 * 1000, false);
+
+    private final eventloopgroup group;
+    private final bootstrap bootstrap;
+    private final int maxconnections;
+    private final long timeoutmillis;
+    private final boolean pipelining;
+    private final concurrentmap<string, endpoint> endpoints = new concurrenthashmap<>();
+
+    public asynchttpclient(int threads, int maxconnections, int timeoutmillis) {
+        this(threads, maxconnections, timeoutmillis, false);
+    }
+
+    /**
+     * @param threads event loop threads, 0 for the netty default
+     * @param maxconnections connections per host:port
+     * @param timeoutmillis connect timeout, and the time a call may wait for its response once written
+     * @param pipelining the calls beyond maxconnections are pipelined, instead of waiting for an idle connection
+     */
+    public asynchttpclient(int threads, int maxconnections, int timeoutmillis, boolean pipelining) {
+        this.maxconnections = maxconnections;
+        this.timeoutmillis = timeoutmillis;
+        this.pipelining = pipelining;
+        this.group = new nioeventloopgroup(threads, new defaultthreadfactory("rpc-client", true));
+        this.bootstrap = new bootstrap()
+                .group(group)
+                .channel(niosocketchannel.class)
+                .option(channeloption.connect_timeout_millis, timeoutmillis)
+                .option(channeloption.so_keepalive, true)
+                .option(channeloption.tcp_nodelay, true)
+                .handler(new channelinitializer<socketchannel>() {
+                    @override
+                    protected void initchannel(socketchannel ch) {
+                        ch.pipeline().addlast(
+                                new httpclientcodec(),
+                                new httpcontentdecompressor(),
+                                new connection(ch));
+                    }
+                });
+    }
+
+    public completablefuture<httpclient.response> post(string url, string data) {
+        return request(httpmethod.post, url, data.getbytes(charsetutil.utf_8), idempotent(data));
+    }
+
+    public completablefuture<httpclient.response> get(string url) {
+        return request(httpmethod.get, url, new byte[0], true);
+    }
+
+    public void shutdown() {
+        group.shutdowngracefully();
+    }
+
+    private static boolean idempotent(string data) {
+        try {
+            return !unsafe_methods.contains(new jsonobject(data).optstring("method"));
+        } catch (exception e) {
+            return false;
+        }
+    }
+
+    private completablefuture<httpclient.response> request(httpmethod method, string url, byte[] body, boolean idempotent) {
+        final completablefuture<httpclient.response> future = new completablefuture<>();
+        final uri uri;
+        try {
+            uri = new uri(url);
+        } catch (exception e) {
+            future.completeexceptionally(new moorecoinexception("invalid url: " + url));
+            return future;
+        }
+        final string host = uri.gethost();
+        final int port = uri.getport() == -1 ? 80 : uri.getport();
+        final string key = host + ":" + port;
+
+        string path = uri.getrawpath() == null || uri.getrawpath().isempty() ? "/" : uri.getrawpath();
+        if (uri.getrawquery() != null) {
+            path += "?" + uri.getrawquery();
+        }
+        endpoints.computeifabsent(key, k -> new endpoint(host, port, key))
+                .dispatch(new call(method, path, key, body, idempotent, future));
+        return future;
+    }
+
+    private static void fail(completablefuture<httpclient.response> future, throwable cause) {
+        logger.warn("error to sending http request.." + cause.getmessage());
+        future.completeexceptionally(cause instanceof moorecoinexception ? cause
+                : new moorecoinexception("error when sending request, message:" + cause.getmessage()));
+    }
+
+    private static class call {
+        final httpmethod method;
+        final string path;
+        final string host;
+        final byte[] body;
+        final boolean idempotent;
+        final completablefuture<httpclient.response> future;
+        long start;
+        scheduledfuture<?> timeout;
+        // written to a connection which had answered calls before
+        boolean reused;
+        boolean retried;
+
+        call(httpmethod method, string path, string host, byte[] body, boolean idempotent,
+             completablefuture<httpclient.response> future) {
+            this.method = method;
+            this.path = path;
+            this.host = host;
+            this.body = body;
+            this.idempotent = idempotent;
+            this.future = future;
+        }
+
+        /**
+         * @return a new request for each write, the one written is released by the codec
+         */
+        fullhttprequest request() {
+            fullhttprequest request = new defaultfullhttprequest(httpversion.http_1_1, method, path, unpooled.wrappedbuffer(body));
+            request.headers().set(httpheaders.names.host, host);
+            request.headers().set(httpheaders.names.user_agent, "99coin-agent");
+            request.headers().set(httpheaders.names.accept_encoding, httpheaders.values.gzip);
+            request.headers().set(httpheaders.names.connection, httpheaders.values.keep_alive);
+            request.headers().set(httpheaders.names.content_length, body.length);
+            if (body.length > 0) {
+                request.headers().set(httpheaders.names.content_type, "application/json");
+            }
+            return request;
+        }
+    }
+
+    /**
+     * the connections to one host:port, and the calls waiting for one of them to become idle.
+     */
+    private class endpoint {
+        final string host;
+        final int port;
+        final string key;
+        final copyonwritearraylist<connection> connections = new copyonwritearraylist<>();
+        final atomicinteger connecting = new atomicinteger();
+        final concurrentlinkedqueue<call> waiting = new concurrentlinkedqueue<>();
+
+        endpoint(string host, int port, string key) {
+            this.host = host;
+            this.port = port;
+            this.key = key;
+        }
+
+        void dispatch(call call) {
+            connection idle = claimidle();
+            if (idle != null) {
+                idle.write(call);
+            } else if (connections.size() + connecting.get() < maxconnections) {
+                connect(call);
+            } else {
+                connection best = null;
+                if (pipelining) {
+                    for (connection connection : connections) {
+                        if (connection.channel.isactive() && (best == null || connection.inflight.get() < best.inflight.get())) {
+                            best = connection;
+                        }
+                    }
+                }
+                if (best != null) {
+                    best.send(call);
+                } else {
+                    // all connections are busy or still connecting
+                    waiting.add(call);
+                    // a connection may have become idle meanwhile
+                    drain();
+                }
+            }
+        }
+
+        /**
+         * @return an open connection without calls, counted busy from now on, or null
+         */
+        private connection claimidle() {
+            for (connection connection : connections) {
+                if (connection.channel.isactive() && connection.inflight.compareandset(0, 1)) {
+                    return connection;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * hand the waiting calls to the idle connections.
+         */
+        void drain() {
+            while (!waiting.isempty()) {
+                connection idle = claimidle();
+                if (idle == null) {
+                    return;
+                }
+                call call = waiting.poll();
+                if (call == null) {
+                    idle.inflight.decrementandget();
+                    return;
+                }
+                idle.write(call);
+            }
+        }
+
+        /**
+         * a connection went away, a new one takes over the waiting calls.
+         */
+        void closed(connection connection) {
+            connections.remove(connection);
+            call call = waiting.poll();
+            if (call != null) {
+                connect(call);
+            }
+        }
+
+        void connect(final call call) {
+            connecting.incrementandget();
+            bootstrap.connect(host, port).addlistener((channelfuturelistener) cf -> {
+                connecting.decrementandget();
+                if (cf.issuccess()) {
+                    connection connection = cf.channel().pipeline().get(connection.class);
+                    connection.endpoint = this;
+                    // busy before it can be claimed by others
+                    connection.inflight.incrementandget();
+                    connections.add(connection);
+                    connection.write(call);
+                } else {
+                    fail(call.future, cf.cause());
+                    // nothing left to take the waiting calls
+                    if (connections.isempty() && connecting.get() == 0) {
+                        call next;
+                        while ((next = waiting.poll()) != null) {
+                            fail(next.future, cf.cause());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * one connection and the calls written to it, answered in the order they were written.
+     * the calls and the body are only touched on the event loop of the channel.
+     */
+    private class connection extends channelinboundhandleradapter {
+        final channel channel;
+        final atomicinteger inflight = new atomicinteger();
+        final arraydeque<call> pending = new arraydeque<>();
+        volatile endpoint endpoint;
+        private int answered;
+
+        // the response being read
+        private httpresponse head;
+        private compositebytebuf body;
+
+        connection(channel channel) {
+            this.channel = channel;
+        }
+
+        void send(call call) {
+            inflight.incrementandget();
+            write(call);
+        }
+
+        /**
+         * write a call already counted in inflight.
+         */
+        void write(final call call) {
+            channel.eventloop().execute(() -> {
+                if (!channel.isactive()) {
+                    inflight.decrementandget();
+                    // never written, it's safe to send it anywhere else
+                    if (!call.retried) {
+                        call.retried = true;
+                        endpoint.connect(call);
+                    } else {
+                        fail(call.future, new moorecoinexception("connection closed by " + endpoint.key));
+                    }
+                    return;
+                }
+                call.start = system.nanotime();
+                call.reused = answered > 0;
+                call.timeout = channel.eventloop().schedule(() -> {
+                    if (pending.contains(call)) {
+                        timeout();
+                    }
+                }, timeoutmillis, timeunit.milliseconds);
+                pending.add(call);
+                channel.writeandflush(call.request()).addlistener((channelfuturelistener) f -> {
+                    if (!f.issuccess()) {
+                        channel.close();
+                    }
+                });
+            });
+        }
+
+        /**
+         * the oldest call is not answered in time, the answers of the calls behind it would be out of step,
+         * so they fail with it and the connection is closed.
+         */
+        private void timeout() {
+            moorecoinexception cause = new moorecoinexception("request timeout, " + timeoutmillis + "ms to " + endpoint.key);
+            call call;
+            while ((call = pending.poll()) != null) {
+                call.timeout.cancel(false);
+                inflight.decrementandget();
+                fail(call.future, cause);
+            }
+            channel.close();
+        }
+
+        @override
+        public void channelread(channelhandlercontext ctx, object msg) {
+            try {
+                if (msg instanceof httpresponse) {
+                    head = (httpresponse) msg;
+                    body = ctx.alloc().compositebuffer(integer.max_value);
+                }
+                if (msg instanceof httpcontent && body != null) {
+                    httpcontent content = (httpcontent) msg;
+                    int length = content.content().readablebytes();
+                    if (length > 0) {
+                        body.addcomponent(content.content().retain());
+                        body.writerindex(body.writerindex() + length);
+                    }
+                    if (msg instanceof lasthttpcontent) {
+                        complete(ctx);
+                    }
+                }
+            } finally {
+                referencecountutil.release(msg);
+            }
+        }
+
+        private void complete(channelhandlercontext ctx) {
+            httpresponse head = this.head;
+            compositebytebuf body = this.body;
+            this.head = null;
+            this.body = null;
+            call call = pending.poll();
+            if (call == null) {
+                body.release();
+                logger.debug("drop response without a request from " + endpoint.key);
+                ctx.close();
+                return;
+            }
+            call.timeout.cancel(false);
+            answered++;
+            boolean keepalive = httpheaders.iskeepalive(head);
+            if (!keepalive) {
+                ctx.close();
+            }
+            if (inflight.decrementandget() == 0 && keepalive) {
+                endpoint.drain();
+            }
+
+            try {
+                int status = head.getstatus().code();
+                if (status < 200 || status >= 300) {
+                    fail(call.future, new moorecoinexception(status, "error when sending request, status:" + head.getstatus()));
+                    return;
+                }
+                httpclient.response response = new httpclient.response();
+                response.setrequestlength(call.body.length);
+                response.setresponselength(body.readablebytes());
+                response.setjson(new jsonobject(new jsontokener(
+                        new inputstreamreader(new bytebufinputstream(body), charsetutil.utf_8))));
+                response.setlatency(timeunit.nanoseconds.tomillis(system.nanotime() - call.start));
+                logger.debug("response from peer " + endpoint.key + ", " + response.getresponselength()
+                        + " bytes in " + response.getlatency() + "ms");
+                call.future.complete(response);
+            } catch (exception e) {
+                fail(call.future, new moorecoinexception("invalid response from " + endpoint.key + ", message:" + e.getmessage()));
+            } finally {
+                body.release();
+            }
+        }
+
+        @override
+        public void channelinactive(channelhandlercontext ctx) throws exception {
+            if (body != null) {
+                body.release();
+                body = null;
+            }
+            call call;
+            while ((call = pending.poll()) != null) {
+                call.timeout.cancel(false);
+                inflight.decrementandget();
+                // the server closed a keep-alive connection as the call was written to it
+                if (call.idempotent && call.reused && !call.retried && endpoint != null) {
+                    call.retried = true;
+                    endpoint.connect(call);
+                } else {
+                    fail(call.future, new moorecoinexception("connection closed by " + (endpoint == null ? "peer" : endpoint.key)));
+                }
+            }
+            if (endpoint != null) {
+                endpoint.closed(this);
+            }
+            super.channelinactive(ctx);
+        }
+
+        @override
+        public void exceptioncaught(channelhandlercontext ctx, throwable cause) {
+            logger.warn("error on connection to " + (endpoint == null ? "peer" : endpoint.key) + ", " + cause.getmessage());
+            ctx.close();
+        }
+    }
+}
@@ -45,7 +45,7 @@ public class createmagicmoorecoinaddress {
         while(true) {
             byte[] b16 = utils.lowarray(bi.tobytearray(), b58.len_family_seed_hex);
             accountid a = accountid.fromseedbytes(b16);
-            if(a.address.startswith(prefix)) {
+            if(a.address().startswith(prefix)) {
                 long ts1 = system.currenttimemillis();
                 system.out.println("====== bingo! ==> round:" + round + ", time=" + (ts1 - ts0) + "ms, count=" + bingo);
                 system.out.println("addr=" + a + " seed_hex=" + convert.bytestohex(b16) + " seed=" + b58.encodefamilyseed(b16));
@@ -1,114 +1,41 @@
 package org.moorecoinlab.client.util;
 
 import org.moorecoinlab.core.exception.moorecoinexception;
-import org.apache.commons.lang3.stringutils;
-import org.apache.log4j.logger;
+import org.json.jsonobject;
 
-import java.io.bytearrayoutputstream;
-import java.io.ioexception;
-import java.io.inputstream;
-import java.net.httpurlconnection;
-import java.net.url;
-import java.util.zip.gzipinputstream;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.completionexception;
 
+/**
+ * blocking calls over the pooled connections of {@link asynchttpclient}, for callers off the event loops.
+ */
 public class httpclient {
 
-    private static final logger logger = logger.getlogger(httpclient.class.getname());
-
     public static response post(string url, string data) throws moorecoinexception {
-        httpurlconnection conn = null;
-        try {
-            url requesturl = new url(url);
-            byte[] bytes = data.getbytes("utf-8");
-            conn = (httpurlconnection) requesturl.openconnection();
-            conn.setrequestproperty("user-agent", "99coin-agent");
-            conn.setrequestproperty("accept-encoding", "gzip");
-            conn.setconnecttimeout(6 * 1000);
-            conn.setreadtimeout(6 * 1000);
-            conn.setdoinput(true);
-            conn.setdooutput(true);
-            conn.setrequestmethod("post");
-            conn.getoutputstream().write(bytes);
-            string encode = conn.getcontentencoding();
-            inputstream instream;
-            if (stringutils.isnotblank(encode) && encode.tolowercase().contains("gzip")) {
-                instream = new gzipinputstream(conn.getinputstream());
-            } else {
-                instream = conn.getinputstream();
-            }
-            byte[] inputbytes = readinputstream(instream);
-            string response = new string(inputbytes, "utf-8");
-            logger.debug("response from peer->" + response);
-            response resp = new response();
-            resp.setrequestlength(bytes.length);
-            resp.setresponselength(inputbytes.length);
-            resp.setresponsestring(response);
-            return resp;
-        }catch (exception e){
-            e.printstacktrace();
-            logger.warn("error to sending http request.." + e.getmessage());
-            throw new moorecoinexception("error when sending request, message:" + e.getmessage());
-        }finally {
-            if(conn != null){
-                conn.disconnect();
-            }
-        }
+        return join(asynchttpclient.instance.post(url, data));
     }
 
     public static response get(string url) throws moorecoinexception {
-        httpurlconnection conn = null;
+        return join(asynchttpclient.instance.get(url));
+    }
+
+    private static response join(completablefuture<response> future) throws moorecoinexception {
         try {
-            url requesturl = new url(url);
-            conn = (httpurlconnection) requesturl.openconnection();
-            conn.setrequestproperty("user-agent", "99coin-agent");
-            conn.setrequestproperty("accept-encoding", "gzip");
-            conn.setconnecttimeout(6 * 1000);
-            conn.setreadtimeout(6 * 1000);
-            conn.setdoinput(true);
-            conn.setdooutput(true);
-            conn.setrequestmethod("get");
-            string encode = conn.getcontentencoding();
-            inputstream instream;
-            if (stringutils.isnotblank(encode) && encode.tolowercase().contains("gzip")) {
-                instream = new gzipinputstream(conn.getinputstream());
-            } else {
-                instream = conn.getinputstream();
+            return future.join();
+        } catch (completionexception e) {
+            if (e.getcause() instanceof moorecoinexception) {
+                throw (moorecoinexception) e.getcause();
             }
-            byte[] inputbytes = readinputstream(instream);
-            string response = new string(inputbytes, "utf-8");
-            logger.debug("response from peer->" + response);
-            response resp = new response();
-            resp.setresponselength(inputbytes.length);
-            resp.setresponsestring(response);
-            return resp;
-        }catch (exception e){
-            e.printstacktrace();
-            logger.warn("error to sending http request.." + e.getmessage());
             throw new moorecoinexception("error when sending request, message:" + e.getmessage());
-        }finally {
-            if(conn != null){
-                conn.disconnect();
-            }
-        }
-    }
-
-    private static byte[] readinputstream(inputstream instream) throws ioexception {
-        bytearrayoutputstream outstream = new bytearrayoutputstream();
-        byte[] buffer = new byte[1024];
-        int len ;
-        while ((len = instream.read(buffer)) != -1) {
-            outstream.write(buffer, 0, len);
         }
-        byte[] data = outstream.tobytearray();
-        outstream.close();
-        instream.close();
-        return data;
     }
 
     public static class response{
         private int requestlength;
         private int responselength;
+        private long latency;
         private string responsestring;
+        private jsonobject json;
 
         public int getrequestlength() {
             return requestlength;
@@ -118,6 +45,9 @@ public class httpclient {
             this.requestlength = requestlength;
         }
 
+        /**
+         * @return the length of the body, after gunzip
+         */
         public int getresponselength() {
             return responselength;
         }
@@ -126,12 +56,43 @@ public class httpclient {
             this.responselength = responselength;
         }
 
+        /**
+         * @return milliseconds from writing the request to the end of the response
+         */
+        public long getlatency() {
+            return latency;
+        }
+
+        public void setlatency(long latency) {
+            this.latency = latency;
+        }
+
+        /**
+         * @return the body, printed from the parsed json when there's no text of it
+         */
         public string getresponsestring() {
+            if (responsestring == null && json != null) {
+                responsestring = json.tostring();
+            }
             return responsestring;
         }
 
         public void setresponsestring(string responsestring) {
             this.responsestring = responsestring;
         }
+
+        /**
+         * @return the body, parsed as it was read
+         */
+        public jsonobject getjson() {
+            if (json == null && responsestring != null) {
+                json = new jsonobject(responsestring);
+            }
+            return json;
+        }
+
+        public void setjson(jsonobject json) {
+            this.json = json;
+        }
     }
 }
@@ -14,6 +14,8 @@ import java.util.*;
 
 /**
  * user account implements, defined by websocket api of moorecoin.
+ * reads go through {@link moorecoinwebsocketclient#reqshared(string)}, see there for sharing and caching,
+ * except the sequence, which must not come from a cached reply.
  * @see org.moorecoinlab.test.testwebsocket for usage
  */
 public class accountimpl {
@@ -42,7 +44,7 @@ public class accountimpl {
         string data = new gson().tojson(requestdata);
         string accountinfo = null;
         try {
-            accountinfo = moorecoinwebsocketclient.req(data);
+            accountinfo = moorecoinwebsocketclient.reqshared(data);
         } catch (apiexception e) {
             if (e.code.compareto(apiexception.errorcode.address_not_found) == 0) {
                 accountinfo = formatnotfounduser(address).tostring();
@@ -63,7 +65,7 @@ public class accountimpl {
         data.put("account", address);
 
         string postdata = new gson().tojson(data);
-        string json = moorecoinwebsocketclient.req(postdata);
+        string json = moorecoinwebsocketclient.reqshared(postdata);
         return json;
     }
 
@@ -97,7 +99,7 @@ public class accountimpl {
             treemap<string, issuerline> resultmap = new treemap<>();
             string accountinfo;
             try {
-                accountinfo = moorecoinwebsocketclient.req(data);
+                accountinfo = moorecoinwebsocketclient.reqshared(data);
                 jsonobject json = new jsonobject(accountinfo);
                 jsonarray lines = json.getjsonobject("result").getjsonarray("lines");
                 for (int i = 0; i < lines.length(); i++) {
@@ -146,6 +148,7 @@ public class accountimpl {
 
 
     /**
+     * always asks the server, a cached reply would not count transactions submitted since the last ledger close.
      * @param address
      * @return
      */
@@ -195,7 +198,7 @@ public class accountimpl {
         requestdata.put("ledger", "current");
         string data = new gson().tojson(requestdata);
         try {
-            string accountinfo = moorecoinwebsocketclient.request(data);
+            string accountinfo = moorecoinwebsocketclient.reqshared(data);
             jsonobject json = new jsonobject(accountinfo);
             jsonarray lines = json.getjsonobject("result").getjsonarray("lines");
             list<jsonobject> accountlinelist = new arraylist<>();
@@ -204,7 +207,7 @@ public class accountimpl {
             for (int i = 0; i < lines.length(); i++) {
                 jsonobject line = lines.getjsonobject(i);
                 accountline accountline = accountline.fromjson(accountid.fromaddress(address), line);
-                if (!accountline.balance.issuer().address.equals(address)) {
+                if (!accountline.balance.issuer().address().equals(address)) {
                     issuerline il = issuerlines.get(accountline.currency.humancode());
                     if (il == null) {
                         il = new issuerline();
@@ -0,0 +1,338 @@
+package org.moorecoinlab.api;
+
+import com.google.gson.gson;
+import org.moorecoinlab.client.ws.accountstream;
+import org.moorecoinlab.client.ws.flow;
+import org.moorecoinlab.client.ws.moorecoinwebsocketclient;
+import org.moorecoinlab.client.ws.overflowpolicy;
+import org.moorecoinlab.core.hash.hash256;
+import org.moorecoinlab.core.serialized.enums.engineresult;
+import org.moorecoinlab.core.types.known.tx.result.transactionresult;
+import org.moorecoinlab.core.types.ledger.ledgerheader;
+import org.moorecoinlab.core.uint.uint32;
+import org.apache.log4j.logger;
+import org.json.jsonobject;
+
+import java.util.arraylist;
+import java.util.hashmap;
+import java.util.list;
+import java.util.map;
+import java.util.treemap;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.atomic.atomicboolean;
+
+/**
+ * hands out account sequence numbers locally, so a hot wallet can sign and submit many transactions
+ * per ledger without an account_info round trip before each one.
+ *
+ * the sequence of an account is fetched once from the current ledger, after that {@link #next(string)}
+ * increments it atomically across threads. submitted transactions are remembered until the transaction
+ * stream reports them validated; the sequencer fetches the sequence again when a submit fails with
+ * tefpast_seq / terpre_seq or does not consume its sequence (tel, tem, tef), and when a pending transaction
+ * passes its lastledgersequence without being validated.
+ *
+ * all accounts share one transaction stream whose account set follows the accounts in use. accounts without
+ * pending transactions are forgotten after idlemillis without use, or least recently used first when there are
+ * more than maxaccounts. a failed stream is subscribed again on the next call.
+ * @see transactionimpl#transactionimpl(accountsequencer)
+ */
+public class accountsequencer {
+    private static final logger logger = logger.getlogger(accountsequencer.class);
+
+    /**
+     * ledgers a transaction may wait for inclusion before it expires, added to the last validated ledger.
+     */
+    public static final int default_ledger_window = 4;
+    public static final int default_max_accounts = 10000;
+    public static final long default_idle_millis = 10 * 60 * 1000;
+
+    private final int ledgerwindow;
+    private final int maxaccounts;
+    private final long idlemillis;
+    private final concurrenthashmap<string, account> accounts = new concurrenthashmap<>();
+    private final atomicboolean ledgerslistening = new atomicboolean(false);
+    private final atomicboolean transactionslistening = new atomicboolean(false);
+    private accountstream stream;
+    private volatile long validatedledger = 0;
+
+    public accountsequencer() {
+        this(default_ledger_window);
+    }
+
+    public accountsequencer(int ledgerwindow) {
+        this(ledgerwindow, default_max_accounts, default_idle_millis);
+    }
+
+    /**
+     * @param maxaccounts accounts kept at most, it should be well above the number of accounts in use at once
+     * @param idlemillis an account without pending transactions is forgotten after this long without use
+     */
+    public accountsequencer(int ledgerwindow, int maxaccounts, long idlemillis) {
+        this.ledgerwindow = ledgerwindow;
+        this.maxaccounts = maxaccounts;
+        this.idlemillis = idlemillis;
+    }
+
+    /**
+     * allocate the next sequence number of the account.
+     */
+    public int next(string address) throws apiexception {
+        while (true) {
+            account account = account(address);
+            synchronized (account) {
+                if (account.evicted) {
+                    continue;
+                }
+                account.lastused = system.currenttimemillis();
+                if (account.next < 0) {
+                    account.next = fetchsequence(address);
+                }
+                return account.next++;
+            }
+        }
+    }
+
+    /**
+     * last ledger the next transaction may be included in: the last validated ledger plus the ledger window.
+     */
+    public uint32 lastledgersequence() throws apiexception {
+        listen();
+        long validated = validatedledger;
+        if (validated == 0) {
+            validated = fetchvalidatedledger();
+            validatedledger = validated;
+        }
+        return new uint32(validated + ledgerwindow);
+    }
+
+    /**
+     * record the outcome of a submit.
+     * @param code engine_result of the submit reply, e.g. "tessuccess"
+     */
+    public void submitted(string address, int sequence, hash256 hash, long lastledgersequence, string code) {
+        engineresult result;
+        try {
+            result = engineresult.valueof(code);
+        } catch (exception ex) {
+            result = null;
+        }
+        if (result == engineresult.tefpast_seq || result == engineresult.terpre_seq) {
+            logger.warn("sequence " + sequence + " of " + address + " rejected with " + result + ", resync");
+            resync(address);
+            return;
+        }
+        if (result != null) {
+            engineresult resultclass = result.resultclass();
+            if (resultclass == engineresult.tellocal_error || resultclass == engineresult.temmalformed
+                    || resultclass == engineresult.teffailure) {
+                // the transaction is not applied and its sequence stays unused, everything after it would be terpre_seq
+                logger.warn("sequence " + sequence + " of " + address + " not consumed (" + result + "), resync");
+                resync(address);
+                return;
+            }
+        }
+        while (true) {
+            account account = account(address);
+            synchronized (account) {
+                if (account.evicted) {
+                    continue;
+                }
+                account.pending.put(sequence, new pending(hash, lastledgersequence));
+                return;
+            }
+        }
+    }
+
+    /**
+     * forget the local sequence and pending transactions of the account, the next call fetches it again.
+     */
+    public void resync(string address) {
+        account account = account(address);
+        synchronized (account) {
+            account.next = -1;
+            account.pending.clear();
+        }
+    }
+
+    /**
+     * transactions submitted for the account but not yet seen validated, by sequence.
+     */
+    public map<integer, hash256> pending(string address) {
+        account account = account(address);
+        map<integer, hash256> result = new treemap<>();
+        synchronized (account) {
+            for (map.entry<integer, pending> entry : account.pending.entryset()) {
+                result.put(entry.getkey(), entry.getvalue().hash);
+            }
+        }
+        return result;
+    }
+
+    private account account(string address) {
+        listen();
+        account account = accounts.get(address);
+        if (account == null) {
+            account created = new account();
+            account = accounts.putifabsent(address, created);
+            if (account == null) {
+                account = created;
+                stream().add(address);
+            }
+        }
+        return account;
+    }
+
+    private synchronized accountstream stream() {
+        if (stream == null) {
+            stream = moorecoinwebsocketclient.subscribeaccounts();
+        }
+        return stream;
+    }
+
+    private void validated(transactionresult tr) {
+        if (!tr.validated || tr.txn == null) {
+            return;
+        }
+        account account = accounts.get(tr.initiatingaccount().address());
+        if (account == null) {
+            return;
+        }
+        synchronized (account) {
+            account.pending.remove(tr.txn.sequence().intvalue());
+        }
+    }
+
+    /**
+     * forget accounts without pending transactions which are idle, or least recently used while there are too many.
+     * an account is dropped from the stream and the map under its lock, so next() never sees it half evicted.
+     */
+    private void evict() {
+        long now = system.currenttimemillis();
+        int excess = accounts.size() - maxaccounts;
+        list<map.entry<string, account>> candidates = new arraylist<>();
+        for (map.entry<string, account> entry : accounts.entryset()) {
+            if (excess > 0 || now - entry.getvalue().lastused > idlemillis) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort((a, b) -> long.compare(a.getvalue().lastused, b.getvalue().lastused));
+        for (map.entry<string, account> entry : candidates) {
+            account account = entry.getvalue();
+            if (excess <= 0 && now - account.lastused <= idlemillis) {
+                break;
+            }
+            synchronized (account) {
+                if (!account.pending.isempty()) {
+                    continue;
+                }
+                account.evicted = true;
+                stream().remove(entry.getkey());
+                accounts.remove(entry.getkey(), account);
+            }
+            excess--;
+        }
+    }
+
+    /**
+     * follow validated ledgers, pending transactions past their lastledgersequence will never apply,
+     * and the transactions of the accounts. a stream which failed is subscribed again.
+     */
+    private void listen() {
+        if (transactionslistening.compareandset(false, true)) {
+            stream().publisher(1024, overflowpolicy.drop_oldest).subscribe(new unboundedsubscriber<transactionresult>(transactionslistening) {
+                @override
+                public void onnext(transactionresult tr) {
+                    validated(tr);
+                }
+            });
+        }
+        if (!ledgerslistening.compareandset(false, true)) {
+            return;
+        }
+        moorecoinwebsocketclient.subscribeledgers(4, overflowpolicy.drop_oldest).subscribe(new unboundedsubscriber<ledgerheader>(ledgerslistening) {
+            @override
+            public void onnext(ledgerheader ledger) {
+                validatedledger = ledger.sequence.longvalue();
+                for (map.entry<string, account> entry : accounts.entryset()) {
+                    account account = entry.getvalue();
+                    boolean expired = false;
+                    synchronized (account) {
+                        for (pending p : account.pending.values()) {
+                            if (p.lastledgersequence > 0 && p.lastledgersequence < validatedledger) {
+                                expired = true;
+                                break;
+                            }
+                        }
+                    }
+                    if (expired) {
+                        logger.warn("pending transaction of " + entry.getkey() + " expired, resync");
+                        resync(entry.getkey());
+                    }
+                }
+                evict();
+            }
+        });
+    }
+
+    private int fetchsequence(string address) throws apiexception {
+        map<string, object> requestdata = new hashmap<>();
+        requestdata.put("id", 0);
+        requestdata.put("command", "account_info");
+        requestdata.put("account", address);
+        requestdata.put("ledger_index", "current");
+        jsonobject json = new jsonobject(moorecoinwebsocketclient.req(new gson().tojson(requestdata)));
+        return json.getjsonobject("result").getjsonobject("account_data").getint("sequence");
+    }
+
+    private long fetchvalidatedledger() throws apiexception {
+        map<string, object> requestdata = new hashmap<>();
+        requestdata.put("id", 0);
+        requestdata.put("command", "ledger_closed");
+        jsonobject json = new jsonobject(moorecoinwebsocketclient.req(new gson().tojson(requestdata)));
+        return json.getjsonobject("result").getlong("ledger_index");
+    }
+
+    private static class account {
+        int next = -1;
+        final treemap<integer, pending> pending = new treemap<>();
+        volatile long lastused = system.currenttimemillis();
+        boolean evicted = false;
+    }
+
+    private static class pending {
+        final hash256 hash;
+        final long lastledgersequence;
+
+        pending(hash256 hash, long lastledgersequence) {
+            this.hash = hash;
+            this.lastledgersequence = lastledgersequence;
+        }
+    }
+
+    /**
+     * takes every item, and clears listening when the stream ends so that the next call subscribes again.
+     */
+    private static abstract class unboundedsubscriber<t> implements flow.subscriber<t> {
+        private final atomicboolean listening;
+
+        unboundedsubscriber(atomicboolean listening) {
+            this.listening = listening;
+        }
+
+        @override
+        public void onsubscribe(flow.subscription subscription) {
+            subscription.request(long.max_value);
+        }
+
+        @override
+        public void onerror(throwable throwable) {
+            logger.warn("sequencer stream failed, subscribed again on the next call: " + throwable.getmessage());
+            listening.set(false);
+        }
+
+        @override
+        public void oncomplete() {
+            listening.set(false);
+        }
+    }
+}
@@ -31,12 +31,31 @@ import java.util.map;
 
 /**
  * implements of all kinds of transactions, defined by websocket api of moorecoin.
+ * methods taking a sequence accept {@link #auto_sequence} when built with an {@link accountsequencer}.
  * @see  "api documents"
  * @see org.moorecoinlab.test.testwebsocket for usage
  */
 public class transactionimpl {
     private static final logger logger = logger.getlogger(transactionimpl.class);
 
+    /**
+     * pass as sequence to take it from the account sequencer instead of account_info.
+     */
+    public static final int auto_sequence = -1;
+
+    private final accountsequencer sequencer;
+
+    public transactionimpl() {
+        this(null);
+    }
+
+    /**
+     * @param sequencer allocates the sequence and lastledgersequence of calls made with {@link #auto_sequence}
+     */
+    public transactionimpl(accountsequencer sequencer) {
+        this.sequencer = sequencer;
+    }
+
     /**
      * see: https://ripple.com/build/rippled-apis/#path-find
      */
@@ -137,8 +156,7 @@ public class transactionimpl {
         string fee = "1000";
         signedtransaction sign = new signedtransaction(offer);
 
-        sign.prepare(kp, amount.fromstring(fee), new uint32(sequence), null);
-        string json = maketx(sign.tx_blob);
+        string json = signandsubmit(kp, sign, amount.fromstring(fee), sequence);
         return json;
     }
 
@@ -187,8 +205,7 @@ public class transactionimpl {
         offercancel.offersequence(new uint32(offersequence));
         signedtransaction sign = new signedtransaction(offercancel);
         string fee = "1000";
-        sign.prepare(kp, amount.fromstring(fee), new uint32(sequence), null);
-        string json = maketx(sign.tx_blob);
+        string json = signandsubmit(kp, sign, amount.fromstring(fee), sequence);
         return json;
     }
 
@@ -212,8 +229,7 @@ public class transactionimpl {
         if (!isresolved) {
             fee = 10000 + fee;
         }
-        sign.prepare(kp, amount.fromstring(string.valueof(fee)), new uint32(sequence), null);
-        string json = maketx(sign.tx_blob);
+        string json = signandsubmit(kp, sign, amount.fromstring(string.valueof(fee)), sequence);
         return json;
     }
 
@@ -225,8 +241,7 @@ public class transactionimpl {
         txn.account(accountid.fromseedbytes(b58.getinstance().decodefamilyseed(seed)));
         signedtransaction sign = new signedtransaction(txn);
         long fee = 1000;
-        sign.prepare(kp, amount.fromstring(string.valueof(fee)), new uint32(sequence), null);
-        string json = maketx(sign.tx_blob);
+        string json = signandsubmit(kp, sign, amount.fromstring(string.valueof(fee)), sequence);
         return json;
     }
 
@@ -243,12 +258,41 @@ public class transactionimpl {
         txn.account(accountid.fromseedbytes(b58.getinstance().decodefamilyseed(seed)));
         signedtransaction sign = new signedtransaction(txn);
         long fee = 1000;
-        sign.prepare(kp, amount.fromstring(string.valueof(fee)), new uint32(sequence), null);
-        string json = maketx(sign.tx_blob);
+        string json = signandsubmit(kp, sign, amount.fromstring(string.valueof(fee)), sequence);
         return json;
     }
 
 
+    /**
+     * sign the transaction and submit it. with {@link #auto_sequence} the sequence and lastledgersequence
+     * come from the account sequencer, which is told about the engine result of the submit.
+     */
+    private string signandsubmit(ikeypair kp, signedtransaction sign, amount fee, int sequence) throws apiexception {
+        if (sequence != auto_sequence) {
+            sign.prepare(kp, fee, new uint32(sequence), null);
+            return maketx(sign.tx_blob);
+        }
+        if (sequencer == null) {
+            throw new apiexception(apiexception.errorcode.malformed_request_data, "auto_sequence needs an account sequencer");
+        }
+        string address = sign.txn.account().address();
+        uint32 lastledgersequence = sequencer.lastledgersequence();
+        int allocated = sequencer.next(address);
+        string json;
+        string result;
+        try {
+            sign.prepare(kp, fee, new uint32(allocated), lastledgersequence);
+            json = maketx(sign.tx_blob);
+            result = new jsonobject(json).getjsonobject("result").optstring("engine_result", null);
+        } catch (runtimeexception e) {
+            // unknown whether the transaction reached the server or used the sequence, ask the network again
+            sequencer.resync(address);
+            throw e;
+        }
+        sequencer.submitted(address, allocated, sign.hash, lastledgersequence.longvalue(), result);
+        return json;
+    }
+
     /**
      * all methods using this maketx, will call submit interface of "moorecoind", and blob data needs be signed.
      * see: https://ripple.com/build/rippled-apis/#submit
@@ -344,7 +388,7 @@ public class transactionimpl {
                             //vrp&&vbc payment tx
                             if (account != null) {
                                 //when vrp&&vbc payments, all balance change is in single finalfields object in one modifiednode
-                                if (account.address.equals(address)) {
+                                if (account.address().equals(address)) {
                                     //vrp||vbc tx
                                     if (item.getamount().getcurrency().equals("vrp") || item.getamount().getcurrency().equals("vbc")) {
                                         boolean havebalanceeffect = true;
@@ -446,7 +490,7 @@ public class transactionimpl {
                         stobject obj = (stobject) node.get(field.creatednode);
                         stobject nf = (stobject) obj.get(field.newfields);
                         accountid account = (accountid) nf.get(field.account);
-                        if (account != null && address.equals(account.address)) {
+                        if (account != null && address.equals(account.address())) {
                             effect effect = new effect();
                             amount amount = (amount) nf.get(field.balancevbc);
                             amount balance = (amount) nf.get(field.balance);
@@ -517,7 +561,7 @@ public class transactionimpl {
                         stobject ff = (stobject) obj.get(field.finalfields);
                         if (ff != null) {
                             accountid account = (accountid) ff.get(field.account);
-                            if (account != null && account.address.equals(address)) {
+                            if (account != null && account.address().equals(address)) {
                                 amount balance = (amount) ff.get(field.balance);
                                 effect effect = new effect();
                                 effect.setbalance(new amountobj(balance.doublevalue(), "vrp", null));
@@ -542,7 +586,7 @@ public class transactionimpl {
                                 accountid account = (accountid) ff.get(field.account);
                                 takergets = (amount) ff.get(field.takergets);
                                 takerpays = (amount) ff.get(field.takerpays);
-                                if (account != null && account.address.equals(address)) {
+                                if (account != null && account.address().equals(address)) {
                                     item.settakerpays(new amountobj(takerpays.doublevalue(), takerpays.currencystring(), takerpays.issuerstring()));
                                     item.settakergets(new amountobj(takergets.doublevalue(), takergets.currencystring(), takergets.issuerstring()));
                                     item.setofferstatus("offer_cancelled");
@@ -555,10 +599,10 @@ public class transactionimpl {
                         stobject ff = (stobject) deletenode.get(field.finalfields);
                         if (ff != null) {
                             accountid account = (accountid) ff.get(field.account);
-                            if (account != null && account.address.equals(address)) {
+                            if (account != null && account.address().equals(address)) {
                                 //trust line balance change
                                 amount balance = (amount) ff.get(field.balance);
-                                if (account != null && account.address.equals(address)) {
+                                if (account != null && account.address().equals(address)) {
                                     effect effect = new effect();
                                     effect.settype("amount");
                                     effect.setamount(new amountobj(-item.getfee().getamount(), item.getfee().getcurrency(), item.getfee().getissuer()));
@@ -583,7 +627,7 @@ public class transactionimpl {
                                     && !takergets.iszero()) {
                                 if (ff != null) {
                                     accountid account = (accountid) ff.get(field.account);
-                                    if (account != null && account.address.equals(address)) {
+                                    if (account != null && account.address().equals(address)) {
                                         takerpays = (amount) fieldsprev.get(field.takerpays);
                                         if (item.gettakergets() == null) {
                                             item.settakerpays(new amountobj(takerpays.doublevalue(), takerpays.currencystring(), takerpays.issuerstring()));
@@ -599,7 +643,7 @@ public class transactionimpl {
                                         amount pretakerpays = (amount) fieldsprev.get(field.takerpays);
                                         effect effect = new effect();
                                         effect.settype("offer_filled");
-                                        if(address.equals(account.address)) {
+                                        if(address.equals(account.address())) {
                                             effect.settakergets(new amountobj(pretakergets.subtract(takergets).doublevalue(), takergets.currencystring(), takergets.issuerstring()));
                                             effect.settakerpays(new amountobj(pretakerpays.subtract(takerpays).doublevalue(), takerpays.currencystring(), takerpays.issuerstring()));
                                         }else{
@@ -613,7 +657,7 @@ public class transactionimpl {
                                 accountid account = (accountid) ff.get(field.account);
                                 takergets = (amount) ff.get(field.takergets);
                                 takerpays = (amount) ff.get(field.takerpays);
-                                if (account != null && account.address.equals(address)) {
+                                if (account != null && account.address().equals(address)) {
                                     effect effect = new effect();
                                     effect.settype("offer_cancelled");
                                     effect.settakergets(new amountobj(takergets.doublevalue(), takergets.currencystring(), takergets.issuerstring()));
@@ -627,7 +671,7 @@ public class transactionimpl {
                             stobject ff = (stobject) modifiednode.get(field.finalfields);
                             if (ff != null) {
                                 accountid account = (accountid) ff.get(field.account);
-                                if (account != null && account.address.equals(address)) {
+                                if (account != null && account.address().equals(address)) {
                                     //offer not filled.
                                     item.setofferstatus("offer_partially_funded");
                                     if (fieldsprev != null) {
@@ -665,7 +709,7 @@ public class transactionimpl {
 
                             if (nf != null) {
                                 accountid account = (accountid) nf.get(field.account);
-                                if (account != null && account.address.equals(address)) {
+                                if (account != null && account.address().equals(address)) {
                                     takergets = (amount) nf.get(field.takergets);
                                     takerpays = (amount) nf.get(field.takerpays);
                                     //offer not filled.
@@ -762,7 +806,7 @@ public class transactionimpl {
                         if (ff != null) {
                             accountid account = (accountid) ff.get(field.account);
 //                            boolean vbcoffer = false;
-                            if (account != null && account.address.equals(address)) {
+                            if (account != null && account.address().equals(address)) {
 
                                 //trust line balance change
                                 amount balance = (amount) ff.get(field.balance);
@@ -886,9 +930,9 @@ public class transactionimpl {
 //            rippledate date = rippledate.fromsecondssincerippleepoch(txobj.getint("date"));
 //            simpledateformat format = new simpledateformat("yyyy-mm-dd hh:mm:ss");
             item.setdate(string.valueof(txobj.getint("date")));
-            item.setsender(tx.account().address);
-            if (!tx.account().address.equals(address))
-                item.setcontact(tx.account().address);
+            item.setsender(tx.account().address());
+            if (!tx.account().address().equals(address))
+                item.setcontact(tx.account().address());
             //if is tx maker, then set fee obj;
             amountobj fee = new amountobj(tx.fee().doublevalue(), "vrp", null);
             item.setfee(fee);
@@ -899,18 +943,18 @@ public class transactionimpl {
             }else{
                 if (tx instanceof payment) {
                     payment payment = (payment) tx;
-                    item.setrecipient(payment.destination().address);
-                    if (!((payment) tx).destination().address.equals(address))
-                        item.setcontact(payment.destination().address);
+                    item.setrecipient(payment.destination().address());
+                    if (!((payment) tx).destination().address().equals(address))
+                        item.setcontact(payment.destination().address());
                     double paymentamount = payment.amount().doublevalue();
                     amountobj amount = new amountobj(paymentamount, payment.amount().currencystring().replace("xrp", "vrp"), payment.amount().issuerstring());
                     item.setamount(amount);
 
-                    if (!address.equals(payment.destination().address) && !address.equals(tx.account().address)) {
+                    if (!address.equals(payment.destination().address()) && !address.equals(tx.account().address())) {
                         if (payment.paths() != null) {
                             for (pathset.path path : payment.paths()) {
                                 for (pathset.hop hop : path) {
-                                    if (hop.account != null && address.equals(hop.account.address)) {
+                                    if (hop.account != null && address.equals(hop.account.address())) {
                                         item.settype("moorecoining");
                                         break;
                                     }
@@ -922,11 +966,11 @@ public class transactionimpl {
                         } else
                             item.settype("moorecoining");
                     } else
-                        item.settype(((payment) tx).destination().address.equals(address) ? "received" : "sent");
+                        item.settype(((payment) tx).destination().address().equals(address) ? "received" : "sent");
 
                 }
                 if (tx instanceof dividend) {
-                    if (!((dividend) tx).destination().address.equals(address)) {
+                    if (!((dividend) tx).destination().address().equals(address)) {
                         continue;
                     }
                     dividend dividend = (dividend) tx;
@@ -937,20 +981,20 @@ public class transactionimpl {
                 }
                 if (tx instanceof addreferee) {
                     addreferee addreferee = (addreferee) tx;
-                    item.setrecipient(addreferee.destination().address);
-                    if (!addreferee.destination().address.equals(address))
-                        item.setcontact(addreferee.destination().address);
-                    item.settype(addreferee.destination().address.equals(address) ? "referee" : "addreferee");
+                    item.setrecipient(addreferee.destination().address());
+                    if (!addreferee.destination().address().equals(address))
+                        item.setcontact(addreferee.destination().address());
+                    item.settype(addreferee.destination().address().equals(address) ? "referee" : "addreferee");
                 }
                 if (tx instanceof trustset) {
                     trustset trustset = (trustset) tx;
                     amount limit = trustset.limitamount();
                     amountobj limitamount = new amountobj(limit.doublevalue(), limit.currencystring(), limit.issuerstring());
                     item.setlimitamount(limitamount);
-                    item.setrecipient(limit.issuer().address);
-                    if (!limit.issuer().address.equals(address))
-                        item.setcontact(limit.issuer().address);
-                    item.settype(limit.issuer().address.equals(address) ? "connected" : "connecting");
+                    item.setrecipient(limit.issuer().address());
+                    if (!limit.issuer().address().equals(address))
+                        item.setcontact(limit.issuer().address());
+                    item.settype(limit.issuer().address().equals(address) ? "connected" : "connecting");
                 }
                 if (tx instanceof offercreate) {
                     offercreate offercreate = (offercreate) tx;
@@ -0,0 +1,73 @@
+package org.moorecoinlab.client.ws;
+
+import org.apache.log4j.logger;
+import org.json.jsonarray;
+import org.json.jsonobject;
+import org.moorecoinlab.core.types.known.tx.result.transactionresult;
+
+import java.util.collections;
+import java.util.set;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.forkjoinpool;
+
+/**
+ * validated transactions of a changing set of accounts, on one stream channel.
+ *
+ * accounts are added and removed with "subscribe" / "unsubscribe" commands on the live channel,
+ * a reconnect subscribes the whole current set again.
+ * @see moorecoinwebsocketclient#subscribeaccounts()
+ */
+public class accountstream {
+    private static final logger logger = logger.getlogger(accountstream.class);
+
+    private final set<string> accounts = concurrenthashmap.newkeyset();
+    private final streampublisher<transactionresult> stream;
+
+    accountstream(streampublisher.transport transport) {
+        this.stream = new streampublisher<>(transport, () -> command("subscribe", accounts), collections.singleton("transaction"),
+                json -> new transactionresult(json, transactionresult.source.transaction_subscription_notification),
+                forkjoinpool.commonpool());
+    }
+
+    public flow.publisher<transactionresult> publisher(int capacity, overflowpolicy policy) {
+        return stream.publisher(capacity, policy);
+    }
+
+    /**
+     * follow the account too, nothing happens if it is followed already.
+     */
+    public void add(string address) {
+        if (accounts.add(address)) {
+            send("subscribe", address);
+        }
+    }
+
+    /**
+     * stop following the account.
+     */
+    public void remove(string address) {
+        if (accounts.remove(address)) {
+            send("unsubscribe", address);
+        }
+    }
+
+    public set<string> accounts() {
+        return collections.unmodifiableset(accounts);
+    }
+
+    private void send(string name, string address) {
+        // without a channel the account is in the set sent on the next connect
+        stream.send(command(name, collections.singleton(address))).whencomplete((reply, cause) -> {
+            if (cause == null && "error".equals(reply.getstring("status"))) {
+                logger.warn(name + " of " + address + " rejected: " + reply.getstring("error"));
+            }
+        });
+    }
+
+    private static jsonobject command(string name, set<string> accounts) {
+        jsonobject command = new jsonobject();
+        command.put("command", name);
+        command.put("accounts", new jsonarray(accounts));
+        return command;
+    }
+}
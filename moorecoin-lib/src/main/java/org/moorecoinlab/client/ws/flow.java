@@ -0,0 +1,35 @@
+package org.moorecoinlab.client.ws;
+
+/**
+ * reactive streams interfaces, shaped like java.util.concurrent.flow of java 9 so that
+ * subscribers written against this module port over by changing the import.
+ * the module still targets java 8, which has no flow of its own.
+ */
+public final class flow {
+
+    private flow() {
+    }
+
+    public interface publisher<t> {
+        void subscribe(subscriber<? super t> subscriber);
+    }
+
+    public interface subscriber<t> {
+        void onsubscribe(subscription subscription);
+
+        void onnext(t item);
+
+        void onerror(throwable throwable);
+
+        void oncomplete();
+    }
+
+    public interface subscription {
+        /**
+         * add n items of demand, delivery stops when demand is used up.
+         */
+        void request(long n);
+
+        void cancel();
+    }
+}
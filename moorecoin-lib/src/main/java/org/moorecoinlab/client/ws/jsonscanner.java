@@ -0,0 +1,190 @@
+package org.moorecoinlab.client.ws;
+
+import io.netty.buffer.bytebuf;
+import io.netty.util.charsetutil;
+import org.json.jsontokener;
+
+/**
+ * streaming tokenizer over the utf-8 bytes of a json object, used to pick single top-level members
+ * (the correlation "id", "status", "error") out of a websocket frame without building a jsonobject.
+ * nested objects and arrays are skipped by depth counting, nothing is allocated while scanning.
+ * all indexes are absolute buffer indexes, malformed input throws illegalargumentexception.
+ */
+final class jsonscanner {
+
+    private jsonscanner() {
+    }
+
+    /**
+     * index of the opening brace of the top-level object.
+     */
+    static int objectstart(bytebuf buf) {
+        int i = skipwhitespace(buf, buf.readerindex());
+        if (i >= buf.writerindex() || buf.getbyte(i) != '{') {
+            throw new illegalargumentexception("not a json object");
+        }
+        return i;
+    }
+
+    /**
+     * true if the top-level object has no members at all.
+     */
+    static boolean isemptyobject(bytebuf buf) {
+        int i = skipwhitespace(buf, objectstart(buf) + 1);
+        return i < buf.writerindex() && buf.getbyte(i) == '}';
+    }
+
+    /**
+     * index of the first byte of the value of the top-level member named key, -1 if there is no such member.
+     */
+    static int valuestart(bytebuf buf, string key) {
+        int end = buf.writerindex();
+        int i = skipwhitespace(buf, objectstart(buf) + 1);
+        while (i < end && buf.getbyte(i) != '}') {
+            if (buf.getbyte(i) != '"') {
+                throw new illegalargumentexception("member name expected at " + i);
+            }
+            int keyend = stringend(buf, i);
+            boolean match = namematches(buf, i + 1, keyend, key);
+            i = skipwhitespace(buf, keyend + 1);
+            if (i >= end || buf.getbyte(i) != ':') {
+                throw new illegalargumentexception("':' expected at " + i);
+            }
+            i = skipwhitespace(buf, i + 1);
+            if (match) {
+                return i;
+            }
+            i = skipwhitespace(buf, valueend(buf, i));
+            if (i < end && buf.getbyte(i) == ',') {
+                i = skipwhitespace(buf, i + 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * index just past the value starting at start.
+     */
+    static int valueend(bytebuf buf, int start) {
+        int end = buf.writerindex();
+        byte c = buf.getbyte(start);
+        if (c == '"') {
+            return stringend(buf, start) + 1;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            for (int i = start; i < end; i++) {
+                byte b = buf.getbyte(i);
+                if (b == '"') {
+                    i = stringend(buf, i);
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+            }
+            throw new illegalargumentexception("unterminated value at " + start);
+        }
+        int i = start;
+        while (i < end) {
+            byte b = buf.getbyte(i);
+            if (b == ',' || b == '}' || b == ']' || iswhitespace(b)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * parse the integer literal between start and end.
+     */
+    static long readlong(bytebuf buf, int start, int end) {
+        if (start >= end) {
+            throw new numberformatexception("empty number");
+        }
+        boolean negative = buf.getbyte(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i >= end) {
+            throw new numberformatexception("no digits");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf.getbyte(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new numberformatexception("not an integer at " + i);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * the top-level string member named key, null if absent or not a string.
+     */
+    static string readstring(bytebuf buf, string key) {
+        int start = valuestart(buf, key);
+        if (start < 0 || buf.getbyte(start) != '"') {
+            return null;
+        }
+        int end = stringend(buf, start);
+        if (buf.bytesbefore(start + 1, end - start - 1, (byte) '\\') < 0) {
+            return buf.tostring(start + 1, end - start - 1, charsetutil.utf_8);
+        }
+        // escaped strings are rare in replies, let the json tokenizer unescape them
+        return (string) new jsontokener(buf.tostring(start, end - start + 1, charsetutil.utf_8)).nextvalue();
+    }
+
+    /**
+     * the top-level member named key as parsed by org.json, null if absent.
+     */
+    static object readvalue(bytebuf buf, string key) {
+        int start = valuestart(buf, key);
+        if (start < 0) {
+            return null;
+        }
+        return new jsontokener(buf.tostring(start, valueend(buf, start) - start, charsetutil.utf_8)).nextvalue();
+    }
+
+    /**
+     * index of the closing quote of the string opened at start.
+     */
+    private static int stringend(bytebuf buf, int start) {
+        int end = buf.writerindex();
+        for (int i = start + 1; i < end; i++) {
+            byte b = buf.getbyte(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i;
+            }
+        }
+        throw new illegalargumentexception("unterminated string at " + start);
+    }
+
+    private static boolean namematches(bytebuf buf, int start, int end, string key) {
+        if (end - start != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (buf.getbyte(start + i) != key.charat(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipwhitespace(bytebuf buf, int i) {
+        int end = buf.writerindex();
+        while (i < end && iswhitespace(buf.getbyte(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean iswhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -1,34 +1,48 @@
 package org.moorecoinlab.client.ws;
 
 import org.moorecoinlab.api.apiexception;
+import io.netty.buffer.bytebuf;
+import io.netty.buffer.unpooled;
+import io.netty.util.charsetutil;
+import io.netty.util.concurrent.defaultthreadfactory;
 import org.moorecoinlab.client.config;
-import io.netty.channel.channel;
-import io.netty.handler.codec.http.websocketx.textwebsocketframe;
-import io.netty.handler.codec.http.websocketx.websocketframe;
-import org.apache.commons.lang3.randomutils;
 import org.apache.commons.lang3.stringutils;
 import org.apache.log4j.logger;
+import org.json.jsonarray;
 import org.json.jsonobject;
+import org.moorecoinlab.core.types.known.tx.result.transactionresult;
+import org.moorecoinlab.core.types.ledger.ledgerheader;
 
-import java.net.uri;
-import java.net.urisyntaxexception;
+import java.util.arraylist;
+import java.util.arrays;
+import java.util.collections;
+import java.util.list;
+import java.util.set;
 import java.util.concurrent.blockingqueue;
+import java.util.concurrent.completablefuture;
 import java.util.concurrent.concurrenthashmap;
-import java.util.concurrent.concurrentmap;
+import java.util.concurrent.executionexception;
+import java.util.concurrent.executors;
+import java.util.concurrent.forkjoinpool;
 import java.util.concurrent.linkedblockingqueue;
-import java.util.concurrent.atomic.atomiclong;
+import java.util.concurrent.timeunit;
+import java.util.function.function;
 
 /**
  * interact with moorecoin servers
  */
 public class moorecoinwebsocketclient {
-    private static final string[] servers;
-
-    private static final concurrentmap<string, wsclient> clientmap = new concurrenthashmap<>();
-    public static final concurrenthashmap<long, blockingqueue<string>> queues = new concurrenthashmap<>();
+    static final requesttable requests = new requesttable();
+    private static final wspool pool;
+    private static final requestcoalescer coalescer;
+    private static final concurrenthashmap<string, streampublisher<?>> streams = new concurrenthashmap<>();
+    /**
+     * server pushed messages of subscriptions made through request(), unbounded.
+     * prefer the backpressured subscribeledgers(), subscribetransactions() and subscribebook() streams.
+     */
     public static final blockingqueue<string> subscribequeue = new linkedblockingqueue<>(integer.max_value);
-    private static final atomiclong requestid = new atomiclong(0l);
     private static final logger logger = logger.getlogger(moorecoinwebsocketclient.class);
+    public static final long default_timeout_millis = 5000;
 
     static {
         string serverstr = config.getinstance().getproperty("websocket.servers");
@@ -37,93 +51,286 @@ public class moorecoinwebsocketclient {
             logger.error("property \"websocket.servers\" not found.");
             throw new runtimeexception("property \"websocket.servers\" not found.");
         }
-        servers = serverstr.split(",");
-        for (string server : servers) {
+        config config = config.getinstance();
+        pool = new wspool(serverstr.split(","), requests,
+                intproperty(config, "websocket.pool.channels", 2),
+                wspool.strategy.valueof(stringutils.defaultifblank(config.getproperty("websocket.pool.strategy"), "least_outstanding")),
+                intproperty(config, "websocket.pool.eject.failures", 3),
+                intproperty(config, "websocket.ping.seconds", 15),
+                intproperty(config, "websocket.pool.check.seconds", 5));
+        coalescer = new requestcoalescer(
+                data -> submitrawall(data, default_timeout_millis, timeunit.milliseconds),
+                () -> subscribeledgers(4, overflowpolicy.drop_oldest),
+                executors.newsinglethreadscheduledexecutor(new defaultthreadfactory("ws-read-batch", true)),
+                intproperty(config, "websocket.read.batch.micros", 1000),
+                intproperty(config, "websocket.read.cache.ttl.millis", 2000),
+                intproperty(config, "websocket.read.cache.size", 10000));
+    }
+
+    public static final int default_stream_buffer = 1024;
+
+    /**
+     * stream of closed ledgers ("ledger" stream), decoded into ledgerheader.
+     */
+    public static flow.publisher<ledgerheader> subscribeledgers() {
+        return subscribeledgers(default_stream_buffer, overflowpolicy.pause_reading);
+    }
+
+    public static flow.publisher<ledgerheader> subscribeledgers(int capacity, overflowpolicy policy) {
+        jsonobject command = new jsonobject();
+        command.put("command", "subscribe");
+        command.put("streams", new jsonarray().put("ledger"));
+        return stream(command, collections.singleton("ledgerclosed"), ledgerheader::fromjson).publisher(capacity, policy);
+    }
+
+    /**
+     * stream of validated transactions affecting the given accounts, or of all transactions if accounts is empty.
+     */
+    public static flow.publisher<transactionresult> subscribetransactions(list<string> accounts) {
+        return subscribetransactions(accounts, default_stream_buffer, overflowpolicy.pause_reading);
+    }
+
+    public static flow.publisher<transactionresult> subscribetransactions(list<string> accounts, int capacity, overflowpolicy policy) {
+        jsonobject command = new jsonobject();
+        command.put("command", "subscribe");
+        if (accounts == null || accounts.isempty()) {
+            command.put("streams", new jsonarray().put("transactions"));
+        } else {
+            command.put("accounts", new jsonarray(accounts));
+        }
+        return transactionstream(command, capacity, policy);
+    }
+
+    /**
+     * stream of validated transactions of an account set which may change while it runs, on one channel.
+     */
+    public static accountstream subscribeaccounts() {
+        return new accountstream(pool);
+    }
+
+    /**
+     * stream of transactions touching the order book taker_gets/taker_pays, issuers are null for native currencies.
+     */
+    public static flow.publisher<transactionresult> subscribebook(string getscurrency, string getsissuer,
+                                                                  string payscurrency, string paysissuer) {
+        return subscribebook(getscurrency, getsissuer, payscurrency, paysissuer, default_stream_buffer, overflowpolicy.pause_reading);
+    }
+
+    public static flow.publisher<transactionresult> subscribebook(string getscurrency, string getsissuer,
+                                                                  string payscurrency, string paysissuer,
+                                                                  int capacity, overflowpolicy policy) {
+        jsonobject book = new jsonobject();
+        book.put("taker_gets", issue(getscurrency, getsissuer));
+        book.put("taker_pays", issue(payscurrency, paysissuer));
+        jsonobject command = new jsonobject();
+        command.put("command", "subscribe");
+        command.put("books", new jsonarray().put(book));
+        return transactionstream(command, capacity, policy);
+    }
+
+    private static jsonobject issue(string currency, string issuer) {
+        jsonobject issue = new jsonobject();
+        issue.put("currency", currency);
+        if (issuer != null) {
+            issue.put("issuer", issuer);
+        }
+        return issue;
+    }
+
+    private static flow.publisher<transactionresult> transactionstream(jsonobject command, int capacity, overflowpolicy policy) {
+        return stream(command, collections.singleton("transaction"),
+                json -> new transactionresult(json, transactionresult.source.transaction_subscription_notification))
+                .publisher(capacity, policy);
+    }
+
+    /**
+     * the stream of a subscribe command, all subscribers of the same command share one stream channel.
+     */
+    @suppresswarnings("unchecked")
+    private static <t> streampublisher<t> stream(jsonobject command, set<string> types, function<jsonobject, t> decoder) {
+        return (streampublisher<t>) streams.computeifabsent(command.tostring(),
+                key -> new streampublisher<>(pool, () -> command, types, decoder, forkjoinpool.commonpool()));
+    }
+
+    private static int intproperty(config config, string key, int defaultvalue) {
+        string value = config.getproperty(key);
+        return stringutils.isblank(value) ? defaultvalue : integer.parseint(value.trim());
+    }
+
+    /**
+     * send json data to server asynchronously, the returned future is completed by the channel handler.
+     * the "id" of the request is replaced by an internal correlation id on the wire and restored on the reply,
+     * the future fails with an apiexception on malformed data, write failure or timeout.
+     */
+    public static completablefuture<jsonobject> submit(string data) {
+        return submit(data, default_timeout_millis, timeunit.milliseconds);
+    }
+
+    public static completablefuture<jsonobject> submit(jsonobject request) {
+        return submit(request.tostring(), default_timeout_millis, timeunit.milliseconds);
+    }
+
+    public static completablefuture<jsonobject> submit(string data, long timeout, timeunit unit) {
+        return submitraw(data, timeout, unit).thenapply(wsresponse::json);
+    }
+
+    /**
+     * like {@link #submit(string, long, timeunit)}, but hands out the reply as a lazily parsed view,
+     * large replies like account_tx or book_offers are not parsed until the caller asks for it.
+     */
+    public static completablefuture<wsresponse> submitraw(string data, long timeout, timeunit unit) {
+        final outbound outbound;
+        try {
+            outbound = prepare(data);
+        } catch (illegalargumentexception ex) {
+            return malformed();
+        }
+        return pool.dispatch(outbound.id, outbound.frame, timeout, unit).thenapply(reply -> reply.withcallerid(outbound.callerid));
+    }
+
+    /**
+     * send several requests in one write burst on one channel, the replies come back in the order of data.
+     */
+    static list<completablefuture<wsresponse>> submitrawall(list<string> data, long timeout, timeunit unit) {
+        list<completablefuture<wsresponse>> replies = new arraylist<>(data.size());
+        list<outbound> batch = new arraylist<>(data.size());
+        list<integer> positions = new arraylist<>(data.size());
+        for (string d : data) {
             try {
-                uri uri = new uri(server);
-                wsclient wsclient = new wsclient(uri);
-                wsclient.connect();
-                clientmap.put(server, wsclient);
-            } catch (exception ex) {
-                ex.printstacktrace();
+                batch.add(prepare(d));
+                positions.add(replies.size());
+                replies.add(null);
+            } catch (illegalargumentexception ex) {
+                replies.add(malformed());
             }
         }
+        long[] ids = new long[batch.size()];
+        bytebuf[] frames = new bytebuf[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = batch.get(i).id;
+            frames[i] = batch.get(i).frame;
+        }
+        list<completablefuture<wsresponse>> sent = pool.dispatchall(ids, frames, timeout, unit);
+        for (int i = 0; i < ids.length; i++) {
+            final byte[] callerid = batch.get(i).callerid;
+            replies.set(positions.get(i), sent.get(i).thenapply(reply -> reply.withcallerid(callerid)));
+        }
+        return replies;
     }
 
     /**
-     * send json data to server
+     * a request ready for the wire: the correlation id is spliced into the request bytes
+     * instead of a parse/serialize round trip, the caller's id literal is kept for the reply.
      */
-    public static string request(string data) throws interruptedexception {
-        long requestid = requestid.getandincrement();
-        long currentdatarequestid = 0l;
-        try {
-            jsonobject json = new jsonobject(data);
-            currentdatarequestid = json.getlong("id");
-            json.put("id", requestid);
-            data = json.tostring();
-        } catch (exception ex) {
+    private static final class outbound {
+        final long id;
+        final bytebuf frame;
+        final byte[] callerid;
+
+        outbound(long id, bytebuf frame, byte[] callerid) {
+            this.id = id;
+            this.frame = frame;
+            this.callerid = callerid;
+        }
+    }
 
+    private static outbound prepare(string data) {
+        final long requestid = requests.nextid();
+        byte[] bytes = data.getbytes(charsetutil.utf_8);
+        bytebuf buf = unpooled.wrappedbuffer(bytes);
+        byte[] wireid = long.tostring(requestid).getbytes(charsetutil.us_ascii);
+        bytebuf frame;
+        byte[] currentdatarequestid;
+        int start = jsonscanner.valuestart(buf, "id");
+        if (start >= 0) {
+            int end = jsonscanner.valueend(buf, start);
+            jsonscanner.readlong(buf, start, end);
+            currentdatarequestid = arrays.copyofrange(bytes, start, end);
+            frame = unpooled.wrappedbuffer(unpooled.wrappedbuffer(bytes, 0, start), unpooled.wrappedbuffer(wireid),
+                    unpooled.wrappedbuffer(bytes, end, bytes.length - end));
+        } else {
+            int brace = jsonscanner.objectstart(buf) + 1;
+            string member = "\"id\":" + requestid + (jsonscanner.isemptyobject(buf) ? "" : ",");
+            currentdatarequestid = null;
+            frame = unpooled.wrappedbuffer(unpooled.wrappedbuffer(bytes, 0, brace),
+                    unpooled.wrappedbuffer(member.getbytes(charsetutil.us_ascii)),
+                    unpooled.wrappedbuffer(bytes, brace, bytes.length - brace));
         }
-        string server = servers[randomutils.nextint(0, servers.length)];
-        queues.put(requestid, new linkedblockingqueue<>(1));
-        channel channel = clientmap.get(server).getchannel();
-        if(!channel.isactive() || !channel.isopen()){
-            channel = clientmap.get(server).connect();
+        if (logger.isdebugenabled()) {
+            logger.debug("***request to ws:" + frame.tostring(charsetutil.utf_8));
         }
-        //logger.info("****active:"+channel.isactive() + "----open:"+channel.isopen());
-        websocketframe frame = new textwebsocketframe(data);
-        channel.writeandflush(frame);
-        string result = websocketclienthandler.getmessage(requestid);
-        if(result == null){
+        return new outbound(requestid, frame, currentdatarequestid);
+    }
+
+    private static <t> completablefuture<t> malformed() {
+        completablefuture<t> failed = new completablefuture<>();
+        failed.completeexceptionally(new apiexception(apiexception.errorcode.malformed_request_data, "invalid \"id\" property, must be a number"));
+        return failed;
+    }
+
+    /**
+     * send json data to server, return null if failed.
+     */
+    public static string request(string data) throws interruptedexception {
+        try {
+            return submitraw(data, default_timeout_millis, timeunit.milliseconds).get().text();
+        } catch (executionexception ex) {
+            logger.warn("request failed: " + ex.getcause().getmessage());
             return null;
         }
-        jsonobject json = new jsonobject(result);
-        json.put("id", currentdatarequestid);
-        return json.tostring();
     }
 
     /**
      * send json data to server, if failed, throws the apiexception for details.
+     * the reply is checked with the streaming scanner and returned as text, it is parsed only by the caller.
      */
     public static string req(string data) throws apiexception {
-        long requestid = requestid.getandincrement();
-        long currentdatarequestid;
-        try {
-            jsonobject json = new jsonobject(data);
-            currentdatarequestid = json.getlong("id");
-            json.put("id", requestid);
-            data = json.tostring();
-        } catch (exception ex) {
-            throw new apiexception(apiexception.errorcode.malformed_request_data, "invalid \"id\" property, must be a number");
-        }
-        string server = servers[randomutils.nextint(0, servers.length)];
-        queues.put(requestid, new linkedblockingqueue<>(1));
-        channel channel = clientmap.get(server).getchannel();
-        if(channel==null || !channel.isactive() || !channel.isopen()){
-            channel = clientmap.get(server).connect();
-        }
-        //logger.debug("****藴active:" + channel.isactive() + "----open:" + channel.isopen());
-        logger.debug("***request to ws:" + data);
-        websocketframe frame = new textwebsocketframe(data);
-        channel.writeandflush(frame);
-        string result = websocketclienthandler.getmessage(requestid);
-        //logger.debug("request from remote:" + result);
-        if(result == null){
-            throw new apiexception(apiexception.errorcode.remote_error, "websocket error on reponse.");
-        }
-        jsonobject json = new jsonobject(result);
-        json.put("id", currentdatarequestid);
-        if(json.has("status") && !json.getstring("status").equals("error"))
-            return json.tostring();
+        return check(await(submitraw(data, default_timeout_millis, timeunit.milliseconds)));
+    }
+
+    /**
+     * like req(), for idempotent reads such as account_info or account_lines: identical concurrent requests
+     * share one round trip, requests are written in micro-batches, and replies are cached until the next
+     * ledger closes (or their short ttl expires).
+     */
+    public static string reqshared(string data) throws apiexception {
+        return check(await(coalescer.read(data)));
+    }
+
+    /**
+     * return the reply text if its status is not "error", otherwise throw the matching apiexception.
+     */
+    private static string check(wsresponse reply) throws apiexception {
+        string status = reply.getstring("status");
+        if(status != null && !status.equals("error"))
+            return reply.text();
         else{
-            string error = json.getstring("error");
+            string error = reply.getstring("error");
+            string message = reply.getstring("error_message");
             if("actnotfound".equals(error))
-                throw new apiexception(apiexception.errorcode.address_not_found, json.getstring("error_message"));
+                throw new apiexception(apiexception.errorcode.address_not_found, message);
             else if("nocurrent".equals(error) || "nonetwork".equals(error)){
-                throw new apiexception(apiexception.errorcode.remote_error, json.getstring("error_message"));
+                throw new apiexception(apiexception.errorcode.remote_error, message);
             }else{
-                throw new apiexception(apiexception.errorcode.unknown_error, json.getstring("error_message"));
+                throw new apiexception(apiexception.errorcode.unknown_error, message);
             }
         }
     }
+
+    /**
+     * block on the reply of a submitted request, unwrapping the apiexception it failed with.
+     */
+    private static <t> t await(completablefuture<t> future) throws apiexception {
+        try {
+            return future.get();
+        } catch (interruptedexception e) {
+            thread.currentthread().interrupt();
+            throw new apiexception(apiexception.errorcode.remote_error, "interrupted while waiting for websocket response.");
+        } catch (executionexception e) {
+            if (e.getcause() instanceof apiexception) {
+                throw (apiexception) e.getcause();
+            }
+            throw new apiexception(apiexception.errorcode.remote_error, "websocket error on reponse.");
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package org.moorecoinlab.client.ws;
+
+/**
+ * what a subscription stream does when its bounded buffer is full because the subscriber falls behind.
+ */
+public enum overflowpolicy {
+    /**
+     * stop reading the stream channel (autoread off) until the buffer drains to half, tcp pushes back on the server.
+     */
+    pause_reading,
+    /**
+     * drop the oldest buffered item to make room.
+     */
+    drop_oldest,
+    /**
+     * drop the item which just arrived.
+     */
+    drop_latest,
+    /**
+     * signal onerror and cancel the subscription.
+     */
+    error
+}
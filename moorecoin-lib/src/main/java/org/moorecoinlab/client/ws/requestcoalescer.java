@@ -0,0 +1,210 @@
+package org.moorecoinlab.client.ws;
+
+import com.google.common.cache.cache;
+import com.google.common.cache.cachebuilder;
+import io.netty.buffer.bytebuf;
+import io.netty.buffer.unpooled;
+import io.netty.util.charsetutil;
+import org.moorecoinlab.core.types.ledger.ledgerheader;
+import org.apache.log4j.logger;
+
+import java.util.arraylist;
+import java.util.arrays;
+import java.util.collections;
+import java.util.list;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.scheduledexecutorservice;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomicboolean;
+import java.util.concurrent.atomic.atomiclong;
+import java.util.function.function;
+import java.util.function.supplier;
+
+/**
+ * read path for idempotent commands (account_info, account_lines, account_currencies ...).
+ *
+ * requests are keyed by their text without the "id" member. identical requests in flight share one
+ * round trip (single flight), new requests wait a short window and are written together in one burst,
+ * and successful replies are cached until the ledger stream reports the next closed ledger. the ttl only
+ * bounds staleness while the ledger stream is down. error replies are passed on but never cached.
+ */
+class requestcoalescer {
+    private static final logger logger = logger.getlogger(requestcoalescer.class);
+    private static final int max_batch = 256;
+
+    private final concurrenthashmap<string, completablefuture<wsresponse>> inflight = new concurrenthashmap<>();
+    private final cache<string, wsresponse> cache;
+    private final function<list<string>, list<completablefuture<wsresponse>>> sender;
+    private final supplier<flow.publisher<ledgerheader>> ledgers;
+    private final scheduledexecutorservice scheduler;
+    private final long windowmicros;
+    private final atomiclong epoch = new atomiclong();
+    private final atomicboolean listening = new atomicboolean(false);
+
+    private final object lock = new object();
+    private list<string> batch = new arraylist<>();
+    private list<completablefuture<wsresponse>> batchfutures = new arraylist<>();
+
+    /**
+     * @param sender writes a batch of requests, replies in the same order
+     * @param ledgers ledger stream used to invalidate the cache on ledger close
+     * @param scheduler runs the batch flushes, it must not be shared with blocking tasks
+     * @param windowmicros how long a new request waits for others to join its batch, 0 sends at once
+     */
+    requestcoalescer(function<list<string>, list<completablefuture<wsresponse>>> sender,
+                     supplier<flow.publisher<ledgerheader>> ledgers, scheduledexecutorservice scheduler,
+                     long windowmicros, long ttlmillis, long maxentries) {
+        this.sender = sender;
+        this.ledgers = ledgers;
+        this.scheduler = scheduler;
+        this.windowmicros = windowmicros;
+        this.cache = cachebuilder.newbuilder()
+                .maximumsize(maxentries)
+                .expireafterwrite(ttlmillis, timeunit.milliseconds)
+                .build();
+    }
+
+    completablefuture<wsresponse> read(string data) {
+        final string key;
+        final byte[] callerid;
+        try {
+            bytebuf buf = unpooled.wrappedbuffer(data.getbytes(charsetutil.utf_8));
+            int start = jsonscanner.valuestart(buf, "id");
+            if (start < 0) {
+                key = data;
+                callerid = null;
+            } else {
+                int end = jsonscanner.valueend(buf, start);
+                key = buf.tostring(0, start, charsetutil.utf_8) + buf.tostring(end, buf.writerindex() - end, charsetutil.utf_8);
+                callerid = arrays.copyofrange(buf.array(), start, end);
+            }
+        } catch (illegalargumentexception ex) {
+            return moorecoinwebsocketclient.submitraw(data, moorecoinwebsocketclient.default_timeout_millis, timeunit.milliseconds);
+        }
+        listen();
+
+        wsresponse cached = cache.getifpresent(key);
+        if (cached != null) {
+            return completablefuture.completedfuture(cached.withcallerid(callerid));
+        }
+        completablefuture<wsresponse> created = new completablefuture<>();
+        completablefuture<wsresponse> existing = inflight.putifabsent(key, created);
+        if (existing == null) {
+            final long started = epoch.get();
+            created.whencomplete((reply, cause) -> {
+                inflight.remove(key, created);
+                // a reply which was requested before the last ledger close may already be stale
+                if (cause == null && started == epoch.get() && !"error".equals(reply.getstring("status"))) {
+                    cache.put(key, reply);
+                }
+            });
+            enqueue(data, created);
+            existing = created;
+        }
+        return existing.thenapply(reply -> reply.withcallerid(callerid));
+    }
+
+    private void enqueue(string data, completablefuture<wsresponse> future) {
+        if (windowmicros <= 0) {
+            send(collections.singletonlist(data), collections.singletonlist(future));
+            return;
+        }
+        boolean first;
+        boolean full;
+        synchronized (lock) {
+            first = batch.isempty();
+            batch.add(data);
+            batchfutures.add(future);
+            full = batch.size() >= max_batch;
+        }
+        if (full) {
+            flush();
+        } else if (first) {
+            scheduler.schedule(this::flush, windowmicros, timeunit.microseconds);
+        }
+    }
+
+    private void flush() {
+        list<string> data;
+        list<completablefuture<wsresponse>> futures;
+        synchronized (lock) {
+            if (batch.isempty()) {
+                return;
+            }
+            data = batch;
+            futures = batchfutures;
+            batch = new arraylist<>();
+            batchfutures = new arraylist<>();
+        }
+        send(data, futures);
+    }
+
+    private void send(list<string> data, list<completablefuture<wsresponse>> futures) {
+        list<completablefuture<wsresponse>> replies;
+        try {
+            replies = sender.apply(data);
+        } catch (exception ex) {
+            for (completablefuture<wsresponse> future : futures) {
+                future.completeexceptionally(ex);
+            }
+            return;
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            final completablefuture<wsresponse> future = futures.get(i);
+            replies.get(i).whencomplete((reply, cause) -> {
+                if (cause != null) {
+                    future.completeexceptionally(cause);
+                } else {
+                    future.complete(reply);
+                }
+            });
+        }
+    }
+
+    /**
+     * drop every cached reply, requests still in flight are not shared with later callers.
+     */
+    void invalidate() {
+        epoch.incrementandget();
+        inflight.clear();
+        cache.invalidateall();
+    }
+
+    /**
+     * subscribe to the ledger stream once, again after it failed.
+     */
+    private void listen() {
+        if (!listening.compareandset(false, true)) {
+            return;
+        }
+        try {
+            ledgers.get().subscribe(new flow.subscriber<ledgerheader>() {
+                @override
+                public void onsubscribe(flow.subscription subscription) {
+                    subscription.request(long.max_value);
+                }
+
+                @override
+                public void onnext(ledgerheader ledger) {
+                    invalidate();
+                }
+
+                @override
+                public void onerror(throwable throwable) {
+                    logger.warn("ledger stream for read cache failed: " + throwable.getmessage());
+                    invalidate();
+                    listening.set(false);
+                }
+
+                @override
+                public void oncomplete() {
+                    listening.set(false);
+                }
+            });
+        } catch (exception ex) {
+            logger.warn("can not subscribe ledger stream for read cache: " + ex.getmessage());
+            listening.set(false);
+        }
+    }
+}
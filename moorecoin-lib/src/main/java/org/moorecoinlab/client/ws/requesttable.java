@@ -0,0 +1,78 @@
+package org.moorecoinlab.client.ws;
+
+import io.netty.util.hashedwheeltimer;
+import io.netty.util.timeout;
+import io.netty.util.concurrent.defaultthreadfactory;
+import org.moorecoinlab.api.apiexception;
+import org.apache.log4j.logger;
+
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomiclong;
+
+/**
+ * correlation table of in-flight websocket requests, keyed by request id.
+ * every entry is a future completed by the channel handler when the reply arrives,
+ * or failed by the wheel timer when the reply does not arrive in time, so no caller thread is parked per request.
+ */
+class requesttable {
+    private static final logger logger = logger.getlogger(requesttable.class);
+
+    private final atomiclong requestid = new atomiclong(0l);
+    private final concurrenthashmap<long, completablefuture<wsresponse>> pending = new concurrenthashmap<>();
+    private final hashedwheeltimer timer =
+            new hashedwheeltimer(new defaultthreadfactory("ws-request-timer", true), 50, timeunit.milliseconds, 512);
+
+    /**
+     * allocate the correlation id for the next request on the wire.
+     */
+    long nextid() {
+        return requestid.getandincrement();
+    }
+
+    /**
+     * register a request id, the returned future is failed with remote_error if no reply arrives within timeout.
+     */
+    completablefuture<wsresponse> register(final long id, long timeout, timeunit unit) {
+        final completablefuture<wsresponse> future = new completablefuture<>();
+        pending.put(id, future);
+        final timeout handle = timer.newtimeout(t -> {
+            if (pending.remove(id, future)) {
+                future.completeexceptionally(new apiexception(apiexception.errorcode.remote_error, "websocket request timeout, id=" + id));
+            }
+        }, timeout, unit);
+        future.whencomplete((result, cause) -> handle.cancel());
+        return future;
+    }
+
+    /**
+     * complete the request with its reply.
+     * @return false if the id is unknown, e.g. the reply arrived after the request had timed out
+     */
+    boolean complete(long id, wsresponse reply) {
+        completablefuture<wsresponse> future = pending.remove(id);
+        if (future == null) {
+            logger.debug("drop reply of unknown or expired request, id=" + id);
+            return false;
+        }
+        return future.complete(reply);
+    }
+
+    /**
+     * fail the request, e.g. the frame could not be written to the channel.
+     */
+    void fail(long id, throwable cause) {
+        completablefuture<wsresponse> future = pending.remove(id);
+        if (future != null) {
+            future.completeexceptionally(cause);
+        }
+    }
+
+    /**
+     * number of requests still waiting for a reply.
+     */
+    int size() {
+        return pending.size();
+    }
+}
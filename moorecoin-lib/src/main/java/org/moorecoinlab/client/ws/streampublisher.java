@@ -0,0 +1,368 @@
+package org.moorecoinlab.client.ws;
+
+import io.netty.buffer.bytebuf;
+import io.netty.channel.channel;
+import io.netty.util.charsetutil;
+import org.moorecoinlab.api.apiexception;
+import org.apache.log4j.logger;
+import org.json.jsonobject;
+
+import java.util.arraydeque;
+import java.util.list;
+import java.util.set;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.copyonwritearraylist;
+import java.util.concurrent.executor;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomicinteger;
+import java.util.concurrent.atomic.atomiclong;
+import java.util.function.consumer;
+import java.util.function.function;
+import java.util.function.supplier;
+
+/**
+ * one server pushed stream (ledgers, transactions, order books), shared by all its subscribers.
+ *
+ * the stream has one websocket channel outside the request pool, opened without blocking when the first subscriber
+ * arrives and closed when the last one cancels. every pushed message is decoded once into t on the event loop and
+ * offered to each subscriber, whose decoded items wait in its own bounded buffer until it requests them; what
+ * happens when that buffer is full is chosen by its overflowpolicy. pause_reading turns autoread off on the shared
+ * channel so the server is slowed down instead of the heap filling up, this holds back the other subscribers too.
+ * a dropped channel is reconnected and the stream command sent again.
+ */
+class streampublisher<t> {
+    private static final logger logger = logger.getlogger(streampublisher.class);
+
+    /**
+     * how the stream reaches a server, implemented by {@link wspool}.
+     */
+    interface transport {
+        /**
+         * open a channel whose pushed frames without an id go to sink, completes after the websocket handshake.
+         */
+        completablefuture<channel> open(consumer<bytebuf> sink);
+
+        /**
+         * write a command on the channel, the id is added here.
+         */
+        completablefuture<wsresponse> send(channel channel, jsonobject command);
+
+        /**
+         * run a short task later, it must not block.
+         */
+        void schedule(runnable task, long delay, timeunit unit);
+    }
+
+    private final transport transport;
+    private final supplier<jsonobject> command;
+    private final set<string> types;
+    private final function<jsonobject, t> decoder;
+    private final executor executor;
+    private final list<streamsubscription> subscriptions = new copyonwritearraylist<>();
+
+    // guarded by this
+    private channel channel;
+    private boolean connecting = false;
+    private int stopped = 0;
+
+    /**
+     * @param command the subscribe command without id, asked again for every (re)connect
+     * @param types values of "type" which belong to this stream, other pushed messages are ignored
+     * @param executor delivers the items to the subscribers
+     */
+    streampublisher(transport transport, supplier<jsonobject> command, set<string> types,
+                    function<jsonobject, t> decoder, executor executor) {
+        this.transport = transport;
+        this.command = command;
+        this.types = types;
+        this.decoder = decoder;
+        this.executor = executor;
+    }
+
+    /**
+     * the stream for subscribers with a buffer of capacity items, full buffers are handled by policy.
+     */
+    flow.publisher<t> publisher(final int capacity, final overflowpolicy policy) {
+        if (capacity <= 0) {
+            throw new illegalargumentexception("capacity must be positive");
+        }
+        return subscriber -> subscribe(subscriber, capacity, policy);
+    }
+
+    private void subscribe(flow.subscriber<? super t> subscriber, int capacity, overflowpolicy policy) {
+        streamsubscription subscription = new streamsubscription(subscriber, capacity, policy);
+        subscriptions.add(subscription);
+        subscriber.onsubscribe(subscription);
+        connect();
+    }
+
+    /**
+     * write a command on the stream channel, e.g. to change what it follows. without a channel the future fails,
+     * the command given at construction is sent again on the next connect.
+     */
+    completablefuture<wsresponse> send(jsonobject request) {
+        channel ch;
+        synchronized (this) {
+            ch = channel;
+        }
+        if (ch == null) {
+            completablefuture<wsresponse> failed = new completablefuture<>();
+            failed.completeexceptionally(new apiexception(apiexception.errorcode.remote_error, "stream not connected."));
+            return failed;
+        }
+        return transport.send(ch, request);
+    }
+
+    /**
+     * open the stream channel unless it is open or opening, and send the subscribe command on it.
+     */
+    private void connect() {
+        synchronized (this) {
+            if (connecting || channel != null || subscriptions.isempty()) {
+                return;
+            }
+            connecting = true;
+        }
+        completablefuture<channel> opened;
+        try {
+            opened = transport.open(this::accept);
+        } catch (exception ex) {
+            opened = new completablefuture<>();
+            opened.completeexceptionally(ex);
+        }
+        opened.whencomplete((ch, cause) -> {
+            if (cause != null) {
+                logger.warn("stream connect failed: " + cause.getmessage());
+                synchronized (this) {
+                    connecting = false;
+                }
+                retry();
+                return;
+            }
+            synchronized (this) {
+                connecting = false;
+                channel = ch;
+                ch.config().setautoread(stopped == 0);
+            }
+            ch.closefuture().addlistener(f -> {
+                synchronized (this) {
+                    if (channel == ch) {
+                        channel = null;
+                    }
+                }
+                retry();
+            });
+            if (subscriptions.isempty()) {
+                // everybody cancelled while the channel was opening
+                ch.close();
+                return;
+            }
+            transport.send(ch, command.get()).whencomplete((reply, error) -> {
+                if (error != null) {
+                    logger.warn("stream subscribe failed: " + error.getmessage());
+                    ch.close();
+                } else if ("error".equals(reply.getstring("status"))) {
+                    failall(new apiexception(apiexception.errorcode.remote_error, "subscribe rejected: " + reply.getstring("error")));
+                    ch.close();
+                }
+            });
+        });
+    }
+
+    private void retry() {
+        if (!subscriptions.isempty()) {
+            transport.schedule(this::connect, 1, timeunit.seconds);
+        }
+    }
+
+    /**
+     * a pushed frame arrived, called on the event loop of the stream channel.
+     */
+    private void accept(bytebuf content) {
+        if (subscriptions.isempty()) {
+            return;
+        }
+        if (types != null && !types.contains(jsonscanner.readstring(content, "type"))) {
+            return;
+        }
+        t item;
+        try {
+            item = decoder.apply(new jsonobject(content.tostring(charsetutil.utf_8)));
+        } catch (exception ex) {
+            logger.error("can not decode stream message", ex);
+            return;
+        }
+        for (streamsubscription subscription : subscriptions) {
+            subscription.offer(item);
+        }
+    }
+
+    private void failall(throwable cause) {
+        for (streamsubscription subscription : subscriptions) {
+            subscriptions.remove(subscription);
+            subscription.fail(cause);
+        }
+    }
+
+    private void remove(streamsubscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        channel ch;
+        synchronized (this) {
+            ch = subscriptions.isempty() ? channel : null;
+        }
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    /**
+     * a subscription stopped or resumed reading, the channel reads while none is stopped.
+     */
+    private synchronized void pausereading(boolean pause) {
+        stopped += pause ? 1 : -1;
+        if (channel != null) {
+            channel.config().setautoread(stopped == 0);
+        }
+    }
+
+    private class streamsubscription implements flow.subscription {
+        private final flow.subscriber<? super t> subscriber;
+        private final int capacity;
+        private final overflowpolicy policy;
+        private final arraydeque<t> buffer = new arraydeque<>();
+        private final atomiclong demand = new atomiclong();
+        private final atomicinteger wip = new atomicinteger();
+        private volatile boolean cancelled = false;
+        private volatile throwable failure;
+        private boolean paused = false;
+        private long dropped = 0;
+
+        streamsubscription(flow.subscriber<? super t> subscriber, int capacity, overflowpolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        void offer(t item) {
+            if (cancelled || failure != null) {
+                return;
+            }
+            synchronized (this) {
+                if (buffer.size() >= capacity) {
+                    switch (policy) {
+                        case pause_reading:
+                            // frames already read off the socket still arrive, so the buffer bound is soft here
+                            buffer.add(item);
+                            setpaused(true);
+                            break;
+                        case drop_oldest:
+                            buffer.poll();
+                            buffer.add(item);
+                            dropped++;
+                            break;
+                        case drop_latest:
+                            dropped++;
+                            break;
+                        case error:
+                            failure = new apiexception(apiexception.errorcode.remote_error,
+                                    "subscription buffer overflow, capacity=" + capacity);
+                            break;
+                    }
+                } else {
+                    buffer.add(item);
+                }
+            }
+            drain();
+        }
+
+        private synchronized void setpaused(boolean pause) {
+            if (paused != pause) {
+                paused = pause;
+                pausereading(pause);
+            }
+        }
+
+        private synchronized t poll() {
+            t item = buffer.poll();
+            if (paused && buffer.size() <= capacity / 2) {
+                setpaused(false);
+            }
+            return item;
+        }
+
+        private synchronized boolean isempty() {
+            return buffer.isempty();
+        }
+
+        @override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new illegalargumentexception("non-positive request: " + n));
+                return;
+            }
+            long current, next;
+            do {
+                current = demand.get();
+                next = current + n < 0 ? long.max_value : current + n;
+            } while (!demand.compareandset(current, next));
+            drain();
+        }
+
+        @override
+        public void cancel() {
+            cancelled = true;
+            synchronized (this) {
+                buffer.clear();
+                setpaused(false);
+            }
+            remove(this);
+        }
+
+        void fail(throwable cause) {
+            failure = cause;
+            drain();
+        }
+
+        /**
+         * schedule delivery, at most one drain loop runs at a time so onnext calls never overlap.
+         */
+        private void drain() {
+            if (wip.getandincrement() == 0) {
+                executor.execute(this::drainloop);
+            }
+        }
+
+        private void drainloop() {
+            int missed = 1;
+            do {
+                while (!cancelled && demand.get() > 0) {
+                    t item = poll();
+                    if (item == null) {
+                        break;
+                    }
+                    if (demand.get() != long.max_value) {
+                        demand.decrementandget();
+                    }
+                    try {
+                        subscriber.onnext(item);
+                    } catch (throwable ex) {
+                        logger.error("subscriber failed in onnext, cancelled", ex);
+                        cancel();
+                        subscriber.onerror(ex);
+                        return;
+                    }
+                }
+                if (!cancelled && failure != null && (isempty() || policy == overflowpolicy.error)) {
+                    cancel();
+                    if (dropped > 0) {
+                        logger.warn("stream dropped " + dropped + " messages before it failed");
+                    }
+                    subscriber.onerror(failure);
+                }
+                missed = wip.addandget(-missed);
+            } while (missed != 0);
+        }
+    }
+}
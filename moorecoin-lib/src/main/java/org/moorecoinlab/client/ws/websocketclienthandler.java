@@ -37,34 +37,35 @@
 
 package org.moorecoinlab.client.ws;
 
+import io.netty.buffer.bytebuf;
 import io.netty.channel.*;
 import io.netty.handler.codec.http.fullhttpresponse;
 import io.netty.handler.codec.http.websocketx.*;
+import io.netty.handler.timeout.idlestate;
+import io.netty.handler.timeout.idlestateevent;
 import io.netty.util.charsetutil;
 import org.apache.log4j.logger;
-import org.json.jsonobject;
 
-import java.util.concurrent.timeunit;
+import java.nio.channels.closedchannelexception;
+import java.util.function.consumer;
 
 public class websocketclienthandler extends simplechannelinboundhandler<object> {
 
     private static final logger logger = logger.getlogger(websocketclienthandler.class);
     private final websocketclienthandshaker handshaker;
+    private final consumer<bytebuf> streamsink;
     private channelpromise handshakefuture;
 
     public websocketclienthandler(websocketclienthandshaker handshaker) {
-        this.handshaker = handshaker;
+        this(handshaker, null);
     }
 
-    public static string getmessage(long requestid) {
-        try {
-            string message = moorecoinwebsocketclient.queues.get(requestid).poll(5, timeunit.seconds);
-            moorecoinwebsocketclient.queues.remove(requestid);
-            return message;
-        } catch (interruptedexception e) {
-            e.printstacktrace();
-        }
-        return null;
+    /**
+     * @param streamsink receives server pushed frames without an id, null sends them to the subscribequeue
+     */
+    public websocketclienthandler(websocketclienthandshaker handshaker, consumer<bytebuf> streamsink) {
+        this.handshaker = handshaker;
+        this.streamsink = streamsink;
     }
 
     public channelfuture handshakefuture() {
@@ -84,6 +85,8 @@ public class websocketclienthandler extends simplechannelinboundhandler<object>
     @override
     public void channelinactive(channelhandlercontext ctx) {
         logger.info("websocket client disconnected!");
+        // a channel closed during the handshake must not leave connectasync() waiting
+        handshakefuture.tryfailure(new closedchannelexception());
         ctx.close();
     }
 
@@ -106,23 +109,44 @@ public class websocketclienthandler extends simplechannelinboundhandler<object>
 
         websocketframe frame = (websocketframe) msg;
         if (frame instanceof textwebsocketframe) {
-            textwebsocketframe textframe = (textwebsocketframe) frame;
-            string result = textframe.text();
-//            logger.info(result);
-            jsonobject json = new jsonobject(result);
-            if(json.has("id")) {
-                moorecoinwebsocketclient.queues.get(json.getlong("id")).put(result);
+            // read the correlation id straight from the frame, the reply itself is parsed lazily by the caller
+            bytebuf content = frame.content();
+            int idstart = jsonscanner.valuestart(content, "id");
+            if(idstart >= 0) {
+                int idend = jsonscanner.valueend(content, idstart);
+                long id = jsonscanner.readlong(content, idstart, idend);
+                byte[] bytes = new byte[content.readablebytes()];
+                content.getbytes(content.readerindex(), bytes);
+                int base = content.readerindex();
+                moorecoinwebsocketclient.requests.complete(id, new wsresponse(bytes, idstart - base, idend - base, null));
+            }else if(streamsink != null){
+                streamsink.accept(content);
             }else{
-                moorecoinwebsocketclient.subscribequeue.offer(result);
+                moorecoinwebsocketclient.subscribequeue.offer(content.tostring(charsetutil.utf_8));
             }
         } else if (frame instanceof pongwebsocketframe) {
-            system.out.println("websocket client received pong");
+            logger.debug("websocket client received pong");
         } else if (frame instanceof closewebsocketframe) {
             system.out.println("websocket client received closing");
             ch.close();
         }
     }
 
+    @override
+    public void usereventtriggered(channelhandlercontext ctx, object evt) throws exception {
+        if (evt instanceof idlestateevent) {
+            idlestateevent e = (idlestateevent) evt;
+            if (e.state() == idlestate.writer_idle) {
+                ctx.writeandflush(new pingwebsocketframe());
+            } else if (e.state() == idlestate.reader_idle) {
+                logger.warn("websocket peer stalled, no frame received in time, closing " + ctx.channel());
+                ctx.close();
+            }
+            return;
+        }
+        super.usereventtriggered(ctx, evt);
+    }
+
     @override
     public void exceptioncaught(channelhandlercontext ctx, throwable cause) {
         logger.error("handler receive exception:" + cause.getmessage());
@@ -1,6 +1,7 @@
 package org.moorecoinlab.client.ws;
 
 import io.netty.bootstrap.bootstrap;
+import io.netty.buffer.bytebuf;
 import io.netty.channel.*;
 import io.netty.channel.nio.nioeventloopgroup;
 import io.netty.channel.socket.socketchannel;
@@ -12,36 +13,90 @@ import io.netty.handler.codec.http.websocketx.websocketclienthandshakerfactory;
 import io.netty.handler.codec.http.websocketx.websocketversion;
 import io.netty.handler.ssl.sslcontext;
 import io.netty.handler.ssl.util.insecuretrustmanagerfactory;
+import io.netty.handler.timeout.idlestatehandler;
 
 import java.net.uri;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.timeunit;
+import java.util.function.consumer;
 
 
 /**
  * websocket client wrap
  */
 public class wsclient {
+    private static final int connect_timeout_millis = 10000;
 
-    private channel channel;
-    private uri uri;
-    private eventloopgroup group = null;
+    private volatile channel channel;
+    private final uri uri;
+    private final eventloopgroup group;
+    private final int pingseconds;
+    private final consumer<bytebuf> streamsink;
+    private completablefuture<channel> connecting;
 
-    public wsclient(uri uri){
+    /**
+     * @param group event loop group shared by all clients of a pool, it is not shut down on reconnect
+     * @param pingseconds send a ping frame when nothing was written for this long, 0 disables keep alive
+     * @param streamsink receives server pushed frames without an id, null sends them to the subscribequeue
+     */
+    public wsclient(uri uri, eventloopgroup group, int pingseconds, consumer<bytebuf> streamsink){
         this.uri = uri;
+        this.group = group;
+        this.pingseconds = pingseconds;
+        this.streamsink = streamsink;
+    }
+
+    public wsclient(uri uri, eventloopgroup group, int pingseconds){
+        this(uri, group, pingseconds, null);
+    }
+
+    public wsclient(uri uri){
+        this(uri, new nioeventloopgroup(1), 0);
+    }
+
+    public uri geturi() {
+        return uri;
     }
 
     public channel getchannel() {
         return channel;
     }
+
+    public boolean isactive() {
+        channel ch = channel;
+        return ch != null && ch.isactive() && ch.isopen();
+    }
+
+    /**
+     * connect and wait for the websocket handshake, for callers which may block.
+     */
     public channel connect(){
-        if(group != null)
-            group.shutdowngracefully();
+        try {
+            return connectasync().get();
+        }catch (exception e){
+            e.printstacktrace();
+        }
+        return channel;
+    }
 
-        group = new nioeventloopgroup();
+    /**
+     * connect without blocking the caller, the future completes with the channel once the websocket handshake
+     * is done, or fails if the connect or the handshake fails. a connect in progress is shared by all callers.
+     */
+    public synchronized completablefuture<channel> connectasync(){
+        if(connecting != null && !connecting.isdone())
+            return connecting;
+        if(channel != null)
+            channel.close();
+
+        final completablefuture<channel> result = new completablefuture<>();
+        connecting = result;
         try {
             final websocketclienthandler handler =
                     new websocketclienthandler(
                             websocketclienthandshakerfactory.newhandshaker(
-                                    uri, websocketversion.v13, null, false, new defaulthttpheaders(), integer.max_value));
+                                    uri, websocketversion.v13, null, false, new defaulthttpheaders(), integer.max_value),
+                            streamsink);
 
             final boolean ssl = "wss".equalsignorecase(uri.getscheme());
             final sslcontext sslctx;
@@ -54,6 +109,7 @@ public class wsclient {
             bootstrap b = new bootstrap();
             b.group(group)
                     .channel(niosocketchannel.class)
+                    .option(channeloption.connect_timeout_millis, connect_timeout_millis)
                     .handler(new channelinitializer<socketchannel>() {
                         @override
                         protected void initchannel(socketchannel ch) {
@@ -61,19 +117,35 @@ public class wsclient {
                             if (sslctx != null) {
                                 p.addlast(sslctx.newhandler(ch.alloc(), uri.gethost(), uri.getport()));
                             }
+                            if (pingseconds > 0) {
+                                // a peer which answers no pong for three ping periods is considered stalled
+                                p.addlast(new idlestatehandler(pingseconds * 3, pingseconds, 0, timeunit.seconds));
+                            }
                             p.addlast(
                                     new httpclientcodec(),
                                     new httpobjectaggregator(1000000),
                                     handler);
                         }
                     });
-            channelfuture cf = b.connect(uri.gethost(), uri.getport());
-            channel = cf.sync().channel();
-
-            handler.handshakefuture().sync();
+            b.connect(uri.gethost(), uri.getport()).addlistener((channelfuture cf) -> {
+                if (!cf.issuccess()) {
+                    result.completeexceptionally(cf.cause());
+                    return;
+                }
+                // the channel is handed out only after the handshake, requests must not be written before
+                handler.handshakefuture().addlistener(hf -> {
+                    if (hf.issuccess()) {
+                        channel = cf.channel();
+                        result.complete(cf.channel());
+                    } else {
+                        cf.channel().close();
+                        result.completeexceptionally(hf.cause());
+                    }
+                });
+            });
         }catch (exception e){
-            e.printstacktrace();
+            result.completeexceptionally(e);
         }
-        return channel;
+        return result;
     }
 }
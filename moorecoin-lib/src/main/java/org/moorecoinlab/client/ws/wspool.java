@@ -0,0 +1,348 @@
+package org.moorecoinlab.client.ws;
+
+import io.netty.buffer.bytebuf;
+import io.netty.buffer.unpooled;
+import io.netty.channel.channel;
+import io.netty.channel.channelfuturelistener;
+import io.netty.channel.eventloopgroup;
+import io.netty.channel.nio.nioeventloopgroup;
+import io.netty.handler.codec.http.websocketx.textwebsocketframe;
+import io.netty.util.charsetutil;
+import io.netty.util.concurrent.defaultthreadfactory;
+import org.moorecoinlab.api.apiexception;
+import org.apache.log4j.logger;
+import org.json.jsonobject;
+
+import java.net.uri;
+import java.util.arraylist;
+import java.util.collections;
+import java.util.list;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.executors;
+import java.util.concurrent.scheduledexecutorservice;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomicinteger;
+import java.util.function.consumer;
+
+/**
+ * pool of websocket channels to the configured moorecoin servers.
+ *
+ * every server gets a fixed number of channels, all sharing one event loop group. requests go to the healthy
+ * server with the least outstanding requests (or the lowest ewma latency weighted by its load), a server failing
+ * several requests in a row is ejected, and a background thread reconnects dropped channels and probes ejected
+ * servers with "ping" until they answer again. callers never reconnect on their own thread, and the background
+ * thread never waits for a connect either, it only starts them.
+ */
+class wspool implements streampublisher.transport {
+    private static final logger logger = logger.getlogger(wspool.class);
+
+    enum strategy {
+        least_outstanding,
+        ewma
+    }
+
+    private final list<endpoint> endpoints;
+    private final requesttable requests;
+    private final strategy strategy;
+    private final int ejectfailures;
+    private final int pingseconds;
+    private final eventloopgroup group;
+    private final scheduledexecutorservice health =
+            executors.newsinglethreadscheduledexecutor(new defaultthreadfactory("ws-pool-health", true));
+
+    wspool(string[] servers, requesttable requests, int channelsperserver, strategy strategy,
+           int ejectfailures, int pingseconds, int checkseconds) {
+        this.requests = requests;
+        this.strategy = strategy;
+        this.ejectfailures = ejectfailures;
+        this.pingseconds = pingseconds;
+        this.group = new nioeventloopgroup(0, new defaultthreadfactory("ws-pool-io", true));
+        list<endpoint> list = new arraylist<>();
+        list<completablefuture<channel>> connects = new arraylist<>();
+        for (string server : servers) {
+            try {
+                uri uri = new uri(server.trim());
+                endpoint endpoint = new endpoint(uri);
+                for (int i = 0; i < channelsperserver; i++) {
+                    wsclient client = new wsclient(uri, group, pingseconds);
+                    connects.add(client.connectasync());
+                    endpoint.clients.add(client);
+                }
+                list.add(endpoint);
+            } catch (exception ex) {
+                logger.error("invalid websocket server: " + server, ex);
+            }
+        }
+        this.endpoints = collections.unmodifiablelist(list);
+        // the first requests should find channels, all servers are connected at once and waited for together
+        long deadline = system.nanotime() + timeunit.seconds.tonanos(10);
+        for (completablefuture<channel> connect : connects) {
+            try {
+                connect.get(math.max(0, deadline - system.nanotime()), timeunit.nanoseconds);
+            } catch (exception ex) {
+                logger.warn("initial websocket connect failed: " + ex.getmessage());
+            }
+        }
+        health.schedulewithfixeddelay(this::check, checkseconds, checkseconds, timeunit.seconds);
+    }
+
+    /**
+     * write the request frame content to the best available server, the future fails if no server is available.
+     */
+    completablefuture<wsresponse> dispatch(long id, bytebuf data, long timeout, timeunit unit) {
+        endpoint endpoint = select();
+        if (endpoint == null) {
+            data.release();
+            completablefuture<wsresponse> failed = new completablefuture<>();
+            failed.completeexceptionally(new apiexception(apiexception.errorcode.remote_error, "no websocket server available."));
+            return failed;
+        }
+        return dispatch(endpoint, id, data, timeout, unit);
+    }
+
+    private completablefuture<wsresponse> dispatch(final endpoint endpoint, final long id, bytebuf data, long timeout, timeunit unit) {
+        completablefuture<wsresponse> future = requests.register(id, timeout, unit);
+        channel channel = endpoint.channel();
+        if (channel == null) {
+            data.release();
+            requests.fail(id, new apiexception(apiexception.errorcode.remote_error, "no active channel to " + endpoint.uri));
+            return future;
+        }
+        track(endpoint, future);
+        write(channel, id, data);
+        return future;
+    }
+
+    /**
+     * count the request as outstanding on the endpoint and feed its outcome into the endpoint's health.
+     */
+    private void track(final endpoint endpoint, completablefuture<wsresponse> future) {
+        final long start = system.nanotime();
+        endpoint.outstanding.incrementandget();
+        future.whencomplete((reply, cause) -> {
+            endpoint.outstanding.decrementandget();
+            if (cause == null) {
+                endpoint.success(system.nanotime() - start);
+            } else {
+                endpoint.failure(ejectfailures);
+            }
+        });
+    }
+
+    /**
+     * write several requests to the best available server in one burst, flushing the channel once.
+     */
+    list<completablefuture<wsresponse>> dispatchall(long[] ids, bytebuf[] data, long timeout, timeunit unit) {
+        list<completablefuture<wsresponse>> futures = new arraylist<>(ids.length);
+        if (ids.length == 0) {
+            return futures;
+        }
+        endpoint endpoint = select();
+        channel channel = endpoint == null ? null : endpoint.channel();
+        for (int i = 0; i < ids.length; i++) {
+            completablefuture<wsresponse> future = requests.register(ids[i], timeout, unit);
+            futures.add(future);
+            if (channel == null) {
+                data[i].release();
+                requests.fail(ids[i], new apiexception(apiexception.errorcode.remote_error, "no websocket server available."));
+                continue;
+            }
+            track(endpoint, future);
+            channel.write(new textwebsocketframe(data[i])).addlistener(failurelistener(ids[i]));
+        }
+        if (channel != null) {
+            channel.flush();
+        }
+        return futures;
+    }
+
+    /**
+     * write the request on a given channel, e.g. the dedicated channel of a subscription stream.
+     */
+    completablefuture<wsresponse> dispatch(channel channel, long id, bytebuf data, long timeout, timeunit unit) {
+        completablefuture<wsresponse> future = requests.register(id, timeout, unit);
+        write(channel, id, data);
+        return future;
+    }
+
+    private void write(channel channel, long id, bytebuf data) {
+        channel.writeandflush(new textwebsocketframe(data)).addlistener(failurelistener(id));
+    }
+
+    private channelfuturelistener failurelistener(final long id) {
+        return f -> {
+            if (!f.issuccess()) {
+                requests.fail(id, new apiexception(apiexception.errorcode.remote_error, "websocket write failed: " + f.cause()));
+            }
+        };
+    }
+
+    /**
+     * a channel outside the pool rotation to the best available server, sharing the pool's event loop group.
+     * server pushed frames without an id are handed to the sink instead of the subscribequeue.
+     */
+    @override
+    public completablefuture<channel> open(consumer<bytebuf> sink) {
+        endpoint endpoint = select();
+        if (endpoint == null && !endpoints.isempty()) {
+            endpoint = endpoints.get(0);
+        }
+        if (endpoint == null) {
+            completablefuture<channel> failed = new completablefuture<>();
+            failed.completeexceptionally(new apiexception(apiexception.errorcode.remote_error, "no websocket server configured."));
+            return failed;
+        }
+        return new wsclient(endpoint.uri, group, pingseconds, sink).connectasync();
+    }
+
+    @override
+    public completablefuture<wsresponse> send(channel channel, jsonobject command) {
+        long id = requests.nextid();
+        jsonobject request = new jsonobject(command.tostring());
+        request.put("id", id);
+        return dispatch(channel, id, unpooled.copiedbuffer(request.tostring(), charsetutil.utf_8), 10, timeunit.seconds);
+    }
+
+    /**
+     * runs on the event loops of the pool's channels.
+     */
+    @override
+    public void schedule(runnable task, long delay, timeunit unit) {
+        group.schedule(task, delay, unit);
+    }
+
+    /**
+     * pick the healthy server with the lowest score. when every server is ejected the connected ones are still
+     * tried rather than failing all requests, null only if nothing is connected.
+     */
+    endpoint select() {
+        endpoint best = select(endpoints, strategy, true);
+        return best != null ? best : select(endpoints, strategy, false);
+    }
+
+    /**
+     * a server that has not answered yet is scored with the mean latency of the servers that have, so that its
+     * outstanding requests count against it. as long as no server has answered they all go by outstanding requests.
+     */
+    static endpoint select(list<endpoint> endpoints, strategy strategy, boolean healthyonly) {
+        double mean = 0;
+        if (strategy == strategy.ewma) {
+            int sampled = 0;
+            for (endpoint endpoint : endpoints) {
+                double ewma = endpoint.ewmananos;
+                if (ewma > 0) {
+                    mean += ewma;
+                    sampled++;
+                }
+            }
+            mean = sampled == 0 ? 0 : mean / sampled;
+        }
+        endpoint best = null;
+        double bestscore = double.max_value;
+        for (endpoint endpoint : endpoints) {
+            if ((healthyonly && !endpoint.healthy) || !endpoint.hasactivechannel()) {
+                continue;
+            }
+            double ewma = strategy != strategy.ewma ? 0 : endpoint.ewmananos > 0 ? endpoint.ewmananos : mean;
+            double score = ewma > 0
+                    ? ewma * (endpoint.outstanding.get() + 1)
+                    : endpoint.outstanding.get();
+            if (score < bestscore) {
+                best = endpoint;
+                bestscore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * background health check: reconnect dropped channels and bring ejected servers back once they answer a ping.
+     */
+    private void check() {
+        for (final endpoint endpoint : endpoints) {
+            try {
+                for (wsclient client : endpoint.clients) {
+                    if (!client.isactive()) {
+                        logger.info("reconnect websocket channel to " + endpoint.uri);
+                        client.connectasync().whencomplete((channel, cause) -> {
+                            if (cause != null) {
+                                logger.warn("reconnect to " + endpoint.uri + " failed: " + cause.getmessage());
+                            }
+                        });
+                    }
+                }
+                if (!endpoint.healthy && endpoint.hasactivechannel()) {
+                    long id = requests.nextid();
+                    jsonobject ping = new jsonobject();
+                    ping.put("id", id);
+                    ping.put("command", "ping");
+                    dispatch(endpoint, id, unpooled.copiedbuffer(ping.tostring(), charsetutil.utf_8), 5, timeunit.seconds).thenaccept(reply -> {
+                        logger.info("websocket server " + endpoint.uri + " answers again, back in rotation");
+                        endpoint.healthy = true;
+                    });
+                }
+            } catch (exception ex) {
+                logger.error("health check failed for " + endpoint.uri, ex);
+            }
+        }
+    }
+
+    list<endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * one configured server and its channels.
+     */
+    static class endpoint {
+        private static final double alpha = 0.2;
+
+        final uri uri;
+        final list<wsclient> clients = new arraylist<>();
+        final atomicinteger outstanding = new atomicinteger();
+        private final atomicinteger next = new atomicinteger();
+        private int consecutivefailures = 0;
+        volatile boolean healthy = true;
+        volatile double ewmananos = 0;
+
+        endpoint(uri uri) {
+            this.uri = uri;
+        }
+
+        boolean hasactivechannel() {
+            for (wsclient client : clients) {
+                if (client.isactive()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * round robin over the active channels of this server.
+         */
+        channel channel() {
+            int size = clients.size();
+            int start = next.getandincrement();
+            for (int i = 0; i < size; i++) {
+                wsclient client = clients.get(math.floormod(start + i, size));
+                if (client.isactive()) {
+                    return client.getchannel();
+                }
+            }
+            return null;
+        }
+
+        synchronized void success(long latencynanos) {
+            consecutivefailures = 0;
+            ewmananos = ewmananos == 0 ? latencynanos : ewmananos + alpha * (latencynanos - ewmananos);
+        }
+
+        synchronized void failure(int ejectfailures) {
+            if (++consecutivefailures >= ejectfailures && healthy) {
+                logger.warn("websocket server " + uri + " failed " + consecutivefailures + " requests in a row, ejected");
+                healthy = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.moorecoinlab.client.ws;
+
+import io.netty.buffer.bytebuf;
+import io.netty.buffer.unpooled;
+import io.netty.util.charsetutil;
+import org.json.jsonobject;
+import org.json.jsontokener;
+
+import java.io.bytearrayinputstream;
+import java.io.inputstreamreader;
+
+/**
+ * lazily parsed view of a websocket reply.
+ *
+ * holds the raw utf-8 bytes of the frame, top-level members like "status" are read with the
+ * streaming scanner and the full jsonobject is only built when {@link #json()} is called.
+ * the wire correlation id is replaced by the caller's own id on the way out.
+ */
+public class wsresponse {
+    private final byte[] bytes;
+    private final int idstart;
+    private final int idend;
+    private final byte[] callerid;
+    private jsonobject json;
+
+    /**
+     * @param idstart span of the wire id value in bytes
+     * @param callerid id literal of the caller's request, null keeps the wire id
+     */
+    wsresponse(byte[] bytes, int idstart, int idend, byte[] callerid) {
+        this.bytes = bytes;
+        this.idstart = idstart;
+        this.idend = idend;
+        this.callerid = callerid;
+    }
+
+    /**
+     * the same reply, shown with the id of the caller's request.
+     */
+    wsresponse withcallerid(byte[] callerid) {
+        return new wsresponse(bytes, idstart, idend, callerid);
+    }
+
+    private bytebuf buffer() {
+        return unpooled.wrappedbuffer(bytes);
+    }
+
+    /**
+     * top-level string member, e.g. "status" or "error", without parsing the reply. null if absent.
+     */
+    public string getstring(string key) {
+        return jsonscanner.readstring(buffer(), key);
+    }
+
+    public boolean has(string key) {
+        return jsonscanner.valuestart(buffer(), key) >= 0;
+    }
+
+    /**
+     * size of the reply in bytes.
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * the reply as json text.
+     */
+    public string text() {
+        if (callerid == null) {
+            return new string(bytes, charsetutil.utf_8);
+        }
+        byte[] text = new byte[bytes.length - (idend - idstart) + callerid.length];
+        system.arraycopy(bytes, 0, text, 0, idstart);
+        system.arraycopy(callerid, 0, text, idstart, callerid.length);
+        system.arraycopy(bytes, idend, text, idstart + callerid.length, bytes.length - idend);
+        return new string(text, charsetutil.utf_8);
+    }
+
+    /**
+     * the reply parsed into a jsonobject, built once on first call.
+     */
+    public synchronized jsonobject json() {
+        if (json == null) {
+            json = new jsonobject(new jsontokener(new inputstreamreader(new bytearrayinputstream(bytes), charsetutil.utf_8)));
+            if (callerid != null) {
+                json.put("id", new jsontokener(new string(callerid, charsetutil.us_ascii)).nextvalue());
+            }
+        }
+        return json;
+    }
+
+    @override
+    public string tostring() {
+        return text();
+    }
+}
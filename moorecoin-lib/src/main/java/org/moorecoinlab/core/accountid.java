@@ -13,28 +13,55 @@ import org.moorecoinlab.crypto.ecdsa.ikeypair;
 import org.moorecoinlab.crypto.ecdsa.seed;
 import org.ripple.bouncycastle.util.encoders.hex;
 
+import com.google.common.cache.cache;
+import com.google.common.cache.cachebuilder;
+
 import java.util.hashmap;
 import java.util.map;
 
+/**
+ * an account, held as its 20 bytes. the address is only base58 encoded when
+ * asked for, hashing and equality work on the bytes.
+ * <p>
+ * the static constructors intern: an account seen recently, e.g. parsed from
+ * the metadata of the same ledger, comes back as the same instance, its
+ * address encoded at most once.
+ */
 public class accountid extends hash160 {
-    final public string address;
+    private static final cache<accountid, accountid> interned = cachebuilder.newbuilder()
+            .maximumsize(10000)
+            .build();
+
+    // encoded on first use
+    private volatile string address;
 
     /**
      * constructor of accountid
      * @param bytes   must be sha256_ripemd160 format
      */
     public accountid(byte[] bytes) {
-        this(bytes, encodeaddress(bytes));
+        super(checklength(bytes));
     }
 
-    public accountid(byte[] bytes, string address) {
-        super(bytes);
+    private accountid(byte[] bytes, string address) {
+        super(checklength(bytes));
         this.address = address;
     }
 
-    @override
-    public int hashcode() {
-        return address.hashcode();
+    public string address() {
+        string address = this.address;
+        if (address == null) {
+            this.address = address = encodeaddress(bytes());
+        }
+        return address;
+    }
+
+    /**
+     * @return the instance of the cache for the same bytes, `account` itself if there's none
+     */
+    private static accountid intern(accountid account) {
+        accountid existing = interned.asmap().putifabsent(account, account);
+        return existing == null ? account : existing;
     }
 
     public static accountid neutral,  vrp_issuer;
@@ -45,14 +72,14 @@ public class accountid extends hash160 {
         neutral = frominteger(1);
         vbc_0 = frominteger(10000);
         vbc_1 = frominteger(20000);
-//        system.out.println("account_1 : " + neutral.address);
-//        system.out.println("vbc_0     : " + vbc_0.address);
-//        system.out.println("vbc_1     : " + vbc_1.address);
+//        system.out.println("account_1 : " + neutral.address());
+//        system.out.println("vbc_0     : " + vbc_0.address());
+//        system.out.println("vbc_1     : " + vbc_1.address());
     }
 
     @override
     public string tostring() {
-        return address;
+        return address();
     }
 
     //@deprecated
@@ -61,14 +88,17 @@ public class accountid extends hash160 {
     }
 
     public static accountid fromkeypair(ikeypair kp) {
-        byte[] bytes = kp.sha256_ripemd160_pub();
-        return new accountid(bytes, encodeaddress(bytes));
+        return frombytes(kp.sha256_ripemd160_pub());
     }
 
-    private static string encodeaddress(byte[] a) {
+    private static byte[] checklength(byte[] a) {
         if(a.length != 20)  // added by fau
             throw new moorecoinexception("encodeaddress() param length must be 20(ripemd160)!");
-        return b58.getinstance().encodeaddress(a);
+        return a;
+    }
+
+    private static string encodeaddress(byte[] a) {
+        return b58.getinstance().encodeaddress(checklength(a));
     }
 
     static public accountid frominteger(integer n) {
@@ -77,12 +107,12 @@ public class accountid extends hash160 {
     }
 
     public static accountid frombytes(byte[] bytes) {
-        return new accountid(bytes, encodeaddress(bytes));
+        return intern(new accountid(bytes));
     }
 
     static public accountid fromaddress(string address) throws moorecoinexception {
         byte[] bytes = b58.getinstance().decodeaddress(address);
-        return new accountid(bytes, address);
+        return intern(new accountid(bytes, address));
     }
 
     static public accountid fromaddressbytes(byte[] bytes) {
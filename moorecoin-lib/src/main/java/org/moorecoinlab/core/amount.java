@@ -50,11 +50,31 @@ public class amount extends number implements serializedtype, comparable<org.moo
     public static final uint64 binary_flag_is_non_negative_native = new uint64("4000000000000000", 16);
     public static final uint64 binary_flag_is_native_vbc = new uint64("2000000000000000", 16);
 
+    // the bounds of a canonical iou mantissa and exponent, as in rippled's stamount
+    private static final long min_iou_mantissa = 1000000000000000l;
+    private static final long max_iou_mantissa = 9999999999999999l;
+    private static final int min_iou_exponent = -96;
+    private static final int max_iou_exponent = 80;
+    // the offset of a zero iou, as calculateoffset() gives for 0
+    private static final int zero_iou_offset = -15;
+    // max_native_value in drops
+    private static final long max_native_drops = 100000000000000000l;
+    private static final long taker_pays_for_that_damn_offer_drops = 1000000000000000100l;
+
     public static final org.moorecoinlab.core.amount one_vrp = fromstring("1.0");
 
     // the quantity of vrp or issue(currency/issuer pairing)
     // when native, the value unit is vrp, not drops.
+    // for a fixed amount it's derived from the drops or mantissa when asked for.
     private bigdecimal value;
+    // true when the amount is held as a long of drops if native, else as a
+    // canonical (ioumantissa, offset), see rippled's stamount. the arithmetic
+    // of two fixed amounts doesn't need the bigdecimal value. only amounts
+    // made unbounded beyond what stamount can hold aren't fixed.
+    private boolean fixed;
+    private long drops;
+    // signed, 0 or of 16 digits
+    private long ioumantissa;
     private currency currency;
     // if the currency is vrp
     private boolean isnative;
@@ -70,12 +90,7 @@ public class amount extends number implements serializedtype, comparable<org.moo
     // amount is native.
     private accountid issuer;
 
-    // while internally the value is stored as a bigdecimal
-    // the mantissa and offset, as per the binary
-    // format can be computed.
-    // the mantissa is computed lazily, then cached
-    private uint64 mantissa = null;
-    // the offset is always calculated.
+    // the offset is always calculated, it's the exponent of ioumantissa.
     private int offset;
 
     public amount(bigdecimal value, currency currency, accountid issuer) {
@@ -122,6 +137,27 @@ public class amount extends number implements serializedtype, comparable<org.moo
         this.setandcheckvalue(value);
     }
 
+    /**
+     * a fixed amount: the drops of a native amount, ignoring the exponent, or
+     * a canonical iou mantissa and exponent, see newiou().
+     */
+    private amount(long mantissa, int exponent, currency currency, accountid issuer, boolean isnative) {
+        this.currency = currency;
+        this.issuer = issuer;
+        this.isnative = isnative;
+        this.fixed = true;
+        if (isnative) {
+            drops = mantissa;
+            offset = -6;
+            if ((drops > max_native_drops || drops < -max_native_drops) && drops != taker_pays_for_that_damn_offer_drops) {
+                throw getoutofboundserror(value(), "bigger", max_native_value);
+            }
+        } else {
+            ioumantissa = mantissa;
+            offset = mantissa == 0 ? zero_iou_offset : exponent;
+        }
+    }
+
     private void setandcheckvalue(bigdecimal value) {
         this.value = value.striptrailingzeros();
         initialize();
@@ -135,15 +171,86 @@ public class amount extends number implements serializedtype, comparable<org.moo
             }
             // offset is unused for native amounts
             offset = -6; // compared to drops.
+            bigdecimal scaled = value.scalebypoweroften(maximum_native_scale);
+            fixed = scaled.scale() <= 0 && scaled.precision() - scaled.scale() <= 18;
+            if (fixed) {
+                drops = scaled.longvalueexact();
+            }
         } else {
             if (value.precision() > maximum_iou_precision && !unbounded) {
                 throw new precisionerror("overflow error!");
             }
             issuer = accountid.neutral;
             offset = calculateoffset();
+            if (value.signum() == 0) {
+                fixed = true;
+            } else if (value.precision() <= maximum_iou_precision &&
+                       offset >= min_iou_exponent && offset <= max_iou_exponent) {
+                fixed = true;
+                ioumantissa = value.scalebypoweroften(-offset).longvalueexact();
+            }
         }
     }
 
+    /**
+     * canonicalizes a mantissa and exponent like rippled's stamount, digits
+     * beyond the 16th are truncated and values too small to hold become 0.
+     */
+    private static org.moorecoinlab.core.amount newiou(long mantissa, int exponent, currency currency, accountid issuer) {
+        boolean negative = mantissa < 0;
+        long m = negative ? -mantissa : mantissa;
+
+        while (m != 0 && m < min_iou_mantissa && exponent > min_iou_exponent) {
+            m *= 10;
+            exponent--;
+        }
+        while (m > max_iou_mantissa) {
+            if (exponent >= max_iou_exponent) {
+                throw new precisionerror("overflow error!");
+            }
+            m /= 10;
+            exponent++;
+        }
+        if (m < min_iou_mantissa || exponent < min_iou_exponent) {
+            return new amount(0, zero_iou_offset, currency, issuer, false);
+        }
+        if (exponent > max_iou_exponent) {
+            throw new precisionerror("overflow error!");
+        }
+        return new amount(negative ? -m : m, exponent, currency, issuer, false);
+    }
+
+    /**
+     * a native amount of mantissa * 10^exponent vrp, truncated to drops.
+     */
+    private static org.moorecoinlab.core.amount newnative(long mantissa, int exponent, currency currency, accountid issuer) {
+        exponent += maximum_native_scale;
+        for (; exponent < 0 && mantissa != 0; exponent++) {
+            mantissa /= 10;
+        }
+        for (; exponent > 0 && mantissa != 0; exponent--) {
+            if (mantissa > max_native_drops || mantissa < -max_native_drops) {
+                break;
+            }
+            mantissa *= 10;
+        }
+        if (exponent > 0 && mantissa != 0) {
+            throw getoutofboundserror(bigdecimal.valueof(mantissa, -exponent + maximum_native_scale), "bigger", max_native_value);
+        }
+        return new amount(mantissa, 0, currency, issuer, true);
+    }
+
+    private org.moorecoinlab.core.amount newfixed(long mantissa, int exponent) {
+        if (isnative) {
+            return newnative(mantissa, exponent, currency, issuer);
+        }
+        return newiou(mantissa, exponent, currency, issuer);
+    }
+
+    private org.moorecoinlab.core.amount zero() {
+        return new amount(0, zero_iou_offset, currency, issuer, isnative);
+    }
+
     private org.moorecoinlab.core.amount newvalue(bigdecimal newvalue) {
         return newvalue(newvalue, false, false);
     }
@@ -162,6 +269,11 @@ public class amount extends number implements serializedtype, comparable<org.moo
     /* getters and setters */
 
     public bigdecimal value() {
+        bigdecimal value = this.value;
+        if (value == null) {
+            value = isnative ? bigdecimal.valueof(drops, maximum_native_scale) : bigdecimal.valueof(ioumantissa, -offset);
+            this.value = value = value.striptrailingzeros();
+        }
         return value;
     }
 
@@ -179,10 +291,10 @@ public class amount extends number implements serializedtype, comparable<org.moo
     }
 
     public uint64 mantissa() {
-        if (mantissa == null) {
-            mantissa = calculatemantissa();
+        if (fixed) {
+            return uint64.valueof(isnative ? math.abs(drops) : math.abs(ioumantissa));
         }
-        return mantissa;
+        return calculatemantissa();
     }
 
     public int offset() {
@@ -221,6 +333,50 @@ public class amount extends number implements serializedtype, comparable<org.moo
         return -maximum_iou_precision + value.precision() - value.scale();
     }
 
+    /**
+     * @return the mantissa of 16 digits when the value is fixed, natives
+     * included, 0 for zero. drops of 17 digits lose the last one here, as
+     * they do in stamount's arithmetic.
+     */
+    private long normalizedmantissa() {
+        if (!isnative) {
+            return ioumantissa;
+        }
+        long m = drops;
+        while (m != 0 && m < min_iou_mantissa && m > -min_iou_mantissa) {
+            m *= 10;
+        }
+        while (m > max_iou_mantissa || m < -max_iou_mantissa) {
+            m /= 10;
+        }
+        return m;
+    }
+
+    private int normalizedexponent() {
+        if (!isnative) {
+            return offset;
+        }
+        long m = math.abs(drops);
+        int exponent = -maximum_native_scale;
+        while (m != 0 && m < min_iou_mantissa) {
+            m *= 10;
+            exponent--;
+        }
+        while (m > max_iou_mantissa) {
+            m /= 10;
+            exponent++;
+        }
+        return exponent;
+    }
+
+    /**
+     * @return false for drops of 17 digits, which the normalized mantissa
+     * doesn't hold exactly
+     */
+    private boolean normalizesexactly() {
+        return !isnative || (drops <= max_iou_mantissa && drops >= -max_iou_mantissa);
+    }
+
     public biginteger bigintegerioumantissa() {
         return exactbigintegerscaledbypoweroften(-offset).abs();
     }
@@ -230,7 +386,7 @@ public class amount extends number implements serializedtype, comparable<org.moo
     }
 
     private biginteger exactbigintegerscaledbypoweroften(int n) {
-        return value.scalebypoweroften(n).tobigintegerexact();
+        return value().scalebypoweroften(n).tobigintegerexact();
     }
 
     /* equality testing */
@@ -260,22 +416,48 @@ public class amount extends number implements serializedtype, comparable<org.moo
 
 
     public int compareto(org.moorecoinlab.core.amount amount) {
-        return value.compareto(amount.value);
+        if (fixed && amount.fixed) {
+            if (isnative && amount.isnative) {
+                return long.compare(drops, amount.drops);
+            }
+            if (!normalizesexactly() || !amount.normalizesexactly()) {
+                return value().compareto(amount.value());
+            }
+            int signum = signum();
+            if (signum != amount.signum()) {
+                return integer.compare(signum, amount.signum());
+            }
+            if (signum == 0) {
+                return 0;
+            }
+            int exponent = normalizedexponent(), otherexponent = amount.normalizedexponent();
+            int cmp = exponent != otherexponent ? integer.compare(exponent, otherexponent) :
+                      long.compare(math.abs(normalizedmantissa()), math.abs(amount.normalizedmantissa()));
+            return signum * cmp;
+        }
+        return value().compareto(amount.value());
+    }
+
+    private int signum() {
+        if (fixed) {
+            return long.signum(isnative ? drops : ioumantissa);
+        }
+        return value.signum();
     }
 
     public boolean iszero() {
-        return value.signum() == 0;
+        return signum() == 0;
     }
 
     public boolean isnegative() {
-        return value.signum() == -1;
+        return signum() == -1;
     }
 
     // maybe you want !isnegative()
     // any amount that !isnegative() isn't necessarily positive
     // is a zero amount strictly positive? no
     public boolean ispositive() {
-        return value.signum() == 1;
+        return signum() == 1;
     }
 
     /**
@@ -296,13 +478,46 @@ public class amount extends number implements serializedtype, comparable<org.moo
     divide and multiply are equivalent to the javascript moorecoin-lib
     ratio_human and product_human.
 
+    when both amounts are fixed, the amount operations follow rippled's
+    stamount, on longs: natives add their drops, ious align their exponents
+    and results are truncated to 16 digits, or to drops for natives.
+
     */
     public org.moorecoinlab.core.amount add(bigdecimal augend) {
-        return newvalue(value.add(augend), true);
+        return newvalue(value().add(augend), true);
     }
 
     public org.moorecoinlab.core.amount add(org.moorecoinlab.core.amount augend) {
-        return add(augend.value);
+        if (fixed && augend.fixed && isnative == augend.isnative) {
+            return addfixed(augend, false);
+        }
+        return add(augend.value());
+    }
+
+    private org.moorecoinlab.core.amount addfixed(org.moorecoinlab.core.amount augend, boolean subtract) {
+        if (isnative) {
+            return new amount(subtract ? drops - augend.drops : drops + augend.drops, 0, currency, issuer, true);
+        }
+        long m1 = ioumantissa, m2 = subtract ? -augend.ioumantissa : augend.ioumantissa;
+        if (m2 == 0) {
+            return this;
+        }
+        if (m1 == 0) {
+            return new amount(m2, augend.offset, currency, issuer, false);
+        }
+        int e1 = offset, e2 = augend.offset;
+        for (; e1 < e2; e1++) {
+            m1 /= 10;
+        }
+        for (; e2 < e1; e2++) {
+            m2 /= 10;
+        }
+        long sum = m1 + m2;
+        // what's left of a difference of nearly equal amounts
+        if (sum >= -10 && sum <= 10) {
+            return zero();
+        }
+        return newiou(sum, e1, currency, issuer);
     }
 
     public org.moorecoinlab.core.amount add(number augend) {
@@ -310,11 +525,14 @@ public class amount extends number implements serializedtype, comparable<org.moo
     }
 
     public org.moorecoinlab.core.amount subtract(bigdecimal subtrahend) {
-        return newvalue(value.subtract(subtrahend), true);
+        return newvalue(value().subtract(subtrahend), true);
     }
 
     public org.moorecoinlab.core.amount subtract(org.moorecoinlab.core.amount subtrahend) {
-        return subtract(subtrahend.value);
+        if (fixed && subtrahend.fixed && isnative == subtrahend.isnative) {
+            return addfixed(subtrahend, true);
+        }
+        return subtract(subtrahend.value());
     }
 
     public org.moorecoinlab.core.amount subtract(number subtrahend) {
@@ -322,11 +540,21 @@ public class amount extends number implements serializedtype, comparable<org.moo
     }
 
     public org.moorecoinlab.core.amount multiply(bigdecimal divisor) {
-        return newvalue(value.multiply(divisor, math_context), true);
+        return newvalue(value().multiply(divisor, math_context), true);
     }
 
     public org.moorecoinlab.core.amount multiply(org.moorecoinlab.core.amount multiplicand) {
-        return multiply(multiplicand.value);
+        if (fixed && multiplicand.fixed) {
+            if (iszero() || multiplicand.iszero()) {
+                return zero();
+            }
+            long m1 = normalizedmantissa(), m2 = multiplicand.normalizedmantissa();
+            // the product has 16 to 18 digits, see stamount's multiply
+            long product = multiplydividedbytento14(math.abs(m1), math.abs(m2)) + 7;
+            int exponent = normalizedexponent() + multiplicand.normalizedexponent() + 14;
+            return newfixed((m1 < 0) != (m2 < 0) ? -product : product, exponent);
+        }
+        return multiply(multiplicand.value());
     }
 
     public org.moorecoinlab.core.amount multiply(number multiplicand) {
@@ -334,11 +562,46 @@ public class amount extends number implements serializedtype, comparable<org.moo
     }
 
     public org.moorecoinlab.core.amount divide(bigdecimal divisor) {
-        return newvalue(value.divide(divisor, math_context), true);
+        return newvalue(value().divide(divisor, math_context), true);
     }
 
     public org.moorecoinlab.core.amount divide(org.moorecoinlab.core.amount divisor) {
-        return divide(divisor.value);
+        if (fixed && divisor.fixed) {
+            if (divisor.iszero()) {
+                throw new arithmeticexception("division by zero");
+            }
+            if (iszero()) {
+                return zero();
+            }
+            long m1 = normalizedmantissa(), m2 = divisor.normalizedmantissa();
+            long quotient = multipliedbytento17divide(math.abs(m1), math.abs(m2)) + 5;
+            int exponent = normalizedexponent() - divisor.normalizedexponent() - 17;
+            return newfixed((m1 < 0) != (m2 < 0) ? -quotient : quotient, exponent);
+        }
+        return divide(divisor.value());
+    }
+
+    /**
+     * floor(a * b / 10^14) of two mantissas below 10^16, without overflow.
+     */
+    private static long multiplydividedbytento14(long a, long b) {
+        final long e8 = 100000000l;
+        long ah = a / e8, al = a % e8, bh = b / e8, bl = b % e8;
+        long middle = ah * bl + al * bh;
+        return ah * bh * 100 + middle / 1000000 + ((middle % 1000000) * e8 + al * bl) / 100000000000000l;
+    }
+
+    /**
+     * floor(a * 10^17 / b) of two mantissas below 10^16, by long division.
+     */
+    private static long multipliedbytento17divide(long a, long b) {
+        long quotient = a / b, remainder = a % b;
+        for (int i = 0; i < 17; i++) {
+            remainder *= 10;
+            quotient = quotient * 10 + remainder / b;
+            remainder %= b;
+        }
+        return quotient;
     }
 
     public org.moorecoinlab.core.amount divide(number divisor) {
@@ -346,10 +609,16 @@ public class amount extends number implements serializedtype, comparable<org.moo
     }
 
     public org.moorecoinlab.core.amount negate() {
+        if (fixed) {
+            return new amount(isnative ? -drops : -ioumantissa, offset, currency, issuer, isnative);
+        }
         return newvalue(value.negate());
     }
 
     public org.moorecoinlab.core.amount abs() {
+        if (fixed) {
+            return isnegative() ? negate() : this;
+        }
         return newvalue(value.abs());
     }
     public org.moorecoinlab.core.amount min(org.moorecoinlab.core.amount val) {
@@ -361,7 +630,12 @@ public class amount extends number implements serializedtype, comparable<org.moo
 
     /* offer related helpers */
     public bigdecimal computequality(org.moorecoinlab.core.amount toexchangethiswith) {
-        return value.divide(toexchangethiswith.value, mathcontext.decimal128);
+        if (fixed && toexchangethiswith.fixed && !toexchangethiswith.iszero()) {
+            // the ratio as an iou, as stamount's getrate() does
+            return new amount(normalizedmantissa(), normalizedexponent(), currency, issuer, false)
+                    .divide(toexchangethiswith).value();
+        }
+        return value().divide(toexchangethiswith.value(), mathcontext.decimal128);
     }
     /**
      * @return amount
@@ -412,35 +686,40 @@ public class amount extends number implements serializedtype, comparable<org.moo
 
     @override
     public void tobytessink(bytessink to) {
-        uint64 man = mantissa();
+        long man = mantissa().longvalue();
 
         if (isnative()) {
             if (!isnegative()) {
-                man = man.or(binary_flag_is_non_negative_native);
+                man |= binary_flag_is_non_negative_native.longvalue();
             }
             if(currency == currency.vbc || currency.vbc.equals(currency)){
-                biginteger.zero.tobytearray();
-                man = man.or(binary_flag_is_native_vbc);
+                man |= binary_flag_is_native_vbc.longvalue();
             }
-            to.add(man.tobytearray());
+            add64(to, man);
         } else {
             int offset = offset();
-            uint64 packed;
+            long packed;
 
             if (iszero()) {
-                packed = binary_flag_is_iou;
+                packed = binary_flag_is_iou.longvalue();
             } else if (isnegative()) {
-                packed = man.or(new uint64(512 + 0 + 97 + offset).shiftleft(64 - 10));
+                packed = man | (long) (512 + 0 + 97 + offset) << (64 - 10);
             } else {
-                packed = man.or(new uint64(512 + 256 + 97 + offset).shiftleft(64 - 10));
+                packed = man | (long) (512 + 256 + 97 + offset) << (64 - 10);
             }
 
-            to.add(packed.tobytearray());
+            add64(to, packed);
             to.add(currency.bytes());
             to.add(issuer.bytes());
         }
     }
 
+    private static void add64(bytessink to, long bits) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            to.add((byte) (bits >>> shift));
+        }
+    }
+
     public static class translator extends typetranslator<org.moorecoinlab.core.amount> {
         @override
         public org.moorecoinlab.core.amount fromstring(string s) {
@@ -449,27 +728,29 @@ public class amount extends number implements serializedtype, comparable<org.moo
 
         @override
         public org.moorecoinlab.core.amount fromparser(binaryparser parser, integer hint) {
-            bigdecimal value;
-            byte[] mantissa = parser.read(8);
-            byte b1 = mantissa[0], b2 = mantissa[1];
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = bits << 8 | parser.readoneint();
+            }
 
-            boolean isiou = (b1 & 0x80) != 0;
-            boolean ispositive = (b1 & 0x40) != 0;
-            int sign = ispositive ? 1 : -1;
+            boolean isiou = bits < 0;
+            boolean ispositive = (bits & binary_flag_is_non_negative_native.longvalue()) != 0;
 
             if (isiou) {
-                mantissa[0] = 0;
                 currency curr = currency.translate.fromparser(parser);
                 accountid issuer = accountid.translate.fromparser(parser);
-                int offset = ((b1 & 0x3f) << 2) + ((b2 & 0xff) >> 6) - 97;
-                mantissa[1] &= 0x3f;
+                int offset = (int) ((bits >>> 54) & 0xff) - 97;
+                long mantissa = bits & 0x003fffffffffffffl;
 
-                value = new bigdecimal(new biginteger(sign, mantissa), -offset);
-                return new amount(value, curr, issuer, false);
+                if (mantissa > max_iou_mantissa) {
+                    throw new precisionerror("overflow error!");
+                }
+                return newiou(ispositive ? mantissa : -mantissa, offset, curr, issuer);
             } else {
-                mantissa[0] &= 0x3f;
-                value = xrpfromdropsmantissa(mantissa, sign);
-                return new amount(value);
+                boolean isvbc = (bits & binary_flag_is_native_vbc.longvalue()) != 0;
+                long drops = bits & 0x1fffffffffffffffl;
+                return new amount(ispositive ? drops : -drops, 0, isvbc ? currency.vbc : currency.vrp,
+                                  accountid.vrp_issuer, true);
             }
         }
 
@@ -504,30 +785,34 @@ public class amount extends number implements serializedtype, comparable<org.moo
     /* number overides */
     @override
     public int intvalue() {
-        return value.intvalueexact();
+        return value().intvalueexact();
     }
 
     @override
     public long longvalue() {
-        return value.longvalueexact();
+        return value().longvalueexact();
     }
 
     @override
     public float floatvalue() {
-        return value.floatvalue();
+        return value().floatvalue();
     }
 
     @override
     public double doublevalue() {
-        return value.doublevalue();
+        // a single rounding of exact operands, as bigdecimal would round
+        if (fixed && isnative && math.abs(drops) < 1l << 53) {
+            return drops / 1e6;
+        }
+        return value().doublevalue();
     }
 
     public biginteger bigintegervalue() {
-        return value.tobigintegerexact();
+        return value().tobigintegerexact();
     }
 
     public org.moorecoinlab.core.amount newissuer(accountid issuer) {
-        return new amount(value, currency, issuer);
+        return new amount(value(), currency, issuer);
     }
 
     // static constructors
@@ -579,6 +864,9 @@ public class amount extends number implements serializedtype, comparable<org.moo
         if (!isnative()) {
             throw new runtimeexception("amount is not native");
         }
+        if (fixed) {
+            return long.tostring(drops);
+        }
         return bigintegerdrops().tostring();
     }
 
@@ -619,7 +907,7 @@ public class amount extends number implements serializedtype, comparable<org.moo
      * @return a string containing the value as a decimal number (in vrp scale)
      */
     public string valuetext() {
-        return value.signum() == 0 ? "0" : value().toplainstring();
+        return iszero() ? "0" : value().toplainstring();
     }
 
     public static void checklowerdropbound(bigdecimal val) {
@@ -3,7 +3,9 @@ package org.moorecoinlab.core.hash;
 import org.moorecoinlab.core.utils;
 import org.moorecoinlab.core.exception.moorecoinexception;
 
-import java.io.unsupportedencodingexception;
+import com.google.common.cache.cache;
+import com.google.common.cache.cachebuilder;
+
 import java.math.biginteger;
 import java.util.arrays;
 
@@ -28,8 +30,12 @@ public class b58 {
 
 
     private static final b58 instance = new b58();
-    private int[] mindexes;
-    private char[] malphabet;
+    private final base58codec codec;
+
+    // the version and payload of checked strings already verified
+    private final cache<string, byte[]> verified = cachebuilder.newbuilder()
+            .maximumsize(10000)
+            .build();
 
 
     public static b58 getinstance() {
@@ -37,136 +43,39 @@ public class b58 {
     }
 
     public b58() {
-        setalphabet(default_alphabet);
-        buildindexes();
-    }
-
-    private void setalphabet(string alphabet) {
-        malphabet = alphabet.tochararray();
-    }
-
-    private void buildindexes() {
-        mindexes = new int[128];
-
-        for (int i = 0; i < mindexes.length; i++) {
-            mindexes[i] = -1;
-        }
-        for (int i = 0; i < malphabet.length; i++) {
-            mindexes[malphabet[i]] = i;
-        }
+        codec = new base58codec(default_alphabet);
     }
 
     public string encodetostringchecked(byte[] input, int version) {
-        try {
-            return new string(encodetobyteschecked(input, version), "us-ascii");
-        } catch (unsupportedencodingexception e) {
-            throw new runtimeexception(e);  // cannot happen.
-        }
+        return codec.encode(withchecksum(input, version));
     }
 
     public byte[] encodetobyteschecked(byte[] input, int version) {
-        byte[] buffer = new byte[input.length + 1];
+        return codec.encodetobytes(withchecksum(input, version));
+    }
+
+    private static byte[] withchecksum(byte[] input, int version) {
+        byte[] buffer = new byte[input.length + 5];
         buffer[0] = (byte) version;
         system.arraycopy(input, 0, buffer, 1, input.length);
-        byte[] checksum = copyofrange(utils.doubledigest(buffer), 0, 4);
-        byte[] output = new byte[buffer.length + checksum.length];
-        system.arraycopy(buffer, 0, output, 0, buffer.length);
-        system.arraycopy(checksum, 0, output, buffer.length, checksum.length);
-        return encodetobytes(output);
+        byte[] checksum = utils.doubledigest(buffer, 0, input.length + 1);
+        system.arraycopy(checksum, 0, buffer, input.length + 1, 4);
+        return buffer;
     }
 
     public string encodetostring(byte[] input) {
-        byte[] output = encodetobytes(input);
-        try {
-            return new string(output, "us-ascii");
-        } catch (unsupportedencodingexception e) {
-            throw new runtimeexception(e);  // cannot happen.
-        }
+        return codec.encode(input);
     }
 
     /**
      * encodes the given bytes in base58. no checksum is appended.
      */
     public byte[] encodetobytes(byte[] input) {
-        if (input.length == 0) {
-            return new byte[0];
-        }
-        input = copyofrange(input, 0, input.length);
-        // count leading zeroes.
-        int zerocount = 0;
-        while (zerocount < input.length && input[zerocount] == 0) {
-            ++zerocount;
-        }
-        // the actual encoding.
-        byte[] temp = new byte[input.length * 2];
-        int j = temp.length;
-
-        int startat = zerocount;
-        while (startat < input.length) {
-            byte mod = divmod58(input, startat);
-            if (input[startat] == 0) {
-                ++startat;
-            }
-            temp[--j] = (byte) malphabet[mod];
-        }
-
-        // strip extra '1' if there are some after decoding.
-        while (j < temp.length && temp[j] == malphabet[0]) {
-            ++j;
-        }
-        // add as many leading '1' as there were leading zeros.
-        while (--zerocount >= 0) {
-            temp[--j] = (byte) malphabet[0];
-        }
-
-        byte[] output;
-        output = copyofrange(temp, j, temp.length);
-        return output;
+        return codec.encodetobytes(input);
     }
 
     public byte[] decode(string input) throws moorecoinexception {
-        if (input.length() == 0) {
-            return new byte[0];
-        }
-        byte[] input58 = new byte[input.length()];
-        // transform the string to a base58 byte sequence
-        for (int i = 0; i < input.length(); ++i) {
-            char c = input.charat(i);
-
-            int digit58 = -1;
-            if (c >= 0 && c < 128) {
-                digit58 = mindexes[c];
-            }
-            if (digit58 < 0) {
-                throw new moorecoinexception("illegal character " + c + " at " + i);
-            }
-
-            input58[i] = (byte) digit58;
-        }
-        // count leading zeroes
-        int zerocount = 0;
-        while (zerocount < input58.length && input58[zerocount] == 0) {
-            ++zerocount;
-        }
-        // the encoding
-        byte[] temp = new byte[input.length()];
-        int j = temp.length;
-
-        int startat = zerocount;
-        while (startat < input58.length) {
-            byte mod = divmod256(input58, startat);
-            if (input58[startat] == 0) {
-                ++startat;
-            }
-
-            temp[--j] = mod;
-        }
-        // do no add extra leading zeroes, move j to first non null byte.
-        while (j < temp.length && temp[j] == 0) {
-            ++j;
-        }
-
-        return copyofrange(temp, j - zerocount, temp.length);
+        return codec.decode(input);
     }
 
     public biginteger decodetobiginteger(string input) throws moorecoinexception {
@@ -176,29 +85,83 @@ public class b58 {
 
     /**
      * uses the checksum in the last 4 bytes of the decoded data to verify the rest are correct. the checksum is
-     * removed from the returned data.
+     * removed from the returned data. a string verified before isn't hashed again.
      *
      * @throws org.moorecoinlab.core.exception.moorecoinexception if the input is not basefields 58 or the checksum does not validate.
      */
     public byte[] decodechecked(string input, int version) throws moorecoinexception {
-        byte buffer[] = decode(input);
+        byte[] buffer = verified.getifpresent(input);
+        if (buffer == null) {
+            buffer = verify(input, codec.decode(input));
+            verified.put(input, buffer);
+        }
+        return payload(input, buffer, version);
+    }
+
+    /**
+     * @return the version and payload
+     */
+    private static byte[] verify(string input, byte[] buffer) throws moorecoinexception {
         if (buffer.length < 4)
             throw new moorecoinexception("input too short");
-        byte actualversion = buffer[0];
-        if (actualversion != version) {
-            throw new moorecoinexception("bro, version is wrong yo:" + input + " ver=" + actualversion + " need=" + version);
-        }
 
-        byte[] tohash = copyofrange(buffer, 0, buffer.length - 4);
-        byte[] hashed = copyofrange(utils.doubledigest(tohash), 0, 4);
-        byte[] checksum = copyofrange(buffer, buffer.length - 4, buffer.length);
+        int length = buffer.length - 4;
+        byte[] hashed = utils.doubledigest(buffer, 0, length);
+        for (int i = 0; i < 4; i++) {
+            if (buffer[length + i] != hashed[i])
+                throw new moorecoinexception("checksum does not validate");
+        }
+        return arrays.copyof(buffer, length);
+    }
 
-        if (!arrays.equals(checksum, hashed))
-            throw new moorecoinexception("checksum does not validate");
+    private static byte[] payload(string input, byte[] buffer, int version) throws moorecoinexception {
+        byte actualversion = buffer.length == 0 ? 0 : buffer[0];
+        if (buffer.length == 0 || actualversion != version) {
+            throw new moorecoinexception("bro, version is wrong yo:" + input + " ver=" + actualversion + " need=" + version);
+        }
+        return arrays.copyofrange(buffer, 1, buffer.length);
+    }
 
-        return copyofrange(buffer, 1, buffer.length - 4);
+    /**
+     * decodes many checked strings of the same version in one go, only those
+     * not verified before are decoded and hashed.
+     */
+    public byte[][] decodechecked(string[] inputs, int version) throws moorecoinexception {
+        byte[][] buffers = new byte[inputs.length][];
+        string[] unverified = new string[inputs.length];
+        int count = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            buffers[i] = verified.getifpresent(inputs[i]);
+            if (buffers[i] == null) {
+                unverified[count++] = inputs[i];
+            }
+        }
+        if (count > 0) {
+            byte[][] decoded = codec.decode(arrays.copyof(unverified, count));
+            for (int i = 0, j = 0; i < inputs.length; i++) {
+                if (buffers[i] == null) {
+                    buffers[i] = verify(inputs[i], decoded[j++]);
+                    verified.put(inputs[i], buffers[i]);
+                }
+            }
+        }
+        byte[][] payloads = new byte[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            payloads[i] = payload(inputs[i], buffers[i], version);
+        }
+        return payloads;
     }
 
+    /**
+     * encodes many payloads of the same version in one go.
+     */
+    public string[] encodechecked(byte[][] inputs, int version) {
+        byte[][] buffers = new byte[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            buffers[i] = withchecksum(inputs[i], version);
+        }
+        return codec.encode(buffers);
+    }
 
     /** family seed */
     public byte[] decodefamilyseed(string seed) throws moorecoinexception {
@@ -218,6 +181,14 @@ public class b58 {
         return encodetostringchecked(bytes, ver_account_id);
     }
 
+    public byte[][] decodeaddresses(string[] addresses) throws moorecoinexception {
+        return decodechecked(addresses, ver_account_id);
+    }
+
+    public string[] encodeaddresses(byte[][] accounts) {
+        return encodechecked(accounts, ver_account_id);
+    }
+
     /** node public (by fau) */
     public byte[] decodenodepublic(string np) throws moorecoinexception {
         return decodechecked(np, ver_node_public);
@@ -235,47 +206,4 @@ public class b58 {
     public string encodeaccountpublic(byte[] bytes) {
         return encodetostringchecked(bytes, ver_account_public);
     }
-
-
-    //--------------------------  private section   --------------------------
-    //
-    // number -> number / 58, returns number % 58
-    //
-    private byte divmod58(byte[] number, int startat) {
-        int remainder = 0;
-        for (int i = startat; i < number.length; i++) {
-            int digit256 = (int) number[i] & 0xff;
-            int temp = remainder * 256 + digit256;
-
-            number[i] = (byte) (temp / 58);
-
-            remainder = temp % 58;
-        }
-
-        return (byte) remainder;
-    }
-
-    //
-    // number -> number / 256, returns number % 256
-    //
-    private byte divmod256(byte[] number58, int startat) {
-        int remainder = 0;
-        for (int i = startat; i < number58.length; i++) {
-            int digit58 = (int) number58[i] & 0xff;
-            int temp = remainder * 58 + digit58;
-
-            number58[i] = (byte) (temp / 256);
-
-            remainder = temp % 256;
-        }
-
-        return (byte) remainder;
-    }
-
-    private byte[] copyofrange(byte[] source, int from, int to) {
-        byte[] range = new byte[to - from];
-        system.arraycopy(source, from, range, 0, range.length);
-
-        return range;
-    }
 }
@@ -0,0 +1,205 @@
+package org.moorecoinlab.core.hash;
+
+import org.moorecoinlab.core.exception.moorecoinexception;
+
+/**
+ * base58 over an alphabet, converting 5 digits at a time.
+ * <p>
+ * the number is held in 32 bit limbs and divided, or multiplied, by 58^5 with
+ * long arithmetic, instead of one digit at a time over the bytes. decoding maps
+ * the characters through a lookup table. for an address, 25 bytes with the
+ * version and checksum, that's 7 limbs and 7 divisions, a 33 byte public key
+ * takes 10 limbs.
+ * <p>
+ * the array versions of encode and decode reuse their scratch space for all
+ * the items. instances are immutable and can be shared.
+ */
+public class base58codec {
+    // 58^5, the largest power of 58 below 2^32
+    private static final long radix = 656356768l;
+    private static final int radix_digits = 5;
+    private static final long[] powers = {1, 58, 58 * 58, 58 * 58 * 58, 58 * 58 * 58 * 58};
+
+    private final char[] alphabet;
+    private final int[] indexes = new int[128];
+
+    public base58codec(string alphabet) {
+        this.alphabet = alphabet.tochararray();
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = -1;
+        }
+        for (int i = 0; i < this.alphabet.length; i++) {
+            indexes[this.alphabet[i]] = i;
+        }
+    }
+
+    public string encode(byte[] input) {
+        return encode(input, 0, input.length);
+    }
+
+    public string encode(byte[] input, int offset, int length) {
+        char[] out = new char[maxencodedlength(length)];
+        int start = encode(input, offset, length, out, new int[limbsforbytes(length)]);
+        return new string(out, start, out.length - start);
+    }
+
+    /**
+     * @return the encoding as us-ascii bytes
+     */
+    public byte[] encodetobytes(byte[] input) {
+        char[] out = new char[maxencodedlength(input.length)];
+        int start = encode(input, 0, input.length, out, new int[limbsforbytes(input.length)]);
+        byte[] bytes = new byte[out.length - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) out[start + i];
+        }
+        return bytes;
+    }
+
+    public string[] encode(byte[][] inputs) {
+        int longest = 0;
+        for (byte[] input : inputs) {
+            longest = math.max(longest, input.length);
+        }
+        char[] out = new char[maxencodedlength(longest)];
+        int[] limbs = new int[limbsforbytes(longest)];
+
+        string[] encoded = new string[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            int start = encode(inputs[i], 0, inputs[i].length, out, limbs);
+            encoded[i] = new string(out, start, out.length - start);
+        }
+        return encoded;
+    }
+
+    public byte[] decode(string input) throws moorecoinexception {
+        return decode(input, new int[limbsfordigits(input.length())]);
+    }
+
+    public byte[][] decode(string[] inputs) throws moorecoinexception {
+        int longest = 0;
+        for (string input : inputs) {
+            longest = math.max(longest, input.length());
+        }
+        int[] limbs = new int[limbsfordigits(longest)];
+
+        byte[][] decoded = new byte[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            decoded[i] = decode(inputs[i], limbs);
+        }
+        return decoded;
+    }
+
+    private static int maxencodedlength(int bytes) {
+        // log(256) / log(58) is 1.3658, plus the slack of a last group of 5 digits
+        return bytes * 137 / 100 + 1 + radix_digits;
+    }
+
+    private static int limbsforbytes(int bytes) {
+        return (bytes + 3) / 4;
+    }
+
+    private static int limbsfordigits(int digits) {
+        // log(58) / log(256) is 0.7322
+        return (digits * 733 / 1000 + 1) / 4 + 1;
+    }
+
+    /**
+     * encodes into the end of `out`.
+     * @return where the encoding starts in `out`
+     */
+    private int encode(byte[] input, int offset, int length, char[] out, int[] limbs) {
+        int zeros = 0;
+        while (zeros < length && input[offset + zeros] == 0) {
+            ++zeros;
+        }
+
+        // the big endian number in limbs [first, count)
+        int count = limbsforbytes(length - zeros);
+        int first = 0;
+        for (int i = 0; i < count; i++) {
+            limbs[i] = 0;
+        }
+        for (int i = offset + zeros, end = offset + length; i < end; i++) {
+            int limb = count - 1 - (end - 1 - i) / 4;
+            limbs[limb] = limbs[limb] << 8 | (input[i] & 0xff);
+        }
+
+        int j = out.length;
+        while (first < count) {
+            long remainder = 0;
+            for (int i = first; i < count; i++) {
+                long current = remainder << 32 | (limbs[i] & 0xffffffffl);
+                limbs[i] = (int) (current / radix);
+                remainder = current % radix;
+            }
+            while (first < count && limbs[first] == 0) {
+                first++;
+            }
+            for (int k = 0; k < radix_digits; k++) {
+                out[--j] = alphabet[(int) (remainder % 58)];
+                remainder /= 58;
+            }
+        }
+
+        // the last group is padded with zero digits, a leading zero byte is one each
+        while (j < out.length && out[j] == alphabet[0]) {
+            ++j;
+        }
+        while (--zeros >= 0) {
+            out[--j] = alphabet[0];
+        }
+        return j;
+    }
+
+    private byte[] decode(string input, int[] limbs) throws moorecoinexception {
+        int length = input.length();
+        int zeros = 0;
+        while (zeros < length && digit(input, zeros) == 0) {
+            ++zeros;
+        }
+
+        int count = limbsfordigits(length - zeros);
+        for (int i = 0; i < count; i++) {
+            limbs[i] = 0;
+        }
+        // the number in limbs, times 58^n plus the next n digits
+        for (int i = zeros; i < length; ) {
+            int n = math.min(radix_digits, length - i);
+            long carry = 0;
+            for (int end = i + n; i < end; i++) {
+                carry = carry * 58 + digit(input, i);
+            }
+            long multiplier = n == radix_digits ? radix : powers[n];
+            for (int k = count - 1; k >= 0; k--) {
+                long current = (limbs[k] & 0xffffffffl) * multiplier + carry;
+                limbs[k] = (int) current;
+                carry = current >>> 32;
+            }
+        }
+
+        int bytes = count * 4;
+        int skip = 0;
+        while (skip < bytes && limbbyte(limbs, skip) == 0) {
+            ++skip;
+        }
+        byte[] decoded = new byte[zeros + bytes - skip];
+        for (int i = skip; i < bytes; i++) {
+            decoded[zeros + i - skip] = (byte) limbbyte(limbs, i);
+        }
+        return decoded;
+    }
+
+    private static int limbbyte(int[] limbs, int i) {
+        return (limbs[i / 4] >>> (24 - (i % 4) * 8)) & 0xff;
+    }
+
+    private int digit(string input, int i) throws moorecoinexception {
+        char c = input.charat(i);
+        int digit58 = c < 128 ? indexes[c] : -1;
+        if (digit58 < 0) {
+            throw new moorecoinexception("illegal character " + c + " at " + i);
+        }
+        return digit58;
+    }
+}
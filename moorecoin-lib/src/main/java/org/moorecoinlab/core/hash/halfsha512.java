@@ -23,6 +23,19 @@ public class halfsha512 implements bytessink {
         return halfsha512;
     }
 
+    private static final threadlocal<halfsha512> reused = threadlocal.withinitial(halfsha512::new);
+
+    /**
+     * like {@link #prefixed256(prefix)}, but returns the calling thread's own digest instead of a new one.
+     * it must be finished before the same thread asks for it again.
+     */
+    public static halfsha512 reusedprefixed256(prefix bytes) {
+        halfsha512 halfsha512 = reused.get();
+        halfsha512.messagedigest.reset();
+        halfsha512.update(bytes);
+        return halfsha512;
+    }
+
     public void update(byte[] bytes) {
         messagedigest.update(bytes);
     }
@@ -7,6 +7,8 @@ public class binaryparser {
     protected int size;
     protected byte[] bytes;
     protected int cursor = 0;
+    // reused by skipvalue, a parser isn't shared between threads
+    private binaryreader skipper;
 
     public binaryparser(byte[] bytes) {
         this.size = bytes.length;
@@ -64,6 +66,18 @@ public class binaryparser {
         return (typebits << 16 | fieldbits);
     }
 
+    /**
+     * moves past the value of the field just read, without parsing it.
+     */
+    public void skipvalue(field field) {
+        if (skipper == null) {
+            skipper = new binaryreader();
+        }
+        skipper.reset(bytes, cursor, size - cursor);
+        skipper.skipvalue(field);
+        cursor += skipper.pos();
+    }
+
     public boolean end() {
         return cursor >= size; // greater guard against infinite loops
     }
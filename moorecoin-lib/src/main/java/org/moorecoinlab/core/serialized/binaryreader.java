@@ -0,0 +1,286 @@
+package org.moorecoinlab.core.serialized;
+
+import org.moorecoinlab.core.fields.field;
+
+import java.nio.bytebuffer;
+
+/**
+ * a cursor over serialized bytes which reads values in place.
+ * <p>
+ * unlike {@link binaryparser} nothing is copied and no value objects are
+ * created: numbers are returned as primitives, hashes and accounts are
+ * compared or copied out where they are. a reader can be reset onto the next
+ * blob, so scanning many blobs needs a single reader per thread. see
+ * {@link stobjectscanner} to walk the fields of an object.
+ * <p>
+ * amounts are read as their 64 bit header, taken apart by the amount* helpers.
+ */
+public class binaryreader {
+    // either of them
+    private byte[] array;
+    private bytebuffer buffer;
+
+    private int start;
+    private int limit;
+    private int cursor;
+
+    public binaryreader() {
+    }
+
+    public binaryreader(byte[] bytes) {
+        reset(bytes);
+    }
+
+    public binaryreader(bytebuffer buffer) {
+        reset(buffer);
+    }
+
+    public binaryreader reset(byte[] bytes) {
+        return reset(bytes, 0, bytes.length);
+    }
+
+    public binaryreader reset(byte[] bytes, int offset, int length) {
+        this.array = bytes;
+        this.buffer = null;
+        this.start = offset;
+        this.limit = offset + length;
+        this.cursor = offset;
+        return this;
+    }
+
+    /**
+     * reads from the position to the limit of the buffer, which isn't moved.
+     */
+    public binaryreader reset(bytebuffer buffer) {
+        if (buffer.hasarray()) {
+            return reset(buffer.array(), buffer.arrayoffset() + buffer.position(), buffer.remaining());
+        }
+        this.array = null;
+        this.buffer = buffer;
+        this.start = buffer.position();
+        this.limit = buffer.limit();
+        this.cursor = start;
+        return this;
+    }
+
+    /**
+     * @return the position relative to the start of the blob
+     */
+    public int pos() {
+        return cursor - start;
+    }
+
+    public void pos(int pos) {
+        cursor = start + pos;
+    }
+
+    public int size() {
+        return limit - start;
+    }
+
+    public boolean end() {
+        return cursor >= limit;
+    }
+
+    public void skip(int n) {
+        cursor += n;
+    }
+
+    private int byteat(int i) {
+        return (array != null ? array[i] : buffer.get(i)) & 0xff;
+    }
+
+    public int readuint8() {
+        return byteat(cursor++);
+    }
+
+    public int readuint16() {
+        int value = byteat(cursor) << 8 | byteat(cursor + 1);
+        cursor += 2;
+        return value;
+    }
+
+    /**
+     * @return the bits of the uint32, negative above 2^31 - 1
+     */
+    public int readuint32asint() {
+        int value = byteat(cursor) << 24 | byteat(cursor + 1) << 16 | byteat(cursor + 2) << 8 | byteat(cursor + 3);
+        cursor += 4;
+        return value;
+    }
+
+    public long readuint32() {
+        return readuint32asint() & 0xffffffffl;
+    }
+
+    /**
+     * @return the bits of the uint64, negative above 2^63 - 1
+     */
+    public long readuint64() {
+        long high = readuint32asint() & 0xffffffffl;
+        long low = readuint32asint() & 0xffffffffl;
+        return high << 32 | low;
+    }
+
+    /**
+     * the first 8 bytes of an amount. an iou amount, see {@link #amountisnative},
+     * is followed by its 20 byte currency and the 20 byte issuer, at pos() and
+     * pos() + 20, which are not read here.
+     */
+    public long readamount() {
+        return readuint64();
+    }
+
+    public static boolean amountisnative(long amount) {
+        return amount >= 0;
+    }
+
+    public static boolean amountispositive(long amount) {
+        return (amount & 0x4000000000000000l) != 0;
+    }
+
+    /**
+     * @return true for a native amount of vbc rather than vrp
+     */
+    public static boolean amountisvbc(long amount) {
+        return amount >= 0 && (amount & 0x2000000000000000l) != 0;
+    }
+
+    /**
+     * @return the drops of a native amount, the normalized 54 bit mantissa of an iou
+     */
+    public static long amountmantissa(long amount) {
+        return amountisnative(amount) ? amount & 0x1fffffffffffffffl : amount & 0x003fffffffffffffl;
+    }
+
+    /**
+     * @return the power of ten of an iou amount, 0 for natives
+     */
+    public static int amountexponent(long amount) {
+        if (amountisnative(amount) || amountmantissa(amount) == 0) {
+            return 0;
+        }
+        return (int) ((amount >>> 54) & 0xff) - 97;
+    }
+
+    /**
+     * copies `length` bytes at the cursor, e.g. a hash, and moves past them.
+     */
+    public void readbytes(byte[] to, int offset, int length) {
+        if (array != null) {
+            system.arraycopy(array, cursor, to, offset, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                to[offset + i] = buffer.get(cursor + i);
+            }
+        }
+        cursor += length;
+    }
+
+    /**
+     * @return true if the bytes at the cursor are `expected`, the cursor doesn't move
+     */
+    public boolean matches(byte[] expected) {
+        if (limit - cursor < expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (byteat(cursor + i) != (expected[i] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int readfieldcode() {
+        int tagbyte = readuint8();
+
+        int typebits = tagbyte >>> 4;
+        if (typebits == 0) typebits = readuint8();
+
+        int fieldbits = tagbyte & 0x0f;
+        if (fieldbits == 0) fieldbits = readuint8();
+
+        return (typebits << 16 | fieldbits);
+    }
+
+    public field readfield() {
+        int fieldcode = readfieldcode();
+        field field = field.fromcode(fieldcode);
+        if (field == null) {
+            throw new illegalstateexception("couldn't parse field from " +
+                    integer.tohexstring(fieldcode));
+        }
+        return field;
+    }
+
+    public int readvllength() {
+        int b1 = readuint8();
+
+        if (b1 <= 192) {
+            return b1;
+        } else if (b1 <= 240) {
+            int b2 = readuint8();
+            return 193 + (b1 - 193) * 256 + b2;
+        } else if (b1 <= 254) {
+            int b2 = readuint8();
+            int b3 = readuint8();
+            return 12481 + (b1 - 241) * 65536 + b2 * 256 + b3;
+        } else {
+            throw new runtimeexception("invalid varint length indicator");
+        }
+    }
+
+    /**
+     * moves past the value of the field just read, the length prefix
+     * included for the variable length ones.
+     */
+    public void skipvalue(field field) {
+        if (field.isvlencoded()) {
+            skip(readvllength());
+            return;
+        }
+        switch (field.gettype()) {
+            case uint8:     skip(1); break;
+            case uint16:    skip(2); break;
+            case uint32:    skip(4); break;
+            case uint64:    skip(8); break;
+            case hash128:   skip(16); break;
+            case hash160:   skip(20); break;
+            case hash256:   skip(32); break;
+            case amount:    skip((byteat(cursor) & 0x80) != 0 ? 48 : 8); break;
+            case stobject:  skipuntil(field.objectendmarker); break;
+            case starray:   skipuntil(field.arrayendmarker); break;
+            case pathset:   skippathset(); break;
+            default:
+                throw new illegalstateexception("can't skip " + field);
+        }
+    }
+
+    private void skipuntil(field endmarker) {
+        while (!end()) {
+            field field = readfield();
+            if (field == endmarker) {
+                break;
+            }
+            skipvalue(field);
+        }
+    }
+
+    private void skippathset() {
+        while (!end()) {
+            int type = readuint8();
+            // the end of the set, see pathset
+            if (type == 0x00) {
+                break;
+            }
+            // the end of a path
+            if (type == 0xff) {
+                continue;
+            }
+            // account, currency and issuer of the hop are 20 bytes each
+            int present = (type & 0x01) + ((type & 0x10) >> 4) + ((type & 0x20) >> 5);
+            skip(present * 20);
+        }
+    }
+}
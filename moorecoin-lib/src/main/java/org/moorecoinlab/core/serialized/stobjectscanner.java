@@ -0,0 +1,93 @@
+package org.moorecoinlab.core.serialized;
+
+import org.moorecoinlab.core.fields.field;
+import org.moorecoinlab.core.fields.type;
+
+/**
+ * walks the fields of a serialized object and hands each value to a visitor
+ * in place, on a {@link binaryreader}, so a scan only pays for the fields the
+ * visitor reads.
+ * <p>
+ * e.g. the sequence of each transaction in a stream of blobs:
+ * <pre>
+ * final binaryreader reader = new binaryreader();
+ * for (byte[] blob : blobs) {
+ *     stobjectscanner.scan(reader.reset(blob), new stobjectscanner.visitor() {
+ *         public boolean onfield(field field, binaryreader reader, int length) {
+ *             if (field == field.sequence) {
+ *                 sequences.add(reader.readuint32asint());
+ *                 return false;
+ *             }
+ *             return true;
+ *         }
+ *     });
+ * }
+ * </pre>
+ */
+public class stobjectscanner {
+    public interface visitor {
+        /**
+         * a value, `length` bytes from the cursor of the reader, after the
+         * length prefix of variable length ones, through the end marker of
+         * objects and arrays. the cursor may be moved within the value, the
+         * scan goes on after it regardless.
+         *
+         * @return false to stop the scan
+         */
+        boolean onfield(field field, binaryreader reader, int length);
+
+        /**
+         * an stobject or starray field, e.g. the modifiednode objects inside
+         * affectednodes.
+         *
+         * @return true to visit its fields, then `leave` is called. false to
+         *         have the whole value handed to `onfield` instead
+         */
+        default boolean enter(field field) {
+            return false;
+        }
+
+        default void leave(field field) {
+        }
+    }
+
+    /**
+     * scans from the cursor to the end of the reader.
+     * @return false if the visitor stopped the scan
+     */
+    public static boolean scan(binaryreader reader, visitor visitor) {
+        return scan(reader, visitor, null);
+    }
+
+    private static boolean scan(binaryreader reader, visitor visitor, field endmarker) {
+        while (!reader.end()) {
+            field field = reader.readfield();
+            if (field == endmarker) {
+                return true;
+            }
+            type fieldtype = field.gettype();
+            boolean container = fieldtype == type.stobject || fieldtype == type.starray;
+
+            if (container && visitor.enter(field)) {
+                if (!scan(reader, visitor, fieldtype == type.stobject ? field.objectendmarker : field.arrayendmarker)) {
+                    return false;
+                }
+                visitor.leave(field);
+                continue;
+            }
+
+            int length = field.isvlencoded() ? reader.readvllength() : -1;
+            int start = reader.pos();
+            if (length == -1) {
+                reader.skipvalue(field);
+                length = reader.pos() - start;
+                reader.pos(start);
+            }
+            if (!visitor.onfield(field, reader, length)) {
+                return false;
+            }
+            reader.pos(start + length);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package org.moorecoinlab.core.types.known.tx.signed;
+
+import org.moorecoinlab.core.types.known.tx.transaction;
+import org.moorecoinlab.crypto.ecdsa.ikeypair;
+
+import java.util.arraylist;
+import java.util.arrays;
+import java.util.collections;
+import java.util.list;
+import java.util.concurrent.forkjoinpool;
+import java.util.concurrent.recursiveaction;
+
+/**
+ * signs many prepared transactions in parallel, e.g. a payout batch.
+ *
+ * every transaction must already carry its fee, sequence and lastledgersequence. the batch is split over
+ * the forkjoin pool, each worker thread reuses its own ecdsasigner and securerandom (see keypair), so
+ * nothing is shared between signatures except the immutable keypairs.
+ */
+public class batchsigner {
+    /**
+     * transactions signed by one task before it stops splitting.
+     */
+    private static final int threshold = 16;
+
+    private final forkjoinpool pool;
+
+    public batchsigner() {
+        this(forkjoinpool.commonpool());
+    }
+
+    public batchsigner(forkjoinpool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * sign every transaction with the same keypair.
+     */
+    public list<signedtransaction> sign(list<transaction> txns, ikeypair keypair) {
+        return sign(txns, collections.ncopies(txns.size(), keypair));
+    }
+
+    /**
+     * sign txns.get(i) with keypairs.get(i), results are in input order and carry tx_blob and hash.
+     */
+    public list<signedtransaction> sign(list<transaction> txns, list<? extends ikeypair> keypairs) {
+        if (txns.size() != keypairs.size()) {
+            throw new illegalargumentexception("got " + txns.size() + " transactions but " + keypairs.size() + " keypairs");
+        }
+        signedtransaction[] signed = new signedtransaction[txns.size()];
+        for (int i = 0; i < signed.length; i++) {
+            signed[i] = new signedtransaction(txns.get(i));
+        }
+        ikeypair[] keys = keypairs.toarray(new ikeypair[keypairs.size()]);
+        pool.invoke(new signtask(signed, keys, 0, signed.length));
+        return new arraylist<>(arrays.aslist(signed));
+    }
+
+    private static class signtask extends recursiveaction {
+        private final signedtransaction[] signed;
+        private final ikeypair[] keys;
+        private final int from, to;
+
+        signtask(signedtransaction[] signed, ikeypair[] keys, int from, int to) {
+            this.signed = signed;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    signed[i].sign(keys[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeall(new signtask(signed, keys, from, middle), new signtask(signed, keys, middle, to));
+        }
+    }
+}
@@ -25,15 +25,20 @@ public class signedtransaction {
     }
 
     public void prepare(ikeypair keypair, amount fee, uint32 sequence, uint32 lastledgersequence) {
-        variablelength pubkey = new variablelength(keypair.pubbytes());
-
         // this won't always be specified
         if (lastledgersequence != null) {
             txn.put(uint32.lastledgersequence, lastledgersequence);
         }
         txn.put(uint32.sequence, sequence);
         txn.put(amount.fee, fee);
-        txn.put(variablelength.signingpubkey, pubkey);
+        sign(keypair);
+    }
+
+    /**
+     * sign a transaction whose fee and sequence are already set.
+     */
+    public void sign(ikeypair keypair) {
+        txn.put(variablelength.signingpubkey, new variablelength(keypair.pubbytes()));
 
         if (transaction.canonical_flag_deployed) {
             txn.setcanonicalsignatureflag();
@@ -8,6 +8,7 @@ import org.moorecoinlab.core.serialized.binaryparser;
 import org.moorecoinlab.core.uint.uint32;
 import org.moorecoinlab.core.uint.uint64;
 import org.moorecoinlab.core.uint.uint8;
+import org.json.jsonobject;
 
 import java.util.date;
 
@@ -24,6 +25,8 @@ public class ledgerheader {
     public uint8 closeflags;      // flags
 
     public date closedate;
+    public hash256 hash;            // the hash of this ledger, only known when read from json
+
 
     public static ledgerheader fromparser(binaryparser parser) {
         return fromreader(new streader(parser));
@@ -46,4 +49,46 @@ public class ledgerheader {
 
         return ledger;
     }
+
+    /**
+     * read the header fields present in a "ledger" command result or a ledgerclosed stream message,
+     * the fields a message does not carry stay null.
+     */
+    public static ledgerheader fromjson(jsonobject json) {
+        ledgerheader ledger = new ledgerheader();
+
+        ledger.sequence = new uint32(json.getlong("ledger_index"));
+        if (json.has("ledger_hash")) {
+            ledger.hash = hash256.fromhex(json.getstring("ledger_hash"));
+        }
+        if (json.has("parent_hash")) {
+            ledger.previousledger = hash256.fromhex(json.getstring("parent_hash"));
+        }
+        if (json.has("transaction_hash")) {
+            ledger.transactionhash = hash256.fromhex(json.getstring("transaction_hash"));
+        }
+        if (json.has("account_hash")) {
+            ledger.statehash = hash256.fromhex(json.getstring("account_hash"));
+        }
+        if (json.has("total_coins")) {
+            ledger.totalvrp = new uint64(json.getstring("total_coins"));
+        }
+        if (json.has("parent_close_time")) {
+            ledger.parentclosetime = new uint32(json.getlong("parent_close_time"));
+        }
+        // the stream calls it ledger_time, the ledger command close_time
+        string closekey = json.has("close_time") ? "close_time" : "ledger_time";
+        if (json.has(closekey)) {
+            ledger.closetime = new uint32(json.getlong(closekey));
+            ledger.closedate = rippledate.fromsecondssincerippleepoch(ledger.closetime);
+        }
+        if (json.has("close_time_resolution")) {
+            ledger.closeresolution = new uint8(json.getint("close_time_resolution"));
+        }
+        if (json.has("close_flags")) {
+            ledger.closeflags = new uint8(json.getint("close_flags"));
+        }
+
+        return ledger;
+    }
 }
@@ -68,7 +68,7 @@ public class accountstate extends shamap {
             item = new ledgerentryitem(newskiplist(skipindex));
             top.addleaftoterminalinner(new shamapleaf(skipindex, item));
         }
-        return (ledgerhashes) item.entry;
+        return (ledgerhashes) item.entry();
     }
 
     public void addle(ledgerentry entry) {
@@ -76,9 +76,13 @@ public class accountstate extends shamap {
         additem(entry.index(), item);
     }
 
+    /**
+     * the entry parsed from the tree, changes to it don't reach the tree,
+     * use `getleafforupdating` for that.
+     */
     public ledgerentry getle(hash256 index) {
         ledgerentryitem item = (ledgerentryitem) getitem(index);
-        return item == null ? null : item.entry;
+        return item == null ? null : item.readentry();
     }
 
     public directorynode getdirectorynode(hash256 index) {
@@ -93,4 +97,9 @@ public class accountstate extends shamap {
     public accountstate copy() {
         return (accountstate) super.copy();
     }
+
+    @override
+    public accountstate snapshot() {
+        return (accountstate) super.snapshot();
+    }
 }
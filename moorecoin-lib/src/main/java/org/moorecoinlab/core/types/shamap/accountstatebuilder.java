@@ -12,6 +12,7 @@ import org.moorecoinlab.core.types.known.tx.result.affectednode;
 import org.moorecoinlab.core.types.known.tx.result.transactionresult;
 
 import java.util.*;
+import java.util.concurrent.forkjoinpool;
 
 public class accountstatebuilder {
     private accountstate state;
@@ -20,11 +21,22 @@ public class accountstatebuilder {
     public long nexttransactionindex = 0;
     private hash256 targetaccounthash;
     public long totaltransactions = 0;
+    private final nodestore store;
 
     private treeset<hash256> directoriesmodifiedmorethanoncebytransaction = new treeset<hash256>();
     private treeset<hash256> directoriesmodifiedbytransaction = new treeset<hash256>();
 
     public accountstatebuilder(accountstate state, long targetledgerindex) {
+        this(state, targetledgerindex, null);
+    }
+
+    /**
+     * @param store the state is written to at each checkpoint, between checkpoints
+     *              only the modified nodes need to stay on the heap. state may
+     *              be loaded from it, e.g. `store.load(accounthash, new accountstate())`
+     */
+    public accountstatebuilder(accountstate state, long targetledgerindex, nodestore store) {
+        this.store = store;
         this.state = state;
         setstatecheckpoint();
         this.targetledgerindex = targetledgerindex;
@@ -38,7 +50,10 @@ public class accountstatebuilder {
     }
 
     public void setstatecheckpoint() {
-        previousstate = state.copy();
+        if (store != null) {
+            store.store(state);
+        }
+        previousstate = state.snapshot();
     }
 
     public void ontransaction(transactionresult tr) {
@@ -113,7 +128,7 @@ public class accountstatebuilder {
             } else if (an.ismodifiednode()) {
                 shamapleaf leaf = state.getleafforupdating(id);
                 ledgerentryitem item = (ledgerentryitem) leaf.item;
-                ledgerentry lemodded = item.entry;
+                ledgerentry lemodded = item.entry();
 
                 if (le instanceof threadedledgerentry) {
                     threadedledgerentry tle = (threadedledgerentry) le;
@@ -188,7 +203,7 @@ public class accountstatebuilder {
             return null;
         }
         ledgerentryitem lei = (ledgerentryitem) leaf.item;
-        return (directorynode) lei.entry;
+        return (directorynode) lei.entry();
     }
 
     public accountstate state() {
@@ -218,10 +233,17 @@ public class accountstatebuilder {
     }
 
     public boolean bad() {
-        return !state.hash().equals(targetaccounthash);
+        return !state.hash(forkjoinpool.commonpool()).equals(targetaccounthash);
     }
 
     public accountstate previousstate() {
         return previousstate;
     }
+
+    /**
+     * the entries changed since the last checkpoint, in index order.
+     */
+    public shamapdiffiterator changessincecheckpoint() {
+        return shamapdiff.changes(previousstate, state);
+    }
 }
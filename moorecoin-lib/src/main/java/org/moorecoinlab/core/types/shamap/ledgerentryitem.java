@@ -2,30 +2,120 @@ package org.moorecoinlab.core.types.shamap;
 
 
 import org.moorecoinlab.core.stobject;
+import org.moorecoinlab.core.fields.field;
+import org.moorecoinlab.core.hash.hash256;
 import org.moorecoinlab.core.hash.prefixes.hashprefix;
 import org.moorecoinlab.core.hash.prefixes.prefix;
+import org.moorecoinlab.core.serialized.binaryparser;
 import org.moorecoinlab.core.serialized.bytessink;
+import org.moorecoinlab.core.serialized.serializedtype;
 import org.moorecoinlab.core.types.known.sle.ledgerentry;
 
+/**
+ * a ledger entry kept as its serialized bytes, which are hashed as they are.
+ * <p>
+ * the entry is only parsed for writing, by {@link #entry()}, and folded back
+ * into bytes the next time the leaf is hashed. single fields can be read with
+ * {@link #get(field)} without parsing the rest. copies share the bytes.
+ */
 public class ledgerentryitem extends shamapitem<ledgerentry> {
+    private byte[] bytes;
+    private hash256 index;
+    // not null from the first write until the next hashing
+    private ledgerentry entry;
+
     public ledgerentryitem(ledgerentry entry) {
         this.entry = entry;
     }
 
-    public ledgerentry entry;
+    /**
+     * @param bytes the serialized entry, not copied, it must not change afterwards
+     */
+    public ledgerentryitem(hash256 index, byte[] bytes) {
+        this.index = index;
+        this.bytes = bytes;
+    }
+
+    /**
+     * the entry to modify, it must be reached through `getleafforupdating` so
+     * the leaf is hashed again. changes made after that hashing are lost.
+     */
+    public ledgerentry entry() {
+        if (entry == null) {
+            entry = parse(bytes, index);
+            bytes = null;
+        }
+        return entry;
+    }
+
+    /**
+     * the entry to read, always parsed anew, from the entry being modified if
+     * there is one. changes to it don't reach the tree, and changes made to the
+     * tree afterwards don't reach it.
+     */
+    public ledgerentry readentry() {
+        ledgerentry entry = this.entry;
+        return entry == null ? parse(bytes, index) : parse(entry.tobytes(), entry.index());
+    }
+
+    /**
+     * a single field, parsed from the bytes on its own.
+     * @return null if the entry doesn't have it
+     */
+    public serializedtype get(field field) {
+        ledgerentry entry = this.entry;
+        if (entry != null) {
+            return entry.get(field);
+        }
+        binaryparser parser = new binaryparser(bytes);
+        while (!parser.end()) {
+            field next = parser.readfield();
+            if (next == field) {
+                integer hint = field.isvlencoded() ? parser.readvllength() : null;
+                return stobject.translators.forfield(field).fromparser(parser, hint);
+            }
+            parser.skipvalue(next);
+        }
+        return null;
+    }
+
+    public boolean has(field field) {
+        return get(field) != null;
+    }
+
+    public hash256 index() {
+        ledgerentry entry = this.entry;
+        return entry == null ? index : entry.index();
+    }
+
+    private static ledgerentry parse(byte[] bytes, hash256 index) {
+        ledgerentry le = (ledgerentry) stobject.translate.frombytes(bytes);
+        // todo: what about other auxiliary (non serialized) fields
+        le.index(index);
+        return le;
+    }
+
+    /**
+     * the serialized entry, folding a modified one back into bytes.
+     */
+    byte[] bytes() {
+        if (entry != null) {
+            index = entry.index();
+            bytes = entry.tobytes();
+            entry = null;
+        }
+        return bytes;
+    }
 
     @override
     void tobytessink(bytessink sink) {
-        entry.tobytessink(sink);
+        sink.add(bytes());
     }
 
     @override
     public shamapitem<ledgerentry> copy() {
-        stobject object = stobject.translate.frombytes(entry.tobytes());
-        ledgerentry le = (ledgerentry) object;
-        // todo: what about other auxiliary (non serialized) fields
-        le.index(entry.index());
-        return new ledgerentryitem(le);
+        ledgerentry entry = this.entry;
+        return new ledgerentryitem(index(), entry == null ? bytes : entry.tobytes());
     }
 
     @override
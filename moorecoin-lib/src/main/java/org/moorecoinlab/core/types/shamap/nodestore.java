@@ -1,12 +1,22 @@
 package org.moorecoinlab.core.types.shamap;
 
 
+import org.moorecoinlab.core.stobject;
 import org.moorecoinlab.core.hash.halfsha512;
 import org.moorecoinlab.core.hash.hash256;
+import org.moorecoinlab.core.hash.prefixes.hashprefix;
+import org.moorecoinlab.core.serialized.binaryparser;
+import org.moorecoinlab.core.serialized.byteslist;
+import org.moorecoinlab.core.types.known.tx.transaction;
+import org.moorecoinlab.core.types.known.tx.result.transactionmeta;
+import org.moorecoinlab.core.types.known.tx.result.transactionresult;
 
-/**
+import java.util.arrays;
+import java.util.concurrent.forkjoinpool;
 
- * this is a toy implementation for illustrative purposes.
+/**
+ * content addressed storage of shamap nodes on top of a key/value backend,
+ * see {@link segmentedlogbackend} for one on disk.
  */
 public class nodestore {
     /**
@@ -17,6 +27,10 @@ public class nodestore {
     public static interface keyvaluebackend {
         void   put(hash256 key, byte[] content);
         byte[] get(hash256 key);
+
+        default boolean has(hash256 key) {
+            return get(key) != null;
+        }
     }
 
     keyvaluebackend backend;
@@ -62,4 +76,146 @@ public class nodestore {
     public hash256 set(byte[] content) {
         return storecontent(content);
     }
-}
\ No newline at end of file
+
+    /**
+     * stores every node of the tree that isn't stored yet, children before
+     * their parents. a subtree whose root is stored already is skipped whole,
+     * so storing a modified copy of a stored tree only writes the path to each
+     * change.
+     *
+     * afterwards the tree holds its nodes only softly, like a loaded one, so
+     * the ones not in use can be collected. only the nodes of the tree's own
+     * version are changed for that: older ones may be shared with a snapshot
+     * or a copy, which can be read on another thread meanwhile, so those are
+     * written out as they are, and held softly by their parent in this tree.
+     * a snapshot is never changed.
+     *
+     * @return the root hash, to `load` the tree back with
+     */
+    public hash256 store(shamapinner tree) {
+        if (tree.empty()) {
+            return hash256.zero_256;
+        }
+        hash256 root = tree.hash(forkjoinpool.commonpool());
+        storenode(tree, tree.readonly ? -1 : tree.version);
+        return root;
+    }
+
+    /**
+     * @param owned the version of the nodes which belong to the stored tree only
+     */
+    private void storenode(shamapnode node, int owned) {
+        hash256 hash = node.hash();
+        boolean stored = backend.has(hash);
+        if (node.isinner()) {
+            shamapinner inner = node.asinner();
+            if (!stored) {
+                // children not read in are in the store already
+                for (shamapnode branch : inner.branches) {
+                    if (branch != null) {
+                        storenode(branch, owned);
+                    }
+                }
+            }
+            if (inner.version == owned) {
+                inner.release(this);
+            }
+        }
+        if (!stored) {
+            backend.put(hash, tobytes(node));
+        }
+    }
+
+    /**
+     * binds an empty tree to a stored one, nothing but the root is read here,
+     * the other nodes are read the first time they are reached.
+     *
+     * e.g. `accountstate state = store.load(accounthash, new accountstate());`
+     */
+    public <t extends shamapinner> t load(hash256 root, t tree) {
+        if (!tree.empty()) {
+            throw new illegalargumentexception("can only load into an empty tree");
+        }
+        if (!root.iszero()) {
+            byte[] bytes = node(root);
+            if (!isinner(bytes)) {
+                throw new illegalstateexception(root + " is not an inner node");
+            }
+            tree.bindtostore(this, root, childhashes(bytes));
+        }
+        return tree;
+    }
+
+    /**
+     * the node as stored, the hash prefix and the bytes hashed for the node
+     * hash, the same as rippled stores them.
+     */
+    static byte[] tobytes(shamapnode node) {
+        byteslist bytes = new byteslist();
+        bytes.add(node.hashprefix().bytes());
+        node.tobytessink(bytes);
+        return bytes.bytes();
+    }
+
+    /**
+     * reads the child of `parent` with the given hash.
+     */
+    shamapnode loadchild(hash256 hash, shamapinner parent) {
+        byte[] bytes = node(hash);
+        if (isinner(bytes)) {
+            shamapinner inner = parent.makeinnerchild();
+            inner.bindtostore(this, hash, childhashes(bytes));
+            return inner;
+        }
+
+        hash256 index = new hash256(arrays.copyofrange(bytes, bytes.length - 32, bytes.length));
+        shamapleaf leaf = new shamapleaf(index, item(index, bytes));
+        leaf.hash = hash;
+        leaf.version = parent.version;
+        return leaf;
+    }
+
+    private byte[] node(hash256 hash) {
+        byte[] bytes = backend.get(hash);
+        if (bytes == null) {
+            throw new illegalstateexception("node " + hash + " is missing from the store");
+        }
+        return bytes;
+    }
+
+    private static shamapitem item(hash256 index, byte[] bytes) {
+        if (hasprefix(bytes, hashprefix.leafnode)) {
+            // parsed when first written to
+            return new ledgerentryitem(index, arrays.copyofrange(bytes, 4, bytes.length - 32));
+        } else if (hasprefix(bytes, hashprefix.txnode)) {
+            binaryparser parser = new binaryparser(arrays.copyofrange(bytes, 4, bytes.length - 32));
+            transaction txn = (transaction) stobject.translate.fromparser(parser, parser.readvllength());
+            transactionmeta meta = (transactionmeta) stobject.translate.fromparser(parser, parser.readvllength());
+            // the ledger sequence isn't part of the node
+            return new transactionresultitem(new transactionresult(0, index, txn, meta));
+        } else {
+            // items without a prefix
+            return new bytesitem(arrays.copyof(bytes, bytes.length - 32));
+        }
+    }
+
+    private static boolean isinner(byte[] bytes) {
+        return bytes.length == 4 + 16 * 32 && hasprefix(bytes, hashprefix.innernode);
+    }
+
+    private static boolean hasprefix(byte[] bytes, hashprefix prefix) {
+        byte[] p = prefix.bytes();
+        return bytes.length >= 4 + 32 && bytes[0] == p[0] && bytes[1] == p[1] && bytes[2] == p[2] && bytes[3] == p[3];
+    }
+
+    private static hash256[] childhashes(byte[] bytes) {
+        hash256[] hashes = new hash256[16];
+        for (int i = 0; i < 16; i++) {
+            hash256 hash = new hash256(arrays.copyofrange(bytes, 4 + i * 32, 4 + (i + 1) * 32));
+            if (!hash.iszero()) {
+                hashes[i] = hash;
+            }
+        }
+        return hashes;
+    }
+}
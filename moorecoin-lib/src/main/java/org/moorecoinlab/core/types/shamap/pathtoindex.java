@@ -30,6 +30,9 @@ public class pathtoindex {
 
     // returns the
     public shamapinner dirtyorcopyinners() {
+        if (inners.peeklast().readonly) {
+            throw new unsupportedoperationexception("a snapshot can't be modified, modify a copy() of it");
+        }
         if (maybecopyonwrite()) {
             int ix = 0;
             // we want to make a uniformly accessed array of the inners
@@ -0,0 +1,462 @@
+package org.moorecoinlab.core.types.shamap;
+
+
+import com.google.common.cache.cache;
+import com.google.common.cache.cachebuilder;
+import com.google.common.cache.weigher;
+import io.netty.util.concurrent.defaultthreadfactory;
+import org.apache.log4j.logger;
+import org.moorecoinlab.core.hash.hash256;
+
+import java.io.closeable;
+import java.io.file;
+import java.io.filenamefilter;
+import java.io.ioexception;
+import java.nio.bytebuffer;
+import java.nio.mappedbytebuffer;
+import java.nio.channels.filechannel;
+import java.nio.file.standardopenoption;
+import java.util.arrays;
+import java.util.comparator;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.executors;
+import java.util.concurrent.scheduledexecutorservice;
+import java.util.concurrent.timeunit;
+import java.util.concurrent.atomic.atomicinteger;
+import java.util.zip.crc32;
+
+/**
+ * an embedded, append-only backend for the nodestore.
+ * <p>
+ * values are appended to a log cut into fixed size segment files, each of them
+ * memory mapped. a hash index from key to (segment, offset) is kept on the heap
+ * and rebuilt by scanning the segments when the directory is opened again.
+ * <p>
+ * appends are forced to disk in batches, every `syncmillis` or on {@link #sync()},
+ * so a crash loses at most that window. a record torn by a crash fails its
+ * checksum and the scan stops there. a background thread rewrites the live
+ * records of segments that are mostly garbage, then deletes them. values read
+ * are kept in a cache bounded by their total size.
+ * <p>
+ * the keys are the hashes of the values, so a value is written only once and
+ * never changes, a second `put` of a key is a no-op.
+ */
+public class segmentedlogbackend implements nodestore.keyvaluebackend, closeable {
+    private static final logger logger = logger.getlogger(segmentedlogbackend.class);
+
+    public static final int default_segment_size = 64 << 20;
+    public static final long default_cache_bytes = 64l << 20;
+    public static final long default_sync_millis = 200;
+
+    private static final long compaction_millis = 30000;
+    // segments with less than this share of live bytes are rewritten
+    private static final double compaction_live_ratio = 0.5;
+
+    // key, length, crc32 of both and the value
+    private static final int header = 32 + 4 + 4;
+    private static final int tombstone = -1;
+    private static final string suffix = ".seg";
+
+    private final file directory;
+    private final int segmentsize;
+    private final concurrenthashmap<hash256, long> index = new concurrenthashmap<hash256, long>();
+    private final concurrenthashmap<integer, segment> segments = new concurrenthashmap<integer, segment>();
+    private final cache<hash256, byte[]> cache;
+    private final scheduledexecutorservice background;
+
+    // written under the lock of this
+    private volatile segment active;
+    private boolean dirty;
+    private boolean closed;
+
+    public segmentedlogbackend(file directory) {
+        this(directory, default_segment_size, default_cache_bytes, default_sync_millis);
+    }
+
+    public segmentedlogbackend(file directory, int segmentsize, long cachebytes, long syncmillis) {
+        if (segmentsize <= header) {
+            throw new illegalargumentexception("segment size " + segmentsize + " is too small");
+        }
+        if (!directory.isdirectory() && !directory.mkdirs()) {
+            throw new illegalargumentexception("can't create " + directory);
+        }
+        this.directory = directory;
+        this.segmentsize = segmentsize;
+        this.cache = cachebuilder.newbuilder()
+                .maximumweight(cachebytes)
+                .weigher(new weigher<hash256, byte[]>() {
+                    @override
+                    public int weigh(hash256 key, byte[] value) {
+                        return 32 + value.length;
+                    }
+                })
+                .build();
+        try {
+            open();
+        } catch (ioexception e) {
+            throw new runtimeexception(e);
+        }
+
+        background = executors.newscheduledthreadpool(2, new defaultthreadfactory("nodestore-log", true));
+        background.schedulewithfixeddelay(new runnable() {
+            @override
+            public void run() {
+                try {
+                    sync();
+                } catch (exception e) {
+                    logger.error("nodestore sync failed", e);
+                }
+            }
+        }, syncmillis, syncmillis, timeunit.milliseconds);
+        background.schedulewithfixeddelay(new runnable() {
+            @override
+            public void run() {
+                try {
+                    compact();
+                } catch (exception e) {
+                    logger.error("nodestore compaction failed", e);
+                }
+            }
+        }, compaction_millis, compaction_millis, timeunit.milliseconds);
+    }
+
+    @override
+    public void put(hash256 key, byte[] content) {
+        if (index.containskey(key)) {
+            return;
+        }
+        synchronized (this) {
+            if (!index.containskey(key)) {
+                index.put(key, append(key.bytes(), content));
+            }
+        }
+    }
+
+    @override
+    public byte[] get(hash256 key) {
+        byte[] content = cache.getifpresent(key);
+        if (content != null) {
+            return content;
+        }
+        while (true) {
+            long location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            segment segment = segments.get(segmentid(location));
+            if (segment != null) {
+                content = segment.read(offset(location));
+                cache.put(key, content);
+                return content;
+            }
+            // compacted away meanwhile, the index has the new location by now
+        }
+    }
+
+    @override
+    public boolean has(hash256 key) {
+        return index.containskey(key);
+    }
+
+    /**
+     * drops a key, a tombstone is appended so it stays dropped after a reopen.
+     * @return false if the key wasn't stored
+     */
+    public synchronized boolean remove(hash256 key) {
+        if (!index.containskey(key)) {
+            return false;
+        }
+        discard(append(key.bytes(), null));
+        discard(index.remove(key));
+        cache.invalidate(key);
+        return true;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * forces the records appended since the last sync to disk.
+     */
+    public void sync() {
+        segment segment;
+        synchronized (this) {
+            if (!dirty || closed) {
+                return;
+            }
+            dirty = false;
+            segment = active;
+        }
+        segment.buffer.force();
+    }
+
+    /**
+     * stops the background threads and syncs, the backend can't be used afterwards.
+     */
+    @override
+    public void close() {
+        background.shutdown();
+        try {
+            background.awaittermination(1, timeunit.minutes);
+        } catch (interruptedexception e) {
+            thread.currentthread().interrupt();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            sync();
+            closed = true;
+            for (segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * rewrites the live records of the sealed segments that are mostly garbage and deletes them.
+     */
+    void compact() {
+        integer[] ids = segments.keyset().toarray(new integer[0]);
+        arrays.sort(ids);
+        for (int i = 0; i < ids.length; i++) {
+            segment segment = segments.get(ids[i]);
+            if (segment == null || segment == active) {
+                continue;
+            }
+            int dead = segment.dead.get();
+            if (dead > 0 && segment.end - dead < segment.end * compaction_live_ratio) {
+                rewrite(segment, i == 0);
+            }
+        }
+    }
+
+    private void rewrite(segment segment, boolean oldest) {
+        bytebuffer buffer = segment.buffer.duplicate();
+        byte[] key = new byte[32];
+        int offset = 0;
+
+        while (offset < segment.end) {
+            buffer.position(offset);
+            buffer.get(key);
+            int length = buffer.getint();
+            long location = location(segment.id, offset);
+            hash256 hash = new hash256(key.clone());
+
+            synchronized (this) {
+                if (length == tombstone) {
+                    // an older segment may still hold the value the tombstone hides
+                    if (!oldest && !index.containskey(hash)) {
+                        discard(append(key, null));
+                    }
+                } else {
+                    long current = index.get(hash);
+                    if (current != null && current.equals(location)) {
+                        index.put(hash, append(key, segment.read(offset)));
+                    }
+                }
+            }
+            offset += header + math.max(length, 0);
+        }
+
+        // the copies must be on disk before the segment holding the only other copy is deleted
+        synchronized (this) {
+            active.buffer.force();
+            dirty = false;
+        }
+        segments.remove(segment.id);
+        segment.close();
+        if (!segment.file.delete()) {
+            logger.warn("can't delete compacted segment " + segment.file);
+        }
+    }
+
+    private void open() throws ioexception {
+        file[] files = directory.listfiles(new filenamefilter() {
+            @override
+            public boolean accept(file dir, string name) {
+                return name.endswith(suffix);
+            }
+        });
+        arrays.sort(files, new comparator<file>() {
+            @override
+            public int compare(file a, file b) {
+                return a.getname().compareto(b.getname());
+            }
+        });
+
+        segment last = null;
+        for (file file : files) {
+            string name = file.getname();
+            int id = integer.parseint(name.substring(0, name.length() - suffix.length()));
+            last = new segment(id, file, segmentsize);
+            segments.put(id, last);
+            scan(last);
+        }
+        active = last == null ? newsegment(0) : last;
+    }
+
+    /**
+     * indexes the valid records of a segment, in the order they were written.
+     */
+    private void scan(segment segment) {
+        bytebuffer buffer = segment.buffer.duplicate();
+        int capacity = buffer.capacity();
+        byte[] key = new byte[32];
+        int offset = 0;
+
+        while (offset + header <= capacity) {
+            buffer.position(offset);
+            buffer.get(key);
+            int length = buffer.getint();
+            int crc = buffer.getint();
+            if (length < tombstone || length > capacity - offset - header) {
+                break;
+            }
+            byte[] content = null;
+            if (length != tombstone) {
+                content = new byte[length];
+                buffer.get(content);
+            }
+            if (checksum(key, length, content) != crc) {
+                break;
+            }
+
+            hash256 hash = new hash256(key.clone());
+            long location = location(segment.id, offset);
+            segment.end = offset + header + math.max(length, 0);
+
+            long previous;
+            if (length == tombstone) {
+                previous = index.remove(hash);
+                discard(location);
+            } else {
+                previous = index.put(hash, location);
+            }
+            if (previous != null) {
+                discard(previous);
+            }
+            offset = segment.end;
+        }
+    }
+
+    /**
+     * call with the lock of this held.
+     * @param content null for a tombstone
+     */
+    private long append(byte[] key, byte[] content) {
+        if (closed) {
+            throw new illegalstateexception("nodestore backend is closed");
+        }
+        int size = header + (content == null ? 0 : content.length);
+        if (size > segmentsize) {
+            throw new illegalargumentexception("value of " + content.length + " bytes doesn't fit a segment");
+        }
+        if (!active.fits(size)) {
+            // sealed segments are always on disk
+            active.buffer.force();
+            active = newsegment(active.id + 1);
+        }
+        dirty = true;
+        return location(active.id, active.append(key, content));
+    }
+
+    private segment newsegment(int id) {
+        try {
+            segment segment = new segment(id, new file(directory, string.format("%010d", id) + suffix), segmentsize);
+            segments.put(id, segment);
+            return segment;
+        } catch (ioexception e) {
+            throw new runtimeexception(e);
+        }
+    }
+
+    private void discard(long location) {
+        segment segment = segments.get(segmentid(location));
+        if (segment != null) {
+            segment.dead.addandget(segment.recordsize(offset(location)));
+        }
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xffffffffl);
+    }
+
+    private static int segmentid(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private static int checksum(byte[] key, int length, byte[] content) {
+        crc32 crc = new crc32();
+        crc.update(key);
+        crc.update(bytebuffer.allocate(4).putint(length).array());
+        if (content != null) {
+            crc.update(content);
+        }
+        return (int) crc.getvalue();
+    }
+
+    private static class segment {
+        final int id;
+        final file file;
+        final filechannel channel;
+        final mappedbytebuffer buffer;
+        // end of the records, only moves while the segment is the active one
+        volatile int end;
+        // bytes of records which are overwritten, removed or tombstones
+        final atomicinteger dead = new atomicinteger();
+
+        segment(int id, file file, int size) throws ioexception {
+            this.id = id;
+            this.file = file;
+            channel = filechannel.open(file.topath(),
+                    standardopenoption.create, standardopenoption.read, standardopenoption.write);
+            buffer = channel.map(filechannel.mapmode.read_write, 0, math.max(size, channel.size()));
+        }
+
+        boolean fits(int size) {
+            return end + size <= buffer.capacity();
+        }
+
+        int append(byte[] key, byte[] content) {
+            int offset = end;
+            int length = content == null ? tombstone : content.length;
+            bytebuffer to = buffer.duplicate();
+            to.position(offset);
+            to.put(key);
+            to.putint(length);
+            to.putint(checksum(key, length, content));
+            if (content != null) {
+                to.put(content);
+            }
+            end = to.position();
+            return offset;
+        }
+
+        byte[] read(int offset) {
+            bytebuffer from = buffer.duplicate();
+            from.position(offset + 32);
+            byte[] content = new byte[from.getint()];
+            from.position(offset + header);
+            from.get(content);
+            return content;
+        }
+
+        int recordsize(int offset) {
+            return header + math.max(buffer.getint(offset + 32), 0);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (ioexception e) {
+                logger.warn("can't close segment " + file, e);
+            }
+        }
+    }
+}
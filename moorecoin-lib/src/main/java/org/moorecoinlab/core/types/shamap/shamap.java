@@ -1,5 +1,6 @@
 package org.moorecoinlab.core.types.shamap;
 
+import java.util.concurrent.forkjoinpool;
 import java.util.concurrent.atomic.atomicinteger;
 
 public class shamap extends shamapinner {
@@ -27,4 +28,27 @@ public class shamap extends shamapinner {
         return copy;
     }
 
+    /**
+     * an immutable view of the tree as it is now, taken in constant time: all
+     * the nodes are shared, and this tree copies the ones it modifies from
+     * here on, the same as after a copy(). the tree is hashed first and nodes
+     * read in from a nodestore are published safely, so the snapshot can be
+     * read from other threads while this one goes on, once it is handed over.
+     *
+     * use {@link shamapdiff#changes} to get what changed between two snapshots.
+     */
+    public shamap snapshot() {
+        if (readonly) {
+            return this;
+        }
+        hash(forkjoinpool.commonpool());
+        shamap snapshot = copy();
+        snapshot.readonly = true;
+        return snapshot;
+    }
+
+    public boolean issnapshot() {
+        return readonly;
+    }
+
 }
@@ -0,0 +1,138 @@
+package org.moorecoinlab.core.types.shamap;
+
+
+import org.moorecoinlab.core.hash.hash256;
+
+import java.util.arraydeque;
+import java.util.iterator;
+import java.util.nosuchelementexception;
+
+/**
+ * the leaves which differ between two trees, in index order, read as they
+ * are reached.
+ * <p>
+ * subtrees with the same hash are skipped whole, and nodes shared by the two
+ * trees, e.g. a snapshot and the tree it was taken from, without even hashing
+ * them, so the cost is in proportion to the changes, not to the trees.
+ * neither tree may be modified while iterating.
+ */
+public class shamapdiffiterator implements iterator<shamapdiffiterator.change> {
+    public static enum type {
+        added, modified, deleted
+    }
+
+    public static class change {
+        public final type type;
+        public final hash256 index;
+        // null when added
+        public final shamapleaf before;
+        // null when deleted
+        public final shamapleaf after;
+
+        change(type type, hash256 index, shamapleaf before, shamapleaf after) {
+            this.type = type;
+            this.index = index;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    /**
+     * a node of each tree at the same position, either may be null.
+     * a leaf facing an inner is pushed down the levels of the inner
+     * until it faces a leaf, or nothing.
+     */
+    private static class pair {
+        final shamapnode one, two;
+        final int depth;
+
+        pair(shamapnode one, shamapnode two, int depth) {
+            this.one = one;
+            this.two = two;
+            this.depth = depth;
+        }
+    }
+
+    private final arraydeque<pair> pending = new arraydeque<pair>();
+    private change next;
+
+    public shamapdiffiterator(shamapinner one, shamapinner two) {
+        pending.push(new pair(one, two, 0));
+    }
+
+    @override
+    public boolean hasnext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @override
+    public change next() {
+        if (!hasnext()) {
+            throw new nosuchelementexception();
+        }
+        change change = next;
+        next = null;
+        return change;
+    }
+
+    @override
+    public void remove() {
+        throw new unsupportedoperationexception();
+    }
+
+    private change advance() {
+        while (!pending.isempty()) {
+            pair pair = pending.pop();
+            shamapnode one = pair.one, two = pair.two;
+
+            if (one == two || one != null && two != null && one.hash().equals(two.hash())) {
+                continue;
+            }
+            boolean oneleaf = one == null || one.isleaf(),
+                    twoleaf = two == null || two.isleaf();
+
+            if (oneleaf && twoleaf) {
+                shamapleaf a = one == null ? null : one.asleaf();
+                shamapleaf b = two == null ? null : two.asleaf();
+                if (a == null) {
+                    return new change(type.added, b.index, null, b);
+                } else if (b == null) {
+                    return new change(type.deleted, a.index, a, null);
+                }
+                int cmp = a.index.compareto(b.index);
+                if (cmp == 0) {
+                    return new change(type.modified, a.index, a, b);
+                } else if (cmp < 0) {
+                    pending.push(new pair(null, b, pair.depth));
+                    return new change(type.deleted, a.index, a, null);
+                } else {
+                    pending.push(new pair(a, null, pair.depth));
+                    return new change(type.added, b.index, null, b);
+                }
+            }
+
+            // the last slot goes first on the stack, so slot 0 is compared first
+            for (int i = 15; i >= 0; i--) {
+                shamapnode a = child(one, i, pair.depth);
+                shamapnode b = child(two, i, pair.depth);
+                if (a != null || b != null) {
+                    pending.push(new pair(a, b, pair.depth + 1));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static shamapnode child(shamapnode node, int i, int depth) {
+        if (node == null) {
+            return null;
+        } else if (node.isinner()) {
+            return node.asinner().branch(i);
+        } else {
+            return node.asleaf().index.nibblet(depth) == i ? node : null;
+        }
+    }
+}
@@ -1,19 +1,37 @@
 package org.moorecoinlab.core.types.shamap;
 
 
+import org.moorecoinlab.core.hash.halfsha512;
 import org.moorecoinlab.core.hash.hash256;
 import org.moorecoinlab.core.hash.prefixes.hashprefix;
 import org.moorecoinlab.core.hash.prefixes.prefix;
 import org.moorecoinlab.core.serialized.bytessink;
 
+import java.lang.ref.softreference;
+import java.util.arraylist;
 import java.util.iterator;
+import java.util.list;
+import java.util.concurrent.forkjoinpool;
+import java.util.concurrent.recursiveaction;
+import java.util.concurrent.atomic.atomicreferencearray;
 
 public class shamapinner extends shamapnode implements iterable<shamapnode> {
     public int depth;
     int slotbits = 0;
     int version = 0;
     boolean docow;
+    // set on the root of a snapshot, see shamap.snapshot()
+    boolean readonly;
     protected shamapnode[] branches = new shamapnode[16];
+    // children which are in a nodestore are only kept by hash and soft reference,
+    // so they can be collected when the heap runs short and read again when needed.
+    // modifying a child invalidates its parent first, which holds the child strongly
+    // from then on, until the next time the tree is stored.
+    // nodes shared with a snapshot may be read, and children read in, on several
+    // threads at once, so children read in are published through an atomic array.
+    nodestore store;
+    hash256[] stored;
+    atomicreferencearray<softreference<shamapnode>> loaded;
 
     public shamapinner(int depth) {
         this(false, depth, 0);
@@ -31,6 +49,14 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
         copy.slotbits = slotbits;
         copy.hash = hash;
         copy.version = version;
+        copy.store = store;
+        copy.stored = stored == null ? null : stored.clone();
+        if (loaded != null) {
+            copy.loaded = newloaded();
+            for (int i = 0; i < 16; i++) {
+                copy.loaded.set(i, loaded.get(i));
+            }
+        }
         docow = true;
 
         return copy;
@@ -40,6 +66,42 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
         return new shamapinner(true, depth, version);
     }
 
+    void bindtostore(nodestore store, hash256 hash, hash256[] children) {
+        this.store = store;
+        this.stored = children;
+        this.loaded = newloaded();
+        this.hash = hash;
+        for (int i = 0; i < 16; i++) {
+            if (children[i] != null) {
+                slotbits |= 1 << i;
+            }
+        }
+    }
+
+    /**
+     * called once the children are in the store, from then on they are only held softly.
+     * this changes the node in place, so it must not be shared with another tree.
+     */
+    void release(nodestore store) {
+        if (stored == null) {
+            stored = new hash256[16];
+            loaded = newloaded();
+        }
+        this.store = store;
+        for (int i = 0; i < 16; i++) {
+            shamapnode branch = branches[i];
+            if (branch != null) {
+                stored[i] = branch.hash();
+                loaded.set(i, new softreference<shamapnode>(branch));
+                branches[i] = null;
+            }
+        }
+    }
+
+    private static atomicreferencearray<softreference<shamapnode>> newloaded() {
+        return new atomicreferencearray<softreference<shamapnode>>(16);
+    }
+
     protected shamapinner makeinnerchild() {
         int childdepth = depth + 1;
         if (childdepth >= 64) throw new assertionerror();
@@ -60,7 +122,7 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
     }
 
     public void walkleaves(leafwalker leafwalker) {
-        for (shamapnode branch : branches) {
+        for (shamapnode branch : this) {
             if (branch != null) {
                 if (branch.isinner()) {
                     branch.asinner().walkleaves(leafwalker);
@@ -73,7 +135,7 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
 
     public void walktree(treewalker treewalker) {
         treewalker.oninner(this);
-        for (shamapnode branch : branches) {
+        for (shamapnode branch : this) {
             if (branch != null) {
                 if (branch.isleaf()) {
                     shamapleaf ln = branch.asleaf();
@@ -90,7 +152,7 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
     public void walkhashedtree(hashedtreewalker walker) {
         walker.oninner(hash(), this);
 
-        for (shamapnode branch : branches) {
+        for (shamapnode branch : this) {
             if (branch != null) {
                 if (branch.isleaf()) {
                     shamapleaf ln = branch.asleaf();
@@ -110,7 +172,7 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
         shamapleaf leaf = null;
         int leaves = 0;
 
-        for (shamapnode branch : branches) {
+        for (shamapnode branch : this) {
             if (branch != null) {
                 if (branch.isinner()) {
                     leaf = null;
@@ -220,11 +282,41 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
     }
 
     public shamapnode getbranch(int i) {
-        return branches[i];
+        return branch(i);
     }
 
+    /**
+     * the child in slot i, read from the nodestore if it wasn't yet or was collected since.
+     * safe to call from several threads on a node which isn't modified meanwhile, e.g. one of
+     * a snapshot: when two of them read the same child the first one published is kept.
+     */
     public shamapnode branch(int i) {
-        return branches[i];
+        shamapnode branch = branches[i];
+        if (branch != null || stored == null || stored[i] == null) {
+            return branch;
+        }
+        shamapnode read = null;
+        while (true) {
+            softreference<shamapnode> ref = loaded.get(i);
+            branch = ref == null ? null : ref.get();
+            if (branch != null) {
+                return branch;
+            }
+            if (read == null) {
+                read = store.loadchild(stored[i], this);
+            }
+            if (loaded.compareandset(i, ref, new softreference<shamapnode>(read))) {
+                return read;
+            }
+        }
+    }
+
+    private hash256 branchhash(int i) {
+        shamapnode branch = branches[i];
+        if (branch != null) {
+            return branch.hash();
+        }
+        return stored == null ? null : stored[i];
     }
 
     protected int selectbranch(hash256 index) {
@@ -232,27 +324,54 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
     }
 
     public boolean hasleaf(int i) {
-        return branches[i].isleaf();
+        return branch(i).isleaf();
     }
     public boolean hasinner(int i) {
-        return branches[i].isinner();
+        return branch(i).isinner();
     }
-    public boolean hasnone(int i) {return branches[i] == null;}
+    public boolean hasnone(int i) {return (slotbits & (1 << i)) == 0;}
 
     private void setbranch(int slot, shamapnode node) {
         slotbits = slotbits | (1 << slot);
         branches[slot] = node;
+        if (stored != null) {
+            stored[slot] = null;
+            loaded.set(slot, null);
+        }
         invalidate();
     }
 
     private void removebranch(int slot) {
         branches[slot] = null;
+        if (stored != null) {
+            stored[slot] = null;
+            loaded.set(slot, null);
+        }
         slotbits = slotbits & ~(1 << slot);
     }
     public boolean empty() {
         return slotbits == 0;
     }
 
+    /**
+     * the children read so far are held strongly from here on, one of them may be about to change.
+     */
+    @override
+    public void invalidate() {
+        super.invalidate();
+        if (loaded != null) {
+            for (int i = 0; i < 16; i++) {
+                softreference<shamapnode> ref = loaded.get(i);
+                shamapnode branch = ref == null ? null : ref.get();
+                if (branch != null) {
+                    branches[i] = branch;
+                    stored[i] = null;
+                }
+                loaded.set(i, null);
+            }
+        }
+    }
+
     @override public boolean isleaf() { return false; }
     @override public boolean isinner() { return true; }
 
@@ -263,15 +382,45 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
 
     @override
     public void tobytessink(bytessink sink) {
-        for (shamapnode branch : branches) {
-            if (branch != null) {
-                branch.hash().tobytessink(sink);
+        for (int i = 0; i < 16; i++) {
+            hash256 hash = branchhash(i);
+            if (hash != null) {
+                hash.tobytessink(sink);
             } else {
                 hash256.zero_256.tobytessink(sink);
             }
         }
     }
 
+    /**
+     * children are hashed first, then their 16 hashes go to the digest as one 512 byte block.
+     * the per-thread digest of createhash is never re-entered that way.
+     */
+    @override
+    public hash256 createhash() {
+        byte[] hashes = new byte[16 * 32];
+        for (int i = 0; i < 16; i++) {
+            hash256 hash = branchhash(i);
+            if (hash != null) {
+                system.arraycopy(hash.bytes(), 0, hashes, i * 32, 32);
+            }
+        }
+        halfsha512 half = halfsha512.reusedprefixed256(hashprefix());
+        half.add(hashes);
+        return half.finish();
+    }
+
+    /**
+     * hash with the dirty subtrees of the top levels fanned out over the pool.
+     * subtrees which were not invalidated since their last hashing keep their cached hash and are not walked.
+     */
+    public hash256 hash(forkjoinpool pool) {
+        if (hash == null && !empty()) {
+            pool.invoke(new hashtask(this));
+        }
+        return hash();
+    }
+
     @override
     public hash256 hash() {
         if (empty()) {
@@ -295,6 +444,36 @@ public class shamapinner extends shamapnode implements iterable<shamapnode> {
         return null;
     }
 
+    /**
+     * hashes the dirty inner children of an inner in parallel, then the inner itself.
+     */
+    private static class hashtask extends recursiveaction {
+        /**
+         * inners below this depth are hashed on the thread of their parent task.
+         */
+        private static final int parallel_depth = 2;
+
+        private final shamapinner inner;
+
+        hashtask(shamapinner inner) {
+            this.inner = inner;
+        }
+
+        @override
+        protected void compute() {
+            if (inner.depth < parallel_depth) {
+                list<hashtask> dirty = new arraylist<hashtask>();
+                for (shamapnode branch : inner.branches) {
+                    if (branch != null && branch.isinner() && branch.hash == null) {
+                        dirty.add(new hashtask(branch.asinner()));
+                    }
+                }
+                invokeall(dirty);
+            }
+            inner.hash();
+        }
+    }
+
     @override
     public iterator<shamapnode> iterator() {
         return new iterator<shamapnode>() {
@@ -31,7 +31,7 @@ abstract public class shamapnode {
         return hash;
     }
     public hash256 createhash() {
-        halfsha512 half = halfsha512.prefixed256(hashprefix());
+        halfsha512 half = halfsha512.reusedprefixed256(hashprefix());
         tobytessink(half);
         return half.finish();
     }
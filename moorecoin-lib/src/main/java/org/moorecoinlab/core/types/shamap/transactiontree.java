@@ -26,4 +26,9 @@ public class transactiontree extends shamap {
     public transactiontree copy() {
         return (transactiontree) super.copy();
     }
+
+    @override
+    public transactiontree snapshot() {
+        return (transactiontree) super.snapshot();
+    }
 }
@@ -8,9 +8,23 @@ import org.ripple.bouncycastle.util.encoders.hex;
 
 import java.math.biginteger;
 
+/**
+ * an unsigned integer of getbytewidth() bytes, held in a long. a value or a
+ * result of the arithmetic which doesn't fit the width is an
+ * illegalargumentexception, "standard length exceeded for value".
+ * <p>
+ * the values below cache_size come from a cache of shared instances when
+ * made by valueof(), instancefrom() or the translators, those can't be
+ * changed with setvalue().
+ */
 abstract public class uint<subclass extends uint> extends number implements serializedtype, comparable<uint> {
 
-    private biginteger value;
+    static final int cache_size = 256;
+
+    // the bits of the value, the ones above the width are always 0
+    private long value;
+    // one of the cached instances
+    boolean shared;
 
     public static biginteger max8  = new biginteger("256"),
                              max16 = new biginteger("65536"),
@@ -21,13 +35,23 @@ abstract public class uint<subclass extends uint> extends number implements seri
         return biginteger.zero;
     }
     public uint(byte[] bytes) {
-        setvalue(new biginteger(1, bytes));
+        long value = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (i < bytes.length - 8 && bytes[i] != 0) {
+                throw new illegalargumentexception("standard length exceeded for value");
+            }
+            value = value << 8 | (bytes[i] & 0xff);
+        }
+        setvalue(value);
     }
     public uint(biginteger bi) {
         setvalue(bi);
     }
     public uint(number s) {
-        setvalue(biginteger.valueof(s.longvalue()));
+        setvalue(s.longvalue());
+    }
+    public uint(long value) {
+        setvalue(value);
     }
     public uint(string s) {
         setvalue(new biginteger(s));
@@ -39,52 +63,67 @@ abstract public class uint<subclass extends uint> extends number implements seri
 
     @override
     public string tostring() {
-        return value.tostring();
+        return long.tounsignedstring(value);
     }
 
     public uint() {}
 
     public abstract int getbytewidth();
     public abstract subclass instancefrom(biginteger n);
+    public abstract subclass instancefrom(long n);
 
     public boolean isvalid(biginteger n) {
         return !((bitlength() / 8) > getbytewidth());
     }
 
     public subclass add(uint val) {
-        return instancefrom(value.add(val.value));
+        long sum = value + val.value;
+        if (long.compareunsigned(sum, value) < 0) {
+            throw overflow();
+        }
+        return instancefrom(checked(sum));
     }
 
     public subclass subtract(uint val) {
-        return instancefrom(value.subtract(val.value));
+        if (long.compareunsigned(value, val.value) < 0) {
+            throw overflow();
+        }
+        return instancefrom(value - val.value);
     }
 
     public subclass multiply(uint val) {
-        return instancefrom(value.multiply(val.value));
+        long product = value * val.value;
+        if (value != 0 && long.divideunsigned(product, value) != val.value) {
+            throw overflow();
+        }
+        return instancefrom(checked(product));
     }
 
     public subclass divide(uint val) {
-        return instancefrom(value.divide(val.value));
+        return instancefrom(long.divideunsigned(value, val.value));
     }
 
     public subclass or(uint val) {
-        return instancefrom(value.or(val.value));
+        return instancefrom(value | val.value);
     }
 
     public subclass shiftleft(int n) {
-        return instancefrom(value.shiftleft(n));
+        if (value != 0 && (n >= 64 || (value << n) >>> n != value)) {
+            throw overflow();
+        }
+        return instancefrom(checked(value << n));
     }
 
     public subclass shiftright(int n) {
-        return instancefrom(value.shiftright(n));
+        return instancefrom(n >= 64 ? 0 : value >>> n);
     }
 
     public int bitlength() {
-        return value.bitlength();
+        return 64 - long.numberofleadingzeros(value);
     }
 
     public int compareto(uint val) {
-        return value.compareto(val.value);
+        return long.compareunsigned(value, val.value);
     }
 
     @override
@@ -96,115 +135,161 @@ abstract public class uint<subclass extends uint> extends number implements seri
     }
 
     public boolean equals(uint x) {
-        return value.equals(x.value);
+        return value == x.value;
+    }
+
+    @override
+    public int hashcode() {
+        return long.hashcode(value);
     }
 
     public biginteger min(biginteger val) {
-        return value.min(val);
+        return biginteger().min(val);
     }
 
     public biginteger max(biginteger val) {
-        return value.max(val);
+        return biginteger().max(val);
     }
 
     public string tostring(int radix) {
-        return value.tostring(radix);
+        return long.tounsignedstring(value, radix);
     }
     public byte[] tobytearray() {
         int length = getbytewidth();
-
-        {
-            byte[] bytes = value.tobytearray();
-
-            if (bytes[0] == 0) {
-                if (bytes.length - 1 > length) {
-                    throw new illegalargumentexception("standard length exceeded for value");
-                }
-
-                byte[] tmp = new byte[length];
-
-                system.arraycopy(bytes, 1, tmp, tmp.length - (bytes.length - 1), bytes.length - 1);
-
-                return tmp;
-            } else {
-                if (bytes.length == length) {
-                    return bytes;
-                }
-
-                if (bytes.length > length) {
-                    throw new illegalargumentexception("standard length exceeded for value");
-                }
-
-                byte[] tmp = new byte[length];
-
-                system.arraycopy(bytes, 0, tmp, tmp.length - bytes.length, bytes.length);
-
-                return tmp;
-            }
+        byte[] bytes = new byte[length];
+        long v = value;
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[i] = (byte) v;
+            v >>>= 8;
         }
+        return bytes;
     }
 
     abstract public object value();
 
     public biginteger biginteger(){
-        return value;
+        if (value >= 0) {
+            return biginteger.valueof(value);
+        }
+        return new biginteger(1, tobytearray());
     }
 
 
     @override
     public int intvalue() {
-        return value.intvalue();
+        return (int) value;
     }
 
     @override
     public long longvalue() {
-        return value.longvalue();
+        return value;
     }
 
     @override
     public double doublevalue() {
-        return value.doublevalue();
+        return value >= 0 ? (double) value : biginteger().doublevalue();
     }
 
     @override
     public float floatvalue() {
-        return value.floatvalue();
+        return (float) doublevalue();
     }
 
     @override
     public byte bytevalue() {
-        return value.bytevalue();
+        return (byte) value;
     }
 
     @override
     public short shortvalue() {
-        return value.shortvalue();
+        return (short) value;
     }
 
+    /**
+     * @see #setvalue(long)
+     */
     public void setvalue(biginteger value) {
+        int bits = getbytewidth() * 8;
+        if (value.signum() >= 0 ? value.bitlength() > bits : value.bitlength() > bits - 1) {
+            throw overflow();
+        }
+        setvalue(value.longvalue());
+    }
+
+    /**
+     * a negative value is taken as the two's complement of the width, so e.g. an int flag with
+     * the top bit set is read as unsigned, as it was serialized before.
+     *
+     * @throws illegalargumentexception if the value doesn't fit the width, signed or unsigned
+     * @throws unsupportedoperationexception on the shared instances of valueof(), instancefrom()
+     * and the translators
+     */
+    public void setvalue(long value) {
+        if (shared) {
+            throw new unsupportedoperationexception("cached instances can't be changed");
+        }
+        int bits = getbytewidth() * 8;
+        if (bits < 64) {
+            if (value >= 0 ? value >>> bits != 0 : value >> (bits - 1) != -1) {
+                throw overflow();
+            }
+            value &= (1l << bits) - 1;
+        }
         this.value = value;
     }
 
+    /**
+     * @return the value, if it fits the width unsigned
+     */
+    private long checked(long value) {
+        int bits = getbytewidth() * 8;
+        if (bits < 64 && value >>> bits != 0) {
+            throw overflow();
+        }
+        return value;
+    }
+
+    private static illegalargumentexception overflow() {
+        return new illegalargumentexception("standard length exceeded for value");
+    }
+
     public <t extends uint> boolean  lte(t sequence) {
         return compareto(sequence) < 1;
     }
 
     public boolean testbit(int f) {
-        // todo, optimized ;) // move to uint32
-        return value.testbit(f);
+        return f < 64 && ((value >>> f) & 1) != 0;
     }
 
     public boolean iszero() {
-        return value.signum() == 0;
+        return value == 0;
+    }
+
+    /**
+     * marks the instances of a cache as shared.
+     */
+    static <t extends uint> t[] share(t[] cache) {
+        for (t instance : cache) {
+            instance.shared = true;
+        }
+        return cache;
     }
 
     static public abstract class uinttranslator<t extends uint> extends typetranslator<t> {
         public abstract t newinstance(biginteger i);
         public abstract int bytewidth();
 
+        public t newinstance(long i) {
+            return newinstance(biginteger.valueof(i));
+        }
+
         @override
         public t fromparser(binaryparser parser, integer hint) {
-            return newinstance(new biginteger(1, parser.read(bytewidth())));
+            long value = 0;
+            for (int i = bytewidth(); i > 0; i--) {
+                value = value << 8 | parser.readoneint();
+            }
+            return newinstance(value);
         }
 
         @override
@@ -218,7 +303,7 @@ abstract public class uint<subclass extends uint> extends number implements seri
 
         @override
         public t fromlong(long along) {
-            return newinstance(biginteger.valueof(along));
+            return newinstance(along);
         }
 
         @override
@@ -14,6 +14,11 @@ public class uint16 extends uint<uint16> {
             return new uint16(i);
         }
 
+        @override
+        public uint16 newinstance(long i) {
+            return valueof(i);
+        }
+
         @override
         public int bytewidth() {
             return 2;
@@ -32,6 +37,10 @@ public class uint16 extends uint<uint16> {
         super(s);
     }
 
+    public uint16(long value) {
+        super(value);
+    }
+
     public uint16(string s) {
         super(s);
     }
@@ -50,6 +59,29 @@ public class uint16 extends uint<uint16> {
         return new uint16(n);
     }
 
+    @override
+    public uint16 instancefrom(long n) {
+        return valueof(n);
+    }
+
+    private static final uint16[] cache = new uint16[cache_size];
+    static {
+        for (int i = 0; i < cache_size; i++) {
+            cache[i] = new uint16(i);
+        }
+        share(cache);
+    }
+
+    /**
+     * @return a shared instance for the values below cache_size, which can't be changed
+     */
+    public static uint16 valueof(long value) {
+        if (value >= 0 && value < cache_size) {
+            return cache[(int) value];
+        }
+        return new uint16(value);
+    }
+
     @override
     public integer value() {
         return intvalue();
@@ -14,6 +14,11 @@ public class uint32 extends uint<uint32> {
             return new uint32(i);
         }
 
+        @override
+        public uint32 newinstance(long i) {
+            return valueof(i);
+        }
+
         @override
         public int bytewidth() {
             return 4;
@@ -31,6 +36,10 @@ public class uint32 extends uint<uint32> {
     public uint32(number s) {
         super(s);
     }
+
+    public uint32(long value) {
+        super(value);
+    }
     public uint32(string s) {
         super(s);
     }
@@ -49,6 +58,29 @@ public class uint32 extends uint<uint32> {
         return new uint32(n);
     }
 
+    @override
+    public uint32 instancefrom(long n) {
+        return valueof(n);
+    }
+
+    private static final uint32[] cache = new uint32[cache_size];
+    static {
+        for (int i = 0; i < cache_size; i++) {
+            cache[i] = new uint32(i);
+        }
+        share(cache);
+    }
+
+    /**
+     * @return a shared instance for the values below cache_size, which can't be changed
+     */
+    public static uint32 valueof(long value) {
+        if (value >= 0 && value < cache_size) {
+            return cache[(int) value];
+        }
+        return new uint32(value);
+    }
+
     @override
     public long value() {
         return longvalue();
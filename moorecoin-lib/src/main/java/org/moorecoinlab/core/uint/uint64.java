@@ -14,6 +14,11 @@ public class uint64 extends uint<uint64> {
             return new uint64(i);
         }
 
+        @override
+        public uint64 newinstance(long i) {
+            return valueof(i);
+        }
+
         @override
         public int bytewidth() {
             return 8;
@@ -32,6 +37,10 @@ public class uint64 extends uint<uint64> {
         super(s);
     }
 
+    public uint64(long value) {
+        super(value);
+    }
+
     public uint64(string s) {
         super(s);
     }
@@ -50,6 +59,29 @@ public class uint64 extends uint<uint64> {
         return new uint64(n);
     }
 
+    @override
+    public uint64 instancefrom(long n) {
+        return valueof(n);
+    }
+
+    private static final uint64[] cache = new uint64[cache_size];
+    static {
+        for (int i = 0; i < cache_size; i++) {
+            cache[i] = new uint64(i);
+        }
+        share(cache);
+    }
+
+    /**
+     * @return a shared instance for the values below cache_size, which can't be changed
+     */
+    public static uint64 valueof(long value) {
+        if (value >= 0 && value < cache_size) {
+            return cache[(int) value];
+        }
+        return new uint64(value);
+    }
+
     @override
     public biginteger value() {
         return biginteger();
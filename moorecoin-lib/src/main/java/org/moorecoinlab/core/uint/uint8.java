@@ -14,6 +14,11 @@ public class uint8 extends uint<uint8> {
             return new uint8(i);
         }
 
+        @override
+        public uint8 newinstance(long i) {
+            return valueof(i);
+        }
+
         @override
         public int bytewidth() {
             return 1;
@@ -32,6 +37,10 @@ public class uint8 extends uint<uint8> {
         super(s);
     }
 
+    public uint8(long value) {
+        super(value);
+    }
+
     public uint8(string s) {
         super(s);
     }
@@ -50,6 +59,29 @@ public class uint8 extends uint<uint8> {
         return new uint8(n);
     }
 
+    @override
+    public uint8 instancefrom(long n) {
+        return valueof(n);
+    }
+
+    private static final uint8[] cache = new uint8[cache_size];
+    static {
+        for (int i = 0; i < cache_size; i++) {
+            cache[i] = new uint8(i);
+        }
+        share(cache);
+    }
+
+    /**
+     * @return a shared instance for the values below cache_size, which can't be changed
+     */
+    public static uint8 valueof(long value) {
+        if (value >= 0 && value < cache_size) {
+            return cache[(int) value];
+        }
+        return new uint8(value);
+    }
+
     @override
     public short value() {
         return shortvalue();
@@ -106,7 +106,7 @@ public class wallet {
     @override
     public string tostring() {
         stringbuffer ret = new stringbuffer(1024);
-        ret.append("account_id : ").append(accountid.address)
+        ret.append("account_id : ").append(accountid.address())
                 .append("\tmaster_seed : ").append(master_seed)
                 .append("\tmaster_seed_hex : ").append(hex.tohexstring(master_seed_hex))
                 .append("\tmaster_key: ").append(master_key);
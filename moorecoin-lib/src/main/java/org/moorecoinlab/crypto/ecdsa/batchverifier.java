@@ -0,0 +1,150 @@
+package org.moorecoinlab.crypto.ecdsa;
+
+import com.google.common.cache.cache;
+import com.google.common.cache.cachebuilder;
+import org.ripple.bouncycastle.math.ec.ecalgorithms;
+import org.ripple.bouncycastle.math.ec.ecpoint;
+
+import java.math.biginteger;
+import java.util.list;
+import java.util.concurrent.forkjoinpool;
+import java.util.concurrent.recursiveaction;
+
+/**
+ * verifies many ecdsa signatures at once, see {@link keypair#verifybatch(list)}.
+ *
+ * the batch is split over the forkjoin pool in chunks. within a chunk the s values are inverted
+ * modulo n together (montgomery's trick), and the sums u1 * g + u2 * q stay in jacobian co-ordinates
+ * until one field inversion converts all of them. decoded public keys are cached, together with the
+ * window tables the curve stores on them, so repeat signers cost neither a decompression nor a precomputation.
+ */
+final class batchverifier {
+    private static final int chunk = 64;
+
+    private static final cache<biginteger, ecpoint> points = cachebuilder.newbuilder()
+            .maximumsize(10000)
+            .build();
+
+    private batchverifier() {
+    }
+
+    static boolean[] verify(list<verificationitem> items) {
+        verificationitem[] array = items.toarray(new verificationitem[items.size()]);
+        boolean[] results = new boolean[array.length];
+        forkjoinpool.commonpool().invoke(new verifytask(array, results, 0, array.length));
+        return results;
+    }
+
+    private static void verifychunk(verificationitem[] items, boolean[] results, int from, int to) {
+        biginteger n = secp256k1.order();
+        int count = to - from;
+        int[] index = new int[count];
+        biginteger[] r = new biginteger[count], s = new biginteger[count], e = new biginteger[count];
+        ecpoint[] q = new ecpoint[count];
+
+        int valid = 0;
+        for (int i = from; i < to; i++) {
+            verificationitem item = items[i];
+            ecdsasignature signature;
+            ecpoint point;
+            try {
+                signature = ecdsasignature.decodefromder(item.sigbytes);
+                point = decode(item.pubbytes);
+            } catch (runtimeexception ex) {
+                continue;
+            }
+            if (signature == null || !inrange(signature.r, n) || !inrange(signature.s, n)) {
+                continue;
+            }
+            index[valid] = i;
+            r[valid] = signature.r;
+            s[valid] = signature.s;
+            e[valid] = calculatee(n, item.data);
+            q[valid] = point;
+            valid++;
+        }
+        if (valid == 0) {
+            return;
+        }
+
+        biginteger[] c = invertall(s, valid, n);
+        ecpoint[] gs = new ecpoint[valid], qs = new ecpoint[valid];
+        biginteger[] u1 = new biginteger[valid], u2 = new biginteger[valid];
+        for (int j = 0; j < valid; j++) {
+            gs[j] = secp256k1.basepoint();
+            qs[j] = q[j];
+            u1[j] = e[j].multiply(c[j]).mod(n);
+            u2[j] = r[j].multiply(c[j]).mod(n);
+        }
+        ecpoint[] sums = ecalgorithms.sumoftwomultiplies(gs, u1, qs, u2);
+        for (int j = 0; j < valid; j++) {
+            results[index[j]] = !sums[j].isinfinity() && sums[j].getx().tobiginteger().mod(n).equals(r[j]);
+        }
+    }
+
+    /**
+     * the inverses of the first count values modulo n with a single modinverse.
+     */
+    private static biginteger[] invertall(biginteger[] values, int count, biginteger n) {
+        biginteger[] prefix = new biginteger[count];
+        biginteger acc = biginteger.one;
+        for (int i = 0; i < count; i++) {
+            acc = acc.multiply(values[i]).mod(n);
+            prefix[i] = acc;
+        }
+        biginteger inv = acc.modinverse(n);
+        biginteger[] result = new biginteger[count];
+        for (int i = count - 1; i > 0; i--) {
+            result[i] = inv.multiply(prefix[i - 1]).mod(n);
+            inv = inv.multiply(values[i]).mod(n);
+        }
+        result[0] = inv;
+        return result;
+    }
+
+    private static ecpoint decode(byte[] pubbytes) {
+        biginteger key = new biginteger(1, pubbytes);
+        ecpoint point = points.getifpresent(key);
+        if (point == null) {
+            point = secp256k1.curve().decodepoint(pubbytes);
+            points.put(key, point);
+        }
+        return point;
+    }
+
+    private static boolean inrange(biginteger v, biginteger n) {
+        return v.signum() > 0 && v.compareto(n) < 0;
+    }
+
+    /**
+     * the message as an integer, truncated to the bit length of n like ecdsasigner does.
+     */
+    private static biginteger calculatee(biginteger n, byte[] message) {
+        biginteger e = new biginteger(1, message);
+        int excess = message.length * 8 - n.bitlength();
+        return excess > 0 ? e.shiftright(excess) : e;
+    }
+
+    private static class verifytask extends recursiveaction {
+        private final verificationitem[] items;
+        private final boolean[] results;
+        private final int from, to;
+
+        verifytask(verificationitem[] items, boolean[] results, int from, int to) {
+            this.items = items;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @override
+        protected void compute() {
+            if (to - from <= chunk) {
+                verifychunk(items, results, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeall(new verifytask(items, results, from, middle), new verifytask(items, results, middle, to));
+        }
+    }
+}
@@ -4,14 +4,24 @@ import org.moorecoinlab.core.utils;
 import org.moorecoinlab.core.hash.b58;
 import org.ripple.bouncycastle.crypto.params.ecprivatekeyparameters;
 import org.ripple.bouncycastle.crypto.params.ecpublickeyparameters;
+import org.ripple.bouncycastle.crypto.params.parameterswithrandom;
 import org.ripple.bouncycastle.crypto.signers.ecdsasigner;
 import org.ripple.bouncycastle.math.ec.ecpoint;
 
 import java.math.biginteger;
+import java.security.securerandom;
+import java.util.list;
 
 public class keypair implements ikeypair {
     biginteger priv, pub;
     byte[] pubbytes;
+    private volatile ecprivatekeyparameters privparams;
+
+    /**
+     * signer and random source reused by each thread, seeding a new securerandom for every signature is costly.
+     */
+    private static final threadlocal<ecdsasigner> signers = threadlocal.withinitial(ecdsasigner::new);
+    private static final threadlocal<securerandom> randoms = threadlocal.withinitial(securerandom::new);
 
     @override
     public biginteger pub() {
@@ -70,7 +80,16 @@ public class keypair implements ikeypair {
 
     @override
     public byte[] sign(byte[] bytes) {
-        return sign(bytes, priv);
+        return sign(bytes, privateparameters());
+    }
+
+    private ecprivatekeyparameters privateparameters() {
+        ecprivatekeyparameters params = privparams;
+        if (params == null) {
+            params = new ecprivatekeyparameters(priv, secp256k1.params());
+            privparams = params;
+        }
+        return params;
     }
 
     @override
@@ -104,8 +123,20 @@ public class keypair implements ikeypair {
             return false;
         }
     }
+    /**
+     * verify many signatures in parallel, result[i] tells whether items.get(i) is valid.
+     * checks the same as {@link #verify(byte[], byte[], biginteger)}, a malformed signature or key is just invalid.
+     */
+    public static boolean[] verifybatch(list<verificationitem> items) {
+        return batchverifier.verify(items);
+    }
+
     public static byte[] sign(byte[] bytes, biginteger secret) {
-        ecdsasignature sig = createecdsasignature(bytes, secret);
+        return sign(bytes, new ecprivatekeyparameters(secret, secp256k1.params()));
+    }
+
+    private static byte[] sign(byte[] bytes, ecprivatekeyparameters privkey) {
+        ecdsasignature sig = createecdsasignature(bytes, privkey);
         byte[] der = sig.encodetoder();
         if (!isstrictlycanonical(der)) {
             throw new illegalstateexception("signature is not strictly canonical");
@@ -189,10 +220,9 @@ public class keypair implements ikeypair {
 
     }
 
-    private static ecdsasignature createecdsasignature(byte[] bytes, biginteger secret) {
-        ecdsasigner signer = new ecdsasigner();
-        ecprivatekeyparameters privkey = new ecprivatekeyparameters(secret, secp256k1.params());
-        signer.init(true, privkey);
+    private static ecdsasignature createecdsasignature(byte[] bytes, ecprivatekeyparameters privkey) {
+        ecdsasigner signer = signers.get();
+        signer.init(true, new parameterswithrandom(privkey, randoms.get()));
         biginteger[] sigs = signer.generatesignature(bytes);
         biginteger r = sigs[0], s = sigs[1];
 
@@ -5,6 +5,7 @@ import org.ripple.bouncycastle.asn1.x9.x9ecparameters;
 import org.ripple.bouncycastle.crypto.params.ecdomainparameters;
 import org.ripple.bouncycastle.math.ec.eccurve;
 import org.ripple.bouncycastle.math.ec.ecpoint;
+import org.ripple.bouncycastle.math.ec.secp256k1curve;
 
 import java.math.biginteger;
 
@@ -13,9 +14,11 @@ public class secp256k1 {
     private static final x9ecparameters params;
 
     static {
-
         params = secnamedcurves.getbyname("secp256k1");
-        ecparams = new ecdomainparameters(params.getcurve(), params.getg(), params.getn(), params.geth());
+        // same curve, but points do jacobian arithmetic on fixed-width limbs instead of affine biginteger math,
+        // and the generator multiplies with precomputed fixed-base tables
+        secp256k1curve curve = new secp256k1curve();
+        ecparams = new ecdomainparameters(curve, curve.getg(), params.getn(), params.geth());
     }
 
     public static ecdomainparameters params() {
@@ -0,0 +1,27 @@
+package org.moorecoinlab.crypto.ecdsa;
+
+import java.math.biginteger;
+
+/**
+ * one signature to check with {@link keypair#verifybatch(java.util.list)}.
+ */
+public class verificationitem {
+    public final byte[] data;
+    public final byte[] sigbytes;
+    public final byte[] pubbytes;
+
+    /**
+     * @param data the signed bytes, e.g. the signing hash of a transaction
+     * @param sigbytes der encoded signature
+     * @param pubbytes compressed or uncompressed public key
+     */
+    public verificationitem(byte[] data, byte[] sigbytes, byte[] pubbytes) {
+        this.data = data;
+        this.sigbytes = sigbytes;
+        this.pubbytes = pubbytes;
+    }
+
+    public verificationitem(byte[] data, byte[] sigbytes, biginteger pub) {
+        this(data, sigbytes, pub.tobytearray());
+    }
+}
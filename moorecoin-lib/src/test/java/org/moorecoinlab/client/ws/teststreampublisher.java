@@ -0,0 +1,229 @@
+package org.moorecoinlab.client.ws;
+
+import io.netty.buffer.bytebuf;
+import io.netty.buffer.unpooled;
+import io.netty.channel.channel;
+import io.netty.channel.embedded.embeddedchannel;
+import io.netty.util.charsetutil;
+import org.json.jsonobject;
+import org.junit.test;
+
+import java.util.arraylist;
+import java.util.collections;
+import java.util.list;
+import java.util.concurrent.completablefuture;
+import java.util.concurrent.timeunit;
+import java.util.function.consumer;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.assertnotnull;
+import static org.junit.assert.assertnull;
+import static org.junit.assert.asserttrue;
+
+/**
+ * backpressure and overflow policies of the subscription streams, against a stub transport instead of a server.
+ * items are delivered on the calling thread so every step can be checked right after it.
+ */
+public class teststreampublisher {
+
+    /**
+     * hands out embedded channels, answers every command with the given status and remembers what was sent.
+     */
+    static class stubtransport implements streampublisher.transport {
+        final list<embeddedchannel> channels = new arraylist<>();
+        final list<jsonobject> sent = new arraylist<>();
+        consumer<bytebuf> sink;
+        string status = "success";
+        int scheduled = 0;
+
+        @override
+        public completablefuture<channel> open(consumer<bytebuf> sink) {
+            this.sink = sink;
+            embeddedchannel channel = new embeddedchannel();
+            channels.add(channel);
+            return completablefuture.completedfuture(channel);
+        }
+
+        @override
+        public completablefuture<wsresponse> send(channel channel, jsonobject command) {
+            sent.add(command);
+            byte[] reply = ("{\"status\":\"" + status + "\",\"error\":\"stub\"}").getbytes(charsetutil.utf_8);
+            return completablefuture.completedfuture(new wsresponse(reply, 0, 0, null));
+        }
+
+        @override
+        public void schedule(runnable task, long delay, timeunit unit) {
+            scheduled++;
+        }
+
+        void push(string type, int index) {
+            sink.accept(unpooled.copiedbuffer("{\"type\":\"" + type + "\",\"ledger_index\":" + index + "}", charsetutil.utf_8));
+        }
+
+        void push(int from, int to) {
+            for (int i = from; i <= to; i++) {
+                push("ledgerclosed", i);
+            }
+        }
+
+        boolean reading() {
+            return channels.get(channels.size() - 1).config().isautoread();
+        }
+    }
+
+    static class recorder implements flow.subscriber<integer> {
+        final list<integer> items = new arraylist<>();
+        flow.subscription subscription;
+        throwable error;
+
+        @override
+        public void onsubscribe(flow.subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @override
+        public void onnext(integer item) {
+            items.add(item);
+        }
+
+        @override
+        public void onerror(throwable throwable) {
+            error = throwable;
+        }
+
+        @override
+        public void oncomplete() {
+        }
+    }
+
+    private static streampublisher<integer> publisher(stubtransport transport) {
+        jsonobject command = new jsonobject("{\"command\":\"subscribe\",\"streams\":[\"ledger\"]}");
+        return new streampublisher<>(transport, () -> command, collections.singleton("ledgerclosed"),
+                json -> json.getint("ledger_index"), runnable::run);
+    }
+
+    private static recorder subscribe(streampublisher<integer> publisher, int capacity, overflowpolicy policy) {
+        recorder recorder = new recorder();
+        publisher.publisher(capacity, policy).subscribe(recorder);
+        return recorder;
+    }
+
+    @test
+    public void testdeliversondemand() {
+        stubtransport transport = new stubtransport();
+        recorder recorder = subscribe(publisher(transport), 8, overflowpolicy.error);
+        assertequals(1, transport.sent.size());
+        assertequals("subscribe", transport.sent.get(0).getstring("command"));
+
+        transport.push(1, 3);
+        transport.push("transaction", 4);
+        asserttrue(recorder.items.isempty());
+        recorder.subscription.request(2);
+        assertequals(list(1, 2), recorder.items);
+        recorder.subscription.request(5);
+        assertequals(list(1, 2, 3), recorder.items);
+        transport.push(5, 5);
+        assertequals(list(1, 2, 3, 5), recorder.items);
+    }
+
+    @test
+    public void testpausereading() {
+        stubtransport transport = new stubtransport();
+        recorder recorder = subscribe(publisher(transport), 4, overflowpolicy.pause_reading);
+        transport.push(1, 4);
+        asserttrue(transport.reading());
+        transport.push(5, 6);
+        assertfalse(transport.reading());
+
+        // frames already read still arrive, nothing is lost while the channel is paused
+        recorder.subscription.request(3);
+        assertequals(list(1, 2, 3), recorder.items);
+        assertfalse(transport.reading());
+        // reading resumes once the buffer is down to half
+        recorder.subscription.request(1);
+        asserttrue(transport.reading());
+        recorder.subscription.request(long.max_value);
+        assertequals(list(1, 2, 3, 4, 5, 6), recorder.items);
+        assertnull(recorder.error);
+    }
+
+    @test
+    public void testdropoldest() {
+        stubtransport transport = new stubtransport();
+        recorder recorder = subscribe(publisher(transport), 2, overflowpolicy.drop_oldest);
+        transport.push(1, 5);
+        asserttrue(transport.reading());
+        recorder.subscription.request(long.max_value);
+        assertequals(list(4, 5), recorder.items);
+    }
+
+    @test
+    public void testdroplatest() {
+        stubtransport transport = new stubtransport();
+        recorder recorder = subscribe(publisher(transport), 2, overflowpolicy.drop_latest);
+        transport.push(1, 5);
+        recorder.subscription.request(long.max_value);
+        assertequals(list(1, 2), recorder.items);
+    }
+
+    @test
+    public void testoverflowerror() {
+        stubtransport transport = new stubtransport();
+        recorder recorder = subscribe(publisher(transport), 2, overflowpolicy.error);
+        transport.push(1, 3);
+        assertnotnull(recorder.error);
+        asserttrue(recorder.items.isempty());
+        // the only subscriber is gone, so is the stream channel
+        assertfalse(transport.channels.get(0).isopen());
+    }
+
+    @test
+    public void testsharedchannel() {
+        stubtransport transport = new stubtransport();
+        streampublisher<integer> publisher = publisher(transport);
+        recorder fast = subscribe(publisher, 2, overflowpolicy.pause_reading);
+        recorder slow = subscribe(publisher, 2, overflowpolicy.pause_reading);
+        assertequals(1, transport.channels.size());
+        assertequals(1, transport.sent.size());
+
+        fast.subscription.request(long.max_value);
+        transport.push(1, 3);
+        assertequals(list(1, 2, 3), fast.items);
+        // the slow subscriber holds back the shared channel until it cancels
+        assertfalse(transport.reading());
+        slow.subscription.cancel();
+        asserttrue(transport.reading());
+        transport.push(4, 4);
+        assertequals(list(1, 2, 3, 4), fast.items);
+
+        fast.subscription.cancel();
+        assertfalse(transport.channels.get(0).isopen());
+        assertequals(0, transport.scheduled);
+    }
+
+    @test
+    public void testsubscriberejected() {
+        stubtransport transport = new stubtransport();
+        transport.status = "error";
+        recorder recorder = subscribe(publisher(transport), 2, overflowpolicy.drop_oldest);
+        assertnotnull(recorder.error);
+        assertfalse(transport.channels.get(0).isopen());
+        assertequals(0, transport.scheduled);
+    }
+
+    @test
+    public void testreconnect() {
+        stubtransport transport = new stubtransport();
+        recorder recorder = subscribe(publisher(transport), 2, overflowpolicy.drop_oldest);
+        transport.channels.get(0).close();
+        assertequals(1, transport.scheduled);
+        assertnull(recorder.error);
+    }
+
+    private static list<integer> list(integer... items) {
+        list<integer> list = new arraylist<>();
+        collections.addall(list, items);
+        return list;
+    }
+}
@@ -0,0 +1,103 @@
+package org.moorecoinlab.client.ws;
+
+import org.junit.test;
+
+import java.net.uri;
+import java.util.arrays;
+import java.util.list;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertsame;
+import static org.junit.assert.asserttrue;
+
+/**
+ * server selection of the pool, against stub endpoints that are always connected instead of servers.
+ */
+public class testwspool {
+
+    static class stubendpoint extends wspool.endpoint {
+        final long latencynanos;
+        int picked = 0;
+
+        /**
+         * @param latencynanos the time to answer a request, 0 for a server that never answers
+         */
+        stubendpoint(string host, long latencynanos) {
+            super(uri.create("ws://" + host + ":6006"));
+            this.latencynanos = latencynanos;
+        }
+
+        @override
+        boolean hasactivechannel() {
+            return true;
+        }
+
+        /**
+         * an answered request is done before the next one is picked, an unanswered one stays outstanding.
+         */
+        void request() {
+            picked++;
+            if (latencynanos == 0) {
+                outstanding.incrementandget();
+            } else {
+                success(latencynanos);
+            }
+        }
+    }
+
+    static void run(list<wspool.endpoint> endpoints, wspool.strategy strategy, int requests) {
+        for (int i = 0; i < requests; i++) {
+            ((stubendpoint) wspool.select(endpoints, strategy, true)).request();
+        }
+    }
+
+    @test
+    public void teststalledendpoint() {
+        stubendpoint answering = new stubendpoint("answering", 2000000);
+        stubendpoint stalled = new stubendpoint("stalled", 0);
+        run(arrays.<wspool.endpoint>aslist(stalled, answering), wspool.strategy.ewma, 1000);
+
+        // only the picks before its outstanding requests outweigh the answering server's latency
+        asserttrue(stalled.picked <= 1);
+        assertequals(1000, stalled.picked + answering.picked);
+        assertequals(stalled.picked, stalled.outstanding.get());
+    }
+
+    @test
+    public void testnosamples() {
+        stubendpoint first = new stubendpoint("first", 0);
+        stubendpoint second = new stubendpoint("second", 0);
+        list<wspool.endpoint> endpoints = arrays.<wspool.endpoint>aslist(first, second);
+
+        // nothing answered yet, the requests are spread by outstanding count
+        run(endpoints, wspool.strategy.ewma, 10);
+        assertequals(5, first.picked);
+        assertequals(5, second.picked);
+
+        // the first answer seeds the other server with its latency
+        first.outstanding.set(0);
+        second.outstanding.set(0);
+        first.success(1000000);
+        assertsame(first, wspool.select(endpoints, wspool.strategy.ewma, true));
+        first.outstanding.set(1);
+        assertsame(second, wspool.select(endpoints, wspool.strategy.ewma, true));
+    }
+
+    @test
+    public void testleastoutstanding() {
+        stubendpoint slow = new stubendpoint("slow", 9000000);
+        stubendpoint fast = new stubendpoint("fast", 1000000);
+        list<wspool.endpoint> endpoints = arrays.<wspool.endpoint>aslist(slow, fast);
+        slow.success(slow.latencynanos);
+        fast.success(fast.latencynanos);
+
+        // latency does not count, the first of the servers with no outstanding request is picked
+        assertsame(slow, wspool.select(endpoints, wspool.strategy.least_outstanding, true));
+        slow.outstanding.incrementandget();
+        assertsame(fast, wspool.select(endpoints, wspool.strategy.least_outstanding, true));
+        slow.healthy = false;
+        fast.outstanding.addandget(5);
+        assertsame(fast, wspool.select(endpoints, wspool.strategy.least_outstanding, true));
+        assertsame(slow, wspool.select(endpoints, wspool.strategy.least_outstanding, false));
+    }
+}
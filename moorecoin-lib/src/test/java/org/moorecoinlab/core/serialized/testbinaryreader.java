@@ -0,0 +1,214 @@
+package org.moorecoinlab.core.serialized;
+
+import org.moorecoinlab.core.accountid;
+import org.moorecoinlab.core.amount;
+import org.moorecoinlab.core.currency;
+import org.moorecoinlab.core.pathset;
+import org.moorecoinlab.core.stobject;
+import org.moorecoinlab.core.fields.field;
+import org.moorecoinlab.core.uint.uint32;
+import org.junit.test;
+
+import java.math.bigdecimal;
+import java.nio.bytebuffer;
+import java.util.arraylist;
+import java.util.list;
+
+import static org.junit.assert.assertarrayequals;
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.asserttrue;
+
+/**
+ * the in place reader and scanner against binaryparser, on transaction and metadata blobs.
+ */
+public class testbinaryreader {
+
+    static accountid account(int first) {
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < 20; i++) {
+            bytes[i] = (byte) (first + i);
+        }
+        return accountid.translate.frombytes(bytes);
+    }
+
+    /**
+     * a signed payment through two paths.
+     */
+    static byte[] transaction() {
+        stobject tx = stobject.fromjson("{" +
+                "\"transactiontype\": \"payment\"," +
+                "\"flags\": 2147614720," +
+                "\"sequence\": 103929," +
+                "\"lastledgersequence\": 3225400," +
+                "\"fee\": \"12\"," +
+                "\"signingpubkey\": \"028472865af4cb32aa285834b57576b7290aa8c31b459047db27e16f418d6a7166\"," +
+                "\"txnsignature\": \"304502202abe08d5e78d1e74a4c18f2714f64e87b8bd57444afa5733109eb3c077077520022100db335ee97386e4c0591cac024d50e9230d8f171eeb901b5e5e4bd6d1e0aef98c\"," +
+                "\"memos\": [{\"memo\": {\"memotype\": \"0a0b\", \"memodata\": \"0c0d0e\"}}]" +
+                "}");
+        tx.put(field.account, account(1));
+        tx.put(field.destination, account(21));
+        tx.put(field.amount, new amount(new bigdecimal("1694.768"), currency.fromstring("usd"), account(41)));
+        tx.put(field.sendmax, amount.fromstring("98957503520"));
+
+        pathset paths = new pathset();
+        for (int i = 0; i < 2; i++) {
+            pathset.path path = new pathset.path();
+            pathset.hop hop = new pathset.hop();
+            hop.account = account(60 + i);
+            path.add(hop);
+            hop = new pathset.hop();
+            hop.currency = currency.fromstring("cny");
+            hop.issuer = account(80 + i);
+            path.add(hop);
+            paths.add(path);
+        }
+        tx.put(field.paths, paths);
+        return tx.tobytes();
+    }
+
+    static byte[] meta() {
+        stobject meta = stobject.fromjson("{\"affectednodes\": [" +
+                "{\"modifiednode\": {\"ledgerentrytype\": \"accountroot\", \"ledgerindex\": \"cf23a37e39a571a0f22ec3e97eb0169936b520c3088963f16c5ee4ac59130b1b\"," +
+                "  \"finalfields\": {\"balance\": \"106861218302\", \"flags\": 0, \"ownercount\": 9, \"sequence\": 103930}," +
+                "  \"previousfields\": {\"balance\": \"106861218312\", \"sequence\": 103929}," +
+                "  \"previoustxnid\": \"de15f43f4a73c4f6cb1c334d9e47bde84467c0902796bb81d4924885d1c11e6d\", \"previoustxnlgrseq\": 3225338}}," +
+                "{\"creatednode\": {\"ledgerentrytype\": \"directorynode\", \"ledgerindex\": \"62a3338caf2e1bee510fc33de1863c56948e962cce173ca55c14be8a20d7f000\"," +
+                "  \"newfields\": {\"exchangerate\": \"5c14be8a20d7f000\", \"rootindex\": \"62a3338caf2e1bee510fc33de1863c56948e962cce173ca55c14be8a20d7f000\"," +
+                "    \"takergetscurrency\": \"000000000000000000000000494c530000000000\", \"takergetsissuer\": \"92d705968936c419ce614bf264b5eeb1cea47ff4\"}}}," +
+                "{\"deletednode\": {\"ledgerentrytype\": \"offer\", \"ledgerindex\": \"3596ce72c902bafaab56cc486acaf9b4afc67cf7cadbb81a4aa9cbdc8c5cb1aa\"," +
+                "  \"finalfields\": {\"sequence\": 5, \"takerpays\": \"1000\", \"ownernode\": \"000000000000000e\"}}}" +
+                "], \"transactionindex\": 3, \"transactionresult\": \"tessuccess\"}");
+        return meta.tobytes();
+    }
+
+    /**
+     * field, start and end of each top level value, as binaryparser parses them.
+     */
+    static list<string> parsed(byte[] blob, boolean skip) {
+        list<string> values = new arraylist<string>();
+        binaryparser parser = new binaryparser(blob);
+        while (!parser.end()) {
+            field field = parser.readfield();
+            if (skip) {
+                int start = field.isvlencoded() ? -1 : parser.pos();
+                parser.skipvalue(field);
+                values.add(field + " " + start + " " + parser.pos());
+            } else {
+                integer hint = field.isvlencoded() ? parser.readvllength() : null;
+                int start = field.isvlencoded() ? -1 : parser.pos();
+                stobject.translators.forfield(field).fromparser(parser, hint);
+                values.add(field + " " + start + " " + parser.pos());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * the same as scanned in place by stobjectscanner.
+     */
+    static list<string> scanned(binaryreader reader) {
+        final list<string> values = new arraylist<string>();
+        stobjectscanner.scan(reader, new stobjectscanner.visitor() {
+            @override
+            public boolean onfield(field field, binaryreader reader, int length) {
+                int start = reader.pos();
+                values.add(field + " " + (field.isvlencoded() ? -1 : start) + " " + (start + length));
+                return true;
+            }
+        });
+        return values;
+    }
+
+    static bytebuffer direct(byte[] blob) {
+        bytebuffer buffer = bytebuffer.allocatedirect(blob.length + 3);
+        buffer.put(new byte[]{1, 2, 3});
+        buffer.put(blob);
+        buffer.flip();
+        buffer.position(3);
+        return buffer;
+    }
+
+    @test
+    public void testscanmatchesparser() {
+        binaryreader reader = new binaryreader();
+        for (byte[] blob : new byte[][]{transaction(), meta()}) {
+            list<string> expected = parsed(blob, false);
+            assertequals(expected, parsed(blob, true));
+            // one reader reset onto each blob, on an array and off heap
+            assertequals(expected, scanned(reader.reset(blob)));
+            assertequals(expected, scanned(reader.reset(direct(blob))));
+        }
+    }
+
+    @test
+    public void testvalues() {
+        byte[] tx = transaction();
+        final stobject parsed = stobject.translate.frombytes(tx);
+        final list<field> seen = new arraylist<field>();
+        stobjectscanner.scan(new binaryreader(direct(tx)), new stobjectscanner.visitor() {
+            @override
+            public boolean onfield(field field, binaryreader reader, int length) {
+                seen.add(field);
+                if (field == field.memos) {
+                    // handed whole, through its end marker
+                    return true;
+                }
+                byte[] value = new byte[length];
+                reader.readbytes(value, 0, length);
+                assertarrayequals(field.tostring(), parsed.get(field).tobytes(), value);
+                return true;
+            }
+        });
+        assertequals(parsed.size(), seen.size());
+        asserttrue(seen.contains(field.paths));
+
+        binaryreader reader = new binaryreader(tx);
+        final long[] sequence = {0};
+        final long[] amount = {0};
+        stobjectscanner.scan(reader, new stobjectscanner.visitor() {
+            @override
+            public boolean onfield(field field, binaryreader reader, int length) {
+                if (field == field.sequence) {
+                    sequence[0] = reader.readuint32();
+                } else if (field == field.sendmax) {
+                    amount[0] = reader.readamount();
+                } else if (field == field.amount) {
+                    long value = reader.readamount();
+                    assertfalse(binaryreader.amountisnative(value));
+                    asserttrue(binaryreader.amountispositive(value));
+                    assertequals(0, new bigdecimal("1694.768").compareto(bigdecimal.valueof(
+                            binaryreader.amountmantissa(value), -binaryreader.amountexponent(value))));
+                }
+                return true;
+            }
+        });
+        assertequals(((uint32) parsed.get(field.sequence)).longvalue(), sequence[0]);
+        asserttrue(binaryreader.amountisnative(amount[0]));
+        assertequals(98957503520l, binaryreader.amountmantissa(amount[0]));
+    }
+
+    @test
+    public void testskipnested() {
+        byte[] meta = meta();
+        final list<string> events = new arraylist<string>();
+        stobjectscanner.scan(new binaryreader(meta), new stobjectscanner.visitor() {
+            @override
+            public boolean onfield(field field, binaryreader reader, int length) {
+                if (field == field.sequence) {
+                    events.add("sequence " + reader.readuint32());
+                }
+                return true;
+            }
+
+            @override
+            public boolean enter(field field) {
+                // the previous fields are skipped whole
+                return field != field.previousfields;
+            }
+        });
+        assertequals(2, events.size());
+        assertequals("sequence 103930", events.get(0));
+        assertequals("sequence 5", events.get(1));
+    }
+}
@@ -0,0 +1,137 @@
+package org.moorecoinlab.core.types.shamap;
+
+import org.moorecoinlab.core.accountid;
+import org.moorecoinlab.core.amount;
+import org.moorecoinlab.core.currency;
+import org.moorecoinlab.core.pathset;
+import org.moorecoinlab.core.stobject;
+import org.moorecoinlab.core.fields.field;
+import org.moorecoinlab.core.hash.hash256;
+import org.moorecoinlab.core.types.known.sle.ledgerentry;
+import org.moorecoinlab.core.uint.uint32;
+import org.junit.test;
+
+import java.math.bigdecimal;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.assertnotnull;
+import static org.junit.assert.assertnull;
+import static org.junit.assert.asserttrue;
+
+/**
+ * ledger entries kept as bytes: fields read without parsing, hashing and reading while modified.
+ */
+public class testledgerentryitem {
+    static final hash256 index = hash256.fromhex("cf23a37e39a571a0f22ec3e97eb0169936b520c3088963f16c5ee4ac59130b1b");
+
+    static accountid account(int first) {
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < 20; i++) {
+            bytes[i] = (byte) (first + i);
+        }
+        return accountid.translate.frombytes(bytes);
+    }
+
+    /**
+     * an entry with a field of every type, nested objects and arrays included.
+     */
+    static ledgerentry entry() {
+        ledgerentry le = (ledgerentry) stobject.fromjson("{" +
+                "\"ledgerentrytype\": \"accountroot\"," +
+                "\"flags\": 131072," +
+                "\"sequence\": 103930," +
+                "\"closeresolution\": 10," +
+                "\"ownernode\": \"000000000000000e\"," +
+                "\"emailhash\": \"98b4375e1d753e5b91627516f6d70977\"," +
+                "\"takergetscurrency\": \"000000000000000000000000494c530000000000\"," +
+                "\"previoustxnid\": \"de15f43f4a73c4f6cb1c334d9e47bde84467c0902796bb81d4924885d1c11e6d\"," +
+                "\"balance\": \"106861218302\"," +
+                "\"domain\": \"6578616d706c652e636f6d\"," +
+                "\"indexes\": [\"3596ce72c902bafaab56cc486acaf9b4afc67cf7cadbb81a4aa9cbdc8c5cb1aa\"," +
+                "              \"62a3338caf2e1bee510fc33de1863c56948e962cce173ca55c14be8a20d7f000\"]," +
+                "\"newfields\": {\"sequence\": 5, \"ownercount\": 2}," +
+                "\"memos\": [{\"memo\": {\"memotype\": \"0a0b\", \"memodata\": \"0c\"}}, {\"memo\": {\"memodata\": \"0d\"}}]" +
+                "}");
+        le.put(field.account, account(1));
+        le.put(field.takergets, new amount(new bigdecimal("1694.768"), currency.fromstring("ils"), account(9)));
+
+        pathset paths = new pathset();
+        pathset.path path = new pathset.path();
+        pathset.hop hop = new pathset.hop();
+        hop.account = account(20);
+        path.add(hop);
+        hop = new pathset.hop();
+        hop.currency = currency.fromstring("usd");
+        hop.issuer = account(40);
+        path.add(hop);
+        paths.add(path);
+        paths.add(new pathset.path());
+        paths.get(1).add(hop);
+        le.put(field.paths, paths);
+        le.index(index);
+        return le;
+    }
+
+    @test
+    public void testgeteveryfieldtype() {
+        ledgerentry le = entry();
+        ledgerentryitem item = new ledgerentryitem(index, le.tobytes());
+        int fields = 0;
+        for (field field : le) {
+            if (!field.isserialized()) {
+                continue;
+            }
+            assertnotnull(field.tostring(), item.get(field));
+            assertequals(field.tostring(), le.get(field).tohex(), item.get(field).tohex());
+            asserttrue(item.has(field));
+            fields++;
+        }
+        assertequals(16, fields);
+        assertnull(item.get(field.takerpaysissuer));
+        assertfalse(item.has(field.highnode));
+        assertequals(index, item.index());
+    }
+
+    @test
+    public void testhashofbytes() {
+        ledgerentry le = entry();
+        shamapleaf parsed = new shamapleaf(index, new ledgerentryitem(le));
+        shamapleaf unparsed = new shamapleaf(index, new ledgerentryitem(index, le.tobytes()));
+        assertequals(parsed.hash(), unparsed.hash());
+        assertequals(parsed.hash(), parsed.createhash());
+
+        // written to and folded back into bytes
+        ledgerentryitem item = new ledgerentryitem(index, le.tobytes());
+        item.entry().put(field.sequence, new uint32(103931));
+        le.put(field.sequence, new uint32(103931));
+        assertequals(new shamapleaf(index, new ledgerentryitem(le)).hash(), new shamapleaf(index, item).hash());
+        assertequals(new uint32(103931), item.get(field.sequence));
+    }
+
+    @test
+    public void testreadentryisacopy() {
+        ledgerentryitem item = new ledgerentryitem(index, entry().tobytes());
+        ledgerentry unparsed = item.readentry();
+        assertequals(index, unparsed.index());
+
+        ledgerentry writable = item.entry();
+        writable.put(field.sequence, new uint32(7));
+        ledgerentry read = item.readentry();
+        asserttrue(read != writable);
+        assertequals(index, read.index());
+        assertequals(new uint32(7), read.get(field.sequence));
+
+        // neither sees the changes of the other
+        writable.put(field.sequence, new uint32(8));
+        assertequals(new uint32(7), read.get(field.sequence));
+        read.put(field.sequence, new uint32(9));
+        assertequals(new uint32(8), item.get(field.sequence));
+        assertequals(new uint32(103930), unparsed.get(field.sequence));
+
+        // a copy doesn't share the entry being modified
+        ledgerentryitem copy = (ledgerentryitem) item.copy();
+        writable.put(field.sequence, new uint32(10));
+        assertequals(new uint32(8), copy.get(field.sequence));
+    }
+}
@@ -0,0 +1,184 @@
+package org.moorecoinlab.core.types.shamap;
+
+import org.moorecoinlab.core.hash.hash256;
+import org.junit.test;
+
+import java.io.file;
+import java.nio.file.files;
+import java.util.arraylist;
+import java.util.list;
+import java.util.random;
+import java.util.concurrent.concurrenthashmap;
+import java.util.concurrent.atomic.atomicreference;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertnotnull;
+import static org.junit.assert.assertnull;
+import static org.junit.assert.asserttrue;
+
+/**
+ * storing trees into a nodestore and reading them back.
+ */
+public class testnodestore {
+
+    static class memorybackend implements nodestore.keyvaluebackend {
+        final concurrenthashmap<hash256, byte[]> map = new concurrenthashmap<hash256, byte[]>();
+
+        @override
+        public void put(hash256 key, byte[] content) {
+            map.putifabsent(key, content);
+        }
+
+        @override
+        public byte[] get(hash256 key) {
+            return map.get(key);
+        }
+    }
+
+    static hash256 random(random random) {
+        byte[] bytes = new byte[32];
+        random.nextbytes(bytes);
+        return new hash256(bytes);
+    }
+
+    static bytesitem item(random random) {
+        byte[] bytes = new byte[10 + random.nextint(60)];
+        random.nextbytes(bytes);
+        return new bytesitem(bytes);
+    }
+
+    static shamap tree(random random, list<hash256> keys, int size) {
+        shamap tree = new shamap();
+        for (int i = 0; i < size; i++) {
+            hash256 key = random(random);
+            keys.add(key);
+            tree.additem(key, item(random));
+        }
+        return tree;
+    }
+
+    static int count(shamapinner tree) {
+        final int[] count = {0};
+        tree.walkleaves(new leafwalker() {
+            @override
+            public void onleaf(shamapleaf leaf) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * drops the children read in so far, the way the collector may.
+     */
+    static void drop(shamapinner inner) {
+        if (inner.loaded != null) {
+            for (int i = 0; i < 16; i++) {
+                shamapnode child = inner.loaded.get(i) == null ? null : inner.loaded.get(i).get();
+                if (child != null && child.isinner()) {
+                    drop(child.asinner());
+                }
+                inner.loaded.set(i, null);
+            }
+        }
+    }
+
+    @test
+    public void testloadlazily() throws exception {
+        random random = new random(12);
+        list<hash256> keys = new arraylist<hash256>();
+        shamap tree = tree(random, keys, 3000);
+        hash256 hash = tree.hash();
+        file directory = files.createtempdirectory("nodestore").tofile();
+        segmentedlogbackend backend = testsegmentedlogbackend.open(directory, 1 << 16);
+        // the snapshot is stored as it is, the tree stays on the heap to compare with
+        assertequals(hash, new nodestore(backend).store(tree.snapshot()));
+        backend.close();
+
+        backend = testsegmentedlogbackend.open(directory, 1 << 16);
+        nodestore store = new nodestore(backend);
+        shamap loaded = store.load(hash, new shamap());
+        assertequals(hash, loaded.hash());
+        // nothing but the root is read
+        for (int i = 0; i < 16; i++) {
+            assertnull(loaded.branches[i]);
+            assertnull(loaded.loaded.get(i));
+        }
+        assertequals(3000, count(loaded));
+        for (hash256 key : keys) {
+            assertequals(tree.getleaf(key).hash(), loaded.getleaf(key).hash());
+        }
+        drop(loaded);
+        assertequals(3000, count(loaded));
+
+        // a modified copy stores only what changed, the old root stays readable
+        shamap copy = loaded.copy();
+        drop(loaded);
+        for (int i = 0; i < 100; i++) {
+            asserttrue(copy.removeleaf(keys.get(i)));
+            tree.removeleaf(keys.get(i));
+        }
+        hash256 modified = store.store(copy);
+        assertequals(tree.hash(), modified);
+        backend.close();
+
+        backend = testsegmentedlogbackend.open(directory, 1 << 16);
+        store = new nodestore(backend);
+        shamap reopened = store.load(modified, new shamap());
+        assertequals(2900, count(reopened));
+        reopened.invalidate();
+        drop(reopened);
+        assertequals(modified, reopened.createhash());
+        assertequals(3000, count(store.load(hash, new shamap())));
+        assertnotnull(store.get(hash));
+        backend.close();
+        testsegmentedlogbackend.delete(directory);
+    }
+
+    @test
+    public void teststorewhilesnapshotwalked() throws exception {
+        random random = new random(13);
+        list<hash256> keys = new arraylist<hash256>();
+        shamap tree = tree(random, keys, 5000);
+        final shamap snapshot = tree.snapshot();
+        final hash256 hash = snapshot.hash();
+        for (int i = 0; i < 100; i++) {
+            tree.updateitem(keys.get(i), item(random));
+        }
+
+        final atomicreference<throwable> failure = new atomicreference<throwable>();
+        thread walker = new thread(new runnable() {
+            @override
+            public void run() {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        assertequals(5000, count(snapshot));
+                    }
+                } catch (throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        walker.start();
+        nodestore store = new nodestore(new memorybackend());
+        hash256 stored = store.store(tree);
+        walker.join();
+        assertnull(failure.get());
+        assertequals(tree.hash(), stored);
+
+        // none of the nodes the snapshot shares with the tree were changed, they all hold their children still
+        snapshot.walktree(new treewalker() {
+            @override
+            public void oninner(shamapinner inner) {
+                assertnull(inner.stored);
+            }
+
+            @override
+            public void onleaf(shamapleaf leaf) {
+            }
+        });
+        snapshot.invalidate();
+        assertequals(hash, snapshot.hash());
+        assertequals(stored, store.load(stored, new shamap()).hash());
+    }
+}
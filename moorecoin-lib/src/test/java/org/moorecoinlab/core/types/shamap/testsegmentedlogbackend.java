@@ -0,0 +1,175 @@
+package org.moorecoinlab.core.types.shamap;
+
+import org.moorecoinlab.core.hash.hash256;
+import org.junit.test;
+
+import java.io.file;
+import java.io.randomaccessfile;
+import java.nio.file.files;
+import java.util.arraylist;
+import java.util.list;
+import java.util.random;
+
+import static org.junit.assert.assertarrayequals;
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.assertnull;
+import static org.junit.assert.asserttrue;
+
+/**
+ * the on disk backend of the nodestore: reopening, compaction and records torn by a crash.
+ */
+public class testsegmentedlogbackend {
+    // key, length and crc of a record
+    private static final int header = 40;
+
+    static byte[] value(random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextbytes(bytes);
+        return bytes;
+    }
+
+    static segmentedlogbackend open(file directory, int segmentsize) {
+        return new segmentedlogbackend(directory, segmentsize, 1 << 16, 50);
+    }
+
+    static int segments(file directory) {
+        return directory.list().length;
+    }
+
+    static void delete(file directory) {
+        for (file file : directory.listfiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @test
+    public void testreopen() throws exception {
+        file directory = files.createtempdirectory("segments").tofile();
+        random random = new random(12);
+        list<hash256> keys = new arraylist<hash256>();
+        list<byte[]> values = new arraylist<byte[]>();
+
+        segmentedlogbackend backend = open(directory, 4096);
+        for (int i = 0; i < 500; i++) {
+            keys.add(testnodestore.random(random));
+            values.add(value(random, 1 + random.nextint(200)));
+            backend.put(keys.get(i), values.get(i));
+        }
+        // a key is only written once
+        backend.put(keys.get(0), new byte[]{1});
+        asserttrue(segments(directory) > 1);
+        asserttrue(backend.remove(keys.get(1)));
+        assertfalse(backend.remove(keys.get(1)));
+        backend.close();
+
+        backend = open(directory, 4096);
+        assertequals(499, backend.size());
+        assertnull(backend.get(keys.get(1)));
+        assertfalse(backend.has(keys.get(1)));
+        for (int i = 2; i < keys.size(); i++) {
+            assertarrayequals(values.get(i), backend.get(keys.get(i)));
+        }
+        assertarrayequals(values.get(0), backend.get(keys.get(0)));
+        backend.close();
+        delete(directory);
+    }
+
+    @test
+    public void testcompaction() throws exception {
+        file directory = files.createtempdirectory("segments").tofile();
+        random random = new random(12);
+        list<hash256> keys = new arraylist<hash256>();
+        list<byte[]> values = new arraylist<byte[]>();
+
+        // no background sync, only compaction itself puts the copies on disk
+        segmentedlogbackend backend = new segmentedlogbackend(directory, 4096, 1 << 16, 3600 * 1000);
+        for (int i = 0; i < 400; i++) {
+            keys.add(testnodestore.random(random));
+            values.add(value(random, 100));
+            backend.put(keys.get(i), values.get(i));
+        }
+        int before = segments(directory);
+        // most of each segment is garbage afterwards
+        for (int i = 0; i < keys.size(); i++) {
+            if (i % 4 != 0) {
+                backend.remove(keys.get(i));
+            }
+        }
+        backend.compact();
+        asserttrue(segments(directory) < before);
+        assertequals(100, backend.size());
+        for (int i = 0; i < keys.size(); i += 4) {
+            assertarrayequals(values.get(i), backend.get(keys.get(i)));
+        }
+
+        // read back from the files while the compacted backend isn't synced nor closed
+        segmentedlogbackend reopened = open(directory, 4096);
+        assertequals(100, reopened.size());
+        for (int i = 0; i < keys.size(); i += 4) {
+            assertarrayequals(values.get(i), reopened.get(keys.get(i)));
+        }
+        reopened.close();
+        backend.close();
+
+        // removed keys stay removed, even with some tombstones compacted away
+        backend = open(directory, 4096);
+        assertequals(100, backend.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (i % 4 == 0) {
+                assertarrayequals(values.get(i), backend.get(keys.get(i)));
+            } else {
+                assertnull(backend.get(keys.get(i)));
+            }
+        }
+        backend.close();
+        delete(directory);
+    }
+
+    @test
+    public void testtorntail() throws exception {
+        file directory = files.createtempdirectory("segments").tofile();
+        random random = new random(12);
+        list<hash256> keys = new arraylist<hash256>();
+        list<byte[]> values = new arraylist<byte[]>();
+
+        segmentedlogbackend backend = open(directory, 1 << 16);
+        int last = 0;
+        for (int i = 0; i < 10; i++) {
+            keys.add(testnodestore.random(random));
+            values.add(value(random, 50));
+            backend.put(keys.get(i), values.get(i));
+            if (i < 9) {
+                last += header + 50;
+            }
+        }
+        backend.close();
+
+        // a crash in the middle of writing the last record
+        randomaccessfile segment = new randomaccessfile(directory.listfiles()[0], "rw");
+        segment.seek(last + header + 10);
+        segment.write(~segment.read() & 0xff);
+        segment.close();
+
+        backend = open(directory, 1 << 16);
+        assertequals(9, backend.size());
+        assertnull(backend.get(keys.get(9)));
+        for (int i = 0; i < 9; i++) {
+            assertarrayequals(values.get(i), backend.get(keys.get(i)));
+        }
+        // the torn record is written over
+        backend.put(keys.get(9), values.get(9));
+        hash256 key = testnodestore.random(random);
+        byte[] value = value(random, 20);
+        backend.put(key, value);
+        backend.close();
+
+        backend = open(directory, 1 << 16);
+        assertequals(11, backend.size());
+        assertarrayequals(values.get(9), backend.get(keys.get(9)));
+        assertarrayequals(value, backend.get(key));
+        backend.close();
+        delete(directory);
+    }
+}
@@ -0,0 +1,239 @@
+package org.moorecoinlab.core.types.shamap;
+
+import org.moorecoinlab.core.hash.hash256;
+import org.junit.test;
+
+import java.util.arraylist;
+import java.util.list;
+import java.util.random;
+import java.util.treemap;
+import java.util.treeset;
+import java.util.concurrent.callable;
+import java.util.concurrent.executorservice;
+import java.util.concurrent.executors;
+import java.util.concurrent.future;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.assertsame;
+import static org.junit.assert.asserttrue;
+import static org.junit.assert.fail;
+
+/**
+ * snapshots of a tree and the changes between two trees.
+ */
+public class testshamapsnapshot {
+
+    static hash256 key(string hexprefix) {
+        stringbuilder hex = new stringbuilder(hexprefix);
+        while (hex.length() < 64) {
+            hex.append('0');
+        }
+        return hash256.fromhex(hex.tostring());
+    }
+
+    static bytesitem item(int value) {
+        return new bytesitem(new byte[]{(byte) value, 1, 2, 3});
+    }
+
+    static list<string> changes(shamapinner one, shamapinner two) {
+        list<string> changes = new arraylist<string>();
+        shamapdiffiterator iterator = shamapdiff.changes(one, two);
+        while (iterator.hasnext()) {
+            shamapdiffiterator.change change = iterator.next();
+            changes.add(change.type + " " + change.index.tohex().substring(0, 4));
+        }
+        return changes;
+    }
+
+    static treemap<hash256, hash256> leaves(shamapinner tree) {
+        final treemap<hash256, hash256> leaves = new treemap<hash256, hash256>();
+        tree.walkleaves(new leafwalker() {
+            @override
+            public void onleaf(shamapleaf leaf) {
+                leaves.put(leaf.index, leaf.hash());
+            }
+        });
+        return leaves;
+    }
+
+    @test
+    public void testsnapshotisreadonly() {
+        shamap tree = new shamap();
+        tree.additem(key("10"), item(1));
+        shamap snapshot = tree.snapshot();
+        asserttrue(snapshot.issnapshot());
+        assertfalse(tree.issnapshot());
+        assertsame(snapshot, snapshot.snapshot());
+
+        try {
+            snapshot.additem(key("20"), item(2));
+            fail("added to a snapshot");
+        } catch (unsupportedoperationexception expected) {
+        }
+        try {
+            snapshot.updateitem(key("10"), item(2));
+            fail("updated a snapshot");
+        } catch (unsupportedoperationexception expected) {
+        }
+        try {
+            snapshot.removeleaf(key("10"));
+            fail("removed from a snapshot");
+        } catch (unsupportedoperationexception expected) {
+        }
+        // a copy of a snapshot can be modified
+        shamap copy = snapshot.copy();
+        asserttrue(copy.additem(key("20"), item(2)));
+        assertequals(1, leaves(snapshot).size());
+    }
+
+    @test
+    public void testsnapshotunchangedbywrites() {
+        random random = new random(14);
+        shamap tree = new shamap();
+        list<hash256> keys = new arraylist<hash256>();
+        for (int i = 0; i < 2000; i++) {
+            hash256 key = testnodestore.random(random);
+            keys.add(key);
+            tree.additem(key, testnodestore.item(random));
+        }
+        shamap snapshot = tree.snapshot();
+        hash256 hash = snapshot.hash();
+        treemap<hash256, hash256> before = leaves(snapshot);
+
+        for (int i = 0; i < 100; i++) {
+            tree.updateitem(keys.get(i), testnodestore.item(random));
+            tree.removeleaf(keys.get(1000 + i));
+            tree.additem(testnodestore.random(random), testnodestore.item(random));
+        }
+        assertequals(before, leaves(snapshot));
+        snapshot.invalidate();
+        assertequals(hash, snapshot.hash());
+        assertfalse(hash.equals(tree.hash()));
+    }
+
+    @test
+    public void testdiffleafagainstinner() {
+        shamap tree = new shamap();
+        tree.additem(key("10"), item(1));
+        tree.additem(key("50"), item(5));
+        shamap snapshot = tree.snapshot();
+
+        // slot 1 turns from a leaf into an inner holding the same leaf and a new one
+        tree.additem(key("18"), item(2));
+        assertequals(list("added 1800"), changes(snapshot, tree));
+        assertequals(list("deleted 1800"), changes(tree, snapshot));
+
+        // and the other way: the old leaf is modified, a new one added below it
+        shamap modified = snapshot.copy();
+        modified.updateitem(key("10"), item(3));
+        modified.additem(key("19"), item(4));
+        assertequals(list("modified 1000", "added 1900"), changes(snapshot, modified));
+        assertequals(list("modified 1000", "deleted 1900"), changes(modified, snapshot));
+    }
+
+    @test
+    public void testdiffleafagainstleaf() {
+        shamap one = new shamap();
+        one.additem(key("21"), item(1));
+        shamap two = new shamap();
+        two.additem(key("29"), item(1));
+        two.additem(key("30"), item(1));
+
+        // both in slot 2 of the root, with different indexes
+        assertequals(list("deleted 2100", "added 2900", "added 3000"), changes(one, two));
+        assertequals(list("added 2100", "deleted 2900", "deleted 3000"), changes(two, one));
+
+        shamap three = new shamap();
+        three.additem(key("20"), item(1));
+        three.additem(key("30"), item(1));
+        assertequals(list("added 2000", "deleted 2900"), changes(two, three));
+        assertequals(new arraylist<string>(), changes(three, three.snapshot()));
+    }
+
+    @test
+    public void testdiffinindexorder() {
+        random random = new random(15);
+        for (int round = 0; round < 20; round++) {
+            shamap tree = new shamap();
+            list<hash256> keys = new arraylist<hash256>();
+            int size = 1 + random.nextint(2000);
+            for (int i = 0; i < size; i++) {
+                hash256 key = testnodestore.random(random);
+                keys.add(key);
+                tree.additem(key, testnodestore.item(random));
+            }
+            shamap snapshot = tree.snapshot();
+            treemap<hash256, hash256> before = leaves(snapshot);
+            for (int i = random.nextint(50); i > 0; i--) {
+                hash256 key = keys.get(random.nextint(keys.size()));
+                switch (random.nextint(3)) {
+                    case 0:
+                        tree.removeleaf(key);
+                        break;
+                    case 1:
+                        tree.updateitem(key, testnodestore.item(random));
+                        break;
+                    default:
+                        hash256 added = testnodestore.random(random);
+                        keys.add(added);
+                        tree.additem(added, testnodestore.item(random));
+                }
+            }
+            treemap<hash256, hash256> after = leaves(tree);
+
+            list<string> expected = new arraylist<string>();
+            treeset<hash256> all = new treeset<hash256>(before.keyset());
+            all.addall(after.keyset());
+            for (hash256 key : all) {
+                hash256 a = before.get(key), b = after.get(key);
+                if (a == null) {
+                    expected.add("added " + key.tohex().substring(0, 4));
+                } else if (b == null) {
+                    expected.add("deleted " + key.tohex().substring(0, 4));
+                } else if (!a.equals(b)) {
+                    expected.add("modified " + key.tohex().substring(0, 4));
+                }
+            }
+            assertequals(expected, changes(snapshot, tree));
+        }
+    }
+
+    @test
+    public void testsnapshotreadinonthreads() throws exception {
+        random random = new random(16);
+        list<hash256> keys = new arraylist<hash256>();
+        shamap built = testnodestore.tree(random, keys, 5000);
+        nodestore store = new nodestore(new testnodestore.memorybackend());
+        hash256 root = store.store(built);
+
+        for (int round = 0; round < 5; round++) {
+            // nothing but the root is read in yet, the threads race to read in the rest
+            final shamap snapshot = store.load(root, new shamap()).snapshot();
+            executorservice threads = executors.newfixedthreadpool(4);
+            list<future<treemap<hash256, hash256>>> walks = new arraylist<future<treemap<hash256, hash256>>>();
+            for (int i = 0; i < 4; i++) {
+                walks.add(threads.submit(new callable<treemap<hash256, hash256>>() {
+                    @override
+                    public treemap<hash256, hash256> call() {
+                        return leaves(snapshot);
+                    }
+                }));
+            }
+            for (future<treemap<hash256, hash256>> walk : walks) {
+                assertequals(5000, walk.get().size());
+            }
+            threads.shutdown();
+            snapshot.invalidate();
+            assertequals(root, snapshot.hash());
+        }
+    }
+
+    private static list<string> list(string... items) {
+        list<string> list = new arraylist<string>();
+        for (string item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+}
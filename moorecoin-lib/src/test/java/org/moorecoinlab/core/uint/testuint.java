@@ -0,0 +1,190 @@
+package org.moorecoinlab.core.uint;
+
+import org.moorecoinlab.core.serialized.binaryparser;
+import org.junit.test;
+
+import java.math.biginteger;
+import java.util.random;
+
+import static org.junit.assert.assertarrayequals;
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.assertsame;
+import static org.junit.assert.asserttrue;
+import static org.junit.assert.fail;
+
+/**
+ * the uint types held in a long: the cache of small values, unsigned values of 64 bits and the range checks.
+ */
+public class testuint {
+
+    static void assertoverflow(runnable runnable) {
+        try {
+            runnable.run();
+            fail("no overflow");
+        } catch (illegalargumentexception e) {
+            assertequals("standard length exceeded for value", e.getmessage());
+        }
+    }
+
+    @test
+    public void testcache() {
+        assertsame(uint32.valueof(7), uint32.valueof(7));
+        assertsame(uint8.valueof(255), uint8.translate.fromlong(255));
+        assertsame(uint16.valueof(3), uint16.valueof(1).add(uint16.valueof(2)));
+        assertsame(uint64.valueof(0), uint64.translate.fromparser(new binaryparser(new byte[8]), null));
+        asserttrue(uint32.valueof(256) != uint32.valueof(256));
+        assertequals(uint32.valueof(256), uint32.valueof(256));
+
+        try {
+            uint32.valueof(7).setvalue(8);
+            fail("a shared instance was changed");
+        } catch (unsupportedoperationexception e) {
+            // expected
+        }
+        assertequals(7, uint32.valueof(7).longvalue());
+        uint32 own = new uint32(7);
+        own.setvalue(8);
+        assertequals(8, own.longvalue());
+    }
+
+    @test
+    public void testuint64abovesignedrange() {
+        uint64 max = new uint64("18446744073709551615");
+        uint64 high = new uint64(new biginteger("9223372036854775808"));
+        uint64 low = new uint64(long.max_value);
+
+        assertequals("18446744073709551615", max.tostring());
+        assertequals("9223372036854775808", high.tostring());
+        assertequals("ffffffffffffffff", max.tostring(16));
+        assertequals(new biginteger("18446744073709551615"), max.biginteger());
+        asserttrue(max.compareto(high) > 0);
+        asserttrue(high.compareto(low) > 0);
+        asserttrue(low.compareto(high) < 0);
+        asserttrue(high.compareto(uint64.valueof(1)) > 0);
+        assertequals(low.add(uint64.valueof(1)), high);
+        assertequals(high.subtract(uint64.valueof(1)), low);
+        assertequals(uint64.valueof(1), max.divide(high));
+        assertequals(9.223372036854775808e18, high.doublevalue(), 0);
+        assertequals(64, max.bitlength());
+        asserttrue(high.testbit(63));
+        assertfalse(low.testbit(63));
+    }
+
+    @test
+    public void testbytes() {
+        random random = new random(17);
+        for (int i = 0; i < 1000; i++) {
+            long value = random.nextlong();
+            uint8 u8 = new uint8(value & 0xffl);
+            uint16 u16 = new uint16(value & 0xffffl);
+            uint32 u32 = new uint32(value & 0xffffffffl);
+            uint64 u64 = new uint64(value);
+            for (uint u : new uint[]{u8, u16, u32, u64}) {
+                byte[] bytes = u.tobytearray();
+                assertequals(u.getbytewidth(), bytes.length);
+                assertarrayequals(bytes, u.tobytes());
+                assertequals(new biginteger(1, bytes), u.biginteger());
+            }
+            assertequals(u8, new uint8(u8.tobytes()));
+            assertequals(u16, new uint16(u16.tobytes()));
+            assertequals(u32, new uint32(u32.tobytes()));
+            assertequals(u64, new uint64(u64.tobytes()));
+            assertequals(u16, uint16.translate.fromparser(new binaryparser(u16.tobytes()), null));
+            assertequals(u32, uint32.translate.fromparser(new binaryparser(u32.tobytes()), null));
+            assertequals(u64, uint64.translate.fromparser(new binaryparser(u64.tobytes()), null));
+        }
+        assertarrayequals(new byte[]{(byte) 0x80, 0, 0, 0}, new uint32(integer.min_value).tobytes());
+        assertarrayequals(new byte[]{0, 0, 0, 0, 0, 0, 1, 0}, new uint64(256).tobytes());
+    }
+
+    @test
+    public void testrange() {
+        // a negative int is its two's complement, from a long or a biginteger alike
+        assertequals(new uint32(4294967295l), new uint32(-1));
+        assertequals(new uint32(-1), new uint32(biginteger.valueof(-1)));
+        assertequals(new uint8(128), new uint8(-128));
+        assertequals(new uint8(-128), new uint8(biginteger.valueof(-128)));
+
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint8(256);
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint8(-129);
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint8(biginteger.valueof(-129));
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint32(1l << 32);
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint64(new biginteger("18446744073709551616"));
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint32(new byte[]{1, 0, 0, 0, 0});
+            }
+        });
+    }
+
+    @test
+    public void testarithmeticoverflow() {
+        assertequals(uint32.valueof(1), uint32.valueof(6).subtract(uint32.valueof(5)));
+        assertequals(new uint16(65535), new uint16(65534).add(uint16.valueof(1)));
+        assertequals(new uint8(128), uint8.valueof(1).shiftleft(7));
+
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                uint32.valueof(5).subtract(uint32.valueof(6));
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint16(65535).add(uint16.valueof(1));
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint64("18446744073709551615").add(uint64.valueof(1));
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint32(65536).multiply(new uint32(65536));
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                new uint64(1l << 62).multiply(uint64.valueof(4));
+            }
+        });
+        assertoverflow(new runnable() {
+            @override
+            public void run() {
+                uint8.valueof(1).shiftleft(8);
+            }
+        });
+    }
+}
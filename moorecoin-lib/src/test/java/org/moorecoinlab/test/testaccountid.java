@@ -0,0 +1,80 @@
+package org.moorecoinlab.test;
+
+import org.moorecoinlab.core.accountid;
+import org.moorecoinlab.core.exception.moorecoinexception;
+import org.moorecoinlab.core.hash.b58;
+import org.moorecoinlab.core.serialized.binaryparser;
+import org.junit.test;
+
+import java.util.random;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.assertsame;
+import static org.junit.assert.asserttrue;
+import static org.junit.assert.fail;
+
+/**
+ * accountids are interned and compared on their bytes, the address is encoded when asked for.
+ */
+public class testaccountid {
+
+    public static b58 b58 = b58.getinstance();
+
+    @test
+    public void testinterning() {
+        random random = new random(19);
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = new byte[20];
+            random.nextbytes(bytes);
+            string address = b58.encodeaddress(bytes);
+
+            accountid account = accountid.frombytes(bytes);
+            assertsame(account, accountid.frombytes(bytes.clone()));
+            assertsame(account, accountid.fromaddress(address));
+            assertsame(account, accountid.translate.fromparser(new binaryparser(bytes), null));
+            assertequals(address, account.address());
+            assertequals(address, account.tostring());
+        }
+        // an address decoded first is the instance frombytes gets later
+        byte[] bytes = new byte[20];
+        random.nextbytes(bytes);
+        accountid account = accountid.fromaddress(b58.encodeaddress(bytes));
+        assertsame(account, accountid.frombytes(bytes));
+    }
+
+    @test
+    public void testequality() {
+        byte[] bytes = new byte[20];
+        new random(20).nextbytes(bytes);
+        accountid interned = accountid.frombytes(bytes);
+        accountid own = new accountid(bytes.clone());
+
+        asserttrue(own != interned);
+        assertequals(interned, own);
+        assertequals(interned.hashcode(), own.hashcode());
+        assertequals(interned.address(), own.address());
+
+        bytes = bytes.clone();
+        bytes[19] ^= 1;
+        accountid other = new accountid(bytes);
+        assertfalse(other.equals(own));
+        assertfalse(own.address().equals(other.address()));
+    }
+
+    @test
+    public void testlength() {
+        try {
+            new accountid(new byte[19]);
+            fail();
+        } catch (moorecoinexception e) {
+            // an account is 20 bytes
+        }
+        try {
+            accountid.frombytes(new byte[21]);
+            fail();
+        } catch (moorecoinexception e) {
+            // an account is 20 bytes
+        }
+    }
+}
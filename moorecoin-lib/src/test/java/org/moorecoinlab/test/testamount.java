@@ -0,0 +1,93 @@
+package org.moorecoinlab.test;
+
+import org.moorecoinlab.core.accountid;
+import org.moorecoinlab.core.amount;
+import org.moorecoinlab.core.currency;
+import org.junit.test;
+
+import java.math.bigdecimal;
+import java.math.mathcontext;
+import java.util.random;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.asserttrue;
+
+/**
+ * the arithmetic on fixed amounts, against the bigdecimal results it replaced.
+ */
+public class testamount {
+    static final accountid issuer = accountid.translate.frombytes(new byte[20]);
+    static final currency usd = currency.fromstring("usd");
+
+    static amount iou(string value) {
+        return new amount(new bigdecimal(value), usd, issuer);
+    }
+
+    static amount drops(long drops) {
+        return amount.fromstring(string.valueof(drops));
+    }
+
+    static void assertclose(bigdecimal expected, bigdecimal actual) {
+        bigdecimal error = expected.subtract(actual).abs();
+        asserttrue(expected + " " + actual, error.compareto(expected.abs().scalebypoweroften(-15).multiply(bigdecimal.valueof(2))) <= 0);
+    }
+
+    @test
+    public void testiourounding() {
+        amount third = iou("1").divide(iou("3"));
+        assertequals(0, new bigdecimal("0.3333333333333333").compareto(third.value()));
+        assertequals(0, new bigdecimal("0.9999999999999999").compareto(third.multiply(iou("3")).value()));
+        assertequals(0, new bigdecimal("0.6666666666666667").compareto(iou("2").divide(iou("3")).value()));
+
+        // digits beyond the 16th are dropped
+        assertequals(iou("1"), iou("1").add(iou("0.0000000000000001")));
+        assertequals(iou("1.000000000000001"), iou("1").add(iou("0.000000000000001")));
+        // a difference of nearly equal amounts is 0, as in stamount
+        asserttrue(iou("1").subtract(iou("0.9999999999999999")).iszero());
+        assertequals(0, iou("1").subtract(iou("0.9999999999999")).value().compareto(new bigdecimal("1e-13")));
+        asserttrue(iou("1234567890123456").subtract(iou("1234567890123456")).iszero());
+    }
+
+    @test
+    public void testnativerounding() {
+        assertequals(drops(30000000), drops(10000000).add(drops(20000000)));
+        // drops are whole
+        assertequals(drops(333333), drops(1000000).divide(iou("3")));
+        assertequals(drops(0), drops(1).divide(iou("3")));
+        assertequals(drops(3000000), drops(1000000).multiply(iou("3")));
+    }
+
+    @test
+    public void testlargenativeagainstiou() {
+        // 17 digits of drops, more than an iou mantissa holds
+        amount large = drops(12345678901234567l);
+        asserttrue(large.compareto(iou("12345678901.23456")) > 0);
+        asserttrue(large.compareto(iou("12345678901.23457")) < 0);
+        asserttrue(large.negate().compareto(iou("-12345678901.23456")) < 0);
+        assertequals(0, drops(12345678901234560l).compareto(iou("12345678901.23456")));
+        asserttrue(drops(99999999999999999l).compareto(iou("99999999999.99999")) > 0);
+        asserttrue(drops(99999999999999999l).compareto(iou("100000000000")) < 0);
+
+        amount max = drops(99999999999999999l);
+        assertclose(max.value().multiply(new bigdecimal("0.9999999999999999")),
+                    max.multiply(iou("0.9999999999999999")).value());
+        assertclose(max.value().divide(new bigdecimal("1.000000000000001"), mathcontext.decimal128),
+                    max.divide(iou("1.000000000000001")).value());
+        assertclose(new bigdecimal("1.2345678901234567e10"), iou("1").multiply(large).value());
+        assertclose(large.value().multiply(large.value()), iou("1").multiply(large).multiply(large).value());
+    }
+
+    @test
+    public void testcomputequality() {
+        random random = new random(12);
+        for (int i = 0; i < 2000; i++) {
+            amount pays = random.nextboolean() ?
+                    drops(1 + (random.nextlong() >>> 1) % 99999999999999999l) :
+                    iou(bigdecimal.valueof(1 + (random.nextlong() >>> 1) % 9999999999999999l, random.nextint(40) - 20).toplainstring());
+            amount gets = random.nextboolean() ?
+                    drops(1 + (random.nextlong() >>> (1 + random.nextint(60))) % 99999999999999999l) :
+                    iou(bigdecimal.valueof(1 + (random.nextlong() >>> 1) % 9999999999999999l, random.nextint(40) - 20).toplainstring());
+            assertclose(pays.value().divide(gets.value(), mathcontext.decimal128), pays.computequality(gets));
+        }
+    }
+}
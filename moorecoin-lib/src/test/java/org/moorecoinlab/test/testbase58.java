@@ -0,0 +1,163 @@
+package org.moorecoinlab.test;
+
+import org.moorecoinlab.btc.base58;
+import org.moorecoinlab.core.exception.moorecoinexception;
+import org.moorecoinlab.core.hash.b58;
+import org.junit.test;
+import org.ripple.bouncycastle.util.encoders.hex;
+
+import java.math.biginteger;
+import java.util.random;
+
+import static org.junit.assert.assertarrayequals;
+import static org.junit.assert.assertequals;
+import static org.junit.assert.fail;
+
+/**
+ * the base58 codec of b58 and btc.base58, on known vectors and round trips.
+ */
+public class testbase58 {
+
+    public static b58 b58 = b58.getinstance();
+
+    /**
+     * the encoding digit by digit, to compare with.
+     */
+    static string encode(string alphabet, byte[] input) {
+        stringbuilder sb = new stringbuilder();
+        biginteger n = new biginteger(1, input);
+        biginteger radix = biginteger.valueof(58);
+        while (n.signum() > 0) {
+            biginteger[] qr = n.divideandremainder(radix);
+            sb.append(alphabet.charat(qr[1].intvalue()));
+            n = qr[0];
+        }
+        for (int i = 0; i < input.length && input[i] == 0; i++) {
+            sb.append(alphabet.charat(0));
+        }
+        return sb.reverse().tostring();
+    }
+
+    static byte[] random(random random, int maxlength) {
+        byte[] bytes = new byte[random.nextint(maxlength + 1)];
+        random.nextbytes(bytes);
+        int zeros = random.nextint(4);
+        for (int i = 0; i < zeros && i < bytes.length; i++) {
+            bytes[i] = 0;
+        }
+        return bytes;
+    }
+
+    @test
+    public void testknownvectors() throws exception {
+        string[][] addresses = {
+                {"0000000000000000000000000000000000000000", "rrrrrrrrrrrrrrrrrrrrrholvtp"},
+                {"0000000000000000000000000000000000000001", "rrrrrrrrrrrrrrrrrrrrbzbvji"},
+                {"b5f762798a53d543a014caf8b297cff8f2f937e8", "rhb9cjawyb4rj91vrwn96dkukg4bwdtyth"},
+        };
+        for (string[] vector : addresses) {
+            assertequals(vector[1], b58.encodeaddress(hex.decode(vector[0])));
+            assertarrayequals(hex.decode(vector[0]), b58.decodeaddress(vector[1]));
+        }
+        byte[] seed = hex.decode("dedce9ce67b451d852fd4e846fcde31c");
+        assertequals("snopbrxtmemymhuvtgbuqafg1sutb", b58.encodefamilyseed(seed));
+        assertarrayequals(seed, b58.decodefamilyseed("snopbrxtmemymhuvtgbuqafg1sutb"));
+
+        string[][] raw = {
+                {"", ""},
+                {"61", "2g"},
+                {"626262", "a3gv"},
+                {"636363", "aper"},
+                {"00000000000000000000", "1111111111"},
+                {"73696d706c792061206c6f6e6720737472696e67", "2cfupjhnessn59qhxstmk2ffplv2"},
+                {"572e4794", "3efu7m"},
+                {"ecac89cad93923c02321", "ejdm8drfxa6uya"},
+                {"10c8511e", "rt5zm"},
+        };
+        for (string[] vector : raw) {
+            assertequals(vector[1], base58.encode(hex.decode(vector[0])));
+            assertarrayequals(hex.decode(vector[0]), base58.decode(vector[1]));
+        }
+    }
+
+    @test
+    public void testroundtrip() throws exception {
+        random random = new random(58);
+        for (int i = 0; i < 5000; i++) {
+            byte[] bytes = random(random, 70);
+            string encoded = b58.encodetostring(bytes);
+            assertequals(encode(b58.default_alphabet, bytes), encoded);
+            assertarrayequals(bytes, b58.decode(encoded));
+            assertarrayequals(encoded.getbytes("us-ascii"), b58.encodetobytes(bytes));
+
+            encoded = base58.encode(bytes);
+            assertequals(encode(new string(base58.alphabet), bytes), encoded);
+            assertarrayequals(bytes, base58.decode(encoded));
+        }
+        // leading zeros are each one leading alphabet[0]
+        assertequals("rrr", b58.encodetostring(new byte[3]));
+        assertarrayequals(new byte[]{0, 0, 1}, b58.decode("rrp"));
+        assertarrayequals(new byte[0], b58.decode(""));
+    }
+
+    @test
+    public void testbulk() throws exception {
+        random random = new random(59);
+        byte[][] accounts = new byte[200][];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new byte[20];
+            random.nextbytes(accounts[i]);
+            if (i % 10 == 0) {
+                accounts[i][0] = 0;
+                accounts[i][1] = 0;
+            }
+        }
+        string[] addresses = b58.encodeaddresses(accounts);
+        for (int i = 0; i < accounts.length; i++) {
+            assertequals(b58.encodeaddress(accounts[i]), addresses[i]);
+        }
+        // some are verified already, the rest are decoded together
+        for (int i = 0; i < accounts.length; i += 3) {
+            assertarrayequals(accounts[i], b58.decodeaddress(addresses[i]));
+        }
+        byte[][] decoded = b58.decodeaddresses(addresses);
+        for (int i = 0; i < accounts.length; i++) {
+            assertarrayequals(accounts[i], decoded[i]);
+        }
+        decoded = b58.decodeaddresses(addresses);
+        for (int i = 0; i < accounts.length; i++) {
+            assertarrayequals(accounts[i], decoded[i]);
+        }
+
+        string[] strings = base58.encode(accounts);
+        byte[][] back = base58.decode(strings);
+        for (int i = 0; i < accounts.length; i++) {
+            assertequals(base58.encode(accounts[i]), strings[i]);
+            assertarrayequals(accounts[i], back[i]);
+        }
+    }
+
+    @test
+    public void testbulkchecks() throws exception {
+        random random = new random(60);
+        byte[][] accounts = new byte[3][20];
+        for (byte[] account : accounts) {
+            random.nextbytes(account);
+        }
+        string[] addresses = b58.encodeaddresses(accounts);
+        try {
+            b58.decodechecked(addresses, b58.ver_family_seed);
+            fail();
+        } catch (moorecoinexception e) {
+            // the version is wrong, verified or not
+        }
+        char last = addresses[2].charat(addresses[2].length() - 1);
+        addresses[2] = addresses[2].substring(0, addresses[2].length() - 1) + (last == 'r' ? 'p' : 'r');
+        try {
+            b58.decodeaddresses(addresses);
+            fail();
+        } catch (moorecoinexception e) {
+            // the checksum does not validate
+        }
+    }
+}
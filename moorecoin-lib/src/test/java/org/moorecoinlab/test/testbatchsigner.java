@@ -0,0 +1,143 @@
+package org.moorecoinlab.test;
+
+import org.moorecoinlab.core.accountid;
+import org.moorecoinlab.core.amount;
+import org.moorecoinlab.core.utils;
+import org.moorecoinlab.core.types.known.tx.transaction;
+import org.moorecoinlab.core.types.known.tx.signed.batchsigner;
+import org.moorecoinlab.core.types.known.tx.signed.signedtransaction;
+import org.moorecoinlab.core.types.known.tx.txns.payment;
+import org.moorecoinlab.core.uint.uint32;
+import org.moorecoinlab.crypto.ecdsa.ikeypair;
+import org.moorecoinlab.crypto.ecdsa.seed;
+import org.junit.test;
+
+import java.math.biginteger;
+import java.util.arraylist;
+import java.util.arrays;
+import java.util.list;
+import java.util.concurrent.forkjoinpool;
+
+import static org.junit.assert.assertequals;
+import static org.junit.assert.assertsame;
+import static org.junit.assert.asserttrue;
+
+/**
+ * a batch signed in parallel gives what signing the transactions one by one gives, in input order.
+ */
+public class testbatchsigner {
+
+    /**
+     * a keypair whose signature depends on the signed bytes only. ecdsa signatures take a random nonce, so only
+     * with this stub are two signatures of the same transaction the same bytes.
+     */
+    static class fixedsignature implements ikeypair {
+        final ikeypair keypair;
+
+        fixedsignature(ikeypair keypair) {
+            this.keypair = keypair;
+        }
+
+        @override public string pubhex() {return keypair.pubhex();}
+        @override public biginteger pub() {return keypair.pub();}
+        @override public byte[] pubbytes() {return keypair.pubbytes();}
+        @override public string privhex() {return keypair.privhex();}
+        @override public biginteger priv() {return keypair.priv();}
+        @override public byte[] sha256_ripemd160_pub() {return keypair.sha256_ripemd160_pub();}
+
+        @override
+        public boolean verify(byte[] data, byte[] sigbytes) {
+            return arrays.equals(sign(data), sigbytes);
+        }
+
+        @override
+        public byte[] sign(byte[] bytes) {
+            return utils.sha512(bytes);
+        }
+    }
+
+    static list<ikeypair> keypairs(int count, boolean fixed) {
+        list<ikeypair> keypairs = new arraylist<>();
+        for (int i = 0; i < count; i++) {
+            ikeypair keypair = seed.getkeypair(seed.passphrasetoseedbytes("batch" + i));
+            keypairs.add(fixed ? new fixedsignature(keypair) : keypair);
+        }
+        return keypairs;
+    }
+
+    static payment payment(int i, ikeypair keypair) {
+        payment txn = new payment();
+        txn.account(accountid.frombytes(keypair.sha256_ripemd160_pub()));
+        txn.destination(accountid.frominteger(10000 + i));
+        txn.amount(amount.fromstring(string.valueof(1000000 + i)));
+        return txn;
+    }
+
+    static amount fee(int i) {
+        return amount.fromstring(string.valueof(10 + i % 3));
+    }
+
+    /**
+     * the transactions of a batch with fee, sequence and lastledgersequence set, signed by keypairs.get(i % size).
+     */
+    static list<transaction> prepared(int count, list<ikeypair> keypairs, list<ikeypair> signers) {
+        list<transaction> txns = new arraylist<>();
+        for (int i = 0; i < count; i++) {
+            ikeypair keypair = keypairs.get(i % keypairs.size());
+            payment txn = payment(i, keypair);
+            txn.put(uint32.lastledgersequence, new uint32(5000 + i));
+            txn.put(uint32.sequence, new uint32(1 + i / keypairs.size()));
+            txn.put(amount.fee, fee(i));
+            txns.add(txn);
+            signers.add(keypair);
+        }
+        return txns;
+    }
+
+    static list<signedtransaction> sequential(int count, list<ikeypair> keypairs) {
+        list<signedtransaction> signed = new arraylist<>();
+        for (int i = 0; i < count; i++) {
+            ikeypair keypair = keypairs.get(i % keypairs.size());
+            signedtransaction sign = new signedtransaction(payment(i, keypair));
+            sign.prepare(keypair, fee(i), new uint32(1 + i / keypairs.size()), new uint32(5000 + i));
+            signed.add(sign);
+        }
+        return signed;
+    }
+
+    @test
+    public void testsameassequential() {
+        int count = 200;
+        list<ikeypair> keypairs = keypairs(5, true);
+        list<ikeypair> signers = new arraylist<>();
+        list<transaction> txns = prepared(count, keypairs, signers);
+
+        list<signedtransaction> parallel = new batchsigner(new forkjoinpool(4)).sign(txns, signers);
+        list<signedtransaction> sequential = sequential(count, keypairs);
+
+        assertequals(count, parallel.size());
+        for (int i = 0; i < count; i++) {
+            assertsame(txns.get(i), parallel.get(i).txn);
+            assertequals(sequential.get(i).tx_blob, parallel.get(i).tx_blob);
+            assertequals(sequential.get(i).hash, parallel.get(i).hash);
+        }
+    }
+
+    @test
+    public void testsignatures() {
+        int count = 64;
+        list<ikeypair> keypairs = keypairs(3, false);
+        list<ikeypair> signers = new arraylist<>();
+        list<transaction> txns = prepared(count, keypairs, signers);
+
+        list<signedtransaction> parallel = new batchsigner(new forkjoinpool(4)).sign(txns, signers);
+        list<signedtransaction> sequential = sequential(count, keypairs);
+
+        // the signatures differ by their nonce, everything they sign is the same
+        for (int i = 0; i < count; i++) {
+            signedtransaction signed = parallel.get(i);
+            assertequals(sequential.get(i).signinghash, signed.signinghash);
+            asserttrue(signers.get(i).verify(signed.signinghash.bytes(), signed.txn.txnsignature().tobytes()));
+        }
+    }
+}
@@ -8,11 +8,22 @@ import org.moorecoinlab.core.hash.b58;
 import org.moorecoinlab.core.hash.rfc1751;
 import org.moorecoinlab.crypto.ecdsa.ikeypair;
 import org.moorecoinlab.crypto.ecdsa.keypair;
+import org.moorecoinlab.crypto.ecdsa.secp256k1;
+import org.moorecoinlab.crypto.ecdsa.verificationitem;
 import org.moorecoinlab.crypto.ecdsa.seed;
 import org.junit.test;
+import org.ripple.bouncycastle.asn1.sec.secnamedcurves;
+import org.ripple.bouncycastle.math.ec.ecpoint;
 import org.ripple.bouncycastle.util.encoders.hex;
 
+import java.math.biginteger;
+import java.util.arraylist;
+import java.util.list;
+import java.util.random;
+
 import static org.junit.assert.assertequals;
+import static org.junit.assert.assertfalse;
+import static org.junit.assert.asserttrue;
 
 public class testcrypto {
 
@@ -37,7 +48,7 @@ public class testcrypto {
         try {
 
             accountid rootid =  accountid.accounts.get("root");
-            system.out.println("root address : " + rootid.address + ", " + rootid.tohex() + ", " + rootid.isnativeissuer() + ", " + rootid.tojson());
+            system.out.println("root address : " + rootid.address() + ", " + rootid.tohex() + ", " + rootid.isnativeissuer() + ", " + rootid.tojson());
 
             byte[] seed = seed.passphrasetoseedbytes("masterpassphrase");
             system.out.println("master_seed_hex: " + hex.tohexstring(seed));
@@ -52,7 +63,7 @@ public class testcrypto {
             system.out.println("wallet to priv : " + w.keypair().privhex() + ", pub=" + w.keypair().pubhex());
 
             rootid = new accountid(utils.sha256_ripemd160(hex.decode("0330e7fc9d56bb25d6893ba3f317ae5bcf33b3291bd63db32654a313222f7fd020")));
-            system.out.println("pub to address : " + rootid.address);
+            system.out.println("pub to address : " + rootid.address());
 
             system.out.println("account public : " + b58.encodeaccountpublic(keypair.pubbytes()));
             system.out.println("node public    : " + b58.encodenodepublic(keypair.pubbytes()));
@@ -73,7 +84,7 @@ public class testcrypto {
         system.out.println("priv gen pub: " + kp.pubhex());
 
         accountid rootid = new accountid(utils.sha256_ripemd160(kp.pubbytes()));
-        system.out.println("pub to addr : " + rootid.address);
+        system.out.println("pub to addr : " + rootid.address());
     }
 
 
@@ -132,4 +143,37 @@ rippled -q validation_create
 
     }
 
+    @test
+    public void testsecp256k1curve() {
+        // the limb based curve behind secp256k1.params() must agree with the generic biginteger curve
+        ecpoint g = secnamedcurves.getbyname("secp256k1").getg();
+        random random = new random(7);
+        for (int i = 0; i < 20; i++) {
+            biginteger k = new biginteger(256, random);
+            assertequals(hex.tohexstring(g.multiply(k).getencoded(true)),
+                    hex.tohexstring(secp256k1.basepoint().multiply(k).getencoded(true)));
+        }
+
+        ikeypair kp = seed.getkeypair(seed.passphrasetoseedbytes("masterpassphrase"));
+        byte[] message = hex.decode("000103996a3bad918657f86e12a67d693e8fc8a814da4b958a244b5f14d93e57");
+        byte[] sig = kp.sign(message);
+        asserttrue(kp.verify(message, sig));
+        message[0] = 1;
+        assertfalse(kp.verify(message, sig));
+    }
+
+    @test
+    public void testverifybatch() {
+        list<verificationitem> items = new arraylist<>();
+        for (int i = 0; i < 100; i++) {
+            ikeypair kp = seed.getkeypair(seed.passphrasetoseedbytes("batch" + (i % 7)));
+            byte[] message = utils.halfsha512(("message " + i).getbytes());
+            items.add(new verificationitem(message, kp.sign(message), kp.pub()));
+        }
+        items.set(13, new verificationitem(items.get(14).data, items.get(13).sigbytes, items.get(13).pubbytes));
+        boolean[] valid = keypair.verifybatch(items);
+        for (int i = 0; i < valid.length; i++) {
+            assertequals(i != 13, valid[i]);
+        }
+    }
 }
@@ -57,7 +57,7 @@ public class testdeserializejson {
         list<accountline> accountlinelist = new arraylist<>();
         for(int i=0;i<lines.length();i++){
             accountline accountline = accountline.fromjson(accountid.fromaddress(address), lines.getjsonobject(i));
-            system.out.println("account*********"+accountline.balance.issuer().address);
+            system.out.println("account*********"+accountline.balance.issuer().address());
             system.out.println(accountline.balance);
             system.out.println(accountline.currency);
             system.out.println(accountline.quality_in);
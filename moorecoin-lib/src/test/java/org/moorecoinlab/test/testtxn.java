@@ -235,7 +235,7 @@ public class testtxn {
         system.out.println("transactionindex:"+txnmeta.transactionindex());
         stobject tx = stobject.fromjsonobject(txjson);
         transaction txn = (transaction) tx;
-        system.out.println("account:"+txn.account().address);
+        system.out.println("account:"+txn.account().address());
         system.out.println("fee:"+txn.fee());
         system.out.println("txtype:"+txn.transactiontype());
         system.out.println("ledger_sequence::"+txn.lastledgersequence());
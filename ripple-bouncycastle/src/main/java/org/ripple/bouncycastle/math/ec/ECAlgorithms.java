@@ -13,6 +13,11 @@ public class ecalgorithms
             throw new illegalargumentexception("p and q must be on same curve");
         }
 
+        if (p instanceof secp256k1point && q instanceof secp256k1point)
+        {
+            return secp256k1multiplier.sumoftwomultiplies((secp256k1point)p, a, (secp256k1point)q, b);
+        }
+
         // point multiplication for koblitz curves (using wtnaf) beats shamir's trick
         if (c instanceof eccurve.f2m)
         {
@@ -26,6 +31,41 @@ public class ecalgorithms
         return implshamirstrick(p, a, q, b);
     }
 
+    /**
+     * a[i] * p[i] + b[i] * q[i] for every i. secp256k1 sums stay in jacobian
+     * co-ordinates and are converted to affine together with a single field
+     * inversion (montgomery's trick).
+     */
+    public static ecpoint[] sumoftwomultiplies(ecpoint[] p, biginteger[] a,
+        ecpoint[] q, biginteger[] b)
+    {
+        int n = p.length;
+        if (a.length != n || q.length != n || b.length != n)
+        {
+            throw new illegalargumentexception("p, a, q and b must have the same length");
+        }
+
+        boolean secp256k1 = n > 0;
+        for (int i = 0; i < n && secp256k1; ++i)
+        {
+            secp256k1 = p[i] instanceof secp256k1point && q[i] instanceof secp256k1point;
+        }
+        if (secp256k1)
+        {
+            secp256k1point[] sp = new secp256k1point[n], sq = new secp256k1point[n];
+            system.arraycopy(p, 0, sp, 0, n);
+            system.arraycopy(q, 0, sq, 0, n);
+            return secp256k1multiplier.sumoftwomultiplies(sp, a, sq, b);
+        }
+
+        ecpoint[] result = new ecpoint[n];
+        for (int i = 0; i < n; ++i)
+        {
+            result[i] = sumoftwomultiplies(p[i], a[i], q[i], b[i]);
+        }
+        return result;
+    }
+
     /*
      * "shamir's trick", originally due to e. g. straus
      * (addition chains of vectors. american mathematical monthly,
@@ -0,0 +1,164 @@
+package org.ripple.bouncycastle.math.ec;
+
+import java.math.biginteger;
+
+/**
+ * fixed-base multiplication by the secp256k1 generator.
+ * <p>
+ * the scalar is cut into 64 windows of 4 bits, window i holds the 16 points
+ * d * 16^i * g + h for d = 0..15, so k * g is the sum of one table entry per
+ * window starting from -64 * h: 64 mixed additions and no doublings. h is a
+ * point nobody knows the discrete logarithm of, it keeps the running sum away
+ * from infinity and from the entry being added. the table is built once per
+ * jvm, with a single batch inversion, and only read afterwards.
+ * <p>
+ * <code>multiply</code> is the constant-time variant used for secret scalars:
+ * every window reads all 16 entries and keeps the wanted one with a mask, so
+ * neither the sequence of point operations nor the memory access pattern
+ * depends on k. <code>multiplyvartime</code> indexes the table directly and is
+ * only meant for public scalars, e.g. signature verification.
+ */
+class secp256k1combmultiplier implements ecmultiplier
+{
+    static final secp256k1combmultiplier instance = new secp256k1combmultiplier();
+
+    private static final int windows = 64;
+    private static final int entries = 16;
+
+    public ecpoint multiply(ecpoint p, biginteger k, precompinfo precompinfo)
+    {
+        secp256k1jacobian r = multiply(k, true);
+        return r.toaffine((secp256k1curve)p.getcurve(), p.withcompression);
+    }
+
+    /**
+     * k * g in jacobian co-ordinates, for public scalars only.
+     */
+    static secp256k1jacobian multiplyvartime(biginteger k)
+    {
+        return multiply(k, false);
+    }
+
+    private static secp256k1jacobian multiply(biginteger k, boolean constanttime)
+    {
+        if (k.bitlength() > 256)
+        {
+            k = k.mod(secp256k1curve.n);
+        }
+        combtable table = combtable.instance;
+        int[] limbs = new int[8];
+        for (int i = 0; i < 8; ++i)
+        {
+            limbs[i] = k.shiftright(i * 32).intvalue();
+        }
+
+        secp256k1jacobian r = new secp256k1jacobian(table.startx, table.starty);
+        int[] x = secp256k1field.create(), y = secp256k1field.create();
+        for (int i = 0; i < windows; ++i)
+        {
+            int digit = (limbs[i >>> 3] >>> ((i & 7) << 2)) & 0xf;
+            if (constanttime)
+            {
+                table.select(i, digit, x, y);
+                r.add(x, y);
+            }
+            else
+            {
+                r.add(table.xs[i][digit], table.ys[i][digit]);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * the precomputed points, built on first use (initialization-on-demand holder).
+     */
+    private static class combtable
+    {
+        static final combtable instance = new combtable();
+
+        final int[][][] xs = new int[windows][entries][];
+        final int[][][] ys = new int[windows][entries][];
+        final int[] startx, starty;
+
+        private combtable()
+        {
+            secp256k1curve curve = secp256k1curve.instance;
+            secp256k1point g = (secp256k1point)curve.getg();
+            secp256k1point h = offset(curve);
+
+            secp256k1jacobian[] points = new secp256k1jacobian[windows * entries];
+            secp256k1jacobian base = secp256k1jacobian.of(g);
+            for (int i = 0; i < windows; ++i)
+            {
+                points[i * entries] = secp256k1jacobian.of(h);
+                for (int d = 1; d < entries; ++d)
+                {
+                    secp256k1jacobian e = new secp256k1jacobian(points[i * entries + d - 1]);
+                    e.add(base);
+                    points[i * entries + d] = e;
+                }
+                for (int j = 0; j < 4; ++j)
+                {
+                    base.twice();
+                }
+            }
+
+            secp256k1point[] affine = secp256k1jacobian.toaffine(curve, points, false);
+            for (int i = 0; i < windows; ++i)
+            {
+                for (int d = 0; d < entries; ++d)
+                {
+                    xs[i][d] = affine[i * entries + d].xlimbs();
+                    ys[i][d] = affine[i * entries + d].ylimbs();
+                }
+            }
+
+            secp256k1point start = (secp256k1point)h.multiply(biginteger.valueof(windows)).negate();
+            startx = start.xlimbs();
+            starty = start.ylimbs();
+        }
+
+        /**
+         * copy entry digit of window i into x, y reading every entry of the window.
+         */
+        void select(int i, int digit, int[] x, int[] y)
+        {
+            int[][] wx = xs[i], wy = ys[i];
+            for (int l = 0; l < 8; ++l)
+            {
+                x[l] = 0;
+                y[l] = 0;
+            }
+            for (int d = 0; d < entries; ++d)
+            {
+                // -1 when d == digit, else 0
+                int mask = -(((d ^ digit) - 1) >>> 31);
+                int[] ex = wx[d], ey = wy[d];
+                for (int l = 0; l < 8; ++l)
+                {
+                    x[l] |= ex[l] & mask;
+                    y[l] |= ey[l] & mask;
+                }
+            }
+        }
+
+        /**
+         * the point with the smallest x co-ordinate above 0 and even y.
+         */
+        private static secp256k1point offset(secp256k1curve curve)
+        {
+            for (int x = 1; ; ++x)
+            {
+                try
+                {
+                    return (secp256k1point)curve.decompresspoint(0, biginteger.valueof(x));
+                }
+                catch (runtimeexception e)
+                {
+                    // x^3 + 7 is not a square, try the next one
+                }
+            }
+        }
+    }
+}
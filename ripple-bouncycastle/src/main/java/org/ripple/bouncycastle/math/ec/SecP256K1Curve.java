@@ -0,0 +1,71 @@
+package org.ripple.bouncycastle.math.ec;
+
+import java.math.biginteger;
+
+/**
+ * the secp256k1 curve y^2 = x^3 + 7 over p = 2^256 - 2^32 - 977 with
+ * points of type <code>secp256k1point</code>, which add, double and
+ * multiply in jacobian co-ordinates on fixed-width limbs instead of
+ * affine <code>biginteger</code> arithmetic.
+ */
+public class secp256k1curve extends eccurve.fp
+{
+    /**
+     * order of the generator.
+     */
+    static final biginteger n = new biginteger(
+        "fffffffffffffffffffffffffffffffebaaedce6af48a03bbfd25e8cd0364141", 16);
+
+    private static final biginteger gx = new biginteger(
+        "79be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798", 16);
+    private static final biginteger gy = new biginteger(
+        "483ada7726a3c4655da4fbfc0e1108a8fd17b448a68554199c47d08ffb10d4b8", 16);
+
+    private static final int[] seven = new int[]{ 7, 0, 0, 0, 0, 0, 0, 0 };
+
+    static final secp256k1curve instance = new secp256k1curve();
+
+    private final secp256k1point g;
+
+    public secp256k1curve()
+    {
+        super(secp256k1field.p, ecconstants.zero, biginteger.valueof(7));
+        this.infinity = new secp256k1point(this, null, null);
+        this.g = new secp256k1point(this, frombiginteger(gx), frombiginteger(gy), false);
+        this.g.multiplier = secp256k1combmultiplier.instance;
+    }
+
+    /**
+     * the generator, multiplications by it use the precomputed fixed-base tables
+     * of <code>secp256k1combmultiplier</code> and run in constant time.
+     */
+    public ecpoint getg()
+    {
+        return g;
+    }
+
+    public ecpoint createpoint(biginteger x, biginteger y, boolean withcompression)
+    {
+        return new secp256k1point(this, frombiginteger(x), frombiginteger(y), withcompression);
+    }
+
+    protected ecpoint decompresspoint(int ytilde, biginteger x1)
+    {
+        int[] x = secp256k1field.frombiginteger(x1);
+        int[] alpha = secp256k1field.create();
+        secp256k1field.square(x, alpha);
+        secp256k1field.multiply(alpha, x, alpha);
+        secp256k1field.add(alpha, seven, alpha);
+
+        int[] beta = secp256k1field.create();
+        if (!secp256k1field.sqrt(alpha, beta))
+        {
+            throw new runtimeexception("invalid point compression");
+        }
+        if ((secp256k1field.isodd(beta) ? 1 : 0) != ytilde)
+        {
+            secp256k1field.negate(beta, beta);
+        }
+        return new secp256k1point(this, x, beta, true);
+    }
+}
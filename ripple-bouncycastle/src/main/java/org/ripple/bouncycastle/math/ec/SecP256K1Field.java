@@ -0,0 +1,363 @@
+package org.ripple.bouncycastle.math.ec;
+
+import java.math.biginteger;
+
+/**
+ * arithmetic modulo the secp256k1 prime p = 2^256 - 2^32 - 977 on eight
+ * 32-bit limbs, least significant limb first. inputs and outputs are always
+ * fully reduced, output arrays may alias inputs.
+ * <p>
+ * reduction uses 2^256 = 2^32 + 977 (mod p), so a 512-bit product folds
+ * back into 256 bits with two small multiplications instead of a division.
+ * add, subtract and multiply do not branch on the values, the final
+ * conditional subtraction of p is done with a mask.
+ */
+final class secp256k1field
+{
+    static final biginteger p = new biginteger(
+        "fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f", 16);
+
+    private static final long m = 0xffffffffl;
+
+    /**
+     * low limb of 2^256 - p, the high part is 2^32.
+     */
+    private static final long c = 977;
+
+    private static final int[] pl = new int[]{ 0xfffffc2f, 0xfffffffe, -1, -1, -1, -1, -1, -1 };
+
+    private secp256k1field()
+    {
+    }
+
+    static int[] create()
+    {
+        return new int[8];
+    }
+
+    static int[] frombiginteger(biginteger x)
+    {
+        if (x.signum() < 0 || x.compareto(p) >= 0)
+        {
+            throw new illegalargumentexception("x value invalid for secp256k1 field element");
+        }
+        int[] z = new int[8];
+        for (int i = 0; i < 8; ++i)
+        {
+            z[i] = x.shiftright(i * 32).intvalue();
+        }
+        return z;
+    }
+
+    static biginteger tobiginteger(int[] x)
+    {
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < 8; ++i)
+        {
+            int v = x[i];
+            int off = 28 - i * 4;
+            bytes[off] = (byte)(v >>> 24);
+            bytes[off + 1] = (byte)(v >>> 16);
+            bytes[off + 2] = (byte)(v >>> 8);
+            bytes[off + 3] = (byte)v;
+        }
+        return new biginteger(1, bytes);
+    }
+
+    static int[] copy(int[] x)
+    {
+        int[] z = new int[8];
+        system.arraycopy(x, 0, z, 0, 8);
+        return z;
+    }
+
+    static void copy(int[] x, int[] z)
+    {
+        system.arraycopy(x, 0, z, 0, 8);
+    }
+
+    static void setone(int[] z)
+    {
+        z[0] = 1;
+        for (int i = 1; i < 8; ++i)
+        {
+            z[i] = 0;
+        }
+    }
+
+    static boolean iszero(int[] x)
+    {
+        int bits = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            bits |= x[i];
+        }
+        return bits == 0;
+    }
+
+    static boolean isodd(int[] x)
+    {
+        return (x[0] & 1) != 0;
+    }
+
+    static boolean equal(int[] x, int[] y)
+    {
+        int diff = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            diff |= x[i] ^ y[i];
+        }
+        return diff == 0;
+    }
+
+    static void add(int[] x, int[] y, int[] z)
+    {
+        long carry = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            carry += (x[i] & m) + (y[i] & m);
+            z[i] = (int)carry;
+            carry >>>= 32;
+        }
+        addc(z, -((int)carry | gep(z)));
+    }
+
+    static void twice(int[] x, int[] z)
+    {
+        add(x, x, z);
+    }
+
+    static void subtract(int[] x, int[] y, int[] z)
+    {
+        long borrow = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            borrow += (x[i] & m) - (y[i] & m);
+            z[i] = (int)borrow;
+            borrow >>= 32;
+        }
+        subc(z, (int)borrow);
+    }
+
+    static void negate(int[] x, int[] z)
+    {
+        if (iszero(x))
+        {
+            copy(x, z);
+            return;
+        }
+        long borrow = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            borrow += (pl[i] & m) - (x[i] & m);
+            z[i] = (int)borrow;
+            borrow >>= 32;
+        }
+    }
+
+    static void multiply(int[] x, int[] y, int[] z)
+    {
+        int[] tt = new int[16];
+        for (int i = 0; i < 8; ++i)
+        {
+            long xi = x[i] & m;
+            long carry = 0;
+            for (int j = 0; j < 8; ++j)
+            {
+                carry += xi * (y[j] & m) + (tt[i + j] & m);
+                tt[i + j] = (int)carry;
+                carry >>>= 32;
+            }
+            tt[i + 8] = (int)carry;
+        }
+        reduce(tt, z);
+    }
+
+    static void square(int[] x, int[] z)
+    {
+        multiply(x, x, z);
+    }
+
+    static void squaren(int[] x, int n, int[] z)
+    {
+        square(x, z);
+        while (--n > 0)
+        {
+            square(z, z);
+        }
+    }
+
+    /**
+     * z = x^(p - 2) = 1/x, x must not be zero.
+     */
+    static void invert(int[] x, int[] z)
+    {
+        if (iszero(x))
+        {
+            throw new arithmeticexception("zero has no inverse");
+        }
+        int[][] chain = chain(x);
+        int[] x2 = chain[0], x22 = chain[2], t = chain[3];
+
+        squaren(t, 23, t);
+        multiply(t, x22, t);
+        squaren(t, 5, t);
+        multiply(t, x, t);
+        squaren(t, 3, t);
+        multiply(t, x2, t);
+        squaren(t, 2, t);
+        multiply(t, x, z);
+    }
+
+    /**
+     * z = x^((p + 1) / 4), a square root of x if one exists.
+     * @return false if x is not a square
+     */
+    static boolean sqrt(int[] x, int[] z)
+    {
+        int[][] chain = chain(x);
+        int[] x2 = chain[0], x22 = chain[2], t = chain[3];
+
+        squaren(t, 23, t);
+        multiply(t, x22, t);
+        squaren(t, 6, t);
+        multiply(t, x2, t);
+        squaren(t, 2, t);
+
+        int[] check = new int[8];
+        square(t, check);
+        copy(t, z);
+        return equal(check, x);
+    }
+
+    /**
+     * shared head of the inversion and square root addition chains.
+     * @return x^(2^2-1), x^(2^3-1), x^(2^22-1) and x^(2^223-1)
+     */
+    private static int[][] chain(int[] x)
+    {
+        int[] x2 = new int[8];
+        square(x, x2);
+        multiply(x2, x, x2);
+        int[] x3 = new int[8];
+        square(x2, x3);
+        multiply(x3, x, x3);
+        int[] t = new int[8];
+        squaren(x3, 3, t);
+        multiply(t, x3, t);     // x6
+        squaren(t, 3, t);
+        multiply(t, x3, t);     // x9
+        int[] x11 = new int[8];
+        squaren(t, 2, x11);
+        multiply(x11, x2, x11);
+        int[] x22 = new int[8];
+        squaren(x11, 11, x22);
+        multiply(x22, x11, x22);
+        int[] x44 = new int[8];
+        squaren(x22, 22, x44);
+        multiply(x44, x22, x44);
+        squaren(x44, 44, t);
+        multiply(t, x44, t);    // x88
+        int[] x176 = new int[8];
+        squaren(t, 88, x176);
+        multiply(x176, t, x176);
+        squaren(x176, 44, t);
+        multiply(t, x44, t);    // x220
+        squaren(t, 3, t);
+        multiply(t, x3, t);     // x223
+        return new int[][]{ x2, x3, x22, t };
+    }
+
+    /**
+     * fold the 512-bit tt into z using 2^256 = 2^32 + 977.
+     */
+    private static void reduce(int[] tt, int[] z)
+    {
+        // tt = l + h * 2^256 = l + h * 977 + h * 2^32
+        long carry = 0;
+        long prev = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            long hi = tt[i + 8] & m;
+            carry += (tt[i] & m) + hi * c + prev;
+            z[i] = (int)carry;
+            carry >>>= 32;
+            prev = hi;
+        }
+        long top = carry + prev;
+
+        // top < 2^34, fold once more
+        long v = top * c;
+        carry = (z[0] & m) + (v & m);
+        z[0] = (int)carry;
+        carry >>>= 32;
+        carry += (z[1] & m) + (v >>> 32) + (top & m);
+        z[1] = (int)carry;
+        carry >>>= 32;
+        carry += (z[2] & m) + (top >>> 32);
+        z[2] = (int)carry;
+        carry >>>= 32;
+        for (int i = 3; i < 8; ++i)
+        {
+            carry += z[i] & m;
+            z[i] = (int)carry;
+            carry >>>= 32;
+        }
+        addc(z, -((int)carry | gep(z)));
+    }
+
+    /**
+     * 1 if z >= p, else 0.
+     */
+    private static int gep(int[] z)
+    {
+        long borrow = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            borrow += (z[i] & m) - (pl[i] & m);
+            borrow >>= 32;
+        }
+        return (int)borrow + 1;
+    }
+
+    /**
+     * z += 2^256 - p if mask is -1, dropping the carry out of the top limb: z - p for
+     * p <= z < 2^256, or the reduction of z + 2^256 when an addition overflowed.
+     * mask is 0 or -1, the same instructions run either way.
+     */
+    private static void addc(int[] z, int mask)
+    {
+        long carry = (z[0] & m) + (c & mask);
+        z[0] = (int)carry;
+        carry >>>= 32;
+        carry += (z[1] & m) + (1 & mask);
+        z[1] = (int)carry;
+        carry >>>= 32;
+        for (int i = 2; i < 8; ++i)
+        {
+            carry += z[i] & m;
+            z[i] = (int)carry;
+            carry >>>= 32;
+        }
+    }
+
+    /**
+     * z -= 2^256 - p modulo 2^256 if mask is -1, the reduction of z - 2^256 when a
+     * subtraction borrowed.
+     */
+    private static void subc(int[] z, int mask)
+    {
+        long borrow = (z[0] & m) - (c & mask);
+        z[0] = (int)borrow;
+        borrow >>= 32;
+        borrow += (z[1] & m) - (1 & mask);
+        z[1] = (int)borrow;
+        borrow >>= 32;
+        for (int i = 2; i < 8; ++i)
+        {
+            borrow += z[i] & m;
+            z[i] = (int)borrow;
+            borrow >>= 32;
+        }
+    }
+}
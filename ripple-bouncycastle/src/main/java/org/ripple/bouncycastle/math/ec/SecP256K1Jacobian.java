@@ -0,0 +1,252 @@
+package org.ripple.bouncycastle.math.ec;
+
+/**
+ * mutable secp256k1 point in jacobian co-ordinates, (x, y, z) stands for the
+ * affine point (x / z^2, y / z^3). additions and doublings need no field
+ * inversion, only the final conversion back to affine does. z = 0 is the
+ * point at infinity. formulas are for a = 0.
+ */
+class secp256k1jacobian
+{
+    final int[] x = secp256k1field.create();
+    final int[] y = secp256k1field.create();
+    final int[] z = secp256k1field.create();
+
+    /**
+     * the point at infinity.
+     */
+    secp256k1jacobian()
+    {
+    }
+
+    secp256k1jacobian(int[] ax, int[] ay)
+    {
+        set(ax, ay);
+    }
+
+    secp256k1jacobian(secp256k1jacobian other)
+    {
+        secp256k1field.copy(other.x, x);
+        secp256k1field.copy(other.y, y);
+        secp256k1field.copy(other.z, z);
+    }
+
+    static secp256k1jacobian of(secp256k1point p)
+    {
+        if (p.isinfinity())
+        {
+            return new secp256k1jacobian();
+        }
+        return new secp256k1jacobian(p.xlimbs(), p.ylimbs());
+    }
+
+    void set(int[] ax, int[] ay)
+    {
+        secp256k1field.copy(ax, x);
+        secp256k1field.copy(ay, y);
+        secp256k1field.setone(z);
+    }
+
+    boolean isinfinity()
+    {
+        return secp256k1field.iszero(z);
+    }
+
+    /**
+     * this = 2 * this
+     */
+    void twice()
+    {
+        if (isinfinity())
+        {
+            return;
+        }
+        if (secp256k1field.iszero(y))
+        {
+            secp256k1field.copy(y, z);
+            return;
+        }
+        int[] a = new int[8], b = new int[8], cc = new int[8], d = new int[8], e = new int[8];
+
+        secp256k1field.square(x, a);                // a = x^2
+        secp256k1field.square(y, b);                // b = y^2
+        secp256k1field.square(b, cc);               // c = b^2
+        secp256k1field.add(x, b, d);
+        secp256k1field.square(d, d);
+        secp256k1field.subtract(d, a, d);
+        secp256k1field.subtract(d, cc, d);
+        secp256k1field.twice(d, d);                 // d = 2 * ((x + b)^2 - a - c)
+        secp256k1field.twice(a, e);
+        secp256k1field.add(e, a, e);                // e = 3 * a
+
+        secp256k1field.multiply(y, z, z);
+        secp256k1field.twice(z, z);                 // z3 = 2 * y * z
+
+        secp256k1field.square(e, x);
+        secp256k1field.subtract(x, d, x);
+        secp256k1field.subtract(x, d, x);           // x3 = e^2 - 2 * d
+
+        secp256k1field.subtract(d, x, y);
+        secp256k1field.multiply(y, e, y);
+        secp256k1field.twice(cc, cc);
+        secp256k1field.twice(cc, cc);
+        secp256k1field.twice(cc, cc);
+        secp256k1field.subtract(y, cc, y);          // y3 = e * (d - x3) - 8 * c
+    }
+
+    /**
+     * this = this + (ax, ay), an affine point which is not infinity.
+     */
+    void add(int[] ax, int[] ay)
+    {
+        if (isinfinity())
+        {
+            set(ax, ay);
+            return;
+        }
+        int[] z2 = new int[8], u2 = new int[8], s2 = new int[8];
+        secp256k1field.square(z, z2);
+        secp256k1field.multiply(ax, z2, u2);        // u2 = ax * z^2
+        secp256k1field.multiply(z2, z, s2);
+        secp256k1field.multiply(ay, s2, s2);        // s2 = ay * z^3
+        addfinish(x, y, u2, s2, null);
+    }
+
+    /**
+     * this = this + other
+     */
+    void add(secp256k1jacobian other)
+    {
+        if (other.isinfinity())
+        {
+            return;
+        }
+        if (isinfinity())
+        {
+            secp256k1field.copy(other.x, x);
+            secp256k1field.copy(other.y, y);
+            secp256k1field.copy(other.z, z);
+            return;
+        }
+        int[] t = new int[8], u1 = new int[8], s1 = new int[8], u2 = new int[8], s2 = new int[8];
+        secp256k1field.square(other.z, t);
+        secp256k1field.multiply(x, t, u1);          // u1 = x1 * z2^2
+        secp256k1field.multiply(t, other.z, t);
+        secp256k1field.multiply(y, t, s1);          // s1 = y1 * z2^3
+        secp256k1field.square(z, t);
+        secp256k1field.multiply(other.x, t, u2);    // u2 = x2 * z1^2
+        secp256k1field.multiply(t, z, t);
+        secp256k1field.multiply(other.y, t, s2);    // s2 = y2 * z1^3
+        addfinish(u1, s1, u2, s2, other.z);
+    }
+
+    /**
+     * common tail of the additions, z2 null for an affine second point.
+     */
+    private void addfinish(int[] u1, int[] s1, int[] u2, int[] s2, int[] z2)
+    {
+        int[] h = new int[8], r = new int[8];
+        secp256k1field.subtract(u2, u1, h);
+        secp256k1field.subtract(s2, s1, r);
+        if (secp256k1field.iszero(h))
+        {
+            if (secp256k1field.iszero(r))
+            {
+                twice();
+            }
+            else
+            {
+                secp256k1field.setone(x);
+                secp256k1field.setone(y);
+                secp256k1field.copy(h, z);
+            }
+            return;
+        }
+        int[] hh = new int[8], hhh = new int[8], v = new int[8];
+        secp256k1field.square(h, hh);
+        secp256k1field.multiply(hh, h, hhh);
+        secp256k1field.multiply(u1, hh, v);
+
+        secp256k1field.multiply(z, h, z);
+        if (z2 != null)
+        {
+            secp256k1field.multiply(z, z2, z);      // z3 = z1 * z2 * h
+        }
+
+        int[] s1hhh = new int[8];
+        secp256k1field.multiply(s1, hhh, s1hhh);
+
+        secp256k1field.square(r, x);
+        secp256k1field.subtract(x, hhh, x);
+        secp256k1field.subtract(x, v, x);
+        secp256k1field.subtract(x, v, x);           // x3 = r^2 - h^3 - 2 * v
+
+        secp256k1field.subtract(v, x, y);
+        secp256k1field.multiply(y, r, y);
+        secp256k1field.subtract(y, s1hhh, y);       // y3 = r * (v - x3) - s1 * h^3
+    }
+
+    secp256k1point toaffine(secp256k1curve curve, boolean withcompression)
+    {
+        if (isinfinity())
+        {
+            return (secp256k1point)curve.getinfinity();
+        }
+        int[] zinv = new int[8];
+        secp256k1field.invert(z, zinv);
+        return toaffine(curve, zinv, withcompression);
+    }
+
+    private secp256k1point toaffine(secp256k1curve curve, int[] zinv, boolean withcompression)
+    {
+        int[] zinv2 = new int[8], ax = new int[8], ay = new int[8];
+        secp256k1field.square(zinv, zinv2);
+        secp256k1field.multiply(x, zinv2, ax);
+        secp256k1field.multiply(zinv2, zinv, zinv2);
+        secp256k1field.multiply(y, zinv2, ay);
+        return new secp256k1point(curve, ax, ay, withcompression);
+    }
+
+    /**
+     * convert many points with a single field inversion (montgomery's trick).
+     */
+    static secp256k1point[] toaffine(secp256k1curve curve, secp256k1jacobian[] points, boolean withcompression)
+    {
+        int n = points.length;
+        secp256k1point[] result = new secp256k1point[n];
+        // prefix[i] = product of the z of the finite points before and including i
+        int[][] prefix = new int[n][];
+        int[] acc = secp256k1field.create();
+        secp256k1field.setone(acc);
+        for (int i = 0; i < n; ++i)
+        {
+            if (!points[i].isinfinity())
+            {
+                secp256k1field.multiply(acc, points[i].z, acc);
+            }
+            prefix[i] = secp256k1field.copy(acc);
+        }
+        int[] inv = secp256k1field.create();
+        secp256k1field.invert(acc, inv);
+        for (int i = n - 1; i >= 0; --i)
+        {
+            if (points[i].isinfinity())
+            {
+                result[i] = (secp256k1point)curve.getinfinity();
+                continue;
+            }
+            int[] zinv = secp256k1field.create();
+            if (i > 0)
+            {
+                secp256k1field.multiply(inv, prefix[i - 1], zinv);
+            }
+            else
+            {
+                secp256k1field.copy(inv, zinv);
+            }
+            secp256k1field.multiply(inv, points[i].z, inv);
+            result[i] = points[i].toaffine(curve, zinv, withcompression);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,218 @@
+package org.ripple.bouncycastle.math.ec;
+
+import java.math.biginteger;
+
+/**
+ * window naf multiplication for <code>secp256k1point</code>s. the odd
+ * multiples of the point are computed once in jacobian co-ordinates,
+ * normalized together with a single inversion and kept as the point's
+ * <code>precompinfo</code>; the main loop runs in jacobian co-ordinates
+ * with mixed additions and inverts only once at the end.
+ */
+class secp256k1multiplier implements ecmultiplier
+{
+    static final secp256k1multiplier instance = new secp256k1multiplier();
+
+    /**
+     * window width, the table holds the 2^(width-2) odd multiples 1p, 3p, ... 15p.
+     */
+    static final int width = 5;
+
+    private static final long m = 0xffffffffl;
+
+    public ecpoint multiply(ecpoint p, biginteger k, precompinfo precompinfo)
+    {
+        secp256k1jacobian r = multiply((secp256k1point)p, k);
+        return r.toaffine((secp256k1curve)p.getcurve(), p.withcompression);
+    }
+
+    private static secp256k1jacobian multiply(secp256k1point p, biginteger k)
+    {
+        secp256k1precompinfo table = table(p, p.precompinfo);
+
+        byte[] wnaf = windownaf(width, k);
+        secp256k1jacobian r = new secp256k1jacobian();
+        for (int i = wnaf.length - 1; i >= 0; --i)
+        {
+            r.twice();
+            table.add(r, wnaf[i]);
+        }
+        return r;
+    }
+
+    /**
+     * a * p + b * q with one shared doubling chain (interleaved window naf).
+     */
+    static ecpoint sumoftwomultiplies(secp256k1point p, biginteger a, secp256k1point q, biginteger b)
+    {
+        return sum(p, a, q, b).toaffine((secp256k1curve)p.getcurve(), p.withcompression);
+    }
+
+    /**
+     * a[i] * p[i] + b[i] * q[i] for every i, all converted to affine with a single field inversion.
+     */
+    static ecpoint[] sumoftwomultiplies(secp256k1point[] p, biginteger[] a, secp256k1point[] q, biginteger[] b)
+    {
+        secp256k1jacobian[] sums = new secp256k1jacobian[p.length];
+        for (int i = 0; i < p.length; ++i)
+        {
+            sums[i] = sum(p[i], a[i], q[i], b[i]);
+        }
+        return secp256k1jacobian.toaffine((secp256k1curve)p[0].getcurve(), sums, false);
+    }
+
+    private static secp256k1jacobian sum(secp256k1point p, biginteger a, secp256k1point q, biginteger b)
+    {
+        if (q.multiplier instanceof secp256k1combmultiplier)
+        {
+            secp256k1point t = p;
+            p = q;
+            q = t;
+            biginteger s = a;
+            a = b;
+            b = s;
+        }
+        if (p.multiplier instanceof secp256k1combmultiplier)
+        {
+            // the generator part comes from the fixed-base tables, the scalars are public here
+            secp256k1jacobian r = q.isinfinity() ? new secp256k1jacobian() : multiply(q, b);
+            r.add(secp256k1combmultiplier.multiplyvartime(a));
+            return r;
+        }
+        if (p.isinfinity() || a.signum() == 0)
+        {
+            return q.isinfinity() ? new secp256k1jacobian() : multiply(q, b);
+        }
+        if (q.isinfinity() || b.signum() == 0)
+        {
+            return multiply(p, a);
+        }
+
+        secp256k1precompinfo ptable = table(p, p.precompinfo);
+        secp256k1precompinfo qtable = table(q, q.precompinfo);
+
+        byte[] anaf = windownaf(width, a);
+        byte[] bnaf = windownaf(width, b);
+        secp256k1jacobian r = new secp256k1jacobian();
+        for (int i = math.max(anaf.length, bnaf.length) - 1; i >= 0; --i)
+        {
+            r.twice();
+            if (i < anaf.length)
+            {
+                ptable.add(r, anaf[i]);
+            }
+            if (i < bnaf.length)
+            {
+                qtable.add(r, bnaf[i]);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * the odd multiples of p, computed and stored on p the first time.
+     */
+    static secp256k1precompinfo table(secp256k1point p, precompinfo precompinfo)
+    {
+        if (precompinfo instanceof secp256k1precompinfo)
+        {
+            return (secp256k1precompinfo)precompinfo;
+        }
+        int n = 1 << (width - 2);
+        secp256k1jacobian[] odd = new secp256k1jacobian[n];
+        odd[0] = secp256k1jacobian.of(p);
+        secp256k1jacobian twicep = secp256k1jacobian.of(p);
+        twicep.twice();
+        for (int i = 1; i < n; ++i)
+        {
+            odd[i] = new secp256k1jacobian(odd[i - 1]);
+            odd[i].add(twicep);
+        }
+        secp256k1precompinfo table = new secp256k1precompinfo(
+            secp256k1jacobian.toaffine((secp256k1curve)p.getcurve(), odd, false));
+        p.setprecompinfo(table);
+        return table;
+    }
+
+    /**
+     * window naf of k: odd digits in (-2^(width-1), 2^(width-1)), least
+     * significant first, any width - 1 consecutive digits after a non-zero
+     * one are zero.
+     */
+    static byte[] windownaf(int width, biginteger k)
+    {
+        if (k.signum() < 0)
+        {
+            throw new illegalargumentexception("the multiplicator cannot be negative");
+        }
+        int len = k.bitlength() + 1;
+        int[] limbs = new int[(len + 63) / 32];
+        for (int i = 0; i < limbs.length; ++i)
+        {
+            limbs[i] = k.shiftright(i * 32).intvalue();
+        }
+
+        byte[] wnaf = new byte[len];
+        int carry = 0;
+        int bit = 0;
+        while (bit < len)
+        {
+            if (getbits(limbs, bit, 1) == carry)
+            {
+                ++bit;
+                continue;
+            }
+            int now = math.min(width, len - bit);
+            int word = getbits(limbs, bit, now) + carry;
+            carry = (word >> (width - 1)) & 1;
+            word -= carry << width;
+            wnaf[bit] = (byte)word;
+            bit += now;
+        }
+        return wnaf;
+    }
+
+    private static int getbits(int[] limbs, int bit, int count)
+    {
+        int i = bit >>> 5;
+        long v = (limbs[i] & m) | ((limbs[i + 1] & m) << 32);
+        return (int)(v >>> (bit & 31)) & ((1 << count) - 1);
+    }
+
+    /**
+     * affine odd multiples of a point, the y co-ordinates also negated for negative digits.
+     */
+    static class secp256k1precompinfo implements precompinfo
+    {
+        private final int[][] xs, ys, negys;
+
+        secp256k1precompinfo(secp256k1point[] odd)
+        {
+            xs = new int[odd.length][];
+            ys = new int[odd.length][];
+            negys = new int[odd.length][];
+            for (int i = 0; i < odd.length; ++i)
+            {
+                xs[i] = odd[i].xlimbs();
+                ys[i] = odd[i].ylimbs();
+                negys[i] = secp256k1field.create();
+                secp256k1field.negate(ys[i], negys[i]);
+            }
+        }
+
+        /**
+         * r += digit * p for an odd digit, nothing for 0.
+         */
+        void add(secp256k1jacobian r, int digit)
+        {
+            if (digit > 0)
+            {
+                r.add(xs[(digit - 1) >> 1], ys[(digit - 1) >> 1]);
+            }
+            else if (digit < 0)
+            {
+                r.add(xs[(-digit - 1) >> 1], negys[(-digit - 1) >> 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.ripple.bouncycastle.math.ec;
+
+/**
+ * affine point on secp256k1. the co-ordinates are kept both as field
+ * elements, for the generic api, and as 32-bit limbs for the fast
+ * arithmetic in <code>secp256k1field</code> and <code>secp256k1jacobian</code>.
+ */
+public class secp256k1point extends ecpoint.fp
+{
+    private final int[] xlimbs, ylimbs;
+
+    public secp256k1point(eccurve curve, ecfieldelement x, ecfieldelement y)
+    {
+        this(curve, x, y, false);
+    }
+
+    public secp256k1point(eccurve curve, ecfieldelement x, ecfieldelement y, boolean withcompression)
+    {
+        super(curve, x, y, withcompression);
+        this.xlimbs = x == null ? null : secp256k1field.frombiginteger(x.tobiginteger());
+        this.ylimbs = y == null ? null : secp256k1field.frombiginteger(y.tobiginteger());
+    }
+
+    secp256k1point(secp256k1curve curve, int[] x, int[] y, boolean withcompression)
+    {
+        super(curve, curve.frombiginteger(secp256k1field.tobiginteger(x)),
+            curve.frombiginteger(secp256k1field.tobiginteger(y)), withcompression);
+        this.xlimbs = x;
+        this.ylimbs = y;
+    }
+
+    int[] xlimbs()
+    {
+        return xlimbs;
+    }
+
+    int[] ylimbs()
+    {
+        return ylimbs;
+    }
+
+    public ecpoint add(ecpoint b)
+    {
+        if (!(b instanceof secp256k1point))
+        {
+            return super.add(b);
+        }
+        if (this.isinfinity())
+        {
+            return b;
+        }
+        if (b.isinfinity())
+        {
+            return this;
+        }
+        secp256k1point other = (secp256k1point)b;
+        secp256k1jacobian r = secp256k1jacobian.of(this);
+        r.add(other.xlimbs(), other.ylimbs());
+        return r.toaffine((secp256k1curve)curve, withcompression);
+    }
+
+    public ecpoint twice()
+    {
+        if (this.isinfinity())
+        {
+            return this;
+        }
+        secp256k1jacobian r = secp256k1jacobian.of(this);
+        r.twice();
+        return r.toaffine((secp256k1curve)curve, withcompression);
+    }
+
+    public ecpoint negate()
+    {
+        if (this.isinfinity())
+        {
+            return this;
+        }
+        int[] ny = secp256k1field.create();
+        secp256k1field.negate(ylimbs(), ny);
+        return new secp256k1point((secp256k1curve)curve, xlimbs(), ny, withcompression);
+    }
+
+    synchronized void assertecmultiplier()
+    {
+        if (this.multiplier == null)
+        {
+            this.multiplier = secp256k1multiplier.instance;
+        }
+    }
+}